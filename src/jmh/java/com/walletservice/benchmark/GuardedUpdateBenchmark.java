@@ -0,0 +1,148 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.WalletServiceApplication;
+import com.walletservice.dto.TransactionRequest;
+import com.walletservice.dto.TransactionResponse;
+import com.walletservice.dto.TransferRequest;
+import com.walletservice.dto.TransferResponse;
+import com.walletservice.model.TransactionType;
+import com.walletservice.service.TransactionService;
+import com.walletservice.service.WalletService;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Latency of the JPA path with guarded {@code UPDATE} statements against loading and
+ * flushing the wallet entity under a wallet lock.
+ * <p>
+ * Sample time mode reports the p99 of each operation. {@code wallets=1} puts every thread
+ * on one hot wallet, {@code wallets=1000} spreads them. After each iteration the JDBC
+ * statements Hibernate prepared per operation are printed, which is the round trip count
+ * of each path apart from the idempotency key statements.
+ * <p>
+ * Boots the application against the database from {@code application.yml}
+ * (start it with {@code docker compose up -d}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(32)
+public class GuardedUpdateBenchmark {
+
+    private static final int INITIAL_BALANCE = 1_000_000_000;
+
+    @Param({"true", "false"})
+    public boolean guardedUpdates;
+
+    @Param({"1", "1000"})
+    public int wallets;
+
+    // keys stay unique across forks sharing the database
+    private final String run = UUID.randomUUID().toString();
+    private final AtomicLong keys = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private Statistics statistics;
+    private UUID[] walletIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("wallet.engine.mode=jpa",
+                        "wallet.engine.guarded-updates=" + guardedUpdates,
+                        "spring.jpa.properties.hibernate.generate_statistics=true",
+                        "logging.level.root=WARN")
+                .run();
+        transactionService = context.getBean(TransactionService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        WalletService walletService = context.getBean(WalletService.class);
+
+        walletIds = new UUID[wallets];
+        for (int i = 0; i < wallets; i++) {
+            walletIds[i] = walletService.createWallet().getId();
+            transactionService.createOrDebit(TransactionRequest.builder()
+                    .walletId(walletIds[i])
+                    .amount(INITIAL_BALANCE)
+                    .type(TransactionType.CREDIT.name())
+                    .idempotencyKey(nextKey())
+                    .build());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStatistics() {
+        statistics.clear();
+        operations.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRoundTrips() {
+        long ops = operations.get();
+        if (ops > 0) {
+            System.out.printf("%nJPA statements/op (guardedUpdates=%s, wallets=%d): %.2f%n",
+                    guardedUpdates, wallets, (double) statistics.getPrepareStatementCount() / ops);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionResponse debit() {
+        operations.incrementAndGet();
+        return transactionService.createOrDebit(TransactionRequest.builder()
+                .walletId(randomWallet())
+                .amount(1)
+                .type(TransactionType.DEBIT.name())
+                .idempotencyKey(nextKey())
+                .build());
+    }
+
+    @Benchmark
+    public TransferResponse transfer() {
+        operations.incrementAndGet();
+        return transactionService.transfer(TransferRequest.builder()
+                .senderWalletId(randomWallet())
+                .receiverWalletId(randomWallet())
+                .amount(1)
+                .idempotencyKey(nextKey())
+                .build());
+    }
+
+    private UUID randomWallet() {
+        return walletIds[ThreadLocalRandom.current().nextInt(walletIds.length)];
+    }
+
+    private String nextKey() {
+        return run + "-" + keys.incrementAndGet();
+    }
+}
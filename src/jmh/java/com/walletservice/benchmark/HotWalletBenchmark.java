@@ -0,0 +1,119 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.WalletServiceApplication;
+import com.walletservice.dto.TransactionRequest;
+import com.walletservice.dto.TransactionResponse;
+import com.walletservice.dto.TransferRequest;
+import com.walletservice.dto.TransferResponse;
+import com.walletservice.model.TransactionType;
+import com.walletservice.service.TransactionService;
+import com.walletservice.service.WalletService;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Throughput of credits and incoming transfers to one hot wallet, with its balance in the
+ * single {@code wallets} row ({@code slots=0}) against split into balance slots.
+ * <p>
+ * With one row every credit queues on the same row lock; with slots the credits spread over
+ * them, so throughput should grow with the slot count until the connection pool is the limit.
+ * Transfers come from 1000 other wallets, so only the receiver side is hot.
+ * <p>
+ * Boots the application against the database from {@code application.yml}
+ * (start it with {@code docker compose up -d}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(32)
+public class HotWalletBenchmark {
+
+    private static final int SENDERS = 1000;
+    private static final int INITIAL_BALANCE = 1_000_000_000;
+
+    @Param({"0", "8", "32"})
+    public int slots;
+
+    // keys stay unique across forks sharing the database
+    private final String run = UUID.randomUUID().toString();
+    private final AtomicLong keys = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private UUID hotWalletId;
+    private UUID[] senderIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("wallet.engine.mode=jpa",
+                        "logging.level.root=WARN")
+                .run();
+        transactionService = context.getBean(TransactionService.class);
+        WalletService walletService = context.getBean(WalletService.class);
+
+        hotWalletId = walletService.createWallet().getId();
+        walletService.updateSlots(hotWalletId, slots);
+        senderIds = new UUID[SENDERS];
+        for (int i = 0; i < SENDERS; i++) {
+            senderIds[i] = walletService.createWallet().getId();
+            transactionService.createOrDebit(TransactionRequest.builder()
+                    .walletId(senderIds[i])
+                    .amount(INITIAL_BALANCE)
+                    .type(TransactionType.CREDIT.name())
+                    .idempotencyKey(nextKey())
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionResponse credit() {
+        return transactionService.createOrDebit(TransactionRequest.builder()
+                .walletId(hotWalletId)
+                .amount(1)
+                .type(TransactionType.CREDIT.name())
+                .idempotencyKey(nextKey())
+                .build());
+    }
+
+    @Benchmark
+    public TransferResponse transferIn() {
+        return transactionService.transfer(TransferRequest.builder()
+                .senderWalletId(senderIds[ThreadLocalRandom.current().nextInt(SENDERS)])
+                .receiverWalletId(hotWalletId)
+                .amount(1)
+                .idempotencyKey(nextKey())
+                .build());
+    }
+
+    private String nextKey() {
+        return run + "-" + keys.incrementAndGet();
+    }
+}
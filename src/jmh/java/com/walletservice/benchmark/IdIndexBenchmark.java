@@ -0,0 +1,98 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.WalletServiceApplication;
+import com.walletservice.dto.BulkWalletRequest;
+import com.walletservice.service.WalletService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Insert throughput and primary key index size of time-ordered UUIDv7 ids against random
+ * version 4 UUIDs.
+ * <p>
+ * Wallets are inserted by concurrent threads with batched {@code INSERT} statements, and the
+ * score reads as wallets per second. After each iteration the size of the {@code wallets}
+ * primary key index is printed per row: random ids split pages all over the index and leave
+ * them half full, time-ordered ids fill the right-most page.
+ * <p>
+ * Boots the application against the database from {@code application.yml}
+ * (start it with {@code docker compose up -d}); the schema is recreated for every trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class IdIndexBenchmark {
+
+    private static final int WALLETS = 1_000;
+    private static final String PRIMARY_KEY_SIZE_SQL =
+            "SELECT pg_relation_size(indexrelid) FROM pg_index "
+                    + "WHERE indrelid = 'wallets'::regclass AND indisprimary";
+
+    @Param({"uuid-v7", "random"})
+    public String generator;
+
+    private final AtomicLong created = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private WalletService walletService;
+    private JdbcTemplate jdbcTemplate;
+    private BulkWalletRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("wallet.id.generator=" + generator,
+                        "wallet.provisioning.copy=false",
+                        "wallet.provisioning.chunk-size=" + WALLETS,
+                        "logging.level.root=WARN")
+                .run();
+        walletService = context.getBean(WalletService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        request = BulkWalletRequest.builder().count(WALLETS).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printIndexSize() {
+        Long bytes = jdbcTemplate.queryForObject(PRIMARY_KEY_SIZE_SQL, Long.class);
+        long rows = created.get();
+        if (bytes != null && rows > 0) {
+            System.out.printf("%nwallets_pkey (generator=%s): %d rows, %.1f MB, %.1f bytes/row%n",
+                    generator, rows, bytes / 1048576.0, (double) bytes / rows);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WALLETS)
+    public long insert() {
+        walletService.createWallets(request, ids -> created.addAndGet(ids.size()));
+        return created.get();
+    }
+}
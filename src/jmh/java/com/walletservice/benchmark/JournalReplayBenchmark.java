@@ -0,0 +1,83 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.UuidV7Generator;
+import com.walletservice.service.journal.JournalRecord;
+import com.walletservice.service.journal.LedgerJournal;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Journal records replayed per second when the {@code journal} engine mode starts: opening a
+ * journal of {@value #RECORDS} records in 64MB segments, checking the CRC and sequence of each.
+ * Records are spread over 10000 wallets, every third one a transfer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JournalReplayBenchmark {
+
+    private static final int RECORDS = 1_000_000;
+    private static final int WALLETS = 10_000;
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-replay");
+        UuidV7Generator ids = new UuidV7Generator();
+        UUID[] wallets = new UUID[WALLETS];
+        for (int i = 0; i < WALLETS; i++) {
+            wallets[i] = UUID.randomUUID();
+        }
+        try (LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, record -> { })) {
+            for (int i = 0; i < RECORDS; i++) {
+                boolean transfer = i % 3 == 0;
+                journal.append(new JournalRecord(transfer ? TransactionType.TRANSFER_OUT : TransactionType.CREDIT,
+                        journal.getNextSequence(), System.currentTimeMillis(), 1, ids.nextId(),
+                        wallets[i % WALLETS], transfer ? wallets[(i + 1) % WALLETS] : null,
+                        JournalRecord.digestOf("replay-" + i)));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void replay(Blackhole blackhole) throws IOException {
+        try (LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, blackhole::consume)) {
+            blackhole.consume(journal.getNextSequence());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.WalletServiceApplication;
+import com.walletservice.dto.TransactionRequest;
+import com.walletservice.dto.TransactionResponse;
+import com.walletservice.dto.TransferRequest;
+import com.walletservice.dto.TransferResponse;
+import com.walletservice.model.TransactionType;
+import com.walletservice.service.TransactionService;
+import com.walletservice.service.WalletService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Mutation throughput of the JPA path against the ledger engines.
+ * <p>
+ * Boots the application against the database from {@code application.yml}
+ * (start it with {@code docker compose up -d}). {@code wallets=16} models a few hot
+ * wallets, {@code wallets=10000} a uniform spread. The {@code journal} mode writes its journal to
+ * a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(32)
+public class LedgerEngineBenchmark {
+
+    private static final int INITIAL_BALANCE = 1_000_000;
+
+    @Param({"jpa", "sharded", "group-commit", "event-sourced", "journal"})
+    public String mode;
+
+    @Param({"16", "10000"})
+    public int wallets;
+
+    private final AtomicLong keys = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private UUID[] walletIds;
+    private Path journalDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journalDirectory = Files.createTempDirectory("ledger-journal");
+        context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("wallet.engine.mode=" + mode, "logging.level.root=WARN",
+                        "wallet.engine.journal.directory=" + journalDirectory)
+                .run();
+        transactionService = context.getBean(TransactionService.class);
+        WalletService walletService = context.getBean(WalletService.class);
+
+        walletIds = new UUID[wallets];
+        for (int i = 0; i < wallets; i++) {
+            walletIds[i] = walletService.createWallet().getId();
+            transactionService.createOrDebit(TransactionRequest.builder()
+                    .walletId(walletIds[i])
+                    .amount(INITIAL_BALANCE)
+                    .type(TransactionType.CREDIT.name())
+                    .idempotencyKey(nextKey())
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public TransactionResponse credit() {
+        return transactionService.createOrDebit(TransactionRequest.builder()
+                .walletId(randomWallet())
+                .amount(1)
+                .type(TransactionType.CREDIT.name())
+                .idempotencyKey(nextKey())
+                .build());
+    }
+
+    @Benchmark
+    public TransferResponse transfer() {
+        return transactionService.transfer(TransferRequest.builder()
+                .senderWalletId(randomWallet())
+                .receiverWalletId(randomWallet())
+                .amount(1)
+                .idempotencyKey(nextKey())
+                .build());
+    }
+
+    private UUID randomWallet() {
+        return walletIds[ThreadLocalRandom.current().nextInt(walletIds.length)];
+    }
+
+    private String nextKey() {
+        return mode + "-" + keys.incrementAndGet();
+    }
+}
@@ -0,0 +1,144 @@
+package com.walletservice.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walletservice.WalletServiceApplication;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Credits per second over HTTP with requests handled on Tomcat's platform thread pool
+ * against virtual threads, at several numbers of requests in flight.
+ * <p>
+ * Each invocation sends {@code concurrency} credits at once and waits for all of them. The
+ * {@code ok} and {@code unavailable} counters tell the credits applied from those shed with
+ * {@code 503} by the database permits; beyond the pool size the platform mode queues requests
+ * in Tomcat, while the virtual mode admits them all and queues them on the permits instead.
+ * Boots the application against the database from {@code application.yml} (start it with
+ * {@code docker compose up -d}); {@code threads=virtual} needs a Java 21 runtime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class RequestExecutionBenchmark {
+
+    private static final int WALLETS = 1000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"16", "64", "256", "1024"})
+    public int concurrency;
+
+    private final AtomicLong keys = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private URI transactions;
+    private UUID[] walletIds;
+
+    /**
+     * Requests of the measured invocations by response, per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Responses {
+        public long ok;
+        public long unavailable;
+        public long failed;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need Java 21, running " + Runtime.version());
+        }
+        context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .properties("server.port=0", "spring.threads.virtual.enabled=" + virtual, "logging.level.root=WARN")
+                .run();
+        clientExecutor = Executors.newCachedThreadPool();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+        URI base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+        transactions = base.resolve("/transactions");
+
+        HttpResponse<String> created = client.send(post(base.resolve("/wallets/bulk"), "{\"count\":" + WALLETS + "}"),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode ids = new ObjectMapper().readTree(created.body());
+        walletIds = new UUID[ids.size()];
+        for (int i = 0; i < walletIds.length; i++) {
+            walletIds[i] = UUID.fromString(ids.get(i).asText());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void credits(Responses responses) {
+        List<CompletableFuture<Integer>> inFlight = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            UUID walletId = walletIds[ThreadLocalRandom.current().nextInt(walletIds.length)];
+            String body = "{\"walletId\":\"" + walletId + "\",\"amount\":1,\"type\":\"CREDIT\",\"idempotencyKey\":\"bench-"
+                    + keys.incrementAndGet() + "\"}";
+            inFlight.add(client.sendAsync(post(transactions, body), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> error == null ? response.statusCode() : -1));
+        }
+        for (CompletableFuture<Integer> request : inFlight) {
+            int status = request.join();
+            if (status == 201) {
+                responses.ok++;
+            } else if (status == 503) {
+                responses.unavailable++;
+            } else {
+                responses.failed++;
+            }
+        }
+    }
+
+    private static HttpRequest post(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMinutes(1))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.dto.TransactionDto;
+import com.walletservice.dto.TransactionRequest;
+import com.walletservice.dto.TransactionResponse;
+import com.walletservice.dto.TransferRequest;
+import com.walletservice.dto.TransferResponse;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.Ids;
+import com.walletservice.service.mapper.TransactionMapper;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of mapping a {@link Transaction} to the DTOs returned by the API.
+ * <p>
+ * Run with {@code -prof gc} to see the bytes allocated per mapping.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionMapperBenchmark {
+
+    private Transaction transaction;
+    private TransactionRequest transactionRequest;
+    private TransferRequest transferRequest;
+
+    @Setup
+    public void setUp() {
+        transaction = Transaction.builder()
+                .id(Ids.next())
+                .walletId(Ids.next())
+                .amount(150)
+                .type(TransactionType.TRANSFER_OUT)
+                .idempotencyKey("benchmark-key-000000001")
+                .createdAt(Instant.now())
+                .build();
+        transactionRequest = TransactionRequest.builder()
+                .walletId(transaction.getWalletId())
+                .amount(150)
+                .type(TransactionType.DEBIT.name())
+                .idempotencyKey(transaction.getIdempotencyKey())
+                .build();
+        transferRequest = TransferRequest.builder()
+                .senderWalletId(transaction.getWalletId())
+                .receiverWalletId(Ids.next())
+                .amount(150)
+                .idempotencyKey(transaction.getIdempotencyKey())
+                .build();
+    }
+
+    @Benchmark
+    public TransactionDto mapToTransactionDto() {
+        return TransactionMapper.mapToTransactionDto(transaction);
+    }
+
+    @Benchmark
+    public TransactionResponse mapToTransactionResponse() {
+        return TransactionMapper.mapToTransactionResponse(transaction, transactionRequest);
+    }
+
+    @Benchmark
+    public TransferResponse mapToTransferResponse() {
+        return TransactionMapper.mapToTransferResponse(transaction, transferRequest);
+    }
+}
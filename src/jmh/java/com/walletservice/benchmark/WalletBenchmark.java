@@ -0,0 +1,61 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.exception.ServiceException;
+import com.walletservice.model.Wallet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link Wallet#credit(int)} and {@link Wallet#debit(int)} on the entity path, including
+ * a rejected debit, which pays for building the exception and its stack trace.
+ * <p>
+ * Run with {@code -prof gc} to see the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalletBenchmark {
+
+    private Wallet wallet;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        wallet = Wallet.builder().balance(1_000_000_000).build();
+    }
+
+    @Benchmark
+    public Integer credit() {
+        wallet.credit(1);
+        return wallet.getBalance();
+    }
+
+    @Benchmark
+    public Integer creditThenDebit() {
+        wallet.credit(1);
+        wallet.debit(1);
+        return wallet.getBalance();
+    }
+
+    @Benchmark
+    public Object debitRejected() {
+        try {
+            wallet.debit(Integer.MAX_VALUE);
+            return wallet;
+        } catch (ServiceException e) {
+            return e;
+        }
+    }
+}
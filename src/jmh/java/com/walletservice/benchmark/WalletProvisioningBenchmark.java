@@ -0,0 +1,88 @@
+package com.walletservice.benchmark;
+
+import com.walletservice.WalletServiceApplication;
+import com.walletservice.dto.BulkWalletRequest;
+import com.walletservice.service.WalletService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Wallets per second created by bulk provisioning.
+ * <p>
+ * Every invocation provisions {@value #WALLETS} wallets, and the score is reported per
+ * wallet, so the throughput reads as wallets per second. {@code copy=false} measures the
+ * batched {@code INSERT} fallback against PostgreSQL {@code COPY}.
+ * <p>
+ * Boots the application against the database from {@code application.yml}
+ * (start it with {@code docker compose up -d}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(1)
+public class WalletProvisioningBenchmark {
+
+    private static final int WALLETS = 100_000;
+
+    @Param({"true", "false"})
+    public boolean copy;
+
+    @Param({"1000", "10000"})
+    public int chunkSize;
+
+    private final AtomicLong created = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private WalletService walletService;
+    private BulkWalletRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("wallet.provisioning.copy=" + copy,
+                        "wallet.provisioning.chunk-size=" + chunkSize,
+                        "logging.level.root=WARN")
+                .run();
+        walletService = context.getBean(WalletService.class);
+        request = BulkWalletRequest.builder().count(WALLETS).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCreated() {
+        System.out.printf("%nWallets created so far (copy=%s, chunkSize=%d): %d%n",
+                copy, chunkSize, created.get());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WALLETS)
+    public long provision() {
+        walletService.createWallets(request, ids -> created.addAndGet(ids.size()));
+        return created.get();
+    }
+}
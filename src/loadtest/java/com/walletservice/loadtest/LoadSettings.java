@@ -0,0 +1,82 @@
+package com.walletservice.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.core.env.Environment;
+
+/**
+ * Options of a load test run, read from {@code load.*} properties, so they are given like
+ * any Spring Boot option: {@code --load.scenario=hot --load.threads=64}.
+ */
+final class LoadSettings {
+
+    final Scenario scenario;
+    final int threads;
+    final int wallets;
+    final int hotWallets;
+    final double hotShare;
+    final Duration warmup;
+    final Duration duration;
+    /** Requests per second over all threads, 0 to send the next request as soon as one completes. */
+    final int rate;
+    final int initialBalance;
+    final int maxAmount;
+    final Map<Operation, Integer> mix;
+
+    LoadSettings(Environment environment) {
+        scenario = Scenario.valueOf(environment.getProperty("load.scenario", "uniform").toUpperCase(Locale.ROOT));
+        threads = environment.getProperty("load.threads", Integer.class, 32);
+        wallets = environment.getProperty("load.wallets", Integer.class, 1_000);
+        hotWallets = environment.getProperty("load.hot-wallets", Integer.class, 4);
+        hotShare = environment.getProperty("load.hot-share", Double.class, 0.8);
+        warmup = environment.getProperty("load.warmup", Duration.class, Duration.ofSeconds(5));
+        duration = environment.getProperty("load.duration", Duration.class, Duration.ofSeconds(30));
+        rate = environment.getProperty("load.rate", Integer.class, 0);
+        initialBalance = environment.getProperty("load.initial-balance", Integer.class, 1_000_000);
+        maxAmount = environment.getProperty("load.max-amount", Integer.class, 100);
+        mix = parseMix(environment.getProperty("load.mix", "credit:20,debit:20,transfer:40,read:20"));
+
+        if (threads <= 0 || wallets < 2 || maxAmount <= 0 || initialBalance < 0) {
+            throw new IllegalArgumentException("load.threads and load.max-amount must be positive, load.wallets at least 2");
+        }
+        if (scenario == Scenario.HOT && (hotWallets <= 0 || hotWallets >= wallets)) {
+            throw new IllegalArgumentException("load.hot-wallets must be between 1 and load.wallets - 1");
+        }
+    }
+
+    /**
+     * Parses weights such as {@code credit:20,debit:20,transfer:40,read:20}.
+     */
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Bad load.mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative load.mix weight: " + entry);
+            }
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("load.mix has no operation with a positive weight");
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "scenario=" + scenario.name().toLowerCase(Locale.ROOT)
+                + " threads=" + threads
+                + " wallets=" + wallets
+                + (scenario == Scenario.HOT ? " hot-wallets=" + hotWallets + " hot-share=" + hotShare : "")
+                + " rate=" + (rate == 0 ? "closed-loop" : rate + "/s")
+                + " warmup=" + warmup.toSeconds() + "s"
+                + " duration=" + duration.toSeconds() + "s"
+                + " mix=" + mix;
+    }
+}
@@ -0,0 +1,271 @@
+package com.walletservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walletservice.WalletServiceApplication;
+import com.walletservice.dto.BatchTransactionRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * End-to-end load generator.
+ * <p>
+ * Boots the application on a random port, by default against an in-memory H2 database in
+ * PostgreSQL mode, creates and funds {@code load.wallets} wallets, then drives
+ * {@code POST /transactions}, {@code POST /transactions/transfer} and {@code GET /wallets/{id}}
+ * over HTTP from {@code load.threads} threads with the mix and wallet picking of the chosen
+ * {@link Scenario}. It prints latency percentiles and throughput per operation and finally
+ * checks that money was conserved: the wallet balances and the ledger must both add up to the
+ * funding plus the credits minus the debits that succeeded, and no balance may be negative.
+ * The process exits with status 1 if the check fails.
+ * <p>
+ * Any application property can be overridden like the {@code load.*} options, for example
+ * {@code --wallet.engine.mode=sharded} or {@code --spring.datasource.url=jdbc:postgresql://...}.
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> STAND_IN_DATABASE = Map.of(
+            "spring.datasource.url",
+            "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+            "spring.datasource.username", "sa",
+            "spring.datasource.password", "",
+            "spring.jpa.database", "h2",
+            "spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect",
+            "spring.datasource.hikari.maximum-pool-size", "32");
+
+    private static final String BALANCE_SUM_SQL = "SELECT COALESCE(SUM(CAST(balance AS BIGINT)), 0) FROM wallets";
+    private static final String LEDGER_SUM_SQL =
+            "SELECT COALESCE(SUM(CASE WHEN type IN ('CREDIT', 'TRANSFER_IN') THEN CAST(amount AS BIGINT) "
+                    + "ELSE -CAST(amount AS BIGINT) END), 0) FROM transactions";
+    private static final String NEGATIVE_BALANCES_SQL = "SELECT COUNT(*) FROM wallets WHERE balance < 0";
+
+    private final ConfigurableApplicationContext context;
+    private final LoadSettings settings;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final URI baseUri;
+    private final String run = UUID.randomUUID().toString();
+
+    private LoadTest(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.settings = new LoadSettings(context.getEnvironment());
+        this.objectMapper = context.getBean(ObjectMapper.class);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newCachedThreadPool())
+                .connectTimeout(LoadWorker.REQUEST_TIMEOUT)
+                .build();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        this.baseUri = URI.create("http://localhost:" + port);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // above application.yml, below the command line
+        STAND_IN_DATABASE.forEach((key, value) -> {
+            if (System.getProperty(key) == null) {
+                System.setProperty(key, value);
+            }
+        });
+        boolean conserved;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN")
+                .run(args)) {
+            conserved = new LoadTest(context).run();
+        }
+        System.exit(conserved ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nLoad test: %s engine=%s database=%s%n", settings,
+                context.getEnvironment().getProperty("wallet.engine.mode"),
+                context.getEnvironment().getProperty("spring.datasource.url"));
+
+        UUID[] wallets = createWallets();
+        long minted = fund(wallets);
+
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup.toNanos();
+        long end = measureFrom + settings.duration.toNanos();
+        List<LoadWorker> workers = new ArrayList<>(settings.threads);
+        List<Thread> threads = new ArrayList<>(settings.threads);
+        for (int i = 0; i < settings.threads; i++) {
+            LoadWorker worker = new LoadWorker(i, settings, client, baseUri, wallets, run, measureFrom, end);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "load-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        minted += workers.stream().mapToLong(LoadWorker::minted).sum();
+        minted += resolveUnknownOutcomes(workers);
+        report(workers);
+        return checkConservation(minted);
+    }
+
+    private UUID[] createWallets() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(post("/wallets/bulk", "{\"count\":" + settings.wallets + "}"));
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Creating wallets failed with " + response.statusCode() + ": " + response.body());
+        }
+        JsonNode ids = objectMapper.readTree(response.body());
+        UUID[] wallets = new UUID[ids.size()];
+        for (int i = 0; i < wallets.length; i++) {
+            wallets[i] = UUID.fromString(ids.get(i).asText());
+        }
+        if (wallets.length != settings.wallets) {
+            throw new IllegalStateException("Created " + wallets.length + " of " + settings.wallets + " wallets");
+        }
+        return wallets;
+    }
+
+    /**
+     * Credits every wallet its initial balance through the batch endpoint.
+     *
+     * @return money added
+     */
+    private long fund(UUID[] wallets) throws IOException, InterruptedException {
+        if (settings.initialBalance == 0) {
+            return 0;
+        }
+        long funded = 0;
+        for (int from = 0; from < wallets.length; from += BatchTransactionRequest.MAX_ITEMS) {
+            int to = Math.min(wallets.length, from + BatchTransactionRequest.MAX_ITEMS);
+            StringBuilder body = new StringBuilder("{\"items\":[");
+            for (int i = from; i < to; i++) {
+                body.append(i == from ? "" : ",")
+                        .append("{\"walletId\":\"").append(wallets[i])
+                        .append("\",\"amount\":").append(settings.initialBalance)
+                        .append(",\"type\":\"CREDIT\",\"idempotencyKey\":\"").append(run).append("-fund-").append(i)
+                        .append("\"}");
+            }
+            HttpResponse<String> response = send(post("/transactions/batch", body.append("]}").toString()));
+            int applied = response.statusCode() == 200 ? objectMapper.readTree(response.body()).get("applied").asInt() : 0;
+            if (applied != to - from) {
+                throw new IllegalStateException("Funding failed with " + response.statusCode() + ": " + response.body());
+            }
+            funded += (long) applied * settings.initialBalance;
+        }
+        return funded;
+    }
+
+    /**
+     * Sends the credits and debits that got no response again with the same idempotency key:
+     * one that was applied has its response replayed, one that was not is applied now.
+     *
+     * @return money added by the credits and debits now known to be applied
+     */
+    private long resolveUnknownOutcomes(List<LoadWorker> workers) {
+        long minted = 0;
+        int unresolved = 0;
+        int resolved = 0;
+        for (LoadWorker worker : workers) {
+            for (LoadWorker.PendingMutation pending : worker.unresolved()) {
+                unresolved++;
+                try {
+                    if (LoadWorker.outcomeOf(send(pending.request()).statusCode()) == LoadWorker.Outcome.OK) {
+                        minted += pending.signedAmount();
+                    }
+                    resolved++;
+                } catch (IOException e) {
+                    // left unknown, the conservation check will say so
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (unresolved > 0) {
+            System.out.printf("Resolved %d of %d credits and debits that got no response%n", resolved, unresolved);
+        }
+        return minted;
+    }
+
+    private void report(List<LoadWorker> workers) {
+        double seconds = settings.duration.toNanos() / 1e9;
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, long[]> outcomes = new EnumMap<>(Operation.class);
+        for (LoadWorker worker : workers) {
+            worker.latencies().forEach((operation, histogram) ->
+                    latencies.computeIfAbsent(operation, o -> new Histogram(3))
+                            .add(histogram));
+            worker.outcomes().forEach((operation, counts) -> {
+                long[] total = outcomes.computeIfAbsent(operation, o -> new long[counts.length]);
+                for (int i = 0; i < counts.length; i++) {
+                    total[i] += counts[i];
+                }
+            });
+        }
+
+        System.out.printf("%n%-9s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "requests",
+                "req/s", "ok", "rejected", "failed", "unknown", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram all = new Histogram(3);
+        long[] allOutcomes = new long[LoadWorker.Outcome.values().length];
+        for (Operation operation : Operation.values()) {
+            if (settings.mix.getOrDefault(operation, 0) == 0) {
+                continue;
+            }
+            all.add(latencies.get(operation));
+            long[] counts = outcomes.get(operation);
+            for (int i = 0; i < counts.length; i++) {
+                allOutcomes[i] += counts[i];
+            }
+            printRow(operation.name().toLowerCase(Locale.ROOT), latencies.get(operation), counts, seconds);
+        }
+        printRow("all", all, allOutcomes, seconds);
+    }
+
+    private static void printRow(String name, Histogram histogram, long[] counts, double seconds) {
+        System.out.printf("%-9s %9d %9.0f %9d %9d %9d %9d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name,
+                histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                counts[LoadWorker.Outcome.OK.ordinal()], counts[LoadWorker.Outcome.REJECTED.ordinal()],
+                counts[LoadWorker.Outcome.FAILED.ordinal()], counts[LoadWorker.Outcome.UNKNOWN.ordinal()],
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private boolean checkConservation(long expected) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        long balances = jdbcTemplate.queryForObject(BALANCE_SUM_SQL, Long.class);
+        long ledger = jdbcTemplate.queryForObject(LEDGER_SUM_SQL, Long.class);
+        long negative = jdbcTemplate.queryForObject(NEGATIVE_BALANCES_SQL, Long.class);
+        boolean conserved = balances == expected && ledger == expected && negative == 0;
+        System.out.printf("%nConservation: expected %d, wallet balances %d, ledger %d, negative balances %d: %s%n",
+                expected, balances, ledger, negative, conserved ? "OK" : "VIOLATED");
+        return conserved;
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(Duration.ofMinutes(5))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,249 @@
+package com.walletservice.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+
+/**
+ * One load generating thread.
+ * <p>
+ * Sends requests until the end of the run, either back to back or, with a target rate, on a
+ * fixed schedule. Latency is taken from the time a request was due rather than the time it
+ * was sent, so a stalled server shows up in the percentiles instead of silently lowering the
+ * request rate. Everything a worker records is confined to its thread and read once it ended.
+ */
+final class LoadWorker implements Runnable {
+
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long HIGHEST_LATENCY_MICROS = Duration.ofMinutes(10).toNanos() / 1_000;
+
+    /**
+     * What became of a request.
+     */
+    enum Outcome {
+        /** 2xx. */
+        OK,
+        /** 4xx, such as insufficient funds. */
+        REJECTED,
+        /** 5xx. */
+        FAILED,
+        /** No response: timed out or the connection failed. */
+        UNKNOWN
+    }
+
+    private final LoadSettings settings;
+    private final HttpClient client;
+    private final URI baseUri;
+    private final UUID[] wallets;
+    private final String keyPrefix;
+    private final Operation[] operations;
+    private final long measureFromNanos;
+    private final long endNanos;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, long[]> outcomes = new EnumMap<>(Operation.class);
+    private final List<PendingMutation> unresolved = new ArrayList<>();
+    private long minted;
+    private long keys;
+    private int ringPosition;
+
+    LoadWorker(int index, LoadSettings settings, HttpClient client, URI baseUri, UUID[] wallets,
+               String keyPrefix, long measureFromNanos, long endNanos) {
+        this.settings = settings;
+        this.client = client;
+        this.baseUri = baseUri;
+        this.wallets = wallets;
+        this.keyPrefix = keyPrefix + "-" + index + "-";
+        this.operations = weightedOperations(settings.mix);
+        this.measureFromNanos = measureFromNanos;
+        this.endNanos = endNanos;
+        this.ringPosition = (int) ((long) wallets.length * index / settings.threads);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Histogram(HIGHEST_LATENCY_MICROS, 3));
+            outcomes.put(operation, new long[Outcome.values().length]);
+        }
+    }
+
+    @Override
+    public void run() {
+        long intervalNanos = settings.rate == 0 ? 0 : settings.threads * 1_000_000_000L / settings.rate;
+        long due = System.nanoTime();
+        while (true) {
+            if (intervalNanos > 0) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                due = System.nanoTime();
+            }
+            if (due >= endNanos) {
+                return;
+            }
+
+            Operation operation = operations[ThreadLocalRandom.current().nextInt(operations.length)];
+            Outcome outcome = send(operation);
+            if (due >= measureFromNanos) {
+                long micros = (System.nanoTime() - due) / 1_000;
+                latencies.get(operation).recordValue(Math.min(micros, HIGHEST_LATENCY_MICROS));
+                outcomes.get(operation)[outcome.ordinal()]++;
+            }
+            due += intervalNanos;
+        }
+    }
+
+    private Outcome send(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int amount = 1 + random.nextInt(settings.maxAmount);
+        return switch (operation) {
+            case CREDIT -> mutate(mutation(hotOrUniform(), amount, "CREDIT"), amount);
+            case DEBIT -> mutate(mutation(hotOrUniform(), amount, "DEBIT"), -amount);
+            case TRANSFER -> transfer(amount);
+            case READ -> outcomeOf(get("/wallets/" + wallets[hotOrUniform()]));
+        };
+    }
+
+    /**
+     * Sends a credit or debit and keeps the net amount it added to the system.
+     */
+    private Outcome mutate(HttpRequest request, int signedAmount) {
+        Outcome outcome = outcomeOf(request);
+        if (outcome == Outcome.OK) {
+            minted += signedAmount;
+        } else if (outcome == Outcome.UNKNOWN) {
+            unresolved.add(new PendingMutation(request, signedAmount));
+        }
+        return outcome;
+    }
+
+    private Outcome transfer(int amount) {
+        int sender;
+        int receiver;
+        if (settings.scenario == Scenario.RING) {
+            sender = ringPosition;
+            receiver = (sender + 1) % wallets.length;
+            ringPosition = receiver;
+        } else {
+            sender = settings.scenario == Scenario.HOT ? coldWallet() : uniformWallet();
+            do {
+                receiver = hotOrUniform();
+            } while (receiver == sender);
+        }
+        String body = "{\"senderWalletId\":\"" + wallets[sender]
+                + "\",\"receiverWalletId\":\"" + wallets[receiver]
+                + "\",\"amount\":" + amount
+                + ",\"idempotencyKey\":\"" + nextKey() + "\"}";
+        return outcomeOf(post("/transactions/transfer", body));
+    }
+
+    private HttpRequest mutation(int wallet, int amount, String type) {
+        String body = "{\"walletId\":\"" + wallets[wallet]
+                + "\",\"amount\":" + amount
+                + ",\"type\":\"" + type
+                + "\",\"idempotencyKey\":\"" + nextKey() + "\"}";
+        return post("/transactions", body);
+    }
+
+    /**
+     * A merchant wallet for the hot share of the hot scenario, any wallet otherwise.
+     */
+    private int hotOrUniform() {
+        if (settings.scenario == Scenario.HOT) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return random.nextDouble() < settings.hotShare ? random.nextInt(settings.hotWallets) : coldWallet();
+        }
+        return uniformWallet();
+    }
+
+    private int uniformWallet() {
+        return ThreadLocalRandom.current().nextInt(wallets.length);
+    }
+
+    private int coldWallet() {
+        return settings.hotWallets + ThreadLocalRandom.current().nextInt(wallets.length - settings.hotWallets);
+    }
+
+    private String nextKey() {
+        return keyPrefix + keys++;
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private Outcome outcomeOf(HttpRequest request) {
+        try {
+            return outcomeOf(client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } catch (IOException e) {
+            return Outcome.UNKNOWN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.UNKNOWN;
+        }
+    }
+
+    static Outcome outcomeOf(int status) {
+        if (status >= 200 && status < 300) {
+            return Outcome.OK;
+        }
+        return status < 500 ? Outcome.REJECTED : Outcome.FAILED;
+    }
+
+    private static Operation[] weightedOperations(Map<Operation, Integer> mix) {
+        List<Operation> slots = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                slots.add(operation);
+            }
+        });
+        return slots.toArray(Operation[]::new);
+    }
+
+    Map<Operation, Histogram> latencies() {
+        return latencies;
+    }
+
+    Map<Operation, long[]> outcomes() {
+        return outcomes;
+    }
+
+    /**
+     * @return credits minus debits applied by this worker, warmup included
+     */
+    long minted() {
+        return minted;
+    }
+
+    List<PendingMutation> unresolved() {
+        return unresolved;
+    }
+
+    /**
+     * A credit or debit sent without getting a response; whether it was applied is resolved
+     * after the run by sending it again with the same idempotency key.
+     */
+    record PendingMutation(HttpRequest request, int signedAmount) {
+    }
+}
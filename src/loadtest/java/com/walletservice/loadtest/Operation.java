@@ -0,0 +1,16 @@
+package com.walletservice.loadtest;
+
+/**
+ * Request types driven by the load test.
+ */
+enum Operation {
+
+    /** {@code POST /transactions} with type CREDIT. */
+    CREDIT,
+    /** {@code POST /transactions} with type DEBIT. */
+    DEBIT,
+    /** {@code POST /transactions/transfer}. */
+    TRANSFER,
+    /** {@code GET /wallets/{id}}. */
+    READ
+}
@@ -0,0 +1,22 @@
+package com.walletservice.loadtest;
+
+/**
+ * How the load test picks the wallets of each request.
+ */
+enum Scenario {
+
+    /** Every wallet is equally likely. */
+    UNIFORM,
+    /**
+     * A share of the requests ({@code load.hot-share}) targets a few merchant wallets
+     * ({@code load.hot-wallets}): they receive the credits and transfers, and take the debits
+     * and reads. The other requests are uniform.
+     */
+    HOT,
+    /**
+     * Transfers move money from each wallet to the next one around a ring, so every wallet
+     * is the sender of one transfer and the receiver of another at the same time.
+     * Credits, debits and reads are uniform.
+     */
+    RING
+}
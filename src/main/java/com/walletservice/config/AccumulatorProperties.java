@@ -0,0 +1,27 @@
+package com.walletservice.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the credit accumulator of hot receiver wallets ({@code wallet.accumulator.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "wallet.accumulator")
+public class AccumulatorProperties {
+
+    /**
+     * Time between two folds of the accumulated credits into the balance rows of their wallets.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * Maximum number of pending credits folded in one database transaction.
+     */
+    private int maxBatchSize = 10_000;
+}
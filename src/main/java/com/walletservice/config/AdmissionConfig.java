@@ -0,0 +1,72 @@
+package com.walletservice.config;
+
+import com.walletservice.service.admission.DatabasePermitDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts database permits in front of the connection pool ({@code wallet.admission.database.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "wallet.admission.database.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig {
+
+    /**
+     * Pool size Hikari uses when {@code maximum-pool-size} is not set.
+     */
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    /**
+     * Static, so post-processing data sources does not initialize this configuration early.
+     *
+     * @return post processor wrapping data sources in a {@link DatabasePermitDataSource}
+     */
+    @Bean
+    public static BeanPostProcessor databasePermitPostProcessor(ObjectProvider<AdmissionProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !isWrapperFor(dataSource, DatabasePermitDataSource.class)) {
+                    AdmissionProperties.Database database = properties.getObject().getDatabase();
+                    int permits = database.getPermits() > 0 ? database.getPermits() : poolSize(dataSource);
+                    return new DatabasePermitDataSource(dataSource, permits, database.getMaxWait());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * @return maximum size of the Hikari pool behind the data source
+     */
+    private static int poolSize(DataSource dataSource) {
+        if (!isWrapperFor(dataSource, HikariDataSource.class)) {
+            throw new IllegalStateException("Set wallet.admission.database.permits for a data source other than Hikari");
+        }
+        try {
+            // unset until the pool starts
+            int poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            return poolSize > 0 ? poolSize : DEFAULT_POOL_SIZE;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read the connection pool size", e);
+        }
+    }
+
+    private static boolean isWrapperFor(DataSource dataSource, Class<?> type) {
+        try {
+            return dataSource.isWrapperFor(type);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
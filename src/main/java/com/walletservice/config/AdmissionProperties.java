@@ -0,0 +1,87 @@
+package com.walletservice.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits on the work admitted concurrently ({@code wallet.admission.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "wallet.admission")
+public class AdmissionProperties {
+
+    /**
+     * Permits in front of database connections.
+     */
+    private final Database database = new Database();
+
+    /**
+     * Adaptive limit on concurrent credits, debits, transfers, payouts, batches and new wallets.
+     */
+    private final Limiter mutations = new Limiter(20, 4, 200);
+
+    /**
+     * Adaptive limit on concurrent wallet and transaction reads, kept apart from mutations so
+     * neither starves the other.
+     */
+    private final Limiter reads = new Limiter(50, 8, 400);
+
+    /**
+     * Delay suggested with {@code Retry-After} to requests shed with {@code 429}.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    @Data
+    public static class Database {
+
+        /**
+         * Make database work take a permit before it gets a connection.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of connections in use at a time, {@code 0} for the maximum size of the pool.
+         */
+        private int permits = 0;
+
+        /**
+         * How long database work waits for a permit before its request fails with {@code 503}.
+         */
+        private Duration maxWait = Duration.ofMillis(500);
+    }
+
+    @Data
+    public static class Limiter {
+
+        /**
+         * Shed requests over the limit with {@code 429}.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Concurrent requests admitted before any latency was measured.
+         */
+        private int initialLimit;
+
+        /**
+         * Lowest limit latency can push it down to.
+         */
+        private int minLimit;
+
+        /**
+         * Highest limit latency can raise it to.
+         */
+        private int maxLimit;
+
+        public Limiter(int initialLimit, int minLimit, int maxLimit) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.walletservice.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the archival of old transactions into segment files ({@code wallet.archive.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "wallet.archive")
+public class ArchiveProperties {
+
+    /**
+     * Whether old transactions are moved out of the {@code transactions} table. Segments archived
+     * earlier are read either way.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory of the segment files.
+     */
+    private String directory = "data/archive";
+
+    /**
+     * Age from which a transaction is archived.
+     */
+    private Duration retention = Duration.ofDays(90);
+
+    /**
+     * Time between two archival runs.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * Maximum number of transactions per segment file, archived in one database transaction.
+     */
+    private int segmentRows = 100_000;
+
+    /**
+     * Number of transactions per compressed block, the unit a history read decompresses.
+     */
+    private int blockRows = 4096;
+}
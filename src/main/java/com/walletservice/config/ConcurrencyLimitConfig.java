@@ -0,0 +1,66 @@
+package com.walletservice.config;
+
+import com.walletservice.service.admission.AdaptiveConcurrencyLimiter;
+import com.walletservice.service.admission.ConcurrencyLimitInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Puts adaptive concurrency limits in front of the mutation and the read endpoints
+ * ({@code wallet.admission.mutations.*}, {@code wallet.admission.reads.*}). The mutation limit
+ * covers the ledger mutations, wallet creation and the wallet settings updates
+ * ({@code PUT /wallets/{id}/slots}, {@code PUT /wallets/{id}/credit-accumulation}).
+ * <p>
+ * {@code GET /transactions/stream} and {@code POST /wallets/bulk} are left out: they stream
+ * for as long as their data lasts, so their duration is no measure of the service latency.
+ * Bulk creation is still bounded by the database permits, each of its chunks commits in its own transaction.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+    private final AdmissionProperties properties;
+
+    public ConcurrencyLimitConfig(AdmissionProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter mutationLimiter() {
+        return limiter("mutations", properties.getMutations());
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter readLimiter() {
+        return limiter("reads", properties.getReads());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.getMutations().isEnabled()) {
+            registry.addInterceptor(new ConcurrencyLimitInterceptor(mutationLimiter(), HttpMethod.POST.name(),
+                            properties.getRetryAfter()))
+                    .addPathPatterns("/transactions", "/transactions/transfer", "/transactions/payout",
+                            "/transactions/batch", "/wallets");
+            registry.addInterceptor(new ConcurrencyLimitInterceptor(mutationLimiter(), HttpMethod.PUT.name(),
+                            properties.getRetryAfter()))
+                    .addPathPatterns("/wallets/*/slots", "/wallets/*/credit-accumulation");
+        }
+        if (properties.getReads().isEnabled()) {
+            registry.addInterceptor(new ConcurrencyLimitInterceptor(readLimiter(), HttpMethod.GET.name(),
+                            properties.getRetryAfter()))
+                    .addPathPatterns("/transactions", "/wallets", "/wallets/*", "/wallets/*/transactions");
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(String name, AdmissionProperties.Limiter limiter) {
+        return new AdaptiveConcurrencyLimiter(name, limiter.getInitialLimit(), limiter.getMinLimit(),
+                limiter.getMaxLimit());
+    }
+}
@@ -0,0 +1,35 @@
+package com.walletservice.config;
+
+import com.walletservice.model.id.IdGenerator;
+import com.walletservice.model.id.Ids;
+import com.walletservice.model.id.UuidV7Generator;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the generator of wallet and transaction ids ({@code wallet.id.generator}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    /**
+     * @param strategy {@code uuid-v7} for time-ordered ids, {@code random} for random version 4 UUIDs
+     * @return the generator, also installed in {@link Ids}
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${wallet.id.generator:uuid-v7}") String strategy) {
+        IdGenerator generator = switch (strategy) {
+            case "uuid-v7" -> new UuidV7Generator();
+            case "random" -> UUID::randomUUID;
+            default -> throw new IllegalArgumentException("Unknown id generator: " + strategy);
+        };
+        Ids.use(generator);
+        return generator;
+    }
+}
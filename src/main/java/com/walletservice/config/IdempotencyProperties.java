@@ -0,0 +1,48 @@
+package com.walletservice.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the idempotency key store and response replay cache ({@code wallet.idempotency.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "wallet.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Number of keys the Bloom filter is sized for.
+     */
+    private long expectedKeys = 10_000_000;
+
+    /**
+     * Target false positive rate of the Bloom filter at {@link #expectedKeys}.
+     */
+    private double falsePositiveRate = 0.001;
+
+    /**
+     * Maximum number of responses kept for replay, least recently used are evicted first.
+     */
+    private int replayCacheSize = 100_000;
+
+    /**
+     * How long a response is replayed to retries of its idempotency key.
+     */
+    private Duration replayTtl = Duration.ofMinutes(10);
+
+    /**
+     * How long a request waits for a concurrent request with the same idempotency key before giving up with 503.
+     */
+    private Duration coalescedWaitTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Whether startup claims the keys of transactions recorded before the key table existed.
+     * Scans the whole ledger, so it is meant to be switched on once after upgrading.
+     */
+    private boolean backfillKeys = false;
+}
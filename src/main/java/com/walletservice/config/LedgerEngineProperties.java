@@ -0,0 +1,125 @@
+package com.walletservice.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the ledger engine used for wallet mutations ({@code wallet.engine.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "wallet.engine")
+public class LedgerEngineProperties {
+
+    /**
+     * Engine applying wallet mutations: {@code jpa} (default), {@code sharded}, {@code group-commit},
+     * {@code event-sourced} or {@code journal}.
+     */
+    private String mode = "jpa";
+
+    /**
+     * In {@code jpa} mode, apply each balance change as one guarded {@code UPDATE} instead of
+     * loading the wallet entity under a wallet lock and flushing it.
+     */
+    private boolean guardedUpdates = true;
+
+    /**
+     * Number of single-threaded shard workers in sharded mode.
+     */
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of commands a shard, or the event-sourced writer, applies and persists in one
+     * database transaction.
+     */
+    private int maxBatchSize = 256;
+
+    /**
+     * Maximum number of requests waiting on the engine before new ones are rejected.
+     */
+    private int maxPendingRequests = 10_000;
+
+    /**
+     * How long a request waits for a free slot before being rejected.
+     */
+    private Duration submitTimeout = Duration.ofSeconds(1);
+
+    /**
+     * How long a request waits for the engine to answer its mutation before failing with
+     * {@code 503}; a retry with the same idempotency key is safe.
+     */
+    private Duration resultTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Group commit settings, used in {@code group-commit} mode.
+     */
+    private final GroupCommit groupCommit = new GroupCommit();
+
+    /**
+     * Event sourcing settings, used in {@code event-sourced} mode.
+     */
+    private final EventSourced eventSourced = new EventSourced();
+
+    /**
+     * Journal settings, used in {@code journal} mode.
+     */
+    private final Journal journal = new Journal();
+
+    @Data
+    public static class GroupCommit {
+
+        /**
+         * Maximum number of mutations flushed in one database transaction.
+         */
+        private int maxBatchSize = 500;
+
+        /**
+         * How long the first mutation of a batch waits for others to join it.
+         */
+        private Duration linger = Duration.ofMillis(2);
+    }
+
+    @Data
+    public static class EventSourced {
+
+        /**
+         * Time between two snapshots of the balances changed since the previous one.
+         */
+        private Duration snapshotInterval = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Journal {
+
+        /**
+         * Directory of the journal segment files.
+         */
+        private String directory = "data/journal";
+
+        /**
+         * Size of a segment file, mapped into memory whole.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Force appended records to disk before acknowledging them. Without it, acknowledged
+         * mutations survive a process crash but not an operating system crash.
+         */
+        private boolean fsync = true;
+
+        /**
+         * Maximum number of mutations acknowledged by one fsync.
+         */
+        private int maxBatchSize = 1024;
+
+        /**
+         * How long the first mutation of a batch waits for others to share its fsync.
+         */
+        private Duration linger = Duration.ofMillis(1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.walletservice.config;
+
+import com.walletservice.service.metrics.LedgerMetrics;
+import com.walletservice.service.metrics.StatementCountingDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Counts the JDBC statements of every ledger operation ({@code wallet.metrics.statement-counting}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "wallet.metrics.statement-counting", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig {
+
+    /**
+     * Static, so post-processing data sources does not initialize this configuration early.
+     *
+     * @return post processor wrapping data sources in a {@link StatementCountingDataSource}
+     */
+    @Bean
+    public static BeanPostProcessor statementCountingPostProcessor(ObjectProvider<LedgerMetrics> ledgerMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)) {
+                    return new StatementCountingDataSource(dataSource, ledgerMetrics::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.walletservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of bulk wallet provisioning ({@code wallet.provisioning.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "wallet.provisioning")
+public class ProvisioningProperties {
+
+    /**
+     * Wallets inserted and committed per database transaction; their ids are streamed
+     * back once the chunk is committed.
+     */
+    private int chunkSize = 10_000;
+
+    /**
+     * Insert chunks with PostgreSQL {@code COPY} when the driver supports it,
+     * otherwise with batched {@code INSERT} statements.
+     */
+    private boolean copy = true;
+}
@@ -0,0 +1,37 @@
+package com.walletservice.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the reconciliation of wallet balances against the ledger ({@code wallet.reconciliation.*}).
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "wallet.reconciliation")
+public class ReconciliationProperties {
+
+    /**
+     * Time between two scheduled reconciliations, 0 to only run them on demand.
+     */
+    private Duration interval = Duration.ofHours(24);
+
+    /**
+     * Number of chunks reconciled at once, each holding one pooled connection while it runs.
+     */
+    private int parallelism = 2;
+
+    /**
+     * Number of wallets per chunk, reconciled in one statement.
+     */
+    private int chunkSize = 10_000;
+
+    /**
+     * Maximum number of discrepancies listed in a report; the rest are only counted.
+     */
+    private int maxReportedDiscrepancies = 1000;
+}
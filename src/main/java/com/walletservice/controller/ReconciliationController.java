@@ -0,0 +1,105 @@
+package com.walletservice.controller;
+
+import com.walletservice.dto.ReconciliationReport;
+import com.walletservice.exception.ErrorResponse;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.service.reconciliation.LedgerReconciler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for reconciling wallet balances with the ledger.
+ * <p>
+ * Provides endpoints for starting a reconciliation and reading its report.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Tag(name = "Reconciliation", description = "Ledger reconciliation APIs")
+@RestController
+@RequestMapping("/reconciliations")
+@RequiredArgsConstructor
+public class ReconciliationController {
+
+    private final LedgerReconciler ledgerReconciler;
+
+    /**
+     * Start a reconciliation in the background.
+     *
+     * @return the report of the run, as it starts
+     * @throws com.walletservice.exception.ServiceException if a reconciliation is already running
+     */
+    @Operation(
+            summary = "Start a reconciliation.",
+            description = "Compares every wallet's balance with the signed sum of its transactions."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Reconciliation started",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ReconciliationReport.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "A reconciliation is already running, or the engine mode does not keep wallet rows",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PostMapping
+    public ResponseEntity<ReconciliationReport> startReconciliation() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ledgerReconciler.start());
+    }
+
+    /**
+     * Retrieve the report of the running or last reconciliation.
+     *
+     * @return progress and discrepancies of the run
+     * @throws NotFoundException if no reconciliation ran since startup
+     */
+    @Operation(
+            summary = "Get the latest reconciliation report.",
+            description = "Returns the progress and discrepancies of the running or last reconciliation."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Report found",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ReconciliationReport.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "No reconciliation ran since startup",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @GetMapping("/latest")
+    public ResponseEntity<ReconciliationReport> getLatestReconciliation() {
+        return ResponseEntity.ok(ledgerReconciler.getLatest()
+                .orElseThrow(() -> new NotFoundException("No reconciliation has run yet!")));
+    }
+}
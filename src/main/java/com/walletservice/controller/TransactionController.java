@@ -1,5 +1,14 @@
 package com.walletservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.walletservice.dto.BatchTransactionRequest;
+import com.walletservice.dto.BatchTransactionResponse;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.PayoutRequest;
+import com.walletservice.dto.PayoutResponse;
 import com.walletservice.dto.TransactionDto;
 import com.walletservice.dto.TransactionRequest;
 import com.walletservice.dto.TransactionResponse;
@@ -7,6 +16,7 @@ import com.walletservice.dto.TransferRequest;
 import com.walletservice.dto.TransferResponse;
 import com.walletservice.exception.ErrorResponse;
 import com.walletservice.service.TransactionService;
+import com.walletservice.service.idempotency.IdempotentResponseCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,15 +24,20 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for managing transactions.
@@ -39,9 +54,13 @@ import org.springframework.web.bind.annotation.RestController;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final IdempotentResponseCache idempotentResponseCache;
+    private final ObjectMapper objectMapper;
 
     /**
      * Create a transaction for DEBIT/CREDIT.
+     * <p>
+     * A retry with the same idempotency key replays the original response.
      *
      * @param request the transaction creation request
      * @return TransactionResponse if successful!
@@ -72,12 +91,16 @@ public class TransactionController {
     @PostMapping
     public ResponseEntity<TransactionResponse> createTransaction(
             @Valid @RequestBody TransactionRequest request) {
+        TransactionResponse response = idempotentResponseCache.execute(request.getIdempotencyKey(), request,
+                TransactionResponse.class, () -> transactionService.createOrDebit(request));
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(transactionService.createOrDebit(request));
+                .body(response);
     }
 
     /**
      * Create a transaction for transfers between wallets
+     * <p>
+     * A retry with the same idempotency key replays the original response.
      *
      * @param request the transfer request
      * @return transfer response if successful!
@@ -107,22 +130,131 @@ public class TransactionController {
     })
     @PostMapping("/transfer")
     public ResponseEntity<TransferResponse> transfer(@Valid @RequestBody TransferRequest request) {
+        TransferResponse response = idempotentResponseCache.execute(request.getIdempotencyKey(), request,
+                TransferResponse.class, () -> transactionService.transfer(request));
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(transactionService.transfer(request));
+                .body(response);
     }
 
     /**
-     * Retrieve all transactions
+     * Pay many receivers from one sender wallet, all or nothing.
+     * <p>
+     * The sender is debited once for the total. A retry with the same idempotency key
+     * replays the original response.
      *
-     * @return list of transactions
+     * @param request the sender, the receivers and their amounts
+     * @return payout response if successful!
+     * @throws com.walletservice.exception.NotFoundException if the sender or a receiver is not found
      */
     @Operation(
-            summary = "Get all transactions",
-            description = "Retrieves all transactions"
+            summary = "Create a payout transaction.",
+            description = "Debits the sender once and credits every receiver in one transaction."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Payout successful!",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PayoutResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Wallet not found for the sender or a receiver",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PostMapping("/payout")
+    public ResponseEntity<PayoutResponse> payout(@Valid @RequestBody PayoutRequest request) {
+        PayoutResponse response = idempotentResponseCache.execute(request.getIdempotencyKey(), request,
+                PayoutResponse.class, () -> transactionService.payout(request));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(response);
+    }
+
+    /**
+     * Apply many credits and debits in one request.
+     * <p>
+     * Every item gets its own result. A failed item does not stop the others,
+     * unless the batch is all-or-nothing, in which case nothing is applied.
+     *
+     * @param request the items and the all-or-nothing flag
+     * @return result of every item
+     * @throws com.walletservice.exception.BatchRejectedException if an item of an all-or-nothing batch failed
+     */
+    @Operation(
+            summary = "Create a batch of debit/credit transactions.",
+            description = "Applies every item of the batch and reports the outcome of each."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Batch processed, see the result of every item",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BatchTransactionResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "All-or-nothing batch rolled back, see the result of every item",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BatchTransactionResponse.class)
+                    )
+            )
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransactionResponse> createTransactions(
+            @Valid @RequestBody BatchTransactionRequest request) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(transactionService.createBatch(request));
+    }
+
+    /**
+     * Retrieve a page of transactions in id order.
+     *
+     * @param after cursor returned with the previous page, absent for the first page
+     * @param limit maximum number of transactions, at most 1000
+     * @return page of transactions
+     */
+    @Operation(
+            summary = "Get transactions",
+            description = "Retrieves a page of transactions using keyset pagination"
     )
     @ApiResponse(
             responseCode = "200",
             description = "Transactions successfully retrieved!",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = CursorPage.class)
+            )
+    )
+    @GetMapping
+    public ResponseEntity<CursorPage<TransactionDto>> getTransactions(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(transactionService.findPage(after, limit));
+    }
+
+    /**
+     * Stream all transactions as one JSON array, written while rows are read
+     * from a database cursor so memory use does not grow with the ledger.
+     *
+     * @return streamed array of transactions
+     */
+    @Operation(
+            summary = "Stream all transactions",
+            description = "Streams every transaction as a JSON array"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Transactions successfully streamed!",
             content = @Content(
                     mediaType = "application/json",
                     array = @ArraySchema(
@@ -130,9 +262,26 @@ public class TransactionController {
                     )
             )
     )
-    @GetMapping
-    public ResponseEntity<List<TransactionDto>> getTransactions() {
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamTransactions() {
+        // flushing after every row would turn each transaction into its own network write
+        ObjectWriter writer = objectMapper.writerFor(TransactionDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                transactionService.streamAll(transaction -> {
+                    try {
+                        writer.writeValue(generator, transaction);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
         return ResponseEntity.status(HttpStatus.OK)
-                .body(transactionService.findAll());
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 }
@@ -1,7 +1,13 @@
 package com.walletservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walletservice.dto.BulkWalletRequest;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.TransactionDto;
 import com.walletservice.dto.WalletDto;
 import com.walletservice.exception.ErrorResponse;
+import com.walletservice.service.TransactionService;
 import com.walletservice.service.WalletService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -10,16 +16,22 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for managing wallets.
@@ -37,6 +49,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class WalletController {
 
     private final WalletService walletService;
+    private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Create a new wallet.
@@ -61,6 +75,66 @@ public class WalletController {
                 .body(walletService.createWallet());
     }
 
+    /**
+     * Create wallets in bulk.
+     * <p>
+     * Ids are streamed back as a JSON array while the wallets are created, a chunk at a time
+     * once the chunk is committed. If creation fails midway the array is cut short; the ids
+     * received until then belong to created wallets.
+     *
+     * @param request number of wallets to create
+     * @return streamed array of the created wallet ids
+     * @throws com.walletservice.exception.InvalidRequestException if the count is out of range
+     */
+    @Operation(
+            summary = "Create wallets in bulk.",
+            description = "Creates up to 1000000 wallets with a zero balance and streams their ids."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Wallets successfully created",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(
+                                    schema = @Schema(implementation = UUID.class)
+                            )
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Count out of range",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PostMapping("/bulk")
+    public ResponseEntity<StreamingResponseBody> createWallets(@RequestBody BulkWalletRequest request) {
+        // rejected before the response starts, so a bad count still gets a 400
+        BulkWalletRequest.checkedCount(request);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                walletService.createWallets(request, ids -> {
+                    try {
+                        for (UUID id : ids) {
+                            generator.writeString(id.toString());
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     /**
      * Retrieve a single wallet
      *
@@ -97,27 +171,152 @@ public class WalletController {
     }
 
     /**
-     * Retrieve all wallets
+     * Split the balance of a hot wallet into slots that concurrent credits are spread over.
      *
-     * @return list of wallets
+     * @param walletId the ID of the wallet
+     * @param count    number of slots, at most 64, or 0 to keep the whole balance in the wallet row
+     * @return the wallet, whose balance is unchanged
+     * @throws com.walletservice.exception.NotFoundException if the wallet does not exist
+     * @throws com.walletservice.exception.InvalidRequestException if the count is out of range
      */
     @Operation(
-            summary = "Get all wallets",
-            description = "Retrieves all wallets"
+            summary = "Set the balance slots of a wallet",
+            description = "Spreads the credits of a hot wallet over balance slots so they do not queue on one row"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Wallet slots updated",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = WalletDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Count out of range",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Wallet not found",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PutMapping("/{id}/slots")
+    public ResponseEntity<WalletDto> updateSlots(@PathVariable("id") UUID walletId,
+                                                 @RequestParam int count) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(walletService.updateSlots(walletId, count));
+    }
+
+    /**
+     * Accumulate the credits of a hot receiver wallet and fold them into its balance in the background.
+     *
+     * @param walletId the ID of the wallet
+     * @param enabled  accumulate credits, or credit the balance at once
+     * @return the wallet
+     * @throws com.walletservice.exception.NotFoundException if the wallet does not exist
+     */
+    @Operation(
+            summary = "Set credit accumulation of a wallet",
+            description = "Records credits to a hot wallet without locking its balance row, and folds them in the background"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Wallet credit accumulation updated",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = WalletDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Wallet not found",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PutMapping("/{id}/credit-accumulation")
+    public ResponseEntity<WalletDto> updateAccumulateCredits(@PathVariable("id") UUID walletId,
+                                                             @RequestParam boolean enabled) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(walletService.updateAccumulateCredits(walletId, enabled));
+    }
+
+    /**
+     * Retrieve a page of wallets in id order.
+     *
+     * @param after cursor returned with the previous page, absent for the first page
+     * @param limit maximum number of wallets, at most 1000
+     * @return page of wallets
+     */
+    @Operation(
+            summary = "Get wallets",
+            description = "Retrieves a page of wallets using keyset pagination"
     )
     @ApiResponse(
             responseCode = "200",
             description = "Wallets successfully retrieved!",
             content = @Content(
                     mediaType = "application/json",
-                    array = @ArraySchema(
-                            schema = @Schema(implementation = WalletDto.class)
-                    )
+                    schema = @Schema(implementation = CursorPage.class)
             )
     )
     @GetMapping()
-    public ResponseEntity<List<WalletDto>> getWallets() {
+    public ResponseEntity<CursorPage<WalletDto>> getWallets(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(walletService.findPage(after, limit));
+    }
+
+    /**
+     * Retrieve a page of a wallet's transactions, newest first.
+     *
+     * @param walletId the wallet id
+     * @param cursor   cursor returned with the previous page, absent for the first page
+     * @param limit    maximum number of transactions, at most 1000
+     * @return page of transactions
+     * @throws com.walletservice.exception.NotFoundException if the wallet is not found
+     */
+    @Operation(
+            summary = "Get wallet transactions",
+            description = "Retrieves a page of a wallet's transactions, newest first, using keyset pagination"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Transactions successfully retrieved!",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPage.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Wallet not found",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @GetMapping("/{id}/transactions")
+    public ResponseEntity<CursorPage<TransactionDto>> getWalletTransactions(
+            @PathVariable("id") UUID walletId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
         return ResponseEntity.status(HttpStatus.OK)
-                .body(walletService.findAll());
+                .body(transactionService.findByWallet(walletId, cursor, limit));
     }
 }
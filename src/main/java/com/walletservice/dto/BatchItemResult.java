@@ -0,0 +1,22 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BatchItemResult {
+
+    @Schema(description = "position of the item in the batch", example = "0")
+    private int index;
+
+    @Schema(description = "HTTP status the item would have had on its own", example = "201")
+    private int status;
+
+    @Schema(description = "the applied transaction, absent on failure")
+    private TransactionResponse transaction;
+
+    @Schema(description = "why the item failed, absent on success", example = "Transaction failed with insufficient fund!")
+    private String error;
+}
@@ -0,0 +1,35 @@
+package com.walletservice.dto;
+
+import com.walletservice.exception.InvalidRequestException;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BatchTransactionRequest {
+
+    public static final int MAX_ITEMS = 10_000;
+
+    @Schema(description = "credits and debits, at most 10000")
+    private List<TransactionRequest> items;
+
+    @Schema(description = "apply no item unless every item can be applied", example = "false")
+    private boolean allOrNothing;
+
+    /**
+     * Checks that a batch holds between 1 and {@link #MAX_ITEMS} items.
+     *
+     * @param request the batch
+     * @return the items of the batch
+     * @throws InvalidRequestException if the batch is empty or too large
+     */
+    public static List<TransactionRequest> checkedItems(BatchTransactionRequest request) {
+        List<TransactionRequest> items = request.getItems();
+        if (items == null || items.isEmpty() || items.size() > MAX_ITEMS) {
+            throw new InvalidRequestException("A batch must hold between 1 and " + MAX_ITEMS + " items");
+        }
+        return items;
+    }
+}
@@ -0,0 +1,35 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BatchTransactionResponse {
+
+    @Schema(description = "result of every item, in request order")
+    private List<BatchItemResult> items;
+
+    @Schema(description = "number of items applied", example = "2")
+    private int applied;
+
+    @Schema(description = "number of items not applied", example = "1")
+    private int failed;
+
+    /**
+     * Builds the response of a batch from the result of every item.
+     *
+     * @param items results in request order
+     * @return the response
+     */
+    public static BatchTransactionResponse of(List<BatchItemResult> items) {
+        int applied = (int) items.stream().filter(item -> item.getTransaction() != null).count();
+        return BatchTransactionResponse.builder()
+                .items(items)
+                .applied(applied)
+                .failed(items.size() - applied)
+                .build();
+    }
+}
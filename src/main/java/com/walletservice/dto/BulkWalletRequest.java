@@ -0,0 +1,33 @@
+package com.walletservice.dto;
+
+import com.walletservice.exception.InvalidRequestException;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+@Data
+@Builder
+@Jacksonized
+public class BulkWalletRequest {
+
+    public static final int MAX_COUNT = 1_000_000;
+
+    @Schema(description = "number of wallets to create, at most 1000000", example = "100000")
+    private int count;
+
+    /**
+     * Checks that a request asks for between 1 and {@link #MAX_COUNT} wallets.
+     *
+     * @param request the request
+     * @return the number of wallets to create
+     * @throws InvalidRequestException if the count is out of range
+     */
+    public static int checkedCount(BulkWalletRequest request) {
+        int count = request.getCount();
+        if (count <= 0 || count > MAX_COUNT) {
+            throw new InvalidRequestException("Bulk creation must ask for between 1 and " + MAX_COUNT + " wallets");
+        }
+        return count;
+    }
+}
@@ -0,0 +1,49 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import java.util.function.Function;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CursorPage<T> {
+
+    public static final int MAX_LIMIT = 1000;
+
+    private List<T> items;
+
+    @Schema(description = "cursor of the next page, absent on the last page")
+    private String nextCursor;
+
+    /**
+     * Clamps a requested page size to [1, {@link #MAX_LIMIT}].
+     *
+     * @param limit requested page size
+     * @return page size to use
+     */
+    public static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Builds a page from rows fetched with one row more than the page size,
+     * the extra row telling whether another page follows.
+     *
+     * @param rows     up to {@code size + 1} rows in cursor order
+     * @param size     page size
+     * @param cursorOf cursor of a row
+     * @return the page
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, String> cursorOf) {
+        if (rows.size() <= size) {
+            return CursorPage.<T>builder().items(rows).build();
+        }
+        List<T> items = rows.subList(0, size);
+        return CursorPage.<T>builder()
+                .items(List.copyOf(items))
+                .nextCursor(cursorOf.apply(items.get(size - 1)))
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PayoutItem {
+
+    private UUID receiverWalletId;
+
+    @Schema(description = "amount", example = "100")
+    private Integer amount;
+}
@@ -0,0 +1,22 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PayoutRequest {
+
+    public static final int MAX_RECEIVERS = 10_000;
+
+    private UUID senderWalletId;
+
+    @Schema(description = "receivers and the amount each one gets, at most 10000")
+    private List<PayoutItem> receivers;
+
+    @Schema(description = "idempotencyKey", example = "PAYROLL_2024_05")
+    private String idempotencyKey;
+}
@@ -0,0 +1,25 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PayoutResponse {
+
+    @Schema(description = "id of the sender's debit")
+    private UUID transactionId;
+
+    private UUID senderWalletId;
+
+    @Schema(description = "amount debited from the sender", example = "300")
+    private Integer totalAmount;
+
+    @Schema(description = "number of receivers credited", example = "3")
+    private Integer receivers;
+
+    @Schema(description = "idempotencyKey", example = "PAYROLL_2024_05")
+    private String idempotencyKey;
+}
@@ -0,0 +1,38 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ReconciliationReport {
+
+    @Schema(description = "RUNNING, COMPLETED or FAILED", example = "COMPLETED")
+    private String status;
+
+    private Instant startedAt;
+
+    @Schema(description = "end of the run, null while it is running")
+    private Instant finishedAt;
+
+    @Schema(description = "wallets compared with their transactions so far", example = "1000000")
+    private long checkedWallets;
+
+    @Schema(description = "transactions summed so far", example = "250000000")
+    private long checkedTransactions;
+
+    @Schema(description = "wallet id range chunks reconciled so far", example = "100")
+    private long checkedChunks;
+
+    @Schema(description = "wallets whose balance differs from the sum of their transactions", example = "0")
+    private long discrepancyCount;
+
+    @Schema(description = "the first discrepancies found, up to wallet.reconciliation.max-reported-discrepancies")
+    private List<WalletDiscrepancy> discrepancies;
+
+    @Schema(description = "why the run failed, null otherwise")
+    private String error;
+}
@@ -1,6 +1,7 @@
 package com.walletservice.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
 import java.util.UUID;
 import lombok.Builder;
 import lombok.Data;
@@ -21,4 +22,7 @@ public class TransactionDto {
 
     @Schema(description = "idempotencyKey", example = "ID_KEY_802")
     private String idempotencyKey;
+
+    @Schema(description = "creation time", example = "2024-05-01T10:15:30.123456Z")
+    private Instant createdAt;
 }
@@ -0,0 +1,21 @@
+package com.walletservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class WalletDiscrepancy {
+
+    private UUID walletId;
+
+    @Schema(description = "balance of the wallet row, its slots and its pending credits", example = "120")
+    private long balance;
+
+    @Schema(description = "signed sum of the wallet's transactions", example = "100")
+    private long ledgerBalance;
+}
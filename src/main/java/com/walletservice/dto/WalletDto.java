@@ -2,11 +2,13 @@ package com.walletservice.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.util.UUID;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
 @Data
 @Builder
+@AllArgsConstructor
 public class WalletDto {
     private UUID id;
 
@@ -0,0 +1,19 @@
+package com.walletservice.exception;
+
+import com.walletservice.dto.BatchTransactionResponse;
+import lombok.Getter;
+
+/**
+ * Thrown when an all-or-nothing batch is rolled back because one of its items failed.
+ * Carries the result of every item, so callers see which items failed and why.
+ */
+@Getter
+public class BatchRejectedException extends ServiceException {
+
+    private final BatchTransactionResponse response;
+
+    public BatchRejectedException(BatchTransactionResponse response, int failedItems) {
+        super("Batch rolled back, " + failedItems + " of " + response.getItems().size() + " items failed!");
+        this.response = response;
+    }
+}
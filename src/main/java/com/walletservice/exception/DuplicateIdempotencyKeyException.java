@@ -0,0 +1,10 @@
+package com.walletservice.exception;
+
+/**
+ * Thrown when a mutation reuses the idempotency key of a recorded transaction.
+ */
+public class DuplicateIdempotencyKeyException extends ServiceException {
+   public DuplicateIdempotencyKeyException(String message) {
+       super(message);
+   }
+}
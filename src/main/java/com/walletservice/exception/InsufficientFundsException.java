@@ -0,0 +1,10 @@
+package com.walletservice.exception;
+
+/**
+ * Thrown when a debit, transfer or payout would make a wallet balance negative.
+ */
+public class InsufficientFundsException extends ServiceException {
+   public InsufficientFundsException(String message) {
+       super(message);
+   }
+}
@@ -0,0 +1,10 @@
+package com.walletservice.exception;
+
+/**
+ * Thrown when a page cursor was not returned by the service or was altered.
+ */
+public class InvalidCursorException extends InvalidRequestException {
+   public InvalidCursorException(String message) {
+       super(message);
+   }
+}
@@ -0,0 +1,10 @@
+package com.walletservice.exception;
+
+/**
+ * Thrown when a request is incomplete or out of range in a way its bean validation cannot express.
+ */
+public class InvalidRequestException extends RuntimeException {
+   public InvalidRequestException(String message) {
+       super(message);
+   }
+}
@@ -0,0 +1,11 @@
+package com.walletservice.exception;
+
+/**
+ * Thrown when a request cannot be served in time because a shared resource is saturated,
+ * such as the database connections. The client may retry later.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+   public ServiceUnavailableException(String message) {
+       super(message);
+   }
+}
@@ -0,0 +1,18 @@
+package com.walletservice.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request is shed because the service is at its concurrency limit.
+ * The client may retry after {@code retryAfterSeconds}.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
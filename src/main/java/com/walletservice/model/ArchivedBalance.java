@@ -0,0 +1,26 @@
+package com.walletservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Signed sum and number of a wallet's archived {@link Transaction} rows, updated in the
+ * transaction that deletes them, so the ledger a balance is reconciled with still counts them.
+ */
+@Entity
+@Table(name = "archived_wallet_balances")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class ArchivedBalance {
+
+    @Id
+    private UUID walletId;
+    private long balance;
+    private long transactions;
+}
@@ -0,0 +1,30 @@
+package com.walletservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Segment file of archived {@link Transaction} rows. The row is inserted in the transaction that
+ * deletes the archived rows, so a segment file counts as part of the ledger only once its rows
+ * have left the {@code transactions} table.
+ */
+@Entity
+@Table(name = "archived_segments")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class ArchivedSegment {
+
+    @Id
+    private String name;
+    private long rowCount;
+    private UUID firstId;
+    private UUID lastId;
+    private Instant createdAt;
+}
@@ -0,0 +1,28 @@
+package com.walletservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Balance of a wallet projected from its {@link Transaction} rows, as of the position of the
+ * {@link LedgerCheckpoint} written with it. Used in {@code event-sourced} engine mode, where the
+ * ledger is the source of truth and the {@code wallets} balance column is not maintained.
+ */
+@Entity
+@Table(name = "wallet_balance_snapshots")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class BalanceSnapshot {
+
+    @Id
+    private UUID walletId;
+    private long balance;
+    private Instant createdAt;
+}
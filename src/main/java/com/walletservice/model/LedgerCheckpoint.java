@@ -0,0 +1,28 @@
+package com.walletservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position in the ledger up to which every {@link BalanceSnapshot} is complete: the id of the
+ * last {@link Transaction} applied before the snapshots were taken. Rebuilding the balances only
+ * replays the transactions after it.
+ */
+@Entity
+@Table(name = "ledger_checkpoints")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class LedgerCheckpoint {
+
+    @Id
+    private String name;
+    private UUID position;
+    private Instant createdAt;
+}
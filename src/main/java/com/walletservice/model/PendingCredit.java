@@ -0,0 +1,35 @@
+package com.walletservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Credit to a wallet accumulating its credits, recorded next to its {@link Transaction} row but
+ * not yet added to the wallet's balance row. The row is deleted in the transaction that folds
+ * its amount into the balance, so every credit is counted exactly once, even across restarts.
+ */
+@Entity
+@Table(name = "pending_credits",
+        indexes = @Index(name = "idx_pending_credits_wallet", columnList = "walletId"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+public class PendingCredit {
+
+    @Id
+    private UUID id;
+    private UUID walletId;
+    private Integer amount;
+    // process that accumulated the credit in memory
+    private UUID nodeId;
+    private Instant createdAt;
+}
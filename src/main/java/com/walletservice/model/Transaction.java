@@ -1,12 +1,13 @@
 package com.walletservice.model;
 
+import com.walletservice.model.id.GeneratedId;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import java.time.Instant;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,7 +15,12 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+        indexes = {
+                @Index(name = "idx_transactions_idempotency_key", columnList = "idempotencyKey"),
+                // serves per-wallet history pages with one range scan
+                @Index(name = "idx_transactions_wallet_history", columnList = "walletId, createdAt, id")
+        })
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -22,18 +28,20 @@ import lombok.NoArgsConstructor;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedId
     private UUID id;
     private UUID walletId;
     private Integer amount;
     @Enumerated(EnumType.STRING)
     private TransactionType type;
     private String idempotencyKey;
+    private Instant createdAt;
 
     public Transaction(UUID walletId, int amount, TransactionType type, String idempotencyKey) {
         this.walletId = walletId;
         this.amount = amount;
         this.type = type;
         this.idempotencyKey = idempotencyKey;
+        this.createdAt = Instant.now();
     }
 }
@@ -1,9 +1,9 @@
 package com.walletservice.model;
 
-import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.model.id.GeneratedId;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import java.util.UUID;
@@ -12,6 +12,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "wallets")
@@ -22,18 +23,50 @@ import lombok.Setter;
 @Setter
 public class Wallet {
 
+    /**
+     * Most {@link WalletSlot} rows a wallet's balance can be split into.
+     */
+    public static final int MAX_SLOTS = 64;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedId
     private UUID id;
+
+    /**
+     * Balance of this row, changed in place by {@link #credit(int)} and {@link #debit(int)} or by
+     * relative updates. Not maintained in {@code event-sourced} engine mode, where balances are
+     * projected from the {@link Transaction} rows.
+     */
     private Integer balance;
 
+    /**
+     * Number of {@link WalletSlot} rows receiving the credits of this wallet, 0 when every
+     * credit goes to this row. The balance of the wallet is this row's plus its slots'.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int slots;
+
+    /**
+     * Whether credits to this wallet are recorded as {@link PendingCredit} rows and folded into
+     * its balance in the background, instead of each updating this row.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("false")
+    private boolean accumulateCredits;
+
+    public Wallet(UUID id, Integer balance) {
+        this.id = id;
+        this.balance = balance;
+    }
+
     public void credit(int amount) {
         this.balance += amount;
     }
 
     public void debit(int amount) {
         if (balance < amount) {
-            throw new ServiceException("Insufficient balance");
+            throw new InsufficientFundsException("Insufficient balance");
         }
         this.balance -= amount;
     }
@@ -0,0 +1,40 @@
+package com.walletservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Part of the balance of a hot wallet. Credits to a wallet with {@link Wallet#getSlots()} slots
+ * land on one of its slot rows picked at random, so concurrent credits lock different rows
+ * instead of queuing on the {@code wallets} row.
+ */
+@Entity
+@Table(name = "wallet_balance_slots")
+@IdClass(WalletSlot.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class WalletSlot {
+
+    @Id
+    private UUID walletId;
+    @Id
+    private int slot;
+    private int balance;
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private UUID walletId;
+        private int slot;
+    }
+}
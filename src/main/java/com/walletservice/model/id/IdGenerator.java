@@ -0,0 +1,19 @@
+package com.walletservice.model.id;
+
+import java.util.UUID;
+
+/**
+ * Source of the ids of wallets and transactions.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * @return a new id, never returned before
+     */
+    UUID nextId();
+}
@@ -0,0 +1,52 @@
+package com.walletservice.model.id;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Generator of the ids of wallets and transactions, shared by the entities, which Hibernate
+ * instantiates outside the application context, and the JDBC paths that assign ids up front.
+ * <p>
+ * Defaults to {@link UuidV7Generator}; {@code wallet.id.generator} selects another at startup.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Ids {
+
+    /**
+     * Order of ids in the database, which compares their bytes unsigned. {@link UUID#compareTo}
+     * compares signed halves, so it disagrees for ids with the top bit set, such as random ones.
+     * Rows locked in Java in this order are locked in the order of {@code ORDER BY id}.
+     */
+    public static final Comparator<UUID> ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private static volatile IdGenerator generator = new UuidV7Generator();
+
+    private Ids() {
+    }
+
+    /**
+     * @return a new id from the current generator
+     */
+    public static UUID next() {
+        return generator.nextId();
+    }
+
+    /**
+     * Replaces the generator used for new ids.
+     *
+     * @param idGenerator the generator
+     */
+    public static void use(IdGenerator idGenerator) {
+        generator = Objects.requireNonNull(idGenerator);
+    }
+
+    public static IdGenerator current() {
+        return generator;
+    }
+}
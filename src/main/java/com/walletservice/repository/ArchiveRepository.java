@@ -0,0 +1,133 @@
+package com.walletservice.repository;
+
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository moving old {@link Transaction} rows out of the {@code transactions} table into
+ * archived segment files.
+ * <p>
+ * Rows are read in id order, after the last archived row, so segments never overlap. Removing a
+ * segment's rows, registering its file and adding its sums to the archived balances of its
+ * wallets must run in one transaction, so the rows are counted in exactly one place whatever
+ * fails.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Repository
+@RequiredArgsConstructor
+public class ArchiveRepository {
+
+    private static final String FIND_SEGMENTS_SQL =
+            "SELECT name FROM archived_segments ORDER BY first_id";
+    private static final String FIND_ARCHIVABLE_SQL =
+            "SELECT id, wallet_id, amount, type, idempotency_key, created_at FROM transactions "
+                    + "WHERE id < ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+    // the primary key index serves the rows after the last segment with one range scan
+    private static final String FIND_ARCHIVABLE_AFTER_SQL =
+            "SELECT id, wallet_id, amount, type, idempotency_key, created_at FROM transactions "
+                    + "WHERE id > ? AND id < ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+    private static final String INSERT_SEGMENT_SQL =
+            "INSERT INTO archived_segments (name, row_count, first_id, last_id, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_TRANSACTION_SQL =
+            "DELETE FROM transactions WHERE id = ?";
+    // UPDATE then INSERT of the rows not found, as H2 has no ON CONFLICT DO UPDATE
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE archived_wallet_balances SET balance = balance + ?, transactions = transactions + ? WHERE wallet_id = ?";
+    private static final String INSERT_BALANCE_SQL =
+            "INSERT INTO archived_wallet_balances (wallet_id, balance, transactions) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return names of the registered segment files, in id order
+     */
+    public List<String> findSegmentNames() {
+        return jdbcTemplate.queryForList(FIND_SEGMENTS_SQL, String.class);
+    }
+
+    /**
+     * Finds the oldest rows not archived yet.
+     *
+     * @param after  id of the last archived row, null if nothing was archived yet
+     * @param before rows from this id on are kept
+     * @param limit  maximum number of rows
+     * @return rows in id order
+     */
+    public List<Transaction> findArchivable(UUID after, UUID before, int limit) {
+        Object[] args = after == null ? new Object[]{before, limit} : new Object[]{after, before, limit};
+        return jdbcTemplate.query(after == null ? FIND_ARCHIVABLE_SQL : FIND_ARCHIVABLE_AFTER_SQL,
+                (rs, row) -> Transaction.builder()
+                        .id(rs.getObject("id", UUID.class))
+                        .walletId(rs.getObject("wallet_id", UUID.class))
+                        .amount(rs.getInt("amount"))
+                        .type(TransactionType.valueOf(rs.getString("type")))
+                        .idempotencyKey(rs.getString("idempotency_key"))
+                        .createdAt(rs.getTimestamp("created_at").toInstant())
+                        .build(),
+                args);
+    }
+
+    /**
+     * Moves rows into a segment: registers its file, deletes the rows and adds them to the
+     * archived balances of their wallets. Must run in one transaction.
+     *
+     * @param name    name of the segment file
+     * @param firstId smallest id of the segment
+     * @param lastId  greatest id of the segment
+     * @param rows    rows of the segment
+     * @return number of rows deleted
+     */
+    public int archive(String name, UUID firstId, UUID lastId, List<Transaction> rows) {
+        jdbcTemplate.update(INSERT_SEGMENT_SQL, name, rows.size(), firstId, lastId, Timestamp.from(Instant.now()));
+
+        List<Object[]> deletes = new ArrayList<>(rows.size());
+        Map<UUID, long[]> sums = new LinkedHashMap<>();
+        for (Transaction row : rows) {
+            deletes.add(new Object[]{row.getId()});
+            TransactionType type = row.getType();
+            long amount = type == TransactionType.CREDIT || type == TransactionType.TRANSFER_IN
+                    ? row.getAmount()
+                    : -row.getAmount();
+            long[] sum = sums.computeIfAbsent(row.getWalletId(), walletId -> new long[2]);
+            sum[0] += amount;
+            sum[1]++;
+        }
+        int deleted = 0;
+        for (int count : jdbcTemplate.batchUpdate(DELETE_TRANSACTION_SQL, deletes)) {
+            deleted += count;
+        }
+
+        List<UUID> walletIds = new ArrayList<>(sums.keySet());
+        List<Object[]> updates = new ArrayList<>(walletIds.size());
+        for (UUID walletId : walletIds) {
+            long[] sum = sums.get(walletId);
+            updates.add(new Object[]{sum[0], sum[1], walletId});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, updates);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                UUID walletId = walletIds.get(i);
+                long[] sum = sums.get(walletId);
+                inserts.add(new Object[]{walletId, sum[0], sum[1]});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_BALANCE_SQL, inserts);
+        }
+        return deleted;
+    }
+}
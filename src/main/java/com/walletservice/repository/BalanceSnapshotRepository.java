@@ -0,0 +1,140 @@
+package com.walletservice.repository;
+
+import com.walletservice.model.BalanceSnapshot;
+import com.walletservice.model.LedgerCheckpoint;
+import com.walletservice.model.TransactionType;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository of the {@link BalanceSnapshot} rows and {@link LedgerCheckpoint} that balances
+ * projected from the ledger are rebuilt from.
+ * <p>
+ * Snapshots and ledger rows are streamed, a fetch at a time, so rebuilding holds one balance per
+ * wallet in memory and never the rows themselves. Reads must run in a transaction for the
+ * PostgreSQL driver to stream instead of loading the whole result.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Repository
+@RequiredArgsConstructor
+public class BalanceSnapshotRepository {
+
+    /**
+     * Name of the checkpoint of the balance snapshots.
+     */
+    public static final String CHECKPOINT = "balance-snapshots";
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String FIND_CHECKPOINT_SQL =
+            "SELECT position FROM ledger_checkpoints WHERE name = ?";
+    private static final String FIND_SNAPSHOTS_SQL =
+            "SELECT wallet_id, balance FROM wallet_balance_snapshots";
+    private static final String FIND_LEDGER_SQL =
+            "SELECT id, wallet_id, amount, type FROM transactions ORDER BY id";
+    // the primary key index serves the tail with one range scan
+    private static final String FIND_LEDGER_AFTER_SQL =
+            "SELECT id, wallet_id, amount, type FROM transactions WHERE id > ? ORDER BY id";
+    // UPDATE then INSERT of the rows not found, as H2 has no ON CONFLICT DO UPDATE
+    private static final String UPDATE_SNAPSHOT_SQL =
+            "UPDATE wallet_balance_snapshots SET balance = ?, created_at = ? WHERE wallet_id = ?";
+    private static final String INSERT_SNAPSHOT_SQL =
+            "INSERT INTO wallet_balance_snapshots (wallet_id, balance, created_at) VALUES (?, ?, ?)";
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE ledger_checkpoints SET position = ?, created_at = ? WHERE name = ?";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO ledger_checkpoints (name, position, created_at) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return the ledger position the snapshots are complete up to, empty if none was saved yet
+     */
+    public Optional<UUID> findCheckpoint() {
+        return jdbcTemplate.query(FIND_CHECKPOINT_SQL, (rs, row) -> rs.getObject("position", UUID.class), CHECKPOINT)
+                .stream().findFirst();
+    }
+
+    /**
+     * Streams every snapshot.
+     *
+     * @param consumer called with the wallet id and balance of each snapshot
+     */
+    public void forEachSnapshot(BiConsumer<UUID, Long> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(FIND_SNAPSHOTS_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getObject("wallet_id", UUID.class), rs.getLong("balance")));
+    }
+
+    /**
+     * Streams the balance change of every transaction after a ledger position, in id order.
+     *
+     * @param position id of the last transaction already applied, null to stream the whole ledger
+     * @param consumer called with the wallet id and signed amount of each transaction
+     * @return id of the last transaction streamed, or {@code position} if there was none
+     */
+    public UUID replayAfter(UUID position, BiConsumer<UUID, Long> consumer) {
+        UUID[] last = {position};
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(position == null ? FIND_LEDGER_SQL : FIND_LEDGER_AFTER_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            if (position != null) {
+                statement.setObject(1, position);
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            long amount = rs.getInt("amount");
+            TransactionType type = TransactionType.valueOf(rs.getString("type"));
+            boolean incoming = type == TransactionType.CREDIT || type == TransactionType.TRANSFER_IN;
+            consumer.accept(rs.getObject("wallet_id", UUID.class), incoming ? amount : -amount);
+            last[0] = rs.getObject("id", UUID.class);
+        });
+        return last[0];
+    }
+
+    /**
+     * Saves the snapshots of the given balances and moves the checkpoint to {@code position}.
+     * Must run in one transaction, so the checkpoint never gets ahead of the snapshots.
+     *
+     * @param balances balance per wallet, as of {@code position}
+     * @param position id of the last transaction applied to the balances
+     */
+    public void save(Map<UUID, Long> balances, UUID position) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<UUID> walletIds = new ArrayList<>(balances.keySet());
+        List<Object[]> updates = new ArrayList<>(walletIds.size());
+        for (UUID walletId : walletIds) {
+            updates.add(new Object[]{balances.get(walletId), now, walletId});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SNAPSHOT_SQL, updates);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                UUID walletId = walletIds.get(i);
+                inserts.add(new Object[]{walletId, balances.get(walletId), now});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, inserts);
+        }
+        if (jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, position, now, CHECKPOINT) == 0) {
+            jdbcTemplate.update(INSERT_CHECKPOINT_SQL, CHECKPOINT, position, now);
+        }
+    }
+}
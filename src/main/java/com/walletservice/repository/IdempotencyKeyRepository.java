@@ -0,0 +1,32 @@
+package com.walletservice.repository;
+
+import com.walletservice.model.IdempotencyKey;
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for managing {@link IdempotencyKey} entities.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ * @see JpaRepository
+ */
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Streams every claimed key through a database cursor.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return stream of keys
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select k.key from IdempotencyKey k")
+    Stream<String> streamAllKeys();
+}
@@ -0,0 +1,210 @@
+package com.walletservice.repository;
+
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository writing ledger mutations in batches.
+ * <p>
+ * Bypasses the persistence context: balances are changed with relative updates
+ * and {@link Transaction} rows are inserted with ids assigned by the caller,
+ * so a whole batch costs one round trip per statement type.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerBatchRepository {
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE wallets SET balance = balance + ? WHERE id = ?";
+    private static final String LOCK_WALLETS_SQL =
+            "SELECT id FROM wallets WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    private static final String GUARDED_DEBIT_SQL =
+            "UPDATE wallets SET balance = balance - ? WHERE id = ? AND balance >= ?";
+    private static final String GUARDED_DELTA_SQL =
+            "UPDATE wallets SET balance = balance + ? WHERE id = ? AND balance + ? >= 0";
+    // INSERT ... SELECT keeps the driver from rewriting the batch, which would hide the per-key counts
+    private static final String CLAIM_KEY_SQL =
+            "INSERT INTO idempotency_keys (idempotency_key, created_at) "
+                    + "SELECT CAST(? AS VARCHAR(255)), CURRENT_TIMESTAMP ON CONFLICT DO NOTHING";
+    private static final String RELEASE_KEY_SQL =
+            "DELETE FROM idempotency_keys WHERE idempotency_key = ?";
+    private static final String BACKFILL_KEYS_SQL =
+            "INSERT INTO idempotency_keys (idempotency_key, created_at) "
+                    + "SELECT DISTINCT t.idempotency_key, CURRENT_TIMESTAMP FROM transactions t "
+                    + "WHERE t.idempotency_key IS NOT NULL AND NOT EXISTS "
+                    + "(SELECT 1 FROM idempotency_keys k WHERE k.idempotency_key = t.idempotency_key)";
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (id, wallet_id, amount, type, idempotency_key, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds the given deltas to the wallet balances, in ascending wallet id order
+     * so concurrent batches always lock rows in the same order.
+     *
+     * @param deltas balance change per wallet, ordered by wallet id
+     */
+    public void applyBalanceDeltas(Map<UUID, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((walletId, delta) -> args.add(new Object[]{delta, walletId}));
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, args);
+    }
+
+    /**
+     * Locks the rows of the given wallets in ascending id order, so a transaction updating them
+     * in any later order cannot deadlock with another one locking rows in id order.
+     *
+     * @param walletIds wallets to lock, missing ones are skipped
+     */
+    public void lockWallets(Collection<UUID> walletIds) {
+        if (walletIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(walletIds.size(), "?"));
+        jdbcTemplate.queryForList(LOCK_WALLETS_SQL.formatted(placeholders), UUID.class, walletIds.toArray());
+    }
+
+    /**
+     * Credits the wallet of every given transaction by its amount, one statement per transaction.
+     *
+     * @param credits transactions carrying the wallet id and amount
+     * @return update count per transaction, 0 when the wallet does not exist
+     */
+    public int[] creditWallets(List<Transaction> credits) {
+        if (credits.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = new ArrayList<>(credits.size());
+        for (Transaction credit : credits) {
+            args.add(new Object[]{credit.getAmount(), credit.getWalletId()});
+        }
+        return jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, args);
+    }
+
+    /**
+     * Debits the wallet of every given transaction by its amount, unless that would
+     * make the balance negative. Statements run in order, so later debits of the same
+     * wallet see the earlier ones.
+     *
+     * @param debits transactions carrying the wallet id and amount
+     * @return update count per transaction, 0 when the wallet does not exist or lacks funds
+     */
+    public int[] debitWallets(List<Transaction> debits) {
+        if (debits.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = new ArrayList<>(debits.size());
+        for (Transaction debit : debits) {
+            args.add(new Object[]{debit.getAmount(), debit.getWalletId(), debit.getAmount()});
+        }
+        return jdbcTemplate.batchUpdate(GUARDED_DEBIT_SQL, args);
+    }
+
+    /**
+     * Applies every given transaction to its wallet with one statement type: credits and incoming
+     * transfers add their amount, debits and outgoing transfers subtract it unless that would make
+     * the balance negative. Statements run in list order, so callers sort by wallet id to lock rows
+     * in a fixed order, and later transactions of a wallet see the earlier ones.
+     *
+     * @param transactions transactions carrying the wallet id, amount and type
+     * @return update count per transaction, 0 when the wallet does not exist or lacks funds
+     */
+    public int[] applyGuardedDeltas(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            TransactionType type = transaction.getType();
+            int delta = type == TransactionType.CREDIT || type == TransactionType.TRANSFER_IN
+                    ? transaction.getAmount()
+                    : -transaction.getAmount();
+            args.add(new Object[]{delta, transaction.getWalletId(), delta});
+        }
+        return jdbcTemplate.batchUpdate(GUARDED_DELTA_SQL, args);
+    }
+
+    /**
+     * Claims the given idempotency keys. A key already claimed, by a committed transaction
+     * or earlier in the list, is left untouched.
+     *
+     * @param keys keys to claim
+     * @return 1 for every key claimed, 0 for every duplicate
+     */
+    public int[] claimIdempotencyKeys(List<String> keys) {
+        if (keys.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            args.add(new Object[]{key});
+        }
+        return jdbcTemplate.batchUpdate(CLAIM_KEY_SQL, args);
+    }
+
+    /**
+     * Releases keys claimed earlier in the same transaction by mutations that were rejected.
+     *
+     * @param keys keys to release
+     */
+    public void releaseIdempotencyKeys(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            args.add(new Object[]{key});
+        }
+        jdbcTemplate.batchUpdate(RELEASE_KEY_SQL, args);
+    }
+
+    /**
+     * Claims the keys of transactions recorded before keys were claimed separately.
+     *
+     * @return number of keys claimed
+     */
+    public int backfillIdempotencyKeys() {
+        return jdbcTemplate.update(BACKFILL_KEYS_SQL);
+    }
+
+    /**
+     * Inserts the given transactions, whose ids must already be assigned.
+     *
+     * @param transactions transactions to insert
+     */
+    public void insertTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            args.add(new Object[]{
+                    transaction.getId(),
+                    transaction.getWalletId(),
+                    transaction.getAmount(),
+                    transaction.getType().name(),
+                    transaction.getIdempotencyKey(),
+                    Timestamp.from(transaction.getCreatedAt())
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, args);
+    }
+}
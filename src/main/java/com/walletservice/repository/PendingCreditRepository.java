@@ -0,0 +1,136 @@
+package com.walletservice.repository;
+
+import com.walletservice.model.PendingCredit;
+import com.walletservice.model.id.Ids;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository of the {@link PendingCredit} rows of wallets accumulating their credits.
+ * <p>
+ * Recording a credit inserts a row and locks nothing shared, so concurrent credits to one
+ * wallet do not queue on its {@code wallets} row. Folding locks the balance rows, then their
+ * pending rows, deletes those and adds their amounts to the balance rows in one go, within the
+ * caller's transaction. Every folder takes wallet rows before pending rows, like debits folding
+ * the wallet they hold, so a folder never waits for a pending row while another waits for its wallet.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Repository
+@RequiredArgsConstructor
+public class PendingCreditRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO pending_credits (id, wallet_id, amount, node_id, created_at) "
+                    + "SELECT ?, w.id, ?, ?, ? FROM wallets w WHERE w.id = ? AND w.accumulate_credits = TRUE";
+    private static final String LOCK_WALLETS_SQL =
+            "SELECT id FROM wallets WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    private static final String OLDEST_WALLETS_SQL =
+            "SELECT wallet_id FROM pending_credits ORDER BY id LIMIT ?";
+    private static final String LOCK_PENDING_SQL =
+            "SELECT id, wallet_id, amount, node_id, created_at FROM pending_credits WHERE wallet_id IN (%s) "
+                    + "ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String EXISTS_ACCUMULATION_SQL =
+            "SELECT EXISTS (SELECT 1 FROM wallets WHERE accumulate_credits = TRUE) "
+                    + "OR EXISTS (SELECT 1 FROM pending_credits)";
+    private static final String DELETE_SQL =
+            "DELETE FROM pending_credits WHERE id = ?";
+    private static final String CREDIT_WALLET_SQL =
+            "UPDATE wallets SET balance = balance + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records a credit if its wallet accumulates credits.
+     *
+     * @param credit credit with its id assigned
+     * @return 1 if the credit was recorded, 0 if the wallet does not exist or does not accumulate credits
+     */
+    public int insert(PendingCredit credit) {
+        return jdbcTemplate.update(INSERT_SQL, credit.getId(), credit.getAmount(), credit.getNodeId(),
+                Timestamp.from(credit.getCreatedAt()), credit.getWalletId());
+    }
+
+    /**
+     * @return whether a wallet accumulates credits or a pending credit is left to fold
+     */
+    public boolean existsAccumulation() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_ACCUMULATION_SQL, Boolean.class));
+    }
+
+    /**
+     * Folds every pending credit of a wallet into its balance row.
+     *
+     * @param walletId wallet id
+     * @return the folded credits
+     */
+    public List<PendingCredit> foldWallet(UUID walletId) {
+        return lockAndFold(List.of(walletId), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Folds the pending credits of the wallets with the oldest ones into their balance rows.
+     *
+     * @param limit maximum number of credits
+     * @return the folded credits
+     */
+    public List<PendingCredit> foldOldest(int limit) {
+        Set<UUID> walletIds = new LinkedHashSet<>(jdbcTemplate.queryForList(OLDEST_WALLETS_SQL, UUID.class, limit));
+        return lockAndFold(walletIds, limit);
+    }
+
+    private List<PendingCredit> lockAndFold(Collection<UUID> walletIds, int limit) {
+        if (walletIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(walletIds.size(), "?"));
+        jdbcTemplate.queryForList(LOCK_WALLETS_SQL.formatted(placeholders), UUID.class, walletIds.toArray());
+        List<Object> args = new ArrayList<>(walletIds);
+        args.add(limit);
+        return fold(jdbcTemplate.query(LOCK_PENDING_SQL.formatted(placeholders), PendingCreditRepository::mapRow,
+                args.toArray()));
+    }
+
+    private List<PendingCredit> fold(List<PendingCredit> credits) {
+        if (credits.isEmpty()) {
+            return credits;
+        }
+        // balance rows are updated in wallet id order, like every other batch
+        Map<UUID, Long> totals = new TreeMap<>(Ids.ORDER);
+        List<Object[]> ids = new ArrayList<>(credits.size());
+        for (PendingCredit credit : credits) {
+            totals.merge(credit.getWalletId(), (long) credit.getAmount(), Long::sum);
+            ids.add(new Object[]{credit.getId()});
+        }
+        jdbcTemplate.batchUpdate(DELETE_SQL, ids);
+        List<Object[]> args = new ArrayList<>(totals.size());
+        totals.forEach((walletId, total) -> args.add(new Object[]{total, walletId}));
+        jdbcTemplate.batchUpdate(CREDIT_WALLET_SQL, args);
+        return credits;
+    }
+
+    private static PendingCredit mapRow(ResultSet rs, int row) throws SQLException {
+        return PendingCredit.builder()
+                .id(rs.getObject("id", UUID.class))
+                .walletId(rs.getObject("wallet_id", UUID.class))
+                .amount(rs.getInt("amount"))
+                .nodeId(rs.getObject("node_id", UUID.class))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .build();
+    }
+}
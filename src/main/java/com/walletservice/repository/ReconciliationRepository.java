@@ -0,0 +1,123 @@
+package com.walletservice.repository;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository of the reads that reconcile wallet balances with the ledger, a range of wallet
+ * ids at a time.
+ * <p>
+ * A range is compared in one statement, so each wallet's balance and transactions are read from
+ * the same snapshot however many transactions commit meanwhile, and plain reads take no row locks
+ * that live traffic would wait on. The transactions of a range are summed by the database with a
+ * range scan of the wallet history index; only one row per wallet is streamed back. Transactions
+ * moved to the archive are counted through the sums kept for each wallet when they were archived.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReconciliationRepository {
+
+    private static final int FETCH_SIZE = 1_000;
+
+    // PostgreSQL has no max(uuid); the primary key index is read backwards instead
+    private static final String FIND_LAST_WALLET_SQL = "SELECT id FROM wallets ORDER BY id DESC FETCH FIRST 1 ROWS ONLY";
+    private static final String FIND_CHUNK_END_SQL =
+            "SELECT id FROM wallets WHERE id <= ? ORDER BY id OFFSET ? ROWS FETCH FIRST 1 ROWS ONLY";
+    private static final String FIND_CHUNK_END_AFTER_SQL =
+            "SELECT id FROM wallets WHERE id > ? AND id <= ? ORDER BY id OFFSET ? ROWS FETCH FIRST 1 ROWS ONLY";
+
+    // %1$s restricts the wallets, %2$s their transactions, to the chunk
+    private static final String RECONCILE_SQL = """
+            SELECT w.id, w.balance
+                       + coalesce((SELECT sum(s.balance) FROM wallet_balance_slots s WHERE s.wallet_id = w.id), 0)
+                       + coalesce((SELECT sum(p.amount) FROM pending_credits p WHERE p.wallet_id = w.id), 0) AS balance,
+                   coalesce(l.ledger_balance, 0) + coalesce(a.balance, 0) AS ledger_balance,
+                   coalesce(l.transactions, 0) + coalesce(a.transactions, 0) AS transactions
+            FROM wallets w
+            LEFT JOIN archived_wallet_balances a ON a.wallet_id = w.id
+            LEFT JOIN (SELECT t.wallet_id,
+                              sum(CASE WHEN t.type IN ('CREDIT', 'TRANSFER_IN') THEN t.amount ELSE -t.amount END) AS ledger_balance,
+                              count(*) AS transactions
+                       FROM transactions t
+                       WHERE %2$s
+                       GROUP BY t.wallet_id) l ON l.wallet_id = w.id
+            WHERE %1$s""";
+    private static final String RECONCILE_FIRST_SQL =
+            RECONCILE_SQL.formatted("w.id <= ?", "t.wallet_id <= ?");
+    private static final String RECONCILE_AFTER_SQL =
+            RECONCILE_SQL.formatted("w.id > ? AND w.id <= ?", "t.wallet_id > ? AND t.wallet_id <= ?");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return the greatest wallet id, empty without wallets
+     */
+    public Optional<UUID> findLastWalletId() {
+        return jdbcTemplate.queryForList(FIND_LAST_WALLET_SQL, UUID.class).stream().findFirst();
+    }
+
+    /**
+     * Finds the end of the chunk of wallets after {@code after}, walking the primary key index.
+     *
+     * @param after     last wallet id of the previous chunk, null for the first chunk
+     * @param last      greatest wallet id reconciled
+     * @param chunkSize number of wallets in the chunk
+     * @return the last wallet id of the chunk, empty if fewer wallets are left up to {@code last}
+     */
+    public Optional<UUID> findChunkEnd(UUID after, UUID last, int chunkSize) {
+        List<UUID> ends = after == null
+                ? jdbcTemplate.queryForList(FIND_CHUNK_END_SQL, UUID.class, last, chunkSize - 1)
+                : jdbcTemplate.queryForList(FIND_CHUNK_END_AFTER_SQL, UUID.class, after, last, chunkSize - 1);
+        return ends.stream().findFirst();
+    }
+
+    /**
+     * Streams the balance and ledger balance of every wallet of a chunk. Must run in a
+     * transaction for the PostgreSQL driver to stream instead of loading the whole result.
+     *
+     * @param after    last wallet id of the previous chunk, null for the first chunk
+     * @param upTo     last wallet id of the chunk
+     * @param consumer called with each wallet of the chunk
+     */
+    public void forEachWallet(UUID after, UUID upTo, WalletBalanceConsumer consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(after == null ? RECONCILE_FIRST_SQL : RECONCILE_AFTER_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            // the same bounds apply to the transactions, then to the wallets
+            int index = 1;
+            for (int i = 0; i < 2; i++) {
+                if (after != null) {
+                    statement.setObject(index++, after);
+                }
+                statement.setObject(index++, upTo);
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getObject("id", UUID.class), rs.getLong("balance"),
+                rs.getLong("ledger_balance"), rs.getLong("transactions")));
+    }
+
+    /**
+     * Receives one wallet of a reconciled chunk.
+     */
+    @FunctionalInterface
+    public interface WalletBalanceConsumer {
+
+        /**
+         * @param walletId      id of the wallet
+         * @param balance       balance of its row, slots and pending credits
+         * @param ledgerBalance signed sum of its transactions, archived ones included
+         * @param transactions  number of its transactions, archived ones included
+         */
+        void accept(UUID walletId, long balance, long ledgerBalance, long transactions);
+    }
+}
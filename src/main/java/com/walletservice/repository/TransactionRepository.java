@@ -1,8 +1,17 @@
 package com.walletservice.repository;
 
 import com.walletservice.model.Transaction;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -25,4 +34,64 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
      * @return a boolean true/false
      */
     boolean existsByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Finds the first transactions in id order.
+     *
+     * @param limit maximum number of transactions
+     * @return transactions ordered by id
+     */
+    List<Transaction> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * Finds the transactions following the given id in id order, using the primary key index.
+     *
+     * @param id    id of the last transaction already read
+     * @param limit maximum number of transactions
+     * @return transactions ordered by id
+     */
+    List<Transaction> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+
+    /**
+     * Finds the latest transactions of a wallet, newest first, with a range scan
+     * of the (wallet_id, created_at, id) index.
+     *
+     * @param walletId wallet id
+     * @param limit    maximum number of transactions
+     * @return transactions ordered by creation time and id, descending
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select t from Transaction t where t.walletId = :walletId order by t.createdAt desc, t.id desc")
+    List<Transaction> findHistory(@Param("walletId") UUID walletId, Limit limit);
+
+    /**
+     * Finds the transactions of a wallet older than the given (createdAt, id) position, newest first.
+     * The {@code createdAt <= :createdAt} term bounds the index range scan.
+     *
+     * @param walletId  wallet id
+     * @param createdAt creation time of the last transaction already read
+     * @param id        id of the last transaction already read
+     * @param limit     maximum number of transactions
+     * @return transactions ordered by creation time and id, descending
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select t from Transaction t where t.walletId = :walletId and t.createdAt <= :createdAt "
+            + "and (t.createdAt < :createdAt or t.id < :id) order by t.createdAt desc, t.id desc")
+    List<Transaction> findHistoryBefore(@Param("walletId") UUID walletId,
+                                        @Param("createdAt") Instant createdAt,
+                                        @Param("id") UUID id,
+                                        Limit limit);
+
+    /**
+     * Streams every transaction in id order from a database cursor.
+     * Must be consumed and closed inside a transaction.
+     *
+     * @return stream of transactions
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t order by t.id")
+    Stream<Transaction> streamAllOrderById();
 }
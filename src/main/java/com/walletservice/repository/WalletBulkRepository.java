@@ -0,0 +1,78 @@
+package com.walletservice.repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository creating wallets in bulk.
+ * <p>
+ * Wallet ids are assigned by the caller, so rows can be streamed to the database without
+ * reading generated keys back. On PostgreSQL the rows go through {@code COPY}, one stream
+ * per chunk; other databases get one batched {@code INSERT}.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Repository
+@RequiredArgsConstructor
+public class WalletBulkRepository {
+
+    private static final String COPY_WALLETS_SQL =
+            "COPY wallets (id, balance) FROM STDIN";
+    private static final String INSERT_WALLET_SQL =
+            "INSERT INTO wallets (id, balance) VALUES (?, 0)";
+    // "<36 char uuid>\t0\n"
+    private static final int COPY_ROW_LENGTH = 39;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts a wallet with a zero balance for every given id.
+     *
+     * @param ids     ids of the new wallets
+     * @param useCopy use {@code COPY} if the connection is a PostgreSQL one
+     */
+    public void insertWallets(List<UUID> ids, boolean useCopy) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (useCopy && copyWallets(ids)) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            args.add(new Object[]{id});
+        }
+        jdbcTemplate.batchUpdate(INSERT_WALLET_SQL, args);
+    }
+
+    private boolean copyWallets(List<UUID> ids) {
+        Boolean copied = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return false;
+            }
+            StringBuilder rows = new StringBuilder(ids.size() * COPY_ROW_LENGTH);
+            for (UUID id : ids) {
+                rows.append(id).append("\t0\n");
+            }
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_WALLETS_SQL, new StringReader(rows.toString()));
+            } catch (IOException e) {
+                throw new SQLException("COPY of " + ids.size() + " wallets failed", e);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(copied);
+    }
+}
@@ -1,8 +1,17 @@
 package com.walletservice.repository;
 
+import com.walletservice.dto.WalletDto;
 import com.walletservice.model.Wallet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -16,4 +25,108 @@ import org.springframework.stereotype.Repository;
  * @see JpaRepository
  */
 @Repository
-public interface WalletRepository extends JpaRepository<Wallet, UUID> { }
+public interface WalletRepository extends JpaRepository<Wallet, UUID> {
+
+    /**
+     * Balance of wallet {@code w}: its own row plus its balance slots, if any.
+     */
+    String BALANCE = "w.balance + coalesce((select sum(s.balance) from WalletSlot s where s.walletId = w.id), 0)";
+
+    /**
+     * Wallet {@code w} read straight into a DTO, with the balance of its slots.
+     */
+    String DTO = "new com.walletservice.dto.WalletDto(w.id, cast(" + BALANCE + " as Integer))";
+
+    /**
+     * Reads a wallet straight into a DTO, its balance slots included.
+     *
+     * @param id wallet id
+     * @return the wallet, empty if it does not exist
+     */
+    @Query("select " + DTO + " from Wallet w where w.id = :id")
+    Optional<WalletDto> findDtoById(@Param("id") UUID id);
+
+    /**
+     * Reads the balance of a wallet, its balance slots included.
+     *
+     * @param id wallet id
+     * @return the balance, empty if the wallet does not exist
+     */
+    @Query("select " + BALANCE + " from Wallet w where w.id = :id")
+    Optional<Long> findTotalBalanceById(@Param("id") UUID id);
+
+    /**
+     * Reads the first wallets in id order straight into DTOs, without managed entities.
+     *
+     * @param limit maximum number of wallets
+     * @return wallets ordered by id
+     */
+    @Query("select " + DTO + " from Wallet w order by w.id")
+    List<WalletDto> findDtosOrderById(Limit limit);
+
+    /**
+     * Reads the wallets following the given id in id order straight into DTOs, using the primary key index.
+     *
+     * @param id    id of the last wallet already read
+     * @param limit maximum number of wallets
+     * @return wallets ordered by id
+     */
+    @Query("select " + DTO + " from Wallet w where w.id > :id order by w.id")
+    List<WalletDto> findDtosAfterOrderById(@Param("id") UUID id, Limit limit);
+
+    /**
+     * Resolves which of the given wallets exist, in one query.
+     *
+     * @param ids wallet ids
+     * @return the ids of the wallets that exist
+     */
+    @Query("select w.id from Wallet w where w.id in :ids")
+    Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Adds to the balance of a wallet in one statement, without loading it. Wallets accumulating
+     * their credits or split into balance slots are left to {@link PendingCreditRepository#insert}
+     * and {@link WalletSlotRepository#creditSlot}.
+     *
+     * @param id     wallet id
+     * @param amount amount to add
+     * @return 1 if the wallet was credited, 0 if it does not exist, accumulates credits or has balance slots
+     */
+    @Modifying
+    @Query("update Wallet w set w.balance = w.balance + :amount where w.id = :id and w.slots = 0 "
+            + "and w.accumulateCredits = false")
+    int creditBalance(@Param("id") UUID id, @Param("amount") int amount);
+
+    /**
+     * Subtracts from the balance of a wallet in one statement, only if the balance covers the amount.
+     *
+     * @param id     wallet id
+     * @param amount amount to subtract
+     * @return 1 if the wallet was debited, 0 if it does not exist or its balance is too low
+     */
+    @Modifying
+    @Query("update Wallet w set w.balance = w.balance - :amount where w.id = :id and w.balance >= :amount")
+    int debitBalance(@Param("id") UUID id, @Param("amount") int amount);
+
+    /**
+     * Sets the number of balance slots receiving the credits of a wallet.
+     *
+     * @param id    wallet id
+     * @param slots number of slots, 0 to credit the wallet row itself
+     * @return 1 if the wallet was updated, 0 if it does not exist
+     */
+    @Modifying
+    @Query("update Wallet w set w.slots = :slots where w.id = :id")
+    int updateSlots(@Param("id") UUID id, @Param("slots") int slots);
+
+    /**
+     * Sets whether credits to a wallet are accumulated and folded into its balance in the background.
+     *
+     * @param id                wallet id
+     * @param accumulateCredits accumulate credits
+     * @return 1 if the wallet was updated, 0 if it does not exist
+     */
+    @Modifying
+    @Query("update Wallet w set w.accumulateCredits = :accumulateCredits where w.id = :id")
+    int updateAccumulateCredits(@Param("id") UUID id, @Param("accumulateCredits") boolean accumulateCredits);
+}
@@ -0,0 +1,94 @@
+package com.walletservice.repository;
+
+import com.walletservice.model.WalletSlot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository of the {@link WalletSlot} balance slots of hot wallets.
+ * <p>
+ * A wallet split into slots is credited on one slot row picked at random, without locking
+ * its {@code wallets} row, so credits to it scale with the number of slots. Debits keep
+ * drawing from the {@code wallets} row; when it falls short, the slots are drained into it
+ * and the debit is retried. The balance of a wallet is always its row plus all its slot rows.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Repository
+@RequiredArgsConstructor
+public class WalletSlotRepository {
+
+    // NULLIF leaves wallets without slots untouched instead of dividing by zero
+    private static final String CREDIT_SLOT_SQL =
+            "UPDATE wallet_balance_slots SET balance = balance + ? WHERE wallet_id = ? "
+                    + "AND slot = ? % NULLIF((SELECT w.slots FROM wallets w WHERE w.id = ?), 0)";
+    private static final String LOCK_SLOTS_SQL =
+            "SELECT slot, balance FROM wallet_balance_slots WHERE wallet_id = ? AND balance <> 0 "
+                    + "ORDER BY slot FOR UPDATE";
+    private static final String DRAIN_SLOT_SQL =
+            "UPDATE wallet_balance_slots SET balance = balance - ? WHERE wallet_id = ? AND slot = ?";
+    private static final String CREDIT_WALLET_SQL =
+            "UPDATE wallets SET balance = balance + ? WHERE id = ?";
+    private static final String INSERT_SLOT_SQL =
+            "INSERT INTO wallet_balance_slots (wallet_id, slot, balance) VALUES (?, ?, 0) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds to the balance of one slot of a wallet, picked at random.
+     *
+     * @param walletId wallet id
+     * @param amount   amount to add
+     * @return 1 if a slot was credited, 0 if the wallet does not exist or has no slots
+     */
+    public int creditSlot(UUID walletId, int amount) {
+        int pick = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        return jdbcTemplate.update(CREDIT_SLOT_SQL, amount, walletId, pick, walletId);
+    }
+
+    /**
+     * Moves the balance of every slot of a wallet into its {@code wallets} row. The slots are
+     * locked first, so credits to them wait until the current transaction ends.
+     *
+     * @param walletId wallet id
+     * @return amount moved, 0 if the slots were empty or the wallet has none
+     */
+    public long drainSlots(UUID walletId) {
+        List<Object[]> drained = jdbcTemplate.query(LOCK_SLOTS_SQL,
+                (rs, row) -> new Object[]{rs.getInt("balance"), walletId, rs.getInt("slot")}, walletId);
+        if (drained.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (Object[] slot : drained) {
+            total += (Integer) slot[0];
+        }
+        jdbcTemplate.batchUpdate(DRAIN_SLOT_SQL, drained);
+        jdbcTemplate.update(CREDIT_WALLET_SQL, total, walletId);
+        return total;
+    }
+
+    /**
+     * Creates the missing slot rows {@code 0} to {@code slots - 1} of a wallet, with a zero balance.
+     *
+     * @param walletId wallet id
+     * @param slots    number of slots
+     */
+    public void createSlots(UUID walletId, int slots) {
+        if (slots <= 0) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            args.add(new Object[]{walletId, slot});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SLOT_SQL, args);
+    }
+}
@@ -1,11 +1,17 @@
 package com.walletservice.service;
 
+import com.walletservice.dto.BatchTransactionRequest;
+import com.walletservice.dto.BatchTransactionResponse;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.PayoutRequest;
+import com.walletservice.dto.PayoutResponse;
 import com.walletservice.dto.TransactionDto;
 import com.walletservice.dto.TransactionRequest;
 import com.walletservice.dto.TransactionResponse;
 import com.walletservice.dto.TransferRequest;
 import com.walletservice.dto.TransferResponse;
-import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing Transactions
@@ -18,5 +24,9 @@ import java.util.List;
 public interface TransactionService {
     TransactionResponse createOrDebit(TransactionRequest request);
     TransferResponse transfer(TransferRequest request);
-    List<TransactionDto> findAll();
+    PayoutResponse payout(PayoutRequest request);
+    BatchTransactionResponse createBatch(BatchTransactionRequest request);
+    CursorPage<TransactionDto> findPage(UUID after, int limit);
+    CursorPage<TransactionDto> findByWallet(UUID walletId, String cursor, int limit);
+    void streamAll(Consumer<TransactionDto> consumer);
 }
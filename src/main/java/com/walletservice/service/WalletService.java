@@ -1,8 +1,11 @@
 package com.walletservice.service;
 
+import com.walletservice.dto.BulkWalletRequest;
+import com.walletservice.dto.CursorPage;
 import com.walletservice.dto.WalletDto;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing wallets
@@ -14,6 +17,9 @@ import java.util.UUID;
  */
 public interface WalletService {
     WalletDto createWallet();
+    void createWallets(BulkWalletRequest request, Consumer<List<UUID>> consumer);
     WalletDto findById(UUID id);
-    List<WalletDto> findAll();
+    CursorPage<WalletDto> findPage(UUID after, int limit);
+    WalletDto updateSlots(UUID id, int slots);
+    WalletDto updateAccumulateCredits(UUID id, boolean accumulateCredits);
 }
@@ -0,0 +1,279 @@
+package com.walletservice.service.accumulator;
+
+import com.walletservice.config.AccumulatorProperties;
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.model.PendingCredit;
+import com.walletservice.model.id.Ids;
+import com.walletservice.repository.PendingCreditRepository;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.engine.LedgerEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Accumulates the credits of hot receiver wallets instead of updating their balance rows.
+ * <p>
+ * A credit to a wallet with {@code accumulateCredits} set is recorded as a {@link PendingCredit}
+ * row in the transaction of its {@code Transaction} row, and added to the wallet's
+ * {@link LongAdder} once committed. A background thread folds the pending rows into the balance
+ * rows every {@code wallet.accumulator.flush-interval}. It only starts once there is something to
+ * fold: pending rows or an accumulating wallet at startup, a wallet turning accumulation on, or a
+ * credit accumulated by this node. The event-sourced and journal engines never accumulate credits,
+ * so it never starts in those modes. A debit the balance row cannot cover
+ * folds the wallet's pending rows in its own transaction first, so it sees every committed credit.
+ * <p>
+ * Reads add the adder to the committed balance. Amounts folded are taken off the adders before
+ * the fold commits and given back if it rolls back, so a read may briefly miss a credit but never
+ * counts one twice. Adders only hold the credits of this node: credits accumulated by other nodes,
+ * or before a restart, show once folded.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class CreditAccumulator {
+
+    private final PendingCreditRepository pendingCreditRepository;
+    private final WalletCache walletCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final boolean supported;
+
+    // tells the credits accumulated in this node's adders from the others
+    private final UUID nodeId = UUID.randomUUID();
+    private final Map<UUID, LongAdder> pending = new ConcurrentHashMap<>();
+    private final LongAdder accumulated = new LongAdder();
+    private final LongAdder folded = new LongAdder();
+    private final Thread flusher;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    public CreditAccumulator(AccumulatorProperties properties,
+                             LedgerEngineProperties ledgerEngineProperties,
+                             PendingCreditRepository pendingCreditRepository,
+                             WalletCache walletCache,
+                             TransactionTemplate transactionTemplate,
+                             ObjectProvider<LedgerEngine> ledgerEngine) {
+        this.pendingCreditRepository = pendingCreditRepository;
+        this.walletCache = walletCache;
+        this.transactionTemplate = transactionTemplate;
+        this.ledgerEngine = ledgerEngine;
+        this.maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        String mode = ledgerEngineProperties.getMode();
+        this.supported = !"event-sourced".equals(mode) && !"journal".equals(mode);
+
+        this.flusher = new Thread(this::run, "credit-accumulator");
+        flusher.setDaemon(true);
+    }
+
+    /**
+     * Starts the flusher if credits were left pending, or wallets accumulate them, before this start.
+     */
+    @PostConstruct
+    public void startIfPending() {
+        if (supported && pendingCreditRepository.existsAccumulation()) {
+            start();
+        }
+    }
+
+    /**
+     * Starts folding pending credits in the background, unless already started or the engine mode
+     * does not accumulate credits.
+     */
+    public void start() {
+        if (supported && started.compareAndSet(false, true)) {
+            flusher.start();
+        }
+    }
+
+    /**
+     * @return whether the background thread folding pending credits was started
+     */
+    public boolean isStarted() {
+        return started.get();
+    }
+
+    /**
+     * Records a credit as pending if its wallet accumulates credits. Must run in the
+     * transaction that records the credit's {@code Transaction} row.
+     *
+     * @param walletId wallet id
+     * @param amount   amount credited
+     * @return true if the credit was recorded, false if the wallet does not exist or does not accumulate credits
+     */
+    public boolean accumulate(UUID walletId, int amount) {
+        PendingCredit credit = PendingCredit.builder()
+                .id(Ids.next())
+                .walletId(walletId)
+                .amount(amount)
+                .nodeId(nodeId)
+                .createdAt(Instant.now())
+                .build();
+        if (pendingCreditRepository.insert(credit) == 0) {
+            return false;
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                adderOf(walletId).add(amount);
+                accumulated.increment();
+                // the wallet may have turned accumulation on through another node
+                start();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Folds the pending credits of a wallet into its balance row, within the current transaction.
+     *
+     * @param walletId wallet id
+     * @return amount folded
+     */
+    public long fold(UUID walletId) {
+        return folded(pendingCreditRepository.foldWallet(walletId));
+    }
+
+    /**
+     * @param walletId wallet id
+     * @return credits accumulated by this node and committed, not yet folded into the balance row
+     */
+    public long getPending(UUID walletId) {
+        LongAdder adder = pending.get(walletId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Folds the oldest pending credits, a batch per transaction, until none is left.
+     */
+    void flush() {
+        Integer count;
+        do {
+            count = transactionTemplate.execute(status -> {
+                List<PendingCredit> credits = pendingCreditRepository.foldOldest(maxBatchSize);
+                folded(credits);
+                return credits.size();
+            });
+        } while (count != null && count >= maxBatchSize);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(flushIntervalNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // the pending rows stay, the next round folds them
+                log.error("Folding pending credits failed", e);
+            }
+        }
+    }
+
+    private long folded(List<PendingCredit> credits) {
+        if (credits.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        Map<UUID, Long> local = new HashMap<>();
+        for (PendingCredit credit : credits) {
+            total += credit.getAmount();
+            if (nodeId.equals(credit.getNodeId())) {
+                local.merge(credit.getWalletId(), (long) credit.getAmount(), Long::sum);
+            }
+        }
+        // taken off before the commit, so reads never see the credits in the adders and the balance rows at once
+        local.forEach((walletId, amount) -> adderOf(walletId).add(-amount));
+        List<UUID> walletIds = credits.stream().map(PendingCredit::getWalletId).distinct().toList();
+        // an engine keeping balances in memory does not count pending credits, folding raises its wallets' totals
+        ledgerEngine.ifAvailable(engine -> engine.invalidateAfterCommit(walletIds));
+        afterCompletion(committed -> {
+            if (committed) {
+                walletCache.evict(walletIds);
+                folded.add(credits.size());
+            } else {
+                local.forEach((walletId, amount) -> adderOf(walletId).add(amount));
+            }
+        });
+        return total;
+    }
+
+    private LongAdder adderOf(UUID walletId) {
+        return pending.computeIfAbsent(walletId, id -> new LongAdder());
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    /**
+     * @return credits accumulated since startup
+     */
+    public long getAccumulated() {
+        return accumulated.sum();
+    }
+
+    /**
+     * @return pending credits folded into balance rows since startup
+     */
+    public long getFolded() {
+        return folded.sum();
+    }
+
+    /**
+     * @return amount accumulated by this node and not yet folded, over all wallets
+     */
+    public long getPendingAmount() {
+        long total = 0;
+        for (LongAdder adder : pending.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!started.get()) {
+            return;
+        }
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Pending credits left for the next start: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.walletservice.service.admission;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit on concurrent requests that adapts to their latency, in the manner of TCP Vegas.
+ * <p>
+ * The limiter keeps the lowest latency seen as the latency without queuing. From each
+ * completed request it estimates how many requests were queued,
+ * {@code limit * (1 - minLatency / latency)}: with almost none queued the limit grows, with
+ * more than a few (6 log10 of the limit) it shrinks, so the service runs at the concurrency
+ * where latency starts to rise instead of letting callers pile up behind a slow database.
+ * A request dropped for overload cuts the limit by a tenth. The limit only grows while at
+ * least half of it is used. Every {@value #PROBE_MULTIPLIER} times the limit requests, give
+ * or take, the lowest latency is forgotten, so a lasting change in the database is learned.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final int PROBE_MULTIPLIER = 30;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier nanoTime;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejections = new LongAdder();
+    private volatile int limit;
+
+    // guarded by this
+    private double estimatedLimit;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private long samplesToProbe;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this(name, initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, LongSupplier nanoTime) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits of " + name + " must satisfy 0 < min <= initial <= max");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.nanoTime = nanoTime;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+        this.samplesToProbe = nextProbe(initialLimit);
+    }
+
+    /**
+     * Admits a request if fewer than the limit are in flight.
+     *
+     * @return the permit of the admitted request, to be completed once it finished,
+     * or empty if the request is to be shed
+     */
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejections.increment();
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(nanoTime.getAsLong(), current + 1));
+            }
+        }
+    }
+
+    private synchronized void onSample(long latencyNanos, int inFlightAtStart, boolean dropped) {
+        if (dropped) {
+            update(estimatedLimit * BACKOFF_RATIO);
+            return;
+        }
+        if (--samplesToProbe <= 0) {
+            minLatencyNanos = latencyNanos;
+            samplesToProbe = nextProbe(limit);
+        }
+        minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+        if (latencyNanos <= 0) {
+            return;
+        }
+
+        double queued = estimatedLimit * (1 - (double) minLatencyNanos / latencyNanos);
+        double step = Math.max(1, Math.log10(estimatedLimit));
+        boolean used = inFlightAtStart * 2 >= estimatedLimit;
+        if (queued <= step) {
+            if (used) {
+                update(estimatedLimit + 6 * step);
+            }
+        } else if (queued < 3 * step) {
+            if (used) {
+                update(estimatedLimit + step);
+            }
+        } else if (queued > 6 * step) {
+            update(estimatedLimit - step);
+        }
+    }
+
+    private void update(double estimate) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimate));
+        limit = (int) estimatedLimit;
+    }
+
+    private static long nextProbe(int limit) {
+        return (long) (PROBE_MULTIPLIER * limit * (0.5 + ThreadLocalRandom.current().nextDouble()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Admission of one request. Exactly one of the completions counts, later calls are ignored.
+     */
+    public final class Permit {
+
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private boolean completed;
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The request was served, its latency is a sample of the service.
+         */
+        public void success() {
+            complete(false, true);
+        }
+
+        /**
+         * The request failed for overload, such as a timeout or a {@code 503}.
+         */
+        public void dropped() {
+            complete(true, true);
+        }
+
+        /**
+         * The request ended without telling anything about the service.
+         */
+        public void ignore() {
+            complete(false, false);
+        }
+
+        private void complete(boolean dropped, boolean sample) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            inFlight.decrementAndGet();
+            if (sample) {
+                onSample(nanoTime.getAsLong() - startNanos, inFlightAtStart, dropped);
+            }
+        }
+    }
+}
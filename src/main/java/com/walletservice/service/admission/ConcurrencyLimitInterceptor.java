@@ -0,0 +1,60 @@
+package com.walletservice.service.admission;
+
+import com.walletservice.exception.TooManyRequestsException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Admits requests of one HTTP method through an {@link AdaptiveConcurrencyLimiter}, shedding
+ * those over the limit with a {@link TooManyRequestsException}. A response of {@code 503}
+ * counts as a drop, any other completed response as a latency sample.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final String method;
+    private final long retryAfterSeconds;
+
+    public ConcurrencyLimitInterceptor(AdaptiveConcurrencyLimiter limiter, String method, Duration retryAfter) {
+        this.limiter = limiter;
+        this.method = method;
+        this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!method.equals(request.getMethod())) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire()
+                .orElseThrow(() -> new TooManyRequestsException("Too many concurrent requests, please retry!",
+                        retryAfterSeconds));
+        request.setAttribute(PERMIT, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(PERMIT) instanceof AdaptiveConcurrencyLimiter.Permit permit)) {
+            return;
+        }
+        request.removeAttribute(PERMIT);
+        if (response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            permit.dropped();
+        } else if (ex != null) {
+            // an exception no handler answered tells nothing about the latency of the service
+            permit.ignore();
+        } else {
+            permit.success();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.walletservice.service.admission;
+
+import com.walletservice.exception.ServiceUnavailableException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source handing out a connection only to holders of a permit.
+ * <p>
+ * With as many permits as the pool has connections, database work waits here, in a fair
+ * queue and for at most {@code maxWait}, instead of inside the pool for its full connection
+ * timeout. Work that gets no permit in time fails with a {@link ServiceUnavailableException},
+ * answered with {@code 503}, so a saturated database sheds load early rather than letting
+ * requests pile up behind it. This matters most with virtual threads, where nothing else
+ * bounds the number of requests in flight. The permit is returned when the connection closes.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public class DatabasePermitDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int permitCount;
+    private final long maxWaitNanos;
+    private final LongAdder rejections = new LongAdder();
+
+    public DatabasePermitDataSource(DataSource target, int permits, Duration maxWait) {
+        super(target);
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Database permits must be positive: " + permits);
+        }
+        this.permits = new Semaphore(permits, true);
+        this.permitCount = permits;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                rejections.increment();
+                throw new ServiceUnavailableException("Database is busy, please retry!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the database!");
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(DatabasePermitDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        // closing twice is allowed, the permit is returned once
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    public int getPermits() {
+        return permitCount;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * @return approximate number of threads waiting for a permit
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+}
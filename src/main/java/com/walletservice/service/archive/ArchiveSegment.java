@@ -0,0 +1,544 @@
+package com.walletservice.service.archive;
+
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Immutable, compressed, columnar file of archived {@link Transaction} rows.
+ * <p>
+ * Rows are sorted by wallet, then newest first, the order of a wallet's history, and cut into
+ * blocks of {@code blockRows} rows. Each block stores its columns one after the other and is
+ * deflated on its own: wallet ids as codes into the segment's sorted wallet dictionary, creation
+ * times and amounts as zigzag varint deltas from the previous row, types as one byte, transaction
+ * ids as 16 bytes and idempotency keys as length-prefixed UTF-8. The footer holds the dictionary
+ * and a sparse index of the first wallet code and file position of every block, so a wallet's
+ * history decompresses only the blocks holding it. The footer is checksummed and located by a
+ * fixed-size trailer at the end of the file.
+ * <p>
+ * Ids are compared with {@link UUID#compareTo}, which matches the database order of the
+ * time-ordered ids archived segments are limited to.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Getter
+public final class ArchiveSegment {
+
+    public static final String SUFFIX = ".segment";
+
+    /**
+     * Order of a wallet's history: newest first, ties broken by id.
+     */
+    public static final Comparator<Transaction> HISTORY_ORDER = Comparator.comparing(Transaction::getCreatedAt)
+            .thenComparing(Transaction::getId).reversed();
+
+    private static final int MAGIC = 0x57534547;
+    private static final int VERSION = 1;
+    // footer offset, footer length, footer checksum, magic
+    private static final int TRAILER_SIZE = 20;
+    private static final TransactionType[] TYPES = {
+            TransactionType.CREDIT, TransactionType.DEBIT, TransactionType.TRANSFER_IN, TransactionType.TRANSFER_OUT};
+
+    private final Path file;
+    private final long rowCount;
+    private final UUID firstId;
+    private final UUID lastId;
+    private final Instant firstCreatedAt;
+    private final Instant lastCreatedAt;
+    @Getter(AccessLevel.NONE)
+    private final UUID[] dictionary;
+    @Getter(AccessLevel.NONE)
+    private final int[] blockFirstCodes;
+    @Getter(AccessLevel.NONE)
+    private final long[] blockOffsets;
+    @Getter(AccessLevel.NONE)
+    private final int[] blockLengths;
+
+    private ArchiveSegment(Path file, long rowCount, UUID firstId, UUID lastId, Instant firstCreatedAt,
+                           Instant lastCreatedAt, UUID[] dictionary, int[] blockFirstCodes, long[] blockOffsets,
+                           int[] blockLengths) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.firstId = firstId;
+        this.lastId = lastId;
+        this.firstCreatedAt = firstCreatedAt;
+        this.lastCreatedAt = lastCreatedAt;
+        this.dictionary = dictionary;
+        this.blockFirstCodes = blockFirstCodes;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+    }
+
+    /**
+     * @return name of the segment file
+     */
+    public String getName() {
+        return file.getFileName().toString();
+    }
+
+    /**
+     * @return number of wallets with rows in the segment
+     */
+    public int getWallets() {
+        return dictionary.length;
+    }
+
+    /**
+     * Writes the rows into a new segment file. The file is written under a temporary name, forced
+     * to disk and then renamed, so a segment file is either complete or absent.
+     *
+     * @param directory directory of the segment files
+     * @param name      name of the new file
+     * @param rows      rows to archive, at least one
+     * @param blockRows number of rows per block
+     * @return the new segment
+     * @throws IOException if the file cannot be written
+     */
+    public static ArchiveSegment write(Path directory, String name, List<Transaction> rows, int blockRows)
+            throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one row");
+        }
+        List<Transaction> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(Transaction::getWalletId).thenComparing(HISTORY_ORDER));
+        UUID[] dictionary = sorted.stream().map(Transaction::getWalletId).distinct().toArray(UUID[]::new);
+        Map<UUID, Integer> codes = new HashMap<>(dictionary.length * 2);
+        for (int i = 0; i < dictionary.length; i++) {
+            codes.put(dictionary[i], i);
+        }
+
+        int blocks = (sorted.size() + blockRows - 1) / blockRows;
+        int[] blockFirstCodes = new int[blocks];
+        long[] blockOffsets = new long[blocks];
+        int[] blockLengths = new int[blocks];
+        UUID firstId = sorted.get(0).getId();
+        UUID lastId = firstId;
+        Instant firstCreatedAt = sorted.get(0).getCreatedAt();
+        Instant lastCreatedAt = firstCreatedAt;
+        for (Transaction row : sorted) {
+            firstId = row.getId().compareTo(firstId) < 0 ? row.getId() : firstId;
+            lastId = row.getId().compareTo(lastId) > 0 ? row.getId() : lastId;
+            firstCreatedAt = row.getCreatedAt().isBefore(firstCreatedAt) ? row.getCreatedAt() : firstCreatedAt;
+            lastCreatedAt = row.getCreatedAt().isAfter(lastCreatedAt) ? row.getCreatedAt() : lastCreatedAt;
+        }
+
+        Files.createDirectories(directory);
+        Path file = directory.resolve(name);
+        Path temporary = directory.resolve(name + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (int block = 0; block < blocks; block++) {
+                List<Transaction> blockRowsList = sorted.subList(block * blockRows,
+                        Math.min(sorted.size(), (block + 1) * blockRows));
+                byte[] compressed = deflate(encodeBlock(blockRowsList, codes));
+                blockFirstCodes[block] = codes.get(blockRowsList.get(0).getWalletId());
+                blockOffsets[block] = offset;
+                blockLengths[block] = compressed.length;
+                offset += writeFully(channel, ByteBuffer.wrap(compressed));
+            }
+
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(MAGIC);
+            footer.writeInt(VERSION);
+            footer.writeLong(sorted.size());
+            writeUuid(footer, firstId);
+            writeUuid(footer, lastId);
+            footer.writeLong(toMicros(firstCreatedAt));
+            footer.writeLong(toMicros(lastCreatedAt));
+            footer.writeInt(dictionary.length);
+            for (UUID walletId : dictionary) {
+                writeUuid(footer, walletId);
+            }
+            footer.writeInt(blocks);
+            for (int block = 0; block < blocks; block++) {
+                footer.writeInt(blockFirstCodes[block]);
+                footer.writeLong(blockOffsets[block]);
+                footer.writeInt(blockLengths[block]);
+            }
+            byte[] footerArray = footerBytes.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(footerArray);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE)
+                    .putLong(offset).putInt(footerArray.length).putInt((int) crc.getValue()).putInt(MAGIC).flip();
+            writeFully(channel, ByteBuffer.wrap(footerArray));
+            writeFully(channel, trailer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(directory);
+        return new ArchiveSegment(file, sorted.size(), firstId, lastId, firstCreatedAt, lastCreatedAt,
+                dictionary, blockFirstCodes, blockOffsets, blockLengths);
+    }
+
+    /**
+     * Opens a segment file, reading its footer.
+     *
+     * @param file segment file
+     * @return the segment
+     * @throws IOException if the file cannot be read or is not a valid segment
+     */
+    public static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_SIZE) {
+                throw new IOException("Archive segment " + file + " is truncated");
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            int footerLength = trailer.getInt();
+            int footerCrc = trailer.getInt();
+            if (trailer.getInt() != MAGIC || footerOffset + footerLength + TRAILER_SIZE != size) {
+                throw new IOException("Archive segment " + file + " has no valid trailer");
+            }
+            byte[] footerArray = readFully(channel, footerOffset, footerLength).array();
+            CRC32C crc = new CRC32C();
+            crc.update(footerArray);
+            if ((int) crc.getValue() != footerCrc) {
+                throw new IOException("Archive segment " + file + " has a corrupt footer");
+            }
+
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerArray));
+            if (footer.readInt() != MAGIC || footer.readInt() != VERSION) {
+                throw new IOException("Archive segment " + file + " has an unknown format");
+            }
+            long rowCount = footer.readLong();
+            UUID firstId = readUuid(footer);
+            UUID lastId = readUuid(footer);
+            Instant firstCreatedAt = fromMicros(footer.readLong());
+            Instant lastCreatedAt = fromMicros(footer.readLong());
+            UUID[] dictionary = new UUID[footer.readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readUuid(footer);
+            }
+            int blocks = footer.readInt();
+            int[] blockFirstCodes = new int[blocks];
+            long[] blockOffsets = new long[blocks];
+            int[] blockLengths = new int[blocks];
+            for (int block = 0; block < blocks; block++) {
+                blockFirstCodes[block] = footer.readInt();
+                blockOffsets[block] = footer.readLong();
+                blockLengths[block] = footer.readInt();
+            }
+            return new ArchiveSegment(file, rowCount, firstId, lastId, firstCreatedAt, lastCreatedAt,
+                    dictionary, blockFirstCodes, blockOffsets, blockLengths);
+        }
+    }
+
+    /**
+     * @return whether the wallet has rows in the segment, answered from the dictionary
+     */
+    public boolean containsWallet(UUID walletId) {
+        return Arrays.binarySearch(dictionary, walletId) >= 0;
+    }
+
+    /**
+     * Finds a wallet's rows older than a history position, newest first.
+     *
+     * @param walletId  wallet id
+     * @param createdAt creation time of the last row already read, null to start from the newest
+     * @param id        id of the last row already read
+     * @param limit     maximum number of rows
+     * @return rows in {@link #HISTORY_ORDER}
+     */
+    public List<Transaction> findHistory(UUID walletId, Instant createdAt, UUID id, int limit) {
+        int code = Arrays.binarySearch(dictionary, walletId);
+        List<Transaction> found = new ArrayList<>();
+        if (code < 0) {
+            return found;
+        }
+        // the wallet's rows start in the last block that begins before it, or in the first one beginning with it
+        int block = firstBlockFrom(code);
+        for (; block < blockFirstCodes.length && blockFirstCodes[block] <= code && found.size() < limit; block++) {
+            for (Transaction row : readBlock(block, code)) {
+                if (isBefore(row, createdAt, id)) {
+                    found.add(row);
+                    if (found.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return every row of the segment, in id order
+     */
+    public List<Transaction> readAll() {
+        List<Transaction> rows = new ArrayList<>((int) rowCount);
+        for (int block = 0; block < blockFirstCodes.length; block++) {
+            rows.addAll(readBlock(block, -1));
+        }
+        rows.sort(Comparator.comparing(Transaction::getId));
+        return rows;
+    }
+
+    private int firstBlockFrom(int code) {
+        int low = 0;
+        int high = blockFirstCodes.length;
+        // first block beginning at or after the code
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blockFirstCodes[middle] < code) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return Math.max(0, low - 1);
+    }
+
+    private static boolean isBefore(Transaction row, Instant createdAt, UUID id) {
+        if (createdAt == null) {
+            return true;
+        }
+        int byTime = row.getCreatedAt().compareTo(createdAt);
+        return byTime < 0 || byTime == 0 && row.getId().compareTo(id) < 0;
+    }
+
+    /**
+     * @param walletCode dictionary code of the only wallet whose rows are built, -1 for every row
+     */
+    private List<Transaction> readBlock(int block, int walletCode) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] compressed = readFully(channel, blockOffsets[block], blockLengths[block]).array();
+            return decodeBlock(inflate(compressed), walletCode);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archive segment " + file + " cannot be read", e);
+        }
+    }
+
+    private static byte[] encodeBlock(List<Transaction> rows, Map<UUID, Integer> codes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeVarLong(out, rows.size());
+        int previousCode = 0;
+        for (Transaction row : rows) {
+            int code = codes.get(row.getWalletId());
+            writeVarLong(out, code - previousCode);
+            previousCode = code;
+        }
+        long previousMicros = 0;
+        for (Transaction row : rows) {
+            long micros = toMicros(row.getCreatedAt());
+            writeVarLong(out, zigzag(micros - previousMicros));
+            previousMicros = micros;
+        }
+        long previousAmount = 0;
+        for (Transaction row : rows) {
+            writeVarLong(out, zigzag(row.getAmount() - previousAmount));
+            previousAmount = row.getAmount();
+        }
+        for (Transaction row : rows) {
+            out.writeByte(Arrays.asList(TYPES).indexOf(row.getType()));
+        }
+        for (Transaction row : rows) {
+            writeUuid(out, row.getId());
+        }
+        for (Transaction row : rows) {
+            String key = row.getIdempotencyKey();
+            if (key == null) {
+                writeVarLong(out, 0);
+            } else {
+                byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, utf8.length + 1L);
+                out.write(utf8);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<Transaction> decodeBlock(byte[] block, int walletCode) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+        int rows = (int) readVarLong(in);
+        int[] codes = new int[rows];
+        int code = 0;
+        for (int i = 0; i < rows; i++) {
+            code += (int) readVarLong(in);
+            codes[i] = code;
+        }
+        Instant[] createdAt = new Instant[rows];
+        long micros = 0;
+        for (int i = 0; i < rows; i++) {
+            micros += unzigzag(readVarLong(in));
+            createdAt[i] = fromMicros(micros);
+        }
+        int[] amounts = new int[rows];
+        long amount = 0;
+        for (int i = 0; i < rows; i++) {
+            amount += unzigzag(readVarLong(in));
+            amounts[i] = (int) amount;
+        }
+        TransactionType[] types = new TransactionType[rows];
+        for (int i = 0; i < rows; i++) {
+            types[i] = TYPES[in.readUnsignedByte()];
+        }
+        UUID[] ids = new UUID[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = readUuid(in);
+        }
+        List<Transaction> decoded = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            int length = (int) readVarLong(in);
+            String key = null;
+            if (length > 0) {
+                byte[] utf8 = new byte[length - 1];
+                in.readFully(utf8);
+                key = new String(utf8, StandardCharsets.UTF_8);
+            }
+            if (walletCode >= 0 && codes[i] != walletCode) {
+                continue;
+            }
+            decoded.add(Transaction.builder()
+                    .id(ids[i])
+                    .walletId(dictionary[codes[i]])
+                    .amount(amounts[i])
+                    .type(types[i])
+                    .idempotencyKey(key)
+                    .createdAt(createdAt[i])
+                    .build());
+        }
+        return decoded;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Archive segment " + file + " has a truncated block");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Archive segment " + file + " has a corrupt block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    private static Instant fromMicros(long micros) {
+        return Instant.EPOCH.plusNanos(Math.multiplyExact(micros, 1_000L));
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void forceDirectory(Path directory) {
+        // makes the rename durable; not every platform can open a directory
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename is left to the file system's own ordering
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.walletservice.service.archive;
+
+import com.walletservice.config.ArchiveProperties;
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.id.IdGenerator;
+import com.walletservice.model.id.UuidV7Generator;
+import com.walletservice.repository.ArchiveRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Cold tier of the ledger: moves transactions older than {@code wallet.archive.retention} out of
+ * the {@code transactions} table into immutable {@link ArchiveSegment} files, and reads them back
+ * for the history queries, which merge them with the table.
+ * <p>
+ * A run archives the oldest rows after the last segment, up to {@code wallet.archive.segment-rows}
+ * per segment, until no row is old enough. Each segment file is written and forced to disk before
+ * the database transaction that registers it and deletes its rows; if that transaction fails the
+ * file is deleted, and a file left behind by a crash in between is never registered, so it is
+ * only reported at startup. Segments are ordered by id and never overlap.
+ * <p>
+ * Reads that merge the table with the segments go through {@link #read(Supplier)}, so a row moved
+ * to a segment while they run is neither returned twice nor missed.
+ * <p>
+ * The retention horizon is turned into an id bound, so archival needs time-ordered ids
+ * ({@code wallet.id.generator=uuid-v7}). The event-sourced engine mode rebuilds balances from the
+ * table, so archival is refused in that mode.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class TransactionArchive {
+
+    private final ArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final Duration retention;
+    private final int segmentRows;
+    private final int blockRows;
+
+    // replaced whole when a segment is added, so readers iterate a stable list
+    private volatile List<ArchiveSegment> segments;
+    // write-locked while a run deletes rows and registers their segment
+    private final StampedLock swap = new StampedLock();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder archivedRows = new LongAdder();
+    private final Thread archiver;
+
+    public TransactionArchive(ArchiveProperties properties,
+                              LedgerEngineProperties ledgerEngineProperties,
+                              IdGenerator idGenerator,
+                              ArchiveRepository archiveRepository,
+                              TransactionTemplate transactionTemplate) {
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.directory = Path.of(properties.getDirectory());
+        this.retention = properties.getRetention();
+        this.segmentRows = Math.max(1, properties.getSegmentRows());
+        this.blockRows = Math.max(1, properties.getBlockRows());
+        this.segments = List.copyOf(loadSegments());
+
+        if (!properties.isEnabled()) {
+            this.archiver = null;
+            return;
+        }
+        if ("event-sourced".equals(ledgerEngineProperties.getMode())) {
+            throw new IllegalStateException("Transaction archival is not supported in event-sourced engine mode");
+        }
+        if (!(idGenerator instanceof UuidV7Generator)) {
+            throw new IllegalStateException("Transaction archival needs wallet.id.generator=uuid-v7");
+        }
+        Duration interval = properties.getInterval();
+        this.archiver = new Thread(() -> schedule(interval), "transaction-archiver");
+        archiver.setDaemon(true);
+        archiver.start();
+    }
+
+    private List<ArchiveSegment> loadSegments() {
+        List<String> names = transactionTemplate.execute(status -> archiveRepository.findSegmentNames());
+        List<ArchiveSegment> loaded = new ArrayList<>(names.size());
+        for (String name : names) {
+            try {
+                loaded.add(ArchiveSegment.open(directory.resolve(name)));
+            } catch (IOException e) {
+                // its rows are no longer in the table; serving history without them would be wrong
+                throw new IllegalStateException("Archived segment " + name + " cannot be read", e);
+            }
+        }
+        if (Files.isDirectory(directory)) {
+            Set<String> registered = Set.copyOf(names);
+            try (Stream<Path> listing = Files.list(directory)) {
+                List<String> orphans = listing.map(file -> file.getFileName().toString())
+                        .filter(name -> name.endsWith(ArchiveSegment.SUFFIX) && !registered.contains(name))
+                        .sorted()
+                        .collect(Collectors.toList());
+                if (!orphans.isEmpty()) {
+                    log.warn("Ignoring {} segment files not registered in the database: {}", orphans.size(), orphans);
+                }
+            } catch (IOException e) {
+                log.warn("Could not list the archive directory {}", directory, e);
+            }
+        }
+        if (!loaded.isEmpty()) {
+            log.info("Loaded {} archived segments", loaded.size());
+        }
+        return loaded;
+    }
+
+    private void schedule(Duration interval) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                archive();
+            } catch (RuntimeException e) {
+                log.error("Transaction archival failed, retrying in {}", interval, e);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(interval.toNanos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Archives every transaction older than the retention horizon, one segment at a time.
+     *
+     * @return number of transactions archived
+     */
+    public synchronized long archive() {
+        runs.increment();
+        UUID before = UuidV7Generator.lowerBound(Instant.now().minus(retention).toEpochMilli());
+        long archived = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<ArchiveSegment> current = segments;
+            UUID after = current.isEmpty() ? null : current.get(current.size() - 1).getLastId();
+            List<Transaction> rows = transactionTemplate.execute(status ->
+                    archiveRepository.findArchivable(after, before, segmentRows));
+            if (rows.isEmpty()) {
+                break;
+            }
+            ArchiveSegment segment = writeSegment(rows);
+            long stamp = swap.writeLock();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    int deleted = archiveRepository.archive(segment.getName(), segment.getFirstId(),
+                            segment.getLastId(), rows);
+                    if (deleted != rows.size()) {
+                        throw new IllegalStateException("Archived " + rows.size() + " transactions but deleted " + deleted);
+                    }
+                });
+                List<ArchiveSegment> added = new ArrayList<>(current);
+                added.add(segment);
+                segments = List.copyOf(added);
+            } catch (RuntimeException e) {
+                deleteQuietly(segment.getFile());
+                throw e;
+            } finally {
+                swap.unlockWrite(stamp);
+            }
+            archivedRows.add(rows.size());
+            archived += rows.size();
+            log.info("Archived {} transactions up to {} into {}", rows.size(), segment.getLastCreatedAt(), segment.getName());
+            if (rows.size() < segmentRows) {
+                break;
+            }
+        }
+        return archived;
+    }
+
+    private ArchiveSegment writeSegment(List<Transaction> rows) {
+        try {
+            return ArchiveSegment.write(directory, rows.get(0).getId() + ArchiveSegment.SUFFIX, rows, blockRows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write an archive segment", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete the unregistered segment file {}", file, e);
+        }
+    }
+
+    /**
+     * Runs a read of the table and the segments against one archive state. The read runs without
+     * a lock first; if a run moved rows to a segment meanwhile, which could have shown them twice
+     * or not at all, it is repeated while runs wait for it.
+     *
+     * @param read reads the table and the segments, may run twice
+     * @return result of the read
+     */
+    public <T> T read(Supplier<T> read) {
+        long stamp = swap.tryOptimisticRead();
+        if (stamp != 0) {
+            T result = read.get();
+            if (swap.validate(stamp)) {
+                return result;
+            }
+        }
+        stamp = swap.readLock();
+        try {
+            return read.get();
+        } finally {
+            swap.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a read of the table and the segments that cannot be repeated, such as a stream to a
+     * client, while runs wait for it.
+     *
+     * @param read reads the table and the segments
+     */
+    public void readLocked(Runnable read) {
+        long stamp = swap.readLock();
+        try {
+            read.run();
+        } finally {
+            swap.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return whether any transaction was archived, so reads must merge the segments
+     */
+    public boolean hasSegments() {
+        return !segments.isEmpty();
+    }
+
+    /**
+     * Finds archived transactions after an id, in id order.
+     *
+     * @param after id of the last transaction already read, null to start from the first
+     * @param limit maximum number of transactions
+     * @return transactions in id order
+     */
+    public List<Transaction> findPage(UUID after, int limit) {
+        List<Transaction> rows = new ArrayList<>(limit);
+        for (ArchiveSegment segment : segments) {
+            if (after != null && segment.getLastId().compareTo(after) <= 0) {
+                continue;
+            }
+            for (Transaction row : segment.readAll()) {
+                if (after == null || row.getId().compareTo(after) > 0) {
+                    rows.add(row);
+                    if (rows.size() == limit) {
+                        return rows;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Finds a wallet's archived transactions older than a history position, newest first.
+     * Segments are read newest first and only until no older segment can hold a transaction
+     * newer than the ones found.
+     *
+     * @param walletId  wallet id
+     * @param createdAt creation time of the last transaction already read, null to start from the newest
+     * @param id        id of the last transaction already read
+     * @param limit     maximum number of transactions
+     * @return transactions in {@link ArchiveSegment#HISTORY_ORDER}
+     */
+    public List<Transaction> findHistory(UUID walletId, Instant createdAt, UUID id, int limit) {
+        List<ArchiveSegment> current = new ArrayList<>(segments);
+        current.sort((a, b) -> b.getLastCreatedAt().compareTo(a.getLastCreatedAt()));
+        List<Transaction> rows = new ArrayList<>();
+        for (ArchiveSegment segment : current) {
+            if (rows.size() >= limit && segment.getLastCreatedAt().isBefore(rows.get(limit - 1).getCreatedAt())) {
+                break;
+            }
+            if (createdAt != null && segment.getFirstCreatedAt().isAfter(createdAt)) {
+                continue;
+            }
+            if (segment.containsWallet(walletId)) {
+                rows.addAll(segment.findHistory(walletId, createdAt, id, limit));
+                rows.sort(ArchiveSegment.HISTORY_ORDER);
+            }
+        }
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    /**
+     * @return an iterator over every archived transaction in id order, reading one segment at a time
+     */
+    public Iterator<Transaction> iterator() {
+        Iterator<ArchiveSegment> remaining = segments.iterator();
+        return new Iterator<>() {
+            private Iterator<Transaction> rows = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!rows.hasNext() && remaining.hasNext()) {
+                    rows = remaining.next().readAll().iterator();
+                }
+                return rows.hasNext();
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return rows.next();
+            }
+        };
+    }
+
+    /**
+     * @return number of segment files
+     */
+    public int getSegments() {
+        return segments.size();
+    }
+
+    /**
+     * @return number of transactions in the segment files
+     */
+    public long getSegmentRows() {
+        return segments.stream().mapToLong(ArchiveSegment::getRowCount).sum();
+    }
+
+    /**
+     * @return archival runs since startup
+     */
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    /**
+     * @return transactions archived since startup
+     */
+    public long getArchivedRows() {
+        return archivedRows.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (archiver != null) {
+            archiver.interrupt();
+            archiver.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.walletservice.service.cache;
+
+import com.walletservice.dto.WalletDto;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Size-bounded, read-through cache of {@link WalletDto} balances.
+ * <p>
+ * Writers update or invalidate an entry only once their transaction has committed, so the
+ * cache never serves a balance that was not committed. Every write also bumps a version
+ * stamp of the wallet's stripe: a reader that loaded from the database before a concurrent
+ * commit sees the stamp move and does not cache its (possibly older) value. Reads therefore
+ * never return a balance older than the last mutation committed by this node.
+ * <p>
+ * Entries are split over up to 64 segments by wallet id, each keeping its own LRU order under
+ * its own lock, so concurrent reads of different wallets do not queue on one monitor.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class WalletCache {
+
+    private static final int STAMP_STRIPES = 4096;
+    private static final int MAX_SEGMENTS = 64;
+    // smaller caches keep one segment, and with it an exact LRU order
+    private static final int MIN_SEGMENT_SIZE = 1024;
+
+    // each access-ordered and guarded by itself, so readers of different wallets rarely contend
+    private final Segment[] segments;
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+    private final LongAdder hitAgeNanos = new LongAdder();
+    private final LongAccumulator maxHitAgeNanos = new LongAccumulator(Long::max, 0L);
+
+    public WalletCache(@Value("${wallet.cache.max-size:100000}") int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // spread the remainder so the segments add up to maxSize
+            segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached wallet, or loads it and caches it unless a write committed meanwhile.
+     *
+     * @param id     wallet id
+     * @param loader reads the committed wallet
+     * @return the wallet, empty if the loader found none
+     */
+    public Optional<WalletDto> get(UUID id, Function<UUID, Optional<WalletDto>> loader) {
+        Segment segment = segmentOf(id);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(id);
+        }
+        if (entry != null) {
+            hits.increment();
+            long age = System.nanoTime() - entry.cachedAt;
+            hitAgeNanos.add(age);
+            maxHitAgeNanos.accumulate(age);
+            return Optional.of(copy(entry.wallet));
+        }
+
+        misses.increment();
+        int stripe = stripeOf(id);
+        long stamp = stamps.get(stripe);
+        Optional<WalletDto> loaded = loader.apply(id);
+        loaded.ifPresent(wallet -> {
+            synchronized (segment) {
+                // a write committed while loading, the loaded balance may predate it
+                if (stamps.get(stripe) != stamp) {
+                    discardedLoads.increment();
+                    return;
+                }
+                segment.put(id, new Entry(copy(wallet), System.nanoTime()));
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Caches the balance of a wallet once the current transaction commits,
+     * or at once outside a transaction.
+     *
+     * @param id      wallet id
+     * @param balance balance written by the transaction
+     */
+    public void putAfterCommit(UUID id, int balance) {
+        afterCommit(() -> {
+            Segment segment = segmentOf(id);
+            synchronized (segment) {
+                stamps.incrementAndGet(stripeOf(id));
+                segment.put(id, new Entry(WalletDto.builder().id(id).balance(balance).build(), System.nanoTime()));
+            }
+            updates.increment();
+        });
+    }
+
+    /**
+     * Drops the given wallets once the current transaction commits, or at once outside a transaction.
+     *
+     * @param ids wallet ids
+     */
+    public void evictAfterCommit(Collection<UUID> ids) {
+        afterCommit(() -> evict(ids));
+    }
+
+    /**
+     * Drops the given wallets now. Callers must only do so after the writes to them committed.
+     *
+     * @param ids wallet ids
+     */
+    public void evict(Collection<UUID> ids) {
+        for (UUID id : ids) {
+            Segment segment = segmentOf(id);
+            synchronized (segment) {
+                stamps.incrementAndGet(stripeOf(id));
+                segment.remove(id);
+            }
+        }
+        invalidations.add(ids.size());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Segment segmentOf(UUID id) {
+        return segments[spread(id) & (segments.length - 1)];
+    }
+
+    private static int stripeOf(UUID id) {
+        return spread(id) & (STAMP_STRIPES - 1);
+    }
+
+    private static int spread(UUID id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static WalletDto copy(WalletDto wallet) {
+        return WalletDto.builder().id(wallet.getId()).balance(wallet.getBalance()).build();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return share of reads served from the cache
+     */
+    public double getHitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    /**
+     * @return loads not cached because a write committed while they read the database
+     */
+    public long getDiscardedLoads() {
+        return discardedLoads.sum();
+    }
+
+    /**
+     * @return total age of the entries served on hits, time since they were loaded or written
+     */
+    public long getHitAgeNanos() {
+        return hitAgeNanos.sum();
+    }
+
+    public long getMaxHitAgeNanos() {
+        return maxHitAgeNanos.get();
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * An access-ordered share of the entries, evicting its least recently used wallet when full.
+     */
+    private final class Segment extends LinkedHashMap<UUID, Entry> {
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A cached wallet with the time it was loaded or written.
+     */
+    private static final class Entry {
+        final WalletDto wallet;
+        final long cachedAt;
+
+        Entry(WalletDto wallet, long cachedAt) {
+            this.wallet = wallet;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.walletservice.service.engine;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.ServiceUnavailableException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.IdGenerator;
+import com.walletservice.model.id.Ids;
+import com.walletservice.model.id.UuidV7Generator;
+import com.walletservice.repository.BalanceSnapshotRepository;
+import com.walletservice.repository.LedgerBatchRepository;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Ledger engine treating the {@link Transaction} rows as the source of truth for balances.
+ * <p>
+ * Balances are projections kept in memory: the sum of a wallet's transactions, starting from 0.
+ * A single writer thread applies commands in batches of up to {@code wallet.engine.max-batch-size},
+ * checks debits against the projections, and persists the idempotency key claims and transaction
+ * rows of a batch in one database transaction. The {@code wallets} balance column is not written.
+ * The batch's balances are published for reads only once it has committed.
+ * <p>
+ * Every {@code wallet.engine.event-sourced.snapshot-interval}, the balances changed since the
+ * previous snapshot are saved as {@link com.walletservice.model.BalanceSnapshot} rows along with
+ * the id of the last transaction applied to them, the checkpoint. At startup, balances are rebuilt
+ * from the snapshots plus the transactions after the checkpoint, so a restart reads one row per
+ * wallet and the recent tail of the ledger, not the whole ledger. The tail is found with a range
+ * scan of the primary key, which needs the time-ordered ids of {@code wallet.id.generator=uuid-v7};
+ * the writer thread generates them in increasing order.
+ * <p>
+ * Every mutation must go through this engine while it is in use: payouts, which update the wallet
+ * rows, are rejected.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.engine.mode", havingValue = "event-sourced")
+public class EventSourcedLedgerEngine implements LedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final LedgerBatchRepository ledgerBatchRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long snapshotIntervalNanos;
+
+    private final BlockingQueue<LedgerCommand> inbox = new LinkedBlockingQueue<>();
+    // committed balances, changed by the writer thread only
+    private final Map<UUID, Long> balances = new ConcurrentHashMap<>();
+    // guards the wallets changed since the last snapshot and the position their balances are at
+    private final Object cut = new Object();
+    private Set<UUID> changed = new HashSet<>();
+    private UUID position;
+
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder snapshottedWallets = new LongAdder();
+    private final Thread writer;
+    private final Thread snapshotter;
+
+    public EventSourcedLedgerEngine(LedgerEngineProperties properties,
+                                    WalletRepository walletRepository,
+                                    LedgerBatchRepository ledgerBatchRepository,
+                                    BalanceSnapshotRepository balanceSnapshotRepository,
+                                    IdempotencyStore idempotencyStore,
+                                    IdGenerator idGenerator,
+                                    TransactionTemplate transactionTemplate) {
+        if (!(idGenerator instanceof UuidV7Generator)) {
+            throw new IllegalStateException("Event-sourced engine mode needs wallet.id.generator=uuid-v7");
+        }
+        this.walletRepository = walletRepository;
+        this.ledgerBatchRepository = ledgerBatchRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        this.snapshotIntervalNanos = properties.getEventSourced().getSnapshotInterval().toNanos();
+
+        rebuild();
+
+        this.writer = new Thread(this::write, "ledger-event-sourced");
+        writer.setDaemon(true);
+        writer.start();
+        this.snapshotter = new Thread(this::takeSnapshots, "ledger-snapshotter");
+        snapshotter.setDaemon(true);
+        snapshotter.start();
+    }
+
+    @Override
+    public CompletableFuture<Transaction> post(UUID walletId, int amount, TransactionType type, String idempotencyKey) {
+        LedgerCommand.Post post = new LedgerCommand.Post(walletId, amount, type, idempotencyKey);
+        inbox.add(post);
+        return post.result;
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(UUID senderWalletId, UUID receiverWalletId,
+                                                   int amount, String idempotencyKey) {
+        LedgerCommand.Transfer transfer = new LedgerCommand.Transfer(senderWalletId, receiverWalletId, amount, idempotencyKey);
+        inbox.add(transfer);
+        return transfer.result;
+    }
+
+    @Override
+    public int getPendingCommands() {
+        return inbox.size();
+    }
+
+    /**
+     * Wallets without transactions are not projected, their balance is 0.
+     */
+    @Override
+    public OptionalLong balanceOf(UUID walletId) {
+        return OptionalLong.of(balances.getOrDefault(walletId, 0L));
+    }
+
+    /**
+     * Loads the snapshots and replays the transactions after the checkpoint onto them. The wallets
+     * replayed are snapshotted next, which moves the checkpoint past the replayed tail.
+     */
+    private void rebuild() {
+        long started = System.nanoTime();
+        long[] counts = new long[2];
+        transactionTemplate.executeWithoutResult(status -> {
+            UUID checkpoint = balanceSnapshotRepository.findCheckpoint().orElse(null);
+            balanceSnapshotRepository.forEachSnapshot((walletId, balance) -> {
+                balances.put(walletId, balance);
+                counts[0]++;
+            });
+            position = balanceSnapshotRepository.replayAfter(checkpoint, (walletId, delta) -> {
+                balances.merge(walletId, delta, Long::sum);
+                changed.add(walletId);
+                counts[1]++;
+            });
+        });
+        log.info("Rebuilt the balances of {} wallets from {} snapshots and {} transactions in {} ms",
+                balances.size(), counts[0], counts[1], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void write() {
+        List<LedgerCommand> commands = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                commands.add(inbox.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            inbox.drainTo(commands, maxBatchSize - 1);
+            process(commands);
+            commands.clear();
+        }
+        inbox.drainTo(commands);
+        ServiceUnavailableException stopped = new ServiceUnavailableException("Ledger engine is shutting down!");
+        commands.forEach(command -> fail(command, stopped));
+    }
+
+    void process(List<LedgerCommand> commands) {
+        Batch batch = new Batch();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batch.clear();
+                List<String> keys = new ArrayList<>(commands.size());
+                commands.forEach(command -> keys.add(keyOf(command)));
+                int[] claimed = idempotencyStore.claimAll(keys);
+                List<String> rejectedKeys = new ArrayList<>();
+                for (int i = 0; i < commands.size(); i++) {
+                    LedgerCommand command = commands.get(i);
+                    if (claimed[i] == 0) {
+                        batch.errors.put(command,
+                                new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!"));
+                        continue;
+                    }
+                    try {
+                        apply(command, batch);
+                    } catch (ServiceException | NotFoundException e) {
+                        batch.errors.put(command, e);
+                        rejectedKeys.add(keys.get(i));
+                    }
+                }
+                idempotencyStore.releaseAll(rejectedKeys);
+                ledgerBatchRepository.insertTransactions(batch.rows);
+            });
+        } catch (RuntimeException e) {
+            // nothing was published, the committed balances are unchanged
+            log.error("Event-sourced engine failed to persist a batch of {} transactions", batch.rows.size(), e);
+            commands.forEach(command -> fail(command, e));
+            return;
+        }
+        synchronized (cut) {
+            balances.putAll(batch.staged);
+            changed.addAll(batch.changed);
+            if (!batch.rows.isEmpty()) {
+                position = batch.rows.get(batch.rows.size() - 1).getId();
+            }
+        }
+        for (LedgerCommand command : commands) {
+            RuntimeException error = batch.errors.get(command);
+            if (error != null) {
+                fail(command, error);
+            } else {
+                resultOf(command).complete(batch.results.get(command));
+            }
+        }
+    }
+
+    private void apply(LedgerCommand command, Batch batch) {
+        if (command instanceof LedgerCommand.Post post) {
+            long balance = batch.balanceOf(post.walletId, "Wallet not found with id: " + post.walletId);
+            if (post.type == TransactionType.DEBIT) {
+                if (balance < post.amount) {
+                    throw new InsufficientFundsException("Transaction failed with insufficient fund!");
+                }
+                batch.add(post.walletId, -post.amount);
+            } else {
+                batch.add(post.walletId, post.amount);
+            }
+            Transaction transaction = newTransaction(post.walletId, post.amount, post.type, post.idempotencyKey);
+            batch.rows.add(transaction);
+            batch.results.put(post, transaction);
+        } else if (command instanceof LedgerCommand.Transfer transfer) {
+            long senderBalance = batch.balanceOf(transfer.senderWalletId, "Sender wallet not found!");
+            batch.balanceOf(transfer.receiverWalletId, "Receiver wallet not found!");
+            if (senderBalance < transfer.amount) {
+                throw new InsufficientFundsException("Transaction failed with insufficient fund from sender!");
+            }
+            batch.add(transfer.senderWalletId, -transfer.amount);
+            batch.add(transfer.receiverWalletId, transfer.amount);
+            Transaction outgoing = newTransaction(transfer.senderWalletId, transfer.amount,
+                    TransactionType.TRANSFER_OUT, transfer.idempotencyKey);
+            Transaction incoming = newTransaction(transfer.receiverWalletId, transfer.amount,
+                    TransactionType.TRANSFER_IN, transfer.idempotencyKey);
+            batch.rows.add(outgoing);
+            batch.rows.add(incoming);
+            batch.results.put(transfer, outgoing);
+        }
+    }
+
+    private void takeSnapshots() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(snapshotIntervalNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                // the wallets stay changed, the next snapshot saves them
+                log.error("Snapshot of the projected balances failed", e);
+            }
+        }
+    }
+
+    /**
+     * Saves the balances changed since the previous snapshot and moves the checkpoint to the
+     * transaction they are at. Wallets unchanged since are still at their snapshot, so after a
+     * successful save every snapshot is complete up to the checkpoint.
+     *
+     * @return number of wallets saved
+     */
+    int snapshot() {
+        Map<UUID, Long> snapshot;
+        UUID upTo;
+        synchronized (cut) {
+            if (changed.isEmpty()) {
+                return 0;
+            }
+            snapshot = new HashMap<>(changed.size());
+            changed.forEach(walletId -> snapshot.put(walletId, balances.get(walletId)));
+            upTo = position;
+            changed = new HashSet<>();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> balanceSnapshotRepository.save(snapshot, upTo));
+        } catch (RuntimeException e) {
+            // saved with the next snapshot, before its checkpoint can pass them
+            synchronized (cut) {
+                changed.addAll(snapshot.keySet());
+            }
+            throw e;
+        }
+        snapshots.increment();
+        snapshottedWallets.add(snapshot.size());
+        return snapshot.size();
+    }
+
+    /**
+     * @return number of wallets with a projected balance
+     */
+    public int getProjectedWallets() {
+        return balances.size();
+    }
+
+    /**
+     * @return number of wallets changed since the last snapshot
+     */
+    public int getUnsnapshottedWallets() {
+        synchronized (cut) {
+            return changed.size();
+        }
+    }
+
+    /**
+     * @return snapshots saved since startup
+     */
+    public long getSnapshots() {
+        return snapshots.sum();
+    }
+
+    /**
+     * @return wallet balances saved by those snapshots
+     */
+    public long getSnapshottedWallets() {
+        return snapshottedWallets.sum();
+    }
+
+    private static String keyOf(LedgerCommand command) {
+        if (command instanceof LedgerCommand.Post post) {
+            return post.idempotencyKey;
+        }
+        return ((LedgerCommand.Transfer) command).idempotencyKey;
+    }
+
+    private static CompletableFuture<Transaction> resultOf(LedgerCommand command) {
+        if (command instanceof LedgerCommand.Post post) {
+            return post.result;
+        }
+        return ((LedgerCommand.Transfer) command).result;
+    }
+
+    private static void fail(LedgerCommand command, RuntimeException e) {
+        resultOf(command).completeExceptionally(e);
+    }
+
+    private static Transaction newTransaction(UUID walletId, int amount, TransactionType type, String key) {
+        return Transaction.builder()
+                .id(Ids.next())
+                .walletId(walletId)
+                .amount(amount)
+                .type(type)
+                .idempotencyKey(key)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        snapshotter.interrupt();
+        snapshotter.join(TimeUnit.SECONDS.toMillis(5));
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.warn("Balances left to replay at the next start: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Effects of one batch, published once it has committed.
+     */
+    private final class Batch {
+        // balances of the batch's wallets, as changed by the batch so far
+        final Map<UUID, Long> staged = new HashMap<>();
+        final Set<UUID> changed = new HashSet<>();
+        final List<Transaction> rows = new ArrayList<>();
+        final Map<LedgerCommand, Transaction> results = new HashMap<>();
+        final Map<LedgerCommand, RuntimeException> errors = new HashMap<>();
+
+        long balanceOf(UUID walletId, String notFoundMessage) {
+            Long balance = staged.get(walletId);
+            if (balance == null) {
+                balance = balances.get(walletId);
+            }
+            if (balance == null) {
+                if (!walletRepository.existsById(walletId)) {
+                    throw new NotFoundException(notFoundMessage);
+                }
+                balance = 0L;
+            }
+            staged.put(walletId, balance);
+            return balance;
+        }
+
+        void add(UUID walletId, long delta) {
+            staged.merge(walletId, delta, Long::sum);
+            changed.add(walletId);
+        }
+
+        void clear() {
+            staged.clear();
+            changed.clear();
+            rows.clear();
+            results.clear();
+            errors.clear();
+        }
+    }
+}
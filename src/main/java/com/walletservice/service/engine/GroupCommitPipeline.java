@@ -0,0 +1,316 @@
+package com.walletservice.service.engine;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceUnavailableException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.Ids;
+import com.walletservice.repository.LedgerBatchRepository;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.repository.WalletSlotRepository;
+import com.walletservice.service.accumulator.CreditAccumulator;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Group commit stage for wallet mutations.
+ * <p>
+ * Mutations from concurrent requests are gathered into micro-batches of up to
+ * {@code wallet.engine.group-commit.max-batch-size}, waiting at most
+ * {@code wallet.engine.group-commit.linger} for a batch to fill. Each batch is flushed by
+ * a single thread with JDBC batch statements in one database transaction:
+ * <ol>
+ *     <li>idempotency key claims, rejecting duplicates,</li>
+ *     <li>credits,</li>
+ *     <li>guarded debits (debits and transfer sender legs), which only apply when funds suffice,
+ *     retried once the balance slots and pending credits of a wallet falling short are moved into it,</li>
+ *     <li>transfer receiver legs, for the transfers whose debit applied,</li>
+ *     <li>the {@link Transaction} rows of every accepted mutation, releasing the keys of rejected ones.</li>
+ * </ol>
+ * Callers are completed once that transaction has committed and the cached balances of the
+ * batch's wallets have been evicted.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.engine.mode", havingValue = "group-commit")
+public class GroupCommitPipeline implements LedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final LedgerBatchRepository ledgerBatchRepository;
+    private final WalletSlotRepository walletSlotRepository;
+    private final CreditAccumulator creditAccumulator;
+    private final IdempotencyStore idempotencyStore;
+    private final WalletCache walletCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+
+    private final BlockingQueue<Mutation> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+
+    public GroupCommitPipeline(LedgerEngineProperties properties,
+                               WalletRepository walletRepository,
+                               LedgerBatchRepository ledgerBatchRepository,
+                               WalletSlotRepository walletSlotRepository,
+                               CreditAccumulator creditAccumulator,
+                               IdempotencyStore idempotencyStore,
+                               WalletCache walletCache,
+                               TransactionTemplate transactionTemplate) {
+        this.walletRepository = walletRepository;
+        this.ledgerBatchRepository = ledgerBatchRepository;
+        this.walletSlotRepository = walletSlotRepository;
+        this.creditAccumulator = creditAccumulator;
+        this.idempotencyStore = idempotencyStore;
+        this.walletCache = walletCache;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = properties.getGroupCommit().getMaxBatchSize();
+        this.lingerNanos = properties.getGroupCommit().getLinger().toNanos();
+
+        this.flusher = new Thread(this::run, "ledger-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public CompletableFuture<Transaction> post(UUID walletId, int amount, TransactionType type, String idempotencyKey) {
+        Mutation mutation = new Mutation(newTransaction(walletId, amount, type, idempotencyKey), null);
+        queue.add(mutation);
+        return mutation.result;
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(UUID senderWalletId, UUID receiverWalletId,
+                                                   int amount, String idempotencyKey) {
+        Mutation mutation = new Mutation(
+                newTransaction(senderWalletId, amount, TransactionType.TRANSFER_OUT, idempotencyKey),
+                newTransaction(receiverWalletId, amount, TransactionType.TRANSFER_IN, idempotencyKey));
+        queue.add(mutation);
+        return mutation.result;
+    }
+
+    @Override
+    public int getPendingCommands() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Mutation> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Mutation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        queue.drainTo(batch);
+        ServiceUnavailableException stopped = new ServiceUnavailableException("Ledger engine is shutting down!");
+        batch.forEach(mutation -> mutation.result.completeExceptionally(stopped));
+    }
+
+    void flush(List<Mutation> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+        } catch (RuntimeException e) {
+            log.error("Group commit of {} mutations failed", batch.size(), e);
+            batch.forEach(mutation -> mutation.result.completeExceptionally(e));
+            return;
+        }
+        walletCache.evict(walletIds(batch));
+        for (Mutation mutation : batch) {
+            if (mutation.error != null) {
+                mutation.result.completeExceptionally(mutation.error);
+            } else {
+                mutation.result.complete(mutation.leg);
+            }
+        }
+    }
+
+    private void write(List<Mutation> batch) {
+        batch.forEach(mutation -> mutation.error = null);
+
+        List<String> keys = new ArrayList<>(batch.size());
+        batch.forEach(mutation -> keys.add(mutation.leg.getIdempotencyKey()));
+        int[] claimed = idempotencyStore.claimAll(keys);
+
+        List<Mutation> credits = new ArrayList<>();
+        List<Mutation> debits = new ArrayList<>();
+        for (int i = 0; i < claimed.length; i++) {
+            Mutation mutation = batch.get(i);
+            if (claimed[i] == 0) {
+                mutation.error = new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
+            } else {
+                (mutation.leg.getType() == TransactionType.CREDIT ? credits : debits).add(mutation);
+            }
+        }
+
+        // credits, debits and receiver credits each run in arrival order, so take every row lock
+        // up front in wallet id order instead of in the order the statements reach the rows
+        ledgerBatchRepository.lockWallets(walletIds(batch));
+        int[] credited = ledgerBatchRepository.creditWallets(legs(credits));
+        for (int i = 0; i < credited.length; i++) {
+            if (credited[i] == 0) {
+                UUID walletId = credits.get(i).leg.getWalletId();
+                credits.get(i).error = new NotFoundException("Wallet not found with id: " + walletId);
+            }
+        }
+
+        List<Mutation> transfers = new ArrayList<>();
+        int[] debited = ledgerBatchRepository.debitWallets(legs(debits));
+        retryDrainedDebits(debits, debited);
+        for (int i = 0; i < debited.length; i++) {
+            Mutation mutation = debits.get(i);
+            if (debited[i] == 0) {
+                mutation.error = rejectedDebit(mutation);
+            } else if (mutation.incomingLeg != null) {
+                transfers.add(mutation);
+            }
+        }
+
+        List<Transaction> incomingLegs = new ArrayList<>(transfers.size());
+        transfers.forEach(transfer -> incomingLegs.add(transfer.incomingLeg));
+        int[] received = ledgerBatchRepository.creditWallets(incomingLegs);
+        List<Transaction> refunds = new ArrayList<>();
+        for (int i = 0; i < received.length; i++) {
+            if (received[i] == 0) {
+                Mutation transfer = transfers.get(i);
+                transfer.error = new NotFoundException("Receiver wallet not found!");
+                refunds.add(transfer.leg);
+            }
+        }
+        // give the sender back what was debited for a missing receiver
+        ledgerBatchRepository.creditWallets(refunds);
+
+        List<Transaction> rows = new ArrayList<>(batch.size() + transfers.size());
+        List<String> rejectedKeys = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Mutation mutation = batch.get(i);
+            if (mutation.error == null) {
+                rows.add(mutation.leg);
+                if (mutation.incomingLeg != null) {
+                    rows.add(mutation.incomingLeg);
+                }
+            } else if (claimed[i] != 0) {
+                rejectedKeys.add(keys.get(i));
+            }
+        }
+        idempotencyStore.releaseAll(rejectedKeys);
+        ledgerBatchRepository.insertTransactions(rows);
+    }
+
+    /**
+     * Retries the rejected debits of wallets whose balance slots or pending credits held the missing funds.
+     */
+    private void retryDrainedDebits(List<Mutation> debits, int[] debited) {
+        Map<UUID, Long> drained = new HashMap<>();
+        for (int i = 0; i < debited.length; i++) {
+            Transaction leg = debits.get(i).leg;
+            if (debited[i] == 0 && drained.computeIfAbsent(leg.getWalletId(),
+                    walletId -> walletSlotRepository.drainSlots(walletId) + creditAccumulator.fold(walletId)) > 0) {
+                debited[i] = ledgerBatchRepository.debitWallets(List.of(leg))[0];
+            }
+        }
+    }
+
+    private RuntimeException rejectedDebit(Mutation mutation) {
+        UUID walletId = mutation.leg.getWalletId();
+        boolean transfer = mutation.incomingLeg != null;
+        if (!walletRepository.existsById(walletId)) {
+            return new NotFoundException(transfer ? "Sender wallet not found!" : "Wallet not found with id: " + walletId);
+        }
+        return new InsufficientFundsException(transfer
+                ? "Transaction failed with insufficient fund from sender!"
+                : "Transaction failed with insufficient fund!");
+    }
+
+    private static Set<UUID> walletIds(List<Mutation> batch) {
+        Set<UUID> walletIds = new HashSet<>();
+        for (Mutation mutation : batch) {
+            walletIds.add(mutation.leg.getWalletId());
+            if (mutation.incomingLeg != null) {
+                walletIds.add(mutation.incomingLeg.getWalletId());
+            }
+        }
+        return walletIds;
+    }
+
+    private static List<Transaction> legs(List<Mutation> mutations) {
+        List<Transaction> legs = new ArrayList<>(mutations.size());
+        mutations.forEach(mutation -> legs.add(mutation.leg));
+        return legs;
+    }
+
+    private static Transaction newTransaction(UUID walletId, int amount, TransactionType type, String key) {
+        return Transaction.builder()
+                .id(Ids.next())
+                .walletId(walletId)
+                .amount(amount)
+                .type(type)
+                .idempotencyKey(key)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * A credit, debit or transfer waiting for its batch.
+     */
+    static final class Mutation {
+        // credit/debit row, or the outgoing leg of a transfer
+        final Transaction leg;
+        // incoming leg of a transfer, null otherwise
+        final Transaction incomingLeg;
+        final CompletableFuture<Transaction> result = new CompletableFuture<>();
+        RuntimeException error;
+
+        Mutation(Transaction leg, Transaction incomingLeg) {
+            this.leg = leg;
+            this.incomingLeg = incomingLeg;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.walletservice.service.engine;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceUnavailableException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.Ids;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.service.journal.JournalRecord;
+import com.walletservice.service.journal.LedgerJournal;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ledger engine keeping balances in memory, made durable by a {@link LedgerJournal} instead of
+ * the database.
+ * <p>
+ * A single writer thread checks each credit, debit and transfer against the in-memory balances
+ * and appends it to the memory-mapped journal as one {@link JournalRecord}. A batch of up to
+ * {@code wallet.engine.journal.max-batch-size} mutations, gathered for at most
+ * {@code wallet.engine.journal.linger}, shares one fsync; its balances are published and its
+ * mutations acknowledged once the fsync returned. With {@code fsync: false}, they are
+ * acknowledged as soon as they are in the mapped segment, which survives a crash of the process
+ * but not of the operating system.
+ * <p>
+ * A wallet's balance is its {@code wallets} row, which is never written in this mode, plus the
+ * changes recorded in the journal. At startup, the journal is replayed into those changes and the
+ * digests of its idempotency keys. The journal is the only record of its mutations: they are not
+ * written to the {@code transactions} table, so the transaction history endpoints do not list
+ * them, and the journal directory must be kept and dropped along with the database.
+ * <p>
+ * Should the journal fail to write, the outcome of the batch is unknown and every later mutation
+ * is rejected until a restart replays the journal. Payouts, which update the wallet rows, are
+ * rejected.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.engine.mode", havingValue = "journal")
+public class JournalLedgerEngine implements LedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final LedgerJournal journal;
+    private final boolean fsync;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+
+    private final BlockingQueue<LedgerCommand> inbox = new LinkedBlockingQueue<>();
+    // acknowledged change of each wallet's balance since the journal started, read by any thread
+    private final Map<UUID, Long> deltas = new ConcurrentHashMap<>();
+    // writer thread only: balances of the wallets loaded so far, and the digests of the keys journaled
+    private final Map<UUID, Long> balances = new HashMap<>();
+    private final Set<UUID> keys = new HashSet<>();
+
+    private final long replayedRecords;
+    private final LongAdder appendedRecords = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private volatile int segments;
+    private volatile Exception failure;
+    private final Thread writer;
+
+    public JournalLedgerEngine(LedgerEngineProperties properties, WalletRepository walletRepository) {
+        LedgerEngineProperties.Journal settings = properties.getJournal();
+        this.walletRepository = walletRepository;
+        this.fsync = settings.isFsync();
+        this.maxBatchSize = Math.max(1, settings.getMaxBatchSize());
+        this.lingerNanos = settings.getLinger().toNanos();
+
+        long started = System.nanoTime();
+        long[] replayed = {0};
+        try {
+            this.journal = LedgerJournal.open(Path.of(settings.getDirectory()), settings.getSegmentSize().toBytes(),
+                    record -> {
+                        replay(record);
+                        replayed[0]++;
+                    });
+        } catch (IOException e) {
+            throw new IllegalStateException("Ledger journal could not be opened in " + settings.getDirectory(), e);
+        }
+        this.replayedRecords = replayed[0];
+        this.segments = journal.getSegments();
+        log.info("Replayed {} journal records of {} wallets in {} ms", replayedRecords, deltas.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        this.writer = new Thread(this::write, "ledger-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public CompletableFuture<Transaction> post(UUID walletId, int amount, TransactionType type, String idempotencyKey) {
+        LedgerCommand.Post post = new LedgerCommand.Post(walletId, amount, type, idempotencyKey);
+        inbox.add(post);
+        return post.result;
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(UUID senderWalletId, UUID receiverWalletId,
+                                                   int amount, String idempotencyKey) {
+        LedgerCommand.Transfer transfer = new LedgerCommand.Transfer(senderWalletId, receiverWalletId, amount, idempotencyKey);
+        inbox.add(transfer);
+        return transfer.result;
+    }
+
+    @Override
+    public int getPendingCommands() {
+        return inbox.size();
+    }
+
+    /**
+     * Wallets without journaled changes are read from their row as usual.
+     */
+    @Override
+    public OptionalLong balanceOf(UUID walletId) {
+        Long delta = deltas.get(walletId);
+        if (delta == null) {
+            return OptionalLong.empty();
+        }
+        return walletRepository.findTotalBalanceById(walletId)
+                .map(balance -> OptionalLong.of(balance + delta))
+                .orElseGet(OptionalLong::empty);
+    }
+
+    private void replay(JournalRecord record) {
+        switch (record.getType()) {
+            case CREDIT -> deltas.merge(record.getWalletId(), (long) record.getAmount(), Long::sum);
+            case DEBIT -> deltas.merge(record.getWalletId(), (long) -record.getAmount(), Long::sum);
+            default -> {
+                deltas.merge(record.getWalletId(), (long) -record.getAmount(), Long::sum);
+                deltas.merge(record.getReceiverWalletId(), (long) record.getAmount(), Long::sum);
+            }
+        }
+        if (record.getKeyDigest() != null) {
+            keys.add(record.getKeyDigest());
+        }
+    }
+
+    private void write() {
+        List<LedgerCommand> commands = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                commands.add(inbox.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (commands.size() < maxBatchSize) {
+                    inbox.drainTo(commands, maxBatchSize - commands.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (commands.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    LedgerCommand next = inbox.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    commands.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!commands.isEmpty()) {
+                process(commands);
+                commands.clear();
+            }
+        }
+        inbox.drainTo(commands);
+        ServiceUnavailableException stopped = new ServiceUnavailableException("Ledger engine is shutting down!");
+        commands.forEach(command -> fail(command, stopped));
+    }
+
+    void process(List<LedgerCommand> commands) {
+        if (failure != null) {
+            ServiceUnavailableException unavailable = new ServiceUnavailableException("Ledger journal is unavailable, restart to recover!");
+            commands.forEach(command -> fail(command, unavailable));
+            return;
+        }
+        Batch batch = new Batch();
+        try {
+            for (LedgerCommand command : commands) {
+                try {
+                    apply(command, batch);
+                } catch (UncheckedIOException e) {
+                    // the force of a segment rollover failed, the journal itself is broken
+                    throw e;
+                } catch (RuntimeException e) {
+                    // rejected, or its wallet could not be loaded; nothing was appended for it
+                    batch.errors.put(command, e);
+                }
+            }
+            if (fsync && !batch.results.isEmpty()) {
+                journal.force();
+                fsyncs.increment();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // records may have reached the disk, so the batch can neither be acknowledged nor retried
+            failure = e;
+            log.error("Ledger journal failed to write a batch of {} mutations", commands.size(), e);
+            // the outcome is unknown until a restart replays the journal, a retry with the same key is safe then
+            ServiceUnavailableException failed = new ServiceUnavailableException(
+                    "Ledger journal write failed, retry with the same idempotency key!");
+            commands.forEach(command -> fail(command, failed));
+            return;
+        }
+        balances.putAll(batch.staged);
+        batch.deltas.forEach((walletId, delta) -> deltas.merge(walletId, delta, Long::sum));
+        segments = journal.getSegments();
+        for (LedgerCommand command : commands) {
+            RuntimeException error = batch.errors.get(command);
+            if (error != null) {
+                fail(command, error);
+            } else {
+                resultOf(command).complete(batch.results.get(command));
+            }
+        }
+    }
+
+    private void apply(LedgerCommand command, Batch batch) throws IOException {
+        if (command instanceof LedgerCommand.Post post) {
+            UUID digest = claim(post.idempotencyKey);
+            long balance = batch.balanceOf(post.walletId, "Wallet not found with id: " + post.walletId);
+            if (post.type == TransactionType.DEBIT && balance < post.amount) {
+                throw new InsufficientFundsException("Transaction failed with insufficient fund!");
+            }
+            Transaction transaction = newTransaction(post.walletId, post.amount, post.type, post.idempotencyKey);
+            append(transaction, null, digest);
+            batch.add(post.walletId, post.type == TransactionType.DEBIT ? -post.amount : post.amount);
+            batch.results.put(post, transaction);
+        } else if (command instanceof LedgerCommand.Transfer transfer) {
+            UUID digest = claim(transfer.idempotencyKey);
+            long senderBalance = batch.balanceOf(transfer.senderWalletId, "Sender wallet not found!");
+            batch.balanceOf(transfer.receiverWalletId, "Receiver wallet not found!");
+            if (senderBalance < transfer.amount) {
+                throw new InsufficientFundsException("Transaction failed with insufficient fund from sender!");
+            }
+            Transaction outgoing = newTransaction(transfer.senderWalletId, transfer.amount,
+                    TransactionType.TRANSFER_OUT, transfer.idempotencyKey);
+            append(outgoing, transfer.receiverWalletId, digest);
+            batch.add(transfer.senderWalletId, -transfer.amount);
+            batch.add(transfer.receiverWalletId, transfer.amount);
+            batch.results.put(transfer, outgoing);
+        }
+    }
+
+    /**
+     * @return digest of the key, checked against the keys already journaled
+     */
+    private UUID claim(String idempotencyKey) {
+        UUID digest = JournalRecord.digestOf(idempotencyKey);
+        if (digest != null && keys.contains(digest)) {
+            throw new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
+        }
+        return digest;
+    }
+
+    private void append(Transaction transaction, UUID receiverWalletId, UUID digest) throws IOException {
+        journal.append(new JournalRecord(transaction.getType(), journal.getNextSequence(),
+                transaction.getCreatedAt().toEpochMilli(), transaction.getAmount(), transaction.getId(),
+                transaction.getWalletId(), receiverWalletId, digest));
+        if (digest != null) {
+            keys.add(digest);
+        }
+        appendedRecords.increment();
+    }
+
+    /**
+     * @return records replayed from the journal at startup
+     */
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * @return records appended since startup
+     */
+    public long getAppendedRecords() {
+        return appendedRecords.sum();
+    }
+
+    /**
+     * @return fsyncs of the journal since startup
+     */
+    public long getFsyncs() {
+        return fsyncs.sum();
+    }
+
+    /**
+     * @return number of journal segment files
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return number of wallets with journaled changes
+     */
+    public int getJournaledWallets() {
+        return deltas.size();
+    }
+
+    private static CompletableFuture<Transaction> resultOf(LedgerCommand command) {
+        if (command instanceof LedgerCommand.Post post) {
+            return post.result;
+        }
+        return ((LedgerCommand.Transfer) command).result;
+    }
+
+    private static void fail(LedgerCommand command, RuntimeException e) {
+        resultOf(command).completeExceptionally(e);
+    }
+
+    private static Transaction newTransaction(UUID walletId, int amount, TransactionType type, String key) {
+        return Transaction.builder()
+                .id(Ids.next())
+                .walletId(walletId)
+                .amount(amount)
+                .type(type)
+                .idempotencyKey(key)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        try {
+            journal.close();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Ledger journal did not close cleanly: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Effects of one batch, published once its records are durable.
+     */
+    private final class Batch {
+        // balances of the batch's wallets, as changed by the batch so far
+        final Map<UUID, Long> staged = new HashMap<>();
+        final Map<UUID, Long> deltas = new HashMap<>();
+        final Map<LedgerCommand, Transaction> results = new HashMap<>();
+        final Map<LedgerCommand, RuntimeException> errors = new HashMap<>();
+
+        long balanceOf(UUID walletId, String notFoundMessage) {
+            Long balance = staged.get(walletId);
+            if (balance == null) {
+                balance = balances.get(walletId);
+            }
+            if (balance == null) {
+                // the row is not written in this mode, so it is the balance before the journal
+                balance = walletRepository.findTotalBalanceById(walletId)
+                        .orElseThrow(() -> new NotFoundException(notFoundMessage))
+                        + JournalLedgerEngine.this.deltas.getOrDefault(walletId, 0L);
+            }
+            staged.put(walletId, balance);
+            return balance;
+        }
+
+        void add(UUID walletId, long delta) {
+            staged.merge(walletId, delta, Long::sum);
+            deltas.merge(walletId, delta, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.walletservice.service.engine;
+
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Messages processed by a {@link ShardWorker}. Posts and transfers are also the commands of the
+ * {@link EventSourcedLedgerEngine} and the {@link JournalLedgerEngine}.
+ */
+abstract class LedgerCommand {
+
+    /**
+     * Credit or debit of a single wallet owned by the shard.
+     */
+    static final class Post extends LedgerCommand {
+        final UUID walletId;
+        final int amount;
+        final TransactionType type;
+        final String idempotencyKey;
+        final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        Post(UUID walletId, int amount, TransactionType type, String idempotencyKey) {
+            this.walletId = walletId;
+            this.amount = amount;
+            this.type = type;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    /**
+     * Transfer, routed to the shard owning the sender wallet.
+     */
+    static final class Transfer extends LedgerCommand {
+        final UUID senderWalletId;
+        final UUID receiverWalletId;
+        final int amount;
+        final String idempotencyKey;
+        final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        Transfer(UUID senderWalletId, UUID receiverWalletId, int amount, String idempotencyKey) {
+            this.senderWalletId = senderWalletId;
+            this.receiverWalletId = receiverWalletId;
+            this.amount = amount;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    /**
+     * Second phase of a cross-shard transfer, routed to the shard owning the receiver.
+     * The sender shard has already reserved the amount.
+     */
+    static final class CommitTransfer extends LedgerCommand {
+        final Transfer transfer;
+
+        CommitTransfer(Transfer transfer) {
+            this.transfer = transfer;
+        }
+    }
+
+    /**
+     * Returns a reserved amount to the sender after a cross-shard transfer failed.
+     */
+    static final class Release extends LedgerCommand {
+        final UUID walletId;
+        final int amount;
+
+        Release(UUID walletId, int amount) {
+            this.walletId = walletId;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * Tells the sender shard that the receiver shard persisted a cross-shard transfer whose
+     * amount it reserved.
+     */
+    static final class Settle extends LedgerCommand {
+        final UUID walletId;
+
+        Settle(UUID walletId) {
+            this.walletId = walletId;
+        }
+    }
+
+    /**
+     * Drops the balance a shard keeps of a wallet whose row changed outside the engine, so it
+     * is read again.
+     */
+    static final class Invalidate extends LedgerCommand {
+        final UUID walletId;
+
+        Invalidate(UUID walletId) {
+            this.walletId = walletId;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.walletservice.service.engine;
+
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import java.util.Collection;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous engine applying wallet mutations, selected with {@code wallet.engine.mode}.
+ * <p>
+ * Returned futures complete once the mutation is durable, or exceptionally with a
+ * {@link com.walletservice.exception.ServiceException} or
+ * {@link com.walletservice.exception.NotFoundException} when it is rejected.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public interface LedgerEngine {
+
+    /**
+     * Credit or debit a wallet.
+     *
+     * @return future completed with the persisted transaction
+     */
+    CompletableFuture<Transaction> post(UUID walletId, int amount, TransactionType type, String idempotencyKey);
+
+    /**
+     * Transfer between two wallets.
+     *
+     * @return future completed with the persisted outgoing transaction
+     */
+    CompletableFuture<Transaction> transfer(UUID senderWalletId, UUID receiverWalletId, int amount, String idempotencyKey);
+
+    /**
+     * @return number of mutations accepted but not yet durable
+     */
+    int getPendingCommands();
+
+    /**
+     * Balance of a wallet as kept by an engine that is the source of truth for balances, instead
+     * of the {@code wallets} row.
+     *
+     * @param walletId id of an existing wallet
+     * @return the committed balance, empty if balances are read from the wallet rows
+     */
+    default OptionalLong balanceOf(UUID walletId) {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Drops what the engine keeps in memory of wallets whose rows the current transaction
+     * changes outside the engine, once it commits.
+     *
+     * @param walletIds ids of the changed wallets
+     */
+    default void invalidateAfterCommit(Collection<UUID> walletIds) {
+    }
+}
@@ -0,0 +1,447 @@
+package com.walletservice.service.engine;
+
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.ServiceUnavailableException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.Ids;
+import com.walletservice.repository.LedgerBatchRepository;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Single-threaded owner of the balances of every wallet routed to its shard.
+ * <p>
+ * Commands are drained from the inbox in batches. Their idempotency keys are claimed,
+ * then they are applied to the in-memory balances and persisted, all in one database transaction. Callers are completed only after that
+ * transaction commits, and after the cached balances of the wallets it wrote are evicted.
+ * If it fails, the in-memory effects of the batch are reverted and every command it has not
+ * answered is failed, so no caller is left waiting.
+ * <p>
+ * A balance invalidated because its wallet row changed outside the engine is dropped between
+ * batches, and read again when next needed. While a cross-shard transfer of the wallet is
+ * reserved and not yet settled or released, the balance held here and the persisted one differ
+ * by that amount, so the drop waits until none is left.
+ */
+@Slf4j
+final class ShardWorker implements Runnable {
+
+    private final int index;
+    private final ShardedLedgerEngine engine;
+    private final WalletRepository walletRepository;
+    private final LedgerBatchRepository ledgerBatchRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final WalletCache walletCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+
+    private final BlockingQueue<LedgerCommand> inbox = new LinkedBlockingQueue<>();
+    private final Map<UUID, Long> balances = new HashMap<>();
+    // cross-shard transfers reserved per sender wallet, neither settled nor released yet
+    private final Map<UUID, Integer> reservations = new HashMap<>();
+    // wallets whose balance is dropped once they hold no reservation
+    private final Set<UUID> invalidated = new HashSet<>();
+    // cross-shard transfers of the current batch routed to the receiver shard, which answers them
+    private final Set<LedgerCommand> handedOff = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    ShardWorker(int index,
+                ShardedLedgerEngine engine,
+                WalletRepository walletRepository,
+                LedgerBatchRepository ledgerBatchRepository,
+                IdempotencyStore idempotencyStore,
+                WalletCache walletCache,
+                TransactionTemplate transactionTemplate,
+                int maxBatchSize) {
+        this.index = index;
+        this.engine = engine;
+        this.walletRepository = walletRepository;
+        this.ledgerBatchRepository = ledgerBatchRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.walletCache = walletCache;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    void submit(LedgerCommand command) {
+        inbox.add(command);
+    }
+
+    int pending() {
+        return inbox.size();
+    }
+
+    @Override
+    public void run() {
+        List<LedgerCommand> commands = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                commands.add(inbox.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            inbox.drainTo(commands, maxBatchSize - 1);
+            // settlements and invalidations go first, so the batch reads the balances they drop again
+            commands.removeIf(this::settleOrInvalidate);
+            dropInvalidated();
+            try {
+                process(commands);
+            } catch (RuntimeException e) {
+                // the shard keeps serving; whatever the batch left unanswered and still owns is failed
+                log.error("Shard {} failed to process a batch of {} commands", index, commands.size(), e);
+                for (LedgerCommand command : commands) {
+                    if (!handedOff.contains(command)) {
+                        failOwned(command, e);
+                    }
+                }
+            }
+            handedOff.clear();
+            commands.clear();
+        }
+        inbox.drainTo(commands);
+        ServiceUnavailableException stopped = new ServiceUnavailableException("Ledger engine is shutting down!");
+        for (LedgerCommand command : commands) {
+            fail(command, stopped);
+        }
+    }
+
+    void process(List<LedgerCommand> commands) {
+        handedOff.clear();
+        if (commands.isEmpty()) {
+            return;
+        }
+        if (commands.stream().allMatch(this::isMemoryOnly)) {
+            // cross-shard reservations and releases only touch memory, a failed read fails its command only
+            Batch batch = new Batch();
+            for (LedgerCommand command : commands) {
+                try {
+                    applyOrFail(command, batch);
+                } catch (RuntimeException e) {
+                    log.warn("Shard {} failed to apply a command", index, e);
+                    fail(command, e);
+                }
+            }
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(commands.size());
+        for (LedgerCommand command : commands) {
+            keys.add(claimedKeyOf(command));
+        }
+
+        Batch batch = new Batch();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int[] claimed = idempotencyStore.claimAll(keys.stream().filter(Objects::nonNull).toList());
+                List<String> rejectedKeys = new ArrayList<>();
+                int claim = 0;
+                for (int i = 0; i < commands.size(); i++) {
+                    LedgerCommand command = commands.get(i);
+                    String key = keys.get(i);
+                    if (key != null && claimed[claim++] == 0) {
+                        rejectDuplicate(command);
+                        continue;
+                    }
+                    if (!applyOrFail(command, batch) && key != null) {
+                        rejectedKeys.add(key);
+                    }
+                    batch.reached = i + 1;
+                }
+                idempotencyStore.releaseAll(rejectedKeys);
+                if (!batch.isEmpty()) {
+                    ledgerBatchRepository.applyBalanceDeltas(batch.persistedDeltas);
+                    ledgerBatchRepository.insertTransactions(batch.rows);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Shard {} failed to persist a batch of {} transactions", index, batch.rows.size(), e);
+            batch.localDeltas.forEach((walletId, delta) -> balances.merge(walletId, -delta, Long::sum));
+            abandon(commands, batch, e);
+            return;
+        }
+        // in-memory balances may hold uncommitted reservations, so cached copies are dropped, not replaced
+        if (!batch.isEmpty()) {
+            try {
+                walletCache.evict(batch.persistedDeltas.keySet());
+            } catch (RuntimeException e) {
+                // the batch is committed, its callers are answered regardless
+                log.error("Shard {} failed to evict the cached balances of a batch", index, e);
+            }
+        }
+        batch.settled.forEach(senderId -> engine.route(senderId, new LedgerCommand.Settle(senderId)));
+        batch.completions.forEach(CompletableFuture::complete);
+    }
+
+    /**
+     * Answers every command of a batch whose transaction failed, including those it never
+     * reached: each one not answered yet is failed, the reservation of each cross-shard transfer
+     * not answered yet is released, and releases never reached are applied, as they only touch
+     * memory. Transfers handed to a receiver shard are left to it.
+     */
+    private void abandon(List<LedgerCommand> commands, Batch batch, RuntimeException e) {
+        for (int i = 0; i < commands.size(); i++) {
+            LedgerCommand command = commands.get(i);
+            if (command instanceof LedgerCommand.Release release) {
+                if (i >= batch.reached) {
+                    release(release);
+                }
+            } else if (!handedOff.contains(command)) {
+                failOwned(command, e);
+            }
+        }
+    }
+
+    /**
+     * Fails a command this shard still has to answer, releasing the reservation of a
+     * cross-shard transfer not answered yet.
+     */
+    private void failOwned(LedgerCommand command, RuntimeException e) {
+        if (command instanceof LedgerCommand.CommitTransfer commit) {
+            LedgerCommand.Transfer transfer = commit.transfer;
+            if (transfer.result.isDone()) {
+                return;
+            }
+            engine.route(transfer.senderWalletId, new LedgerCommand.Release(transfer.senderWalletId, transfer.amount));
+        }
+        fail(command, e);
+    }
+
+    private boolean settleOrInvalidate(LedgerCommand command) {
+        if (command instanceof LedgerCommand.Settle settle) {
+            settle(settle.walletId);
+            return true;
+        } else if (command instanceof LedgerCommand.Invalidate invalidate) {
+            invalidated.add(invalidate.walletId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops the invalidated balances of wallets without a pending reservation. Only runs
+     * between batches, as a batch's balances may carry deltas it has not committed.
+     */
+    private void dropInvalidated() {
+        invalidated.removeIf(walletId -> {
+            if (reservations.containsKey(walletId)) {
+                return false;
+            }
+            balances.remove(walletId);
+            return true;
+        });
+    }
+
+    private void release(LedgerCommand.Release release) {
+        balances.merge(release.walletId, (long) release.amount, Long::sum);
+        settle(release.walletId);
+    }
+
+    private void settle(UUID walletId) {
+        reservations.computeIfPresent(walletId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Whether a command only changes in-memory balances: a release, or the reservation of a
+     * transfer whose receiver belongs to another shard.
+     */
+    private boolean isMemoryOnly(LedgerCommand command) {
+        return command instanceof LedgerCommand.Release
+                || command instanceof LedgerCommand.Transfer transfer && !engine.isOwnedBy(transfer.receiverWalletId, index);
+    }
+
+    /**
+     * The idempotency key this shard claims for a command, or null when the command is
+     * keyless here. Cross-shard transfers are claimed by the receiver shard that persists them.
+     */
+    private String claimedKeyOf(LedgerCommand command) {
+        if (command instanceof LedgerCommand.Post post) {
+            return post.idempotencyKey;
+        } else if (command instanceof LedgerCommand.Transfer transfer) {
+            return engine.isOwnedBy(transfer.receiverWalletId, index) ? transfer.idempotencyKey : null;
+        } else if (command instanceof LedgerCommand.CommitTransfer commit) {
+            return commit.transfer.idempotencyKey;
+        }
+        return null;
+    }
+
+    private void rejectDuplicate(LedgerCommand command) {
+        if (command instanceof LedgerCommand.CommitTransfer commit) {
+            LedgerCommand.Transfer transfer = commit.transfer;
+            engine.route(transfer.senderWalletId, new LedgerCommand.Release(transfer.senderWalletId, transfer.amount));
+        }
+        fail(command, new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!"));
+    }
+
+    private boolean applyOrFail(LedgerCommand command, Batch batch) {
+        try {
+            apply(command, batch);
+            return true;
+        } catch (ServiceException | NotFoundException e) {
+            fail(command, e);
+            return false;
+        }
+    }
+
+    private void apply(LedgerCommand command, Batch batch) {
+        if (command instanceof LedgerCommand.Post post) {
+            applyPost(post, batch);
+        } else if (command instanceof LedgerCommand.Transfer transfer) {
+            applyTransfer(transfer, batch);
+        } else if (command instanceof LedgerCommand.CommitTransfer commit) {
+            applyCommitTransfer(commit.transfer, batch);
+        } else if (command instanceof LedgerCommand.Release release) {
+            release(release);
+        }
+    }
+
+    private void applyPost(LedgerCommand.Post post, Batch batch) {
+        long balance = balanceOf(post.walletId, "Wallet not found with id: " + post.walletId);
+        long delta;
+        if (post.type == TransactionType.DEBIT) {
+            if (balance < post.amount) {
+                throw new InsufficientFundsException("Transaction failed with insufficient fund!");
+            }
+            delta = -post.amount;
+        } else {
+            delta = post.amount;
+        }
+        balances.put(post.walletId, balance + delta);
+        batch.local(post.walletId, delta);
+
+        Transaction transaction = newTransaction(post.walletId, post.amount, post.type, post.idempotencyKey);
+        batch.rows.add(transaction);
+        batch.completions.put(post.result, transaction);
+    }
+
+    private void applyTransfer(LedgerCommand.Transfer transfer, Batch batch) {
+        UUID senderId = transfer.senderWalletId;
+        UUID receiverId = transfer.receiverWalletId;
+
+        long senderBalance = balanceOf(senderId, "Sender wallet not found!");
+        if (!engine.isOwnedBy(receiverId, index)) {
+            if (senderBalance < transfer.amount) {
+                throw new InsufficientFundsException("Transaction failed with insufficient fund from sender!");
+            }
+            // reserve here, the receiver shard persists both legs and releases on failure
+            balances.put(senderId, senderBalance - transfer.amount);
+            reservations.merge(senderId, 1, Integer::sum);
+            engine.route(receiverId, new LedgerCommand.CommitTransfer(transfer));
+            handedOff.add(transfer);
+            return;
+        }
+
+        balanceOf(receiverId, "Receiver wallet not found!");
+        if (senderBalance < transfer.amount) {
+            throw new InsufficientFundsException("Transaction failed with insufficient fund from sender!");
+        }
+        balances.merge(senderId, (long) -transfer.amount, Long::sum);
+        balances.merge(receiverId, (long) transfer.amount, Long::sum);
+        batch.local(senderId, -transfer.amount);
+        batch.local(receiverId, transfer.amount);
+        addTransferRows(transfer, batch);
+    }
+
+    private void applyCommitTransfer(LedgerCommand.Transfer transfer, Batch batch) {
+        UUID receiverId = transfer.receiverWalletId;
+        long receiverBalance;
+        try {
+            receiverBalance = balanceOf(receiverId, "Receiver wallet not found!");
+        } catch (NotFoundException e) {
+            engine.route(transfer.senderWalletId, new LedgerCommand.Release(transfer.senderWalletId, transfer.amount));
+            throw e;
+        }
+        balances.put(receiverId, receiverBalance + transfer.amount);
+        batch.local(receiverId, transfer.amount);
+        // the sender leg was applied in memory by the sender shard when it reserved the amount
+        batch.persistedDeltas.merge(transfer.senderWalletId, (long) -transfer.amount, Long::sum);
+        batch.settled.add(transfer.senderWalletId);
+        addTransferRows(transfer, batch);
+    }
+
+    private void addTransferRows(LedgerCommand.Transfer transfer, Batch batch) {
+        Transaction outgoing = newTransaction(transfer.senderWalletId, transfer.amount,
+                TransactionType.TRANSFER_OUT, transfer.idempotencyKey);
+        Transaction incoming = newTransaction(transfer.receiverWalletId, transfer.amount,
+                TransactionType.TRANSFER_IN, transfer.idempotencyKey);
+        batch.rows.add(outgoing);
+        batch.rows.add(incoming);
+        batch.completions.put(transfer.result, outgoing);
+    }
+
+    private long balanceOf(UUID walletId, String notFoundMessage) {
+        Long balance = balances.get(walletId);
+        if (balance == null) {
+            // the balance slots of the wallet count, its persisted deltas go to the wallet row
+            balance = walletRepository.findTotalBalanceById(walletId)
+                    .orElseThrow(() -> new NotFoundException(notFoundMessage));
+            balances.put(walletId, balance);
+        }
+        return balance;
+    }
+
+    private static Transaction newTransaction(UUID walletId, int amount, TransactionType type, String key) {
+        return Transaction.builder()
+                .id(Ids.next())
+                .walletId(walletId)
+                .amount(amount)
+                .type(type)
+                .idempotencyKey(key)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static void fail(LedgerCommand command, RuntimeException e) {
+        if (command instanceof LedgerCommand.Post post) {
+            post.result.completeExceptionally(e);
+        } else if (command instanceof LedgerCommand.Transfer transfer) {
+            transfer.result.completeExceptionally(e);
+        } else if (command instanceof LedgerCommand.CommitTransfer commit) {
+            commit.transfer.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Effects of one batch waiting to be persisted.
+     */
+    private static final class Batch {
+        // sorted so every batch locks wallet rows in the same order
+        final Map<UUID, Long> persistedDeltas = new TreeMap<>(Ids.ORDER);
+        final Map<UUID, Long> localDeltas = new HashMap<>();
+        final List<Transaction> rows = new ArrayList<>();
+        final Map<CompletableFuture<Transaction>, Transaction> completions = new HashMap<>();
+        // sender wallets of the cross-shard transfers persisted here, told once committed
+        final List<UUID> settled = new ArrayList<>();
+        // number of commands the transaction got through
+        int reached;
+
+        void local(UUID walletId, long delta) {
+            localDeltas.merge(walletId, delta, Long::sum);
+            persistedDeltas.merge(walletId, delta, Long::sum);
+        }
+
+        boolean isEmpty() {
+            return rows.isEmpty();
+        }
+    }
+}
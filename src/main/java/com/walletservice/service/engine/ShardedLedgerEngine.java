@@ -0,0 +1,139 @@
+package com.walletservice.service.engine;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.repository.LedgerBatchRepository;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Single-writer ledger engine.
+ * <p>
+ * Every wallet is owned by exactly one {@link ShardWorker}, chosen by hashing its id.
+ * The owning worker keeps the wallet balance in memory and is the only thread allowed
+ * to change it, so mutations need no database row locks or entity dirty checking.
+ * <p>
+ * Cross-shard transfers use a reserve / commit / release protocol:
+ * <ol>
+ *     <li>the sender shard checks the balance and reserves the amount in memory,</li>
+ *     <li>the receiver shard credits the receiver and persists both legs in one transaction,</li>
+ *     <li>if the receiver is missing or the commit fails, the sender shard releases the reservation.</li>
+ * </ol>
+ * Balances are persisted with relative updates, so the receiver shard can write the sender leg
+ * without overwriting anything the sender shard persisted concurrently. Once it commits, the
+ * receiver shard settles the reservation with the sender shard.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.engine.mode", havingValue = "sharded")
+public class ShardedLedgerEngine implements LedgerEngine {
+
+    private final ShardWorker[] workers;
+    private final Thread[] threads;
+
+    public ShardedLedgerEngine(LedgerEngineProperties properties,
+                               WalletRepository walletRepository,
+                               LedgerBatchRepository ledgerBatchRepository,
+                               IdempotencyStore idempotencyStore,
+                               WalletCache walletCache,
+                               TransactionTemplate transactionTemplate) {
+        int shards = properties.getShards();
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shards);
+        }
+        this.workers = new ShardWorker[shards];
+        this.threads = new Thread[shards];
+
+        for (int i = 0; i < shards; i++) {
+            workers[i] = new ShardWorker(i, this, walletRepository, ledgerBatchRepository,
+                    idempotencyStore, walletCache, transactionTemplate, properties.getMaxBatchSize());
+            threads[i] = new Thread(workers[i], "ledger-shard-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        log.info("Started sharded ledger engine with {} shards", shards);
+    }
+
+    @Override
+    public CompletableFuture<Transaction> post(UUID walletId, int amount, TransactionType type, String idempotencyKey) {
+        LedgerCommand.Post post = new LedgerCommand.Post(walletId, amount, type, idempotencyKey);
+        route(walletId, post);
+        return post.result;
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(UUID senderWalletId, UUID receiverWalletId,
+                                                   int amount, String idempotencyKey) {
+        LedgerCommand.Transfer transfer = new LedgerCommand.Transfer(senderWalletId, receiverWalletId, amount, idempotencyKey);
+        route(senderWalletId, transfer);
+        return transfer.result;
+    }
+
+    @Override
+    public int getPendingCommands() {
+        int pending = 0;
+        for (ShardWorker worker : workers) {
+            pending += worker.pending();
+        }
+        return pending;
+    }
+
+    @Override
+    public void invalidateAfterCommit(Collection<UUID> walletIds) {
+        Runnable invalidate = () -> walletIds.forEach(walletId -> route(walletId, new LedgerCommand.Invalidate(walletId)));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate.run();
+                }
+            });
+        } else {
+            invalidate.run();
+        }
+    }
+
+    public int getShardCount() {
+        return workers.length;
+    }
+
+    void route(UUID walletId, LedgerCommand command) {
+        workers[shardOf(walletId)].submit(command);
+    }
+
+    boolean isOwnedBy(UUID walletId, int shard) {
+        return shardOf(walletId) == shard;
+    }
+
+    int shardOf(UUID walletId) {
+        int h = walletId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), workers.length);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
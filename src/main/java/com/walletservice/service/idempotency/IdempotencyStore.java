@@ -0,0 +1,199 @@
+package com.walletservice.service.idempotency;
+
+import com.walletservice.config.IdempotencyProperties;
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.repository.IdempotencyKeyRepository;
+import com.walletservice.repository.LedgerBatchRepository;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Store of claimed idempotency keys.
+ * <p>
+ * Keys live in the {@code idempotency_keys} table, whose primary key lets the database
+ * reject a duplicate claim even when two requests race past {@link #exists(String)}.
+ * An in-memory Bloom filter, rebuilt from the table at startup, answers lookups of
+ * new keys without touching the database.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final LedgerBatchRepository ledgerBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BloomFilter filter;
+    private final boolean backfillKeys;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+    private final LongAdder databaseLookupNanos = new LongAdder();
+    private final LongAccumulator maxDatabaseLookupNanos = new LongAccumulator(Long::max, 0L);
+
+    public IdempotencyStore(IdempotencyKeyRepository idempotencyKeyRepository,
+                            LedgerBatchRepository ledgerBatchRepository,
+                            TransactionTemplate transactionTemplate,
+                            IdempotencyProperties properties) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ledgerBatchRepository = ledgerBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.filter = new BloomFilter(properties.getExpectedKeys(), properties.getFalsePositiveRate());
+        this.backfillKeys = properties.isBackfillKeys();
+    }
+
+    /**
+     * Loads every claimed key into the Bloom filter, streaming them from the database.
+     * With {@code wallet.idempotency.backfill-keys}, keys of transactions recorded before the
+     * key table existed are claimed first, which scans the whole ledger.
+     */
+    @PostConstruct
+    public void rebuild() {
+        long start = System.nanoTime();
+        if (backfillKeys) {
+            int backfilled = transactionTemplate.execute(status -> ledgerBatchRepository.backfillIdempotencyKeys());
+            log.info("Claimed {} idempotency keys of existing transactions", backfilled);
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<String> keys = idempotencyKeyRepository.streamAllKeys()) {
+                keys.forEach(filter::put);
+            }
+        });
+        log.info("Loaded {} idempotency keys into the Bloom filter in {} ms",
+                filter.getInsertions(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Checks if the key was already claimed.
+     *
+     * @param key idempotency key
+     * @return true if a committed transaction claimed it
+     */
+    public boolean exists(String key) {
+        lookups.increment();
+        if (!filter.mightContain(key)) {
+            filterNegatives.increment();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        boolean exists = idempotencyKeyRepository.existsById(key);
+        long elapsed = System.nanoTime() - start;
+        databaseLookups.increment();
+        databaseLookupNanos.add(elapsed);
+        maxDatabaseLookupNanos.accumulate(elapsed);
+        if (!exists) {
+            falsePositives.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * Claims the key in the current transaction.
+     *
+     * @param key idempotency key
+     * @throws ServiceException if the key is already claimed
+     */
+    public void claim(String key) {
+        if (claimAll(List.of(key))[0] == 0) {
+            throw new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
+        }
+    }
+
+    /**
+     * Claims the keys in the current transaction. The claimed keys enter the Bloom filter once
+     * it commits, a rolled back claim would otherwise stay a false positive for good.
+     *
+     * @param keys idempotency keys
+     * @return 1 for every key claimed, 0 for every duplicate
+     */
+    public int[] claimAll(List<String> keys) {
+        int[] claimed = ledgerBatchRepository.claimIdempotencyKeys(keys);
+        List<String> newKeys = new ArrayList<>(keys.size());
+        for (int i = 0; i < claimed.length; i++) {
+            if (claimed[i] != 0) {
+                newKeys.add(keys.get(i));
+            }
+        }
+        afterCommit(() -> newKeys.forEach(filter::put));
+        return claimed;
+    }
+
+    /**
+     * Releases keys claimed in the current transaction by mutations that were rejected.
+     *
+     * @param keys idempotency keys
+     */
+    public void releaseAll(List<String> keys) {
+        ledgerBatchRepository.releaseIdempotencyKeys(keys);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getFilterNegatives() {
+        return filterNegatives.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    public long getDatabaseLookups() {
+        return databaseLookups.sum();
+    }
+
+    public long getDatabaseLookupNanos() {
+        return databaseLookupNanos.sum();
+    }
+
+    public long getMaxDatabaseLookupNanos() {
+        return maxDatabaseLookupNanos.get();
+    }
+
+    /**
+     * @return share of absent keys the filter failed to rule out
+     */
+    public double getObservedFalsePositiveRate() {
+        long negatives = filterNegatives.sum() + falsePositives.sum();
+        return negatives == 0 ? 0 : (double) falsePositives.sum() / negatives;
+    }
+
+    /**
+     * @return false positive rate predicted from the number of keys in the filter
+     */
+    public double getExpectedFalsePositiveRate() {
+        return filter.expectedFalsePositiveRate();
+    }
+}
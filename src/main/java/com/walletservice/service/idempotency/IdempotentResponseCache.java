@@ -0,0 +1,290 @@
+package com.walletservice.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walletservice.config.IdempotencyProperties;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.ServiceUnavailableException;
+import com.walletservice.service.mapper.TransactionMapper;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replays the original response to retries of an idempotency key.
+ * <p>
+ * Successful responses are kept serialized in a size-bounded concurrent map for
+ * {@code wallet.idempotency.replay-ttl}. When full, the least recently used of a small
+ * sample of entries, taken from a random part of the map, is evicted, expired entries first, so no lookup takes a global lock.
+ * Concurrent requests with the same key are coalesced: the first one executes, the others
+ * wait up to {@code wallet.idempotency.coalesced-wait-timeout} for its outcome and receive
+ * a copy of the same response or the same error. Failures are not cached, so a retry after a
+ * rejection executes again. A retry that arrives after its entry expired or was evicted
+ * falls through to the {@link IdempotencyStore} and is rejected as a duplicate.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class IdempotentResponseCache {
+
+    // entries compared when one must be evicted
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final long waitTimeoutNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoTime;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Call> inFlight = new ConcurrentHashMap<>();
+    // orders accesses for eviction, the clock may not move between two of them
+    private final AtomicLong accessTicks = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public IdempotentResponseCache(ObjectMapper objectMapper, IdempotencyProperties properties) {
+        this(objectMapper, properties, System::nanoTime);
+    }
+
+    IdempotentResponseCache(ObjectMapper objectMapper, IdempotencyProperties properties, LongSupplier nanoTime) {
+        this.objectMapper = objectMapper;
+        this.ttlNanos = properties.getReplayTtl().toNanos();
+        this.waitTimeoutNanos = properties.getCoalescedWaitTimeout().toNanos();
+        this.maxEntries = properties.getReplayCacheSize();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Returns the response recorded for the key, or executes the action once for all
+     * concurrent requests carrying the key and records its response.
+     *
+     * @param key          idempotency key of the request
+     * @param request      the request, which must equal the original request of the key
+     * @param responseType type of the response
+     * @param action       executes the request
+     * @return the original response
+     * @throws com.walletservice.exception.InvalidRequestException if the key is missing or blank
+     * @throws ServiceException            if the key was used by a different request
+     * @throws ServiceUnavailableException if a concurrent request with the key did not complete in time
+     */
+    public <T> T execute(String key, Object request, Class<T> responseType, Supplier<T> action) {
+        TransactionMapper.checkIdempotencyKey(key);
+        Entry entry = lookup(key);
+        if (entry != null) {
+            hits.increment();
+            return replay(entry, request, responseType);
+        }
+
+        Call call = new Call(request, responseType);
+        Call leader = inFlight.computeIfAbsent(key, k -> call);
+        if (leader != call) {
+            coalesced.increment();
+            checkSameRequest(leader.request, leader.responseType, request, responseType);
+            return deserialize(await(leader), responseType);
+        }
+
+        try {
+            // the previous leader stores its response before leaving inFlight
+            entry = lookup(key);
+            if (entry != null) {
+                hits.increment();
+                call.result.complete(entry.body);
+                return replay(entry, request, responseType);
+            }
+            misses.increment();
+            T response;
+            byte[] body;
+            try {
+                response = action.get();
+                body = serialize(response);
+            } catch (RuntimeException e) {
+                call.result.completeExceptionally(e);
+                throw e;
+            }
+            entries.put(key, new Entry(request, responseType, body, nanoTime.getAsLong() + ttlNanos,
+                    accessTicks.incrementAndGet()));
+            evictOverflow();
+            call.result.complete(body);
+            return response;
+        } finally {
+            inFlight.remove(key, call);
+            // never leave waiters hanging, even on an Error
+            call.result.completeExceptionally(new IllegalStateException("Coalesced request did not complete"));
+        }
+    }
+
+    private byte[] await(Call leader) {
+        try {
+            return leader.result.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("A request with the same idempotency key is still running, please retry!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for a request with the same idempotency key!");
+        }
+    }
+
+    private Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, nanoTime.getAsLong())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastAccess = accessTicks.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Evicts until the map is back at its size: an expired entry if the sample holds one,
+     * otherwise the least recently used entry of the sample.
+     */
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            long now = nanoTime.getAsLong();
+            Map.Entry<String, Entry> victim = null;
+            Spliterator<Map.Entry<String, Entry>> sample = randomSlice();
+            AtomicReference<Map.Entry<String, Entry>> next = new AtomicReference<>();
+            for (int i = 0; i < EVICTION_SAMPLE && sample.tryAdvance(next::set); i++) {
+                Map.Entry<String, Entry> candidate = next.get();
+                if (isExpired(candidate.getValue(), now)) {
+                    victim = candidate;
+                    break;
+                }
+                if (victim == null || candidate.getValue().lastAccess < victim.getValue().lastAccess) {
+                    victim = candidate;
+                }
+            }
+            if (victim != null && entries.remove(victim.getKey(), victim.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * A random part of the map holding about twice the sample, found by halving its table a
+     * few times, so every sample does not start at the first entries of the table.
+     */
+    private Spliterator<Map.Entry<String, Entry>> randomSlice() {
+        Spliterator<Map.Entry<String, Entry>> slice = entries.entrySet().spliterator();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (slice.estimateSize() > 2L * EVICTION_SAMPLE) {
+            Spliterator<Map.Entry<String, Entry>> prefix = slice.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            if (random.nextBoolean()) {
+                slice = prefix;
+            }
+        }
+        return slice;
+    }
+
+    private static boolean isExpired(Entry entry, long now) {
+        return entry.expiresAt - now <= 0;
+    }
+
+    private <T> T replay(Entry entry, Object request, Class<T> responseType) {
+        checkSameRequest(entry.request, entry.responseType, request, responseType);
+        return deserialize(entry.body, responseType);
+    }
+
+    private static void checkSameRequest(Object original, Class<?> originalType, Object request, Class<?> responseType) {
+        if (originalType != responseType || !original.equals(request)) {
+            throw new ServiceException("The idempotency key was already used for a different request!");
+        }
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response for replay", e);
+        }
+    }
+
+    private <T> T deserialize(byte[] body, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to replay response", e);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * A recorded response with the request it answered.
+     */
+    private static final class Entry {
+        final Object request;
+        final Class<?> responseType;
+        final byte[] body;
+        final long expiresAt;
+        volatile long lastAccess;
+
+        Entry(Object request, Class<?> responseType, byte[] body, long expiresAt, long lastAccess) {
+            this.request = request;
+            this.responseType = responseType;
+            this.body = body;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * A request being executed, awaited by concurrent requests with the same key.
+     */
+    private static final class Call {
+        final Object request;
+        final Class<?> responseType;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        Call(Object request, Class<?> responseType) {
+            this.request = request;
+            this.responseType = responseType;
+        }
+    }
+}
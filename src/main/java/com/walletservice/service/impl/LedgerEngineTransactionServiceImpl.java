@@ -0,0 +1,228 @@
+package com.walletservice.service.impl;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.dto.BatchItemResult;
+import com.walletservice.dto.BatchTransactionRequest;
+import com.walletservice.dto.BatchTransactionResponse;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.PayoutRequest;
+import com.walletservice.dto.PayoutResponse;
+import com.walletservice.dto.TransactionDto;
+import com.walletservice.dto.TransactionRequest;
+import com.walletservice.dto.TransactionResponse;
+import com.walletservice.dto.TransferRequest;
+import com.walletservice.dto.TransferResponse;
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.ServiceUnavailableException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.service.TransactionService;
+import com.walletservice.service.engine.LedgerEngine;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import com.walletservice.service.mapper.TransactionMapper;
+import com.walletservice.service.metrics.LedgerMetrics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link TransactionService} used when {@code wallet.engine.mode} selects a {@link LedgerEngine}.
+ * <p>
+ * Credits, debits and transfers are applied by the engine; reads are served by
+ * {@link TransactionServiceImpl}. At most {@code wallet.engine.max-pending-requests}
+ * mutations wait on the engine at a time, each for at most {@code wallet.engine.result-timeout}.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Primary
+@Service
+@ConditionalOnExpression("'${wallet.engine.mode:jpa}' != 'jpa'")
+public class LedgerEngineTransactionServiceImpl implements TransactionService {
+
+    private final LedgerEngine ledgerEngine;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionServiceImpl transactionService;
+    private final LedgerMetrics ledgerMetrics;
+    private final Semaphore pendingRequests;
+    private final int maxPendingRequests;
+    private final long submitTimeoutNanos;
+    private final long resultTimeoutNanos;
+    private final String mode;
+
+    public LedgerEngineTransactionServiceImpl(LedgerEngine ledgerEngine,
+                                              IdempotencyStore idempotencyStore,
+                                              TransactionServiceImpl transactionService,
+                                              LedgerMetrics ledgerMetrics,
+                                              LedgerEngineProperties properties) {
+        this.ledgerEngine = ledgerEngine;
+        this.idempotencyStore = idempotencyStore;
+        this.transactionService = transactionService;
+        this.ledgerMetrics = ledgerMetrics;
+        this.maxPendingRequests = properties.getMaxPendingRequests();
+        this.pendingRequests = new Semaphore(maxPendingRequests);
+        this.submitTimeoutNanos = properties.getSubmitTimeout().toNanos();
+        this.resultTimeoutNanos = properties.getResultTimeout().toNanos();
+        this.mode = properties.getMode();
+    }
+
+    @Override
+    public TransactionResponse createOrDebit(TransactionRequest transactionRequest) {
+        return ledgerMetrics.record(LedgerMetrics.operationOf(transactionRequest.getType()),
+                () -> post(transactionRequest), TransactionResponse::getAmount);
+    }
+
+    @Override
+    public TransferResponse transfer(TransferRequest transferRequest) {
+        return ledgerMetrics.record(LedgerMetrics.TRANSFER,
+                () -> submitTransfer(transferRequest), TransferResponse::getAmount);
+    }
+
+    private TransactionResponse post(TransactionRequest transactionRequest) {
+        String key = TransactionMapper.checkIdempotencyKey(transactionRequest.getIdempotencyKey());
+        if (idempotencyStore.exists(key)) {
+            // A transaction already exist with that key
+            throw new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
+        }
+
+        TransactionType type = TransactionMapper.mapToTransactionType(transactionRequest.getType());
+
+        Transaction transaction = submit(() -> ledgerEngine.post(transactionRequest.getWalletId(),
+                transactionRequest.getAmount(), type, key));
+        return TransactionMapper.mapToTransactionResponse(transaction, transactionRequest);
+    }
+
+    private TransferResponse submitTransfer(TransferRequest transferRequest) {
+        String key = TransactionMapper.checkIdempotencyKey(transferRequest.getIdempotencyKey());
+        if (idempotencyStore.exists(key)) {
+            // A transaction already exist with that key
+            throw new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
+        }
+
+        Transaction outgoing = submit(() -> ledgerEngine.transfer(transferRequest.getSenderWalletId(),
+                transferRequest.getReceiverWalletId(), transferRequest.getAmount(), key));
+        return TransactionMapper.mapToTransferResponse(outgoing, transferRequest);
+    }
+
+    /**
+     * Payouts run as one database transaction of guarded relative updates. The group commit
+     * pipeline keeps no balances in memory, so it can share the wallet rows with them; shard
+     * workers own their balances, the event-sourced engine projects them from the ledger
+     * without the wallet rows, and the journal engine adds its journal to rows it never writes,
+     * so payouts are rejected in those modes.
+     */
+    @Override
+    public PayoutResponse payout(PayoutRequest payoutRequest) {
+        if ("sharded".equals(mode) || "event-sourced".equals(mode) || "journal".equals(mode)) {
+            throw new ServiceException("Payouts are not supported in " + mode + " engine mode!");
+        }
+        return transactionService.payout(payoutRequest);
+    }
+
+    /**
+     * Submits every item to the engine, which batches them with concurrent mutations.
+     * Engines apply each mutation on its own, so all-or-nothing batches are not supported.
+     */
+    @Override
+    public BatchTransactionResponse createBatch(BatchTransactionRequest batchRequest) {
+        List<TransactionRequest> items = BatchTransactionRequest.checkedItems(batchRequest);
+        if (batchRequest.isAllOrNothing()) {
+            throw new ServiceException("All-or-nothing batches are only supported in jpa engine mode!");
+        }
+
+        List<CompletableFuture<Transaction>> submitted = new ArrayList<>(items.size());
+        for (TransactionRequest item : items) {
+            CompletableFuture<Transaction> transaction;
+            try {
+                TransactionType type = TransactionMapper.mapToBatchItemType(item);
+                acquirePermit();
+                try {
+                    transaction = ledgerEngine.post(item.getWalletId(), item.getAmount(), type, item.getIdempotencyKey())
+                            .orTimeout(resultTimeoutNanos, TimeUnit.NANOSECONDS)
+                            .whenComplete((result, error) -> pendingRequests.release());
+                } catch (RuntimeException e) {
+                    pendingRequests.release();
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                transaction = CompletableFuture.failedFuture(e);
+            }
+            submitted.add(transaction);
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                Transaction transaction = submitted.get(i).join();
+                results.add(TransactionMapper.mapToBatchItemResult(i,
+                        TransactionMapper.mapToTransactionResponse(transaction, items.get(i))));
+            } catch (CompletionException e) {
+                results.add(TransactionMapper.mapToBatchItemResult(i, causeOf(e)));
+            }
+        }
+        return BatchTransactionResponse.of(results);
+    }
+
+    /**
+     * @return number of credits, debits and transfers waiting on the engine
+     */
+    public int getPendingRequests() {
+        return maxPendingRequests - pendingRequests.availablePermits();
+    }
+
+    @Override
+    public CursorPage<TransactionDto> findPage(UUID after, int limit) {
+        return transactionService.findPage(after, limit);
+    }
+
+    @Override
+    public CursorPage<TransactionDto> findByWallet(UUID walletId, String cursor, int limit) {
+        return transactionService.findByWallet(walletId, cursor, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<TransactionDto> consumer) {
+        transactionService.streamAll(consumer);
+    }
+
+    private Transaction submit(Supplier<CompletableFuture<Transaction>> mutation) {
+        acquirePermit();
+        try {
+            return mutation.get().orTimeout(resultTimeoutNanos, TimeUnit.NANOSECONDS).join();
+        } catch (CompletionException e) {
+            throw causeOf(e);
+        } finally {
+            pendingRequests.release();
+        }
+    }
+
+    private static RuntimeException causeOf(CompletionException e) {
+        if (e.getCause() instanceof TimeoutException) {
+            return new ServiceUnavailableException("Ledger engine did not answer in time, retry with the same idempotency key!");
+        }
+        return e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!pendingRequests.tryAcquire(submitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new ServiceUnavailableException("Ledger engine is busy, please retry!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the ledger engine!");
+        }
+    }
+}
@@ -1,22 +1,58 @@
 package com.walletservice.service.impl;
 
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.dto.BatchItemResult;
+import com.walletservice.dto.BatchTransactionRequest;
+import com.walletservice.dto.BatchTransactionResponse;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.PayoutItem;
+import com.walletservice.dto.PayoutRequest;
+import com.walletservice.dto.PayoutResponse;
 import com.walletservice.dto.TransactionDto;
 import com.walletservice.dto.TransactionRequest;
 import com.walletservice.dto.TransactionResponse;
 import com.walletservice.dto.TransferRequest;
 import com.walletservice.dto.TransferResponse;
+import com.walletservice.exception.BatchRejectedException;
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.exception.InvalidRequestException;
 import com.walletservice.exception.NotFoundException;
 import com.walletservice.exception.ServiceException;
 import com.walletservice.model.Transaction;
 import com.walletservice.model.TransactionType;
 import com.walletservice.model.Wallet;
+import com.walletservice.model.id.Ids;
+import com.walletservice.repository.LedgerBatchRepository;
 import com.walletservice.repository.TransactionRepository;
 import com.walletservice.repository.WalletRepository;
+import com.walletservice.repository.WalletSlotRepository;
 import com.walletservice.service.TransactionService;
+import com.walletservice.service.accumulator.CreditAccumulator;
+import com.walletservice.service.archive.ArchiveSegment;
+import com.walletservice.service.archive.TransactionArchive;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import com.walletservice.service.lock.WalletLockManager;
+import com.walletservice.service.mapper.HistoryCursor;
+import com.walletservice.service.mapper.TransactionMapper;
+import com.walletservice.service.metrics.LedgerMetrics;
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,112 +72,534 @@ public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final WalletRepository walletRepository;
+    private final WalletLockManager walletLockManager;
+    private final IdempotencyStore idempotencyStore;
+    private final EntityManager entityManager;
+    private final WalletCache walletCache;
+    private final LedgerEngineProperties ledgerEngineProperties;
+    private final LedgerBatchRepository ledgerBatchRepository;
+    private final LedgerMetrics ledgerMetrics;
+    private final WalletSlotRepository walletSlotRepository;
+    private final CreditAccumulator creditAccumulator;
+    private final TransactionArchive transactionArchive;
 
     @Transactional
     @Override
     public TransactionResponse createOrDebit(TransactionRequest transactionRequest) {
+        return ledgerMetrics.record(LedgerMetrics.operationOf(transactionRequest.getType()),
+                () -> applyCreditOrDebit(transactionRequest), TransactionResponse::getAmount);
+    }
+
+    @Transactional
+    @Override
+    public TransferResponse transfer(TransferRequest transferRequest) {
+        return ledgerMetrics.record(LedgerMetrics.TRANSFER,
+                () -> applyTransfer(transferRequest), TransferResponse::getAmount);
+    }
+
+    @Transactional
+    @Override
+    public PayoutResponse payout(PayoutRequest payoutRequest) {
+        return ledgerMetrics.record(LedgerMetrics.PAYOUT,
+                () -> applyPayout(payoutRequest), PayoutResponse::getTotalAmount);
+    }
+
+    private TransactionResponse applyCreditOrDebit(TransactionRequest transactionRequest) {
 
         UUID walletId =  transactionRequest.getWalletId();
         Integer amount = transactionRequest.getAmount();
         String transactionType = transactionRequest.getType();
-        String key = transactionRequest.getIdempotencyKey();
+        String key = TransactionMapper.checkIdempotencyKey(transactionRequest.getIdempotencyKey());
 
-        if (transactionRepository.existsByIdempotencyKey(key)){
+        if (idempotencyStore.exists(key)){
             // A transaction already exist with that key
-            throw new ServiceException("A transaction with the idempotency key already exists!");
+            throw new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
         }
+        // rejected by the database if a concurrent request claimed the key first
+        idempotencyStore.claim(key);
 
         TransactionType selectedTransactionType;
-
-        Wallet wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> new RuntimeException("Wallet not found"));
-
         if(transactionType.equals(TransactionType.DEBIT.name())) {
-
-            if(wallet.getBalance() < amount){
-                throw new ServiceException("Transaction failed with insufficient fund!");
-            }
-
             selectedTransactionType = TransactionType.DEBIT;
-            wallet.debit(amount);
         }else if(transactionType.equals(TransactionType.CREDIT.name())) {
             selectedTransactionType = TransactionType.CREDIT;
-            wallet.credit(amount);
         }else{
             // invalid transaction type provided
             throw new ServiceException("Invalid transaction type: "+ transactionRequest.getType());
         }
 
+        if (ledgerEngineProperties.isGuardedUpdates()) {
+            if (selectedTransactionType == TransactionType.DEBIT) {
+                debitGuarded(walletId, amount, "Wallet not found with id: " + walletId,
+                        "Transaction failed with insufficient fund!");
+            } else {
+                creditGuarded(walletId, amount, "Wallet not found with id: " + walletId);
+            }
+            walletCache.evictAfterCommit(List.of(walletId));
+        } else {
+            applyToEntity(walletId, amount, selectedTransactionType);
+        }
+
         Transaction savedTransaction = transactionRepository.save(new Transaction(walletId, amount, selectedTransactionType, key));
-        return mapToTransactionResponse(savedTransaction, transactionRequest);
+        return TransactionMapper.mapToTransactionResponse(savedTransaction, transactionRequest);
     }
 
-    @Transactional
-    @Override
-    public TransferResponse transfer(TransferRequest transferRequest) {
+    private TransferResponse applyTransfer(TransferRequest transferRequest) {
 
         UUID fromWalletId = transferRequest.getSenderWalletId();
         UUID toWalletId = transferRequest.getReceiverWalletId();
         Integer amount = transferRequest.getAmount();
-        String key = transferRequest.getIdempotencyKey();
+        String key = TransactionMapper.checkIdempotencyKey(transferRequest.getIdempotencyKey());
 
-        if (transactionRepository.existsByIdempotencyKey(key)){
+        if (idempotencyStore.exists(key)){
             // A transaction already exist with that key
-            throw new ServiceException("A transaction with the idempotency key already exists!");
+            throw new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
         }
+        // rejected by the database if a concurrent request claimed the key first
+        idempotencyStore.claim(key);
 
-        Wallet sender = walletRepository.findById(fromWalletId)
-                .orElseThrow(() -> new NotFoundException("Sender wallet not found!"));
-        Wallet receiver = walletRepository.findById(toWalletId)
-                .orElseThrow(() -> new NotFoundException("Receiver wallet not found!"));
-
-        if(sender.getBalance() < amount) {
-            throw new ServiceException("Transaction failed with insufficient fund from sender!");
+        if (ledgerEngineProperties.isGuardedUpdates()) {
+            // rows are locked in id order so opposite transfers cannot deadlock,
+            // a rejected leg rolls back the one already applied
+            if (Ids.ORDER.compare(fromWalletId, toWalletId) <= 0) {
+                debitGuarded(fromWalletId, amount, "Sender wallet not found!",
+                        "Transaction failed with insufficient fund from sender!");
+                creditGuarded(toWalletId, amount, "Receiver wallet not found!");
+            } else {
+                creditGuarded(toWalletId, amount, "Receiver wallet not found!");
+                debitGuarded(fromWalletId, amount, "Sender wallet not found!",
+                        "Transaction failed with insufficient fund from sender!");
+            }
+            walletCache.evictAfterCommit(List.of(fromWalletId, toWalletId));
+        } else {
+            transferBetweenEntities(fromWalletId, toWalletId, amount);
         }
-        sender.debit(amount);
-        receiver.credit(amount);
 
         Transaction outGoingTransaction = transactionRepository.save(new Transaction(fromWalletId, amount, TransactionType.TRANSFER_OUT, key));
         transactionRepository.save(new Transaction(toWalletId, amount, TransactionType.TRANSFER_IN, key));
-        return mapToTransferResponse(outGoingTransaction, transferRequest);
+        return TransactionMapper.mapToTransferResponse(outGoingTransaction, transferRequest);
+    }
+
+    private PayoutResponse applyPayout(PayoutRequest payoutRequest) {
+
+        UUID senderWalletId = payoutRequest.getSenderWalletId();
+        List<PayoutItem> receivers = payoutRequest.getReceivers();
+        String key = payoutRequest.getIdempotencyKey();
+        int totalAmount = totalOf(payoutRequest);
+
+        if (idempotencyStore.exists(key)){
+            // A transaction already exist with that key
+            throw new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!");
+        }
+        // rejected by the database if a concurrent request claimed the key first
+        idempotencyStore.claim(key);
+
+        Transaction outgoing = Transaction.builder()
+                .id(Ids.next())
+                .walletId(senderWalletId)
+                .amount(totalAmount)
+                .type(TransactionType.TRANSFER_OUT)
+                .idempotencyKey(key)
+                .createdAt(Instant.now())
+                .build();
+        List<Transaction> rows = new ArrayList<>(receivers.size() + 1);
+        rows.add(outgoing);
+        for (PayoutItem receiver : receivers) {
+            rows.add(Transaction.builder()
+                    .id(Ids.next())
+                    .walletId(receiver.getReceiverWalletId())
+                    .amount(receiver.getAmount())
+                    .type(TransactionType.TRANSFER_IN)
+                    .idempotencyKey(key)
+                    .createdAt(outgoing.getCreatedAt())
+                    .build());
+        }
+        // the sender is debited once for the total, and every row is locked in wallet id order
+        // so concurrent payouts and transfers cannot deadlock
+        List<Transaction> legs = new ArrayList<>(rows);
+        legs.sort(Comparator.comparing(Transaction::getWalletId, Ids.ORDER));
+        Set<UUID> walletIds = new HashSet<>();
+        legs.forEach(leg -> walletIds.add(leg.getWalletId()));
+
+        // guarded statements need no lease, the entity path must not interleave with the payout
+        try (WalletLockManager.Lease ignored = ledgerEngineProperties.isGuardedUpdates()
+                ? null : walletLockManager.lock(walletIds)) {
+            int[] applied = ledgerBatchRepository.applyGuardedDeltas(legs);
+            retryDrainedDebits(legs, applied);
+            for (int i = 0; i < applied.length; i++) {
+                if (applied[i] != 0) {
+                    continue;
+                }
+                UUID walletId = legs.get(i).getWalletId();
+                if (legs.get(i) != outgoing) {
+                    throw new NotFoundException("Receiver wallet not found with id: " + walletId);
+                }
+                if (!walletRepository.existsById(walletId)) {
+                    throw new NotFoundException("Sender wallet not found!");
+                }
+                throw new InsufficientFundsException("Transaction failed with insufficient fund from sender!");
+            }
+            ledgerBatchRepository.insertTransactions(rows);
+            walletCache.evictAfterCommit(walletIds);
+        }
+        return TransactionMapper.mapToPayoutResponse(outgoing, payoutRequest);
+    }
+
+    /**
+     * Checks the receivers of a payout and sums what the sender pays.
+     */
+    private static int totalOf(PayoutRequest payoutRequest) {
+        List<PayoutItem> receivers = payoutRequest.getReceivers();
+        if (payoutRequest.getSenderWalletId() == null || payoutRequest.getIdempotencyKey() == null
+                || payoutRequest.getIdempotencyKey().isBlank()) {
+            throw new InvalidRequestException("Sender wallet id and idempotency key are required");
+        }
+        if (receivers == null || receivers.isEmpty() || receivers.size() > PayoutRequest.MAX_RECEIVERS) {
+            throw new InvalidRequestException("A payout must have between 1 and " + PayoutRequest.MAX_RECEIVERS + " receivers");
+        }
+        int total = 0;
+        for (PayoutItem receiver : receivers) {
+            if (receiver.getReceiverWalletId() == null || receiver.getAmount() == null || receiver.getAmount() <= 0) {
+                throw new InvalidRequestException("Every receiver needs a wallet id and a positive amount");
+            }
+            if (receiver.getReceiverWalletId().equals(payoutRequest.getSenderWalletId())) {
+                throw new InvalidRequestException("The sender cannot be a receiver of its own payout");
+            }
+            try {
+                total = Math.addExact(total, receiver.getAmount());
+            } catch (ArithmeticException e) {
+                throw new InvalidRequestException("Payout total is too large");
+            }
+        }
+        return total;
     }
 
+    @Transactional
     @Override
-    public List<TransactionDto> findAll() {
-        return transactionRepository.findAll()
-                .stream()
-                .map(this::mapToTransactionDto)
-                .toList();
+    public BatchTransactionResponse createBatch(BatchTransactionRequest batchRequest) {
+        List<TransactionRequest> items = BatchTransactionRequest.checkedItems(batchRequest);
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        TransactionType[] types = new TransactionType[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                types[i] = TransactionMapper.mapToBatchItemType(items.get(i));
+            } catch (RuntimeException e) {
+                results[i] = TransactionMapper.mapToBatchItemResult(i, e);
+            }
+        }
+        rejectIfAllOrNothing(batchRequest, results);
+
+        Set<UUID> walletIds = new HashSet<>();
+        for (int i : pending(results)) {
+            walletIds.add(items.get(i).getWalletId());
+        }
+        if (walletIds.isEmpty()) {
+            return BatchTransactionResponse.of(List.of(results));
+        }
+        // guarded statements need no lease, the entity path must not interleave with the batch
+        try (WalletLockManager.Lease ignored = ledgerEngineProperties.isGuardedUpdates()
+                ? null : walletLockManager.lock(walletIds)) {
+
+            // one query resolves every wallet of the batch
+            Set<UUID> existing = walletRepository.findExistingIds(walletIds);
+            for (int i : pending(results)) {
+                UUID walletId = items.get(i).getWalletId();
+                if (!existing.contains(walletId)) {
+                    results[i] = TransactionMapper.mapToBatchItemResult(i,
+                            new NotFoundException("Wallet not found with id: " + walletId));
+                }
+            }
+            rejectIfAllOrNothing(batchRequest, results);
+
+            // one batched statement claims every key, duplicates within the batch included
+            List<Integer> claiming = pending(results);
+            List<String> keys = new ArrayList<>(claiming.size());
+            claiming.forEach(i -> keys.add(items.get(i).getIdempotencyKey()));
+            int[] claimed = idempotencyStore.claimAll(keys);
+            for (int c = 0; c < claimed.length; c++) {
+                if (claimed[c] == 0) {
+                    results[claiming.get(c)] = TransactionMapper.mapToBatchItemResult(claiming.get(c),
+                            new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!"));
+                }
+            }
+            rejectIfAllOrNothing(batchRequest, results);
+
+            // rows are locked in wallet id order, and a wallet's credits are applied before its debits
+            List<Integer> applying = new ArrayList<>(pending(results));
+            applying.sort(Comparator.<Integer, UUID>comparing(i -> items.get(i).getWalletId(), Ids.ORDER)
+                    .thenComparing(i -> types[i] == TransactionType.CREDIT ? 0 : 1));
+            List<Transaction> legs = new ArrayList<>(applying.size());
+            for (int i : applying) {
+                TransactionRequest item = items.get(i);
+                legs.add(Transaction.builder()
+                        .id(Ids.next())
+                        .walletId(item.getWalletId())
+                        .amount(item.getAmount())
+                        .type(types[i])
+                        .idempotencyKey(item.getIdempotencyKey())
+                        .createdAt(Instant.now())
+                        .build());
+            }
+            int[] applied = ledgerBatchRepository.applyGuardedDeltas(legs);
+            retryDrainedDebits(legs, applied);
+
+            List<Transaction> rows = new ArrayList<>(legs.size());
+            List<String> rejectedKeys = new ArrayList<>();
+            for (int a = 0; a < applied.length; a++) {
+                int i = applying.get(a);
+                if (applied[a] == 0) {
+                    results[i] = TransactionMapper.mapToBatchItemResult(i,
+                            new InsufficientFundsException("Transaction failed with insufficient fund!"));
+                    rejectedKeys.add(items.get(i).getIdempotencyKey());
+                } else {
+                    rows.add(legs.get(a));
+                    results[i] = TransactionMapper.mapToBatchItemResult(i,
+                            TransactionMapper.mapToTransactionResponse(legs.get(a), items.get(i)));
+                }
+            }
+            rejectIfAllOrNothing(batchRequest, results);
+
+            idempotencyStore.releaseAll(rejectedKeys);
+            ledgerBatchRepository.insertTransactions(rows);
+            walletCache.evictAfterCommit(walletIds);
+        }
+        return BatchTransactionResponse.of(List.of(results));
     }
 
-    private TransactionDto mapToTransactionDto(Transaction transaction) {
-        return TransactionDto.builder()
-                .id(transaction.getId())
-                .walletId(transaction.getWalletId())
-                .amount(transaction.getAmount())
-                .type(transaction.getType().name())
-                .idempotencyKey(transaction.getIdempotencyKey())
-                .build();
+    /**
+     * Indexes of the items that have not failed yet.
+     */
+    private static List<Integer> pending(BatchItemResult[] results) {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null || results[i].getTransaction() != null) {
+                pending.add(i);
+            }
+        }
+        return pending;
     }
 
-    private TransactionResponse mapToTransactionResponse(Transaction transaction, TransactionRequest request) {
+    /**
+     * Rolls an all-or-nothing batch back as soon as one of its items failed.
+     */
+    private static void rejectIfAllOrNothing(BatchTransactionRequest batchRequest, BatchItemResult[] results) {
+        if (!batchRequest.isAllOrNothing()) {
+            return;
+        }
+        int failed = results.length - pending(results).size();
+        if (failed == 0) {
+            return;
+        }
+        List<BatchItemResult> rolledBack = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            rolledBack.add(results[i] != null && results[i].getTransaction() == null
+                    ? results[i]
+                    : TransactionMapper.mapToBatchItemResult(i,
+                            new ServiceException("Rolled back, another item of the batch failed!")));
+        }
+        throw new BatchRejectedException(BatchTransactionResponse.of(rolledBack), failed);
+    }
 
-        return TransactionResponse.builder()
-                .transactionId(transaction.getId())
-                .walletId(transaction.getWalletId())
-                .amount(transaction.getAmount())
-                .type(request.getType())
-                .idempotencyKey(transaction.getIdempotencyKey())
-                .build();
+    /**
+     * Retries the rejected debits of wallets whose balance slots or pending credits held the
+     * missing funds, once they are collected into the wallet row.
+     */
+    private void retryDrainedDebits(List<Transaction> legs, int[] applied) {
+        Map<UUID, Long> drained = new HashMap<>();
+        for (int i = 0; i < applied.length; i++) {
+            Transaction leg = legs.get(i);
+            TransactionType type = leg.getType();
+            if (applied[i] != 0 || (type != TransactionType.DEBIT && type != TransactionType.TRANSFER_OUT)) {
+                continue;
+            }
+            if (drained.computeIfAbsent(leg.getWalletId(), this::collectIntoWalletRow) > 0) {
+                applied[i] = ledgerBatchRepository.applyGuardedDeltas(List.of(leg))[0];
+            }
+        }
     }
 
-    private TransferResponse mapToTransferResponse(Transaction transaction, TransferRequest request) {
-        return TransferResponse.builder()
-                .transactionId(transaction.getId())
-                .senderWalletId(request.getSenderWalletId())
-                .receiverWalletId(request.getReceiverWalletId())
-                .amount(transaction.getAmount())
-                .idempotencyKey(transaction.getIdempotencyKey())
-                .build();
+    /**
+     * Moves the balance slots and pending credits of a wallet into its row.
+     *
+     * @return amount moved
+     */
+    private long collectIntoWalletRow(UUID walletId) {
+        return walletSlotRepository.drainSlots(walletId) + creditAccumulator.fold(walletId);
+    }
+
+    private void creditGuarded(UUID walletId, int amount, String notFoundMessage) {
+        // a hot wallet's row stays unlocked: its credit is accumulated, or lands on one of its balance slots
+        if (walletRepository.creditBalance(walletId, amount) == 0
+                && !creditAccumulator.accumulate(walletId, amount)
+                && walletSlotRepository.creditSlot(walletId, amount) == 0) {
+            throw new NotFoundException(notFoundMessage);
+        }
+    }
+
+    private void debitGuarded(UUID walletId, int amount, String notFoundMessage, String insufficientFundMessage) {
+        if (walletRepository.debitBalance(walletId, amount) == 1) {
+            return;
+        }
+        // the wallet row falls short, its balance slots or pending credits may hold the rest
+        if (collectIntoWalletRow(walletId) > 0 && walletRepository.debitBalance(walletId, amount) == 1) {
+            return;
+        }
+        // only a rejected debit pays for telling a missing wallet from insufficient funds
+        if (!walletRepository.existsById(walletId)) {
+            throw new NotFoundException(notFoundMessage);
+        }
+        throw new InsufficientFundsException(insufficientFundMessage);
+    }
+
+    private void applyToEntity(UUID walletId, int amount, TransactionType type) {
+        // the lease is held until the surrounding transaction completes
+        try (WalletLockManager.Lease ignored = walletLockManager.lock(walletId)) {
+            Wallet wallet = walletRepository.findById(walletId)
+                    .orElseThrow(() -> new NotFoundException("Wallet not found with id: " + walletId));
+
+            if (wallet.getSlots() > 0 || wallet.isAccumulateCredits()) {
+                // the entity holds only part of a balance split into slots or accumulating credits
+                if (type == TransactionType.DEBIT) {
+                    debitGuarded(walletId, amount, "Wallet not found with id: " + walletId,
+                            "Transaction failed with insufficient fund!");
+                } else {
+                    creditGuarded(walletId, amount, "Wallet not found with id: " + walletId);
+                }
+                walletCache.evictAfterCommit(List.of(walletId));
+                return;
+            }
+            if (type == TransactionType.DEBIT) {
+                if(wallet.getBalance() < amount){
+                    throw new InsufficientFundsException("Transaction failed with insufficient fund!");
+                }
+                wallet.debit(amount);
+            } else {
+                wallet.credit(amount);
+            }
+            // published after commit, while the lease still orders writers of this wallet
+            walletCache.putAfterCommit(walletId, wallet.getBalance());
+        }
+    }
+
+    private void transferBetweenEntities(UUID fromWalletId, UUID toWalletId, int amount) {
+        // both wallets are locked in stripe order so opposite transfers cannot deadlock
+        try (WalletLockManager.Lease ignored = walletLockManager.lock(fromWalletId, toWalletId)) {
+            Wallet sender = walletRepository.findById(fromWalletId)
+                    .orElseThrow(() -> new NotFoundException("Sender wallet not found!"));
+            Wallet receiver = walletRepository.findById(toWalletId)
+                    .orElseThrow(() -> new NotFoundException("Receiver wallet not found!"));
+
+            // hot wallets are changed with guarded statements, the entity holds only part of their balance
+            if (sender.getSlots() > 0 || sender.isAccumulateCredits()) {
+                debitGuarded(fromWalletId, amount, "Sender wallet not found!",
+                        "Transaction failed with insufficient fund from sender!");
+                walletCache.evictAfterCommit(List.of(fromWalletId));
+            } else {
+                if(sender.getBalance() < amount) {
+                    throw new InsufficientFundsException("Transaction failed with insufficient fund from sender!");
+                }
+                sender.debit(amount);
+                walletCache.putAfterCommit(fromWalletId, sender.getBalance());
+            }
+            if (receiver.getSlots() > 0 || receiver.isAccumulateCredits()) {
+                creditGuarded(toWalletId, amount, "Receiver wallet not found!");
+                walletCache.evictAfterCommit(List.of(toWalletId));
+            } else {
+                receiver.credit(amount);
+                walletCache.putAfterCommit(toWalletId, receiver.getBalance());
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<TransactionDto> findPage(UUID after, int limit) {
+        int size = CursorPage.pageSize(limit);
+        // one extra row tells whether another page follows
+        Limit fetch = Limit.of(size + 1);
+        List<Transaction> transactions = transactionArchive.read(() -> {
+            List<Transaction> rows = after == null
+                    ? transactionRepository.findAllByOrderByIdAsc(fetch)
+                    : transactionRepository.findByIdGreaterThanOrderByIdAsc(after, fetch);
+            if (!transactionArchive.hasSegments()) {
+                return rows;
+            }
+            return merge(transactionArchive.findPage(after, size + 1), rows,
+                    Comparator.comparing(Transaction::getId), size + 1);
+        });
+
+        List<TransactionDto> rows = transactions.stream()
+                .map(TransactionMapper::mapToTransactionDto)
+                .toList();
+        return CursorPage.of(rows, size, transaction -> transaction.getId().toString());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<TransactionDto> findByWallet(UUID walletId, String cursor, int limit) {
+        int size = CursorPage.pageSize(limit);
+        Limit fetch = Limit.of(size + 1);
+        HistoryCursor position = cursor == null ? null : HistoryCursor.decode(cursor);
+        List<Transaction> transactions = transactionArchive.read(() -> {
+            List<Transaction> rows = position == null
+                    ? transactionRepository.findHistory(walletId, fetch)
+                    : transactionRepository.findHistoryBefore(walletId, position.getCreatedAt(), position.getId(), fetch);
+            if (!transactionArchive.hasSegments()) {
+                return rows;
+            }
+            List<Transaction> archived = position == null
+                    ? transactionArchive.findHistory(walletId, null, null, size + 1)
+                    : transactionArchive.findHistory(walletId, position.getCreatedAt(), position.getId(), size + 1);
+            return merge(archived, rows, ArchiveSegment.HISTORY_ORDER, size + 1);
+        });
+        // only an empty page pays for telling a missing wallet from an empty history
+        if (transactions.isEmpty() && !walletRepository.existsById(walletId)) {
+            throw new NotFoundException("Wallet not found with id: " + walletId);
+        }
+
+        List<TransactionDto> rows = transactions.stream()
+                .map(TransactionMapper::mapToTransactionDto)
+                .toList();
+        return CursorPage.of(rows, size,
+                transaction -> new HistoryCursor(transaction.getCreatedAt(), transaction.getId()).encode());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void streamAll(Consumer<TransactionDto> consumer) {
+        transactionArchive.readLocked(() -> {
+            // segments hold the oldest ids, archived in id order, so they come before every row of the table
+            if (transactionArchive.hasSegments()) {
+                Iterator<Transaction> archived = transactionArchive.iterator();
+                while (archived.hasNext()) {
+                    consumer.accept(TransactionMapper.mapToTransactionDto(archived.next()));
+                }
+            }
+            try (Stream<Transaction> transactions = transactionRepository.streamAllOrderById()) {
+                transactions.forEach(transaction -> {
+                    consumer.accept(TransactionMapper.mapToTransactionDto(transaction));
+                    // keeps the persistence context from growing with the ledger
+                    entityManager.detach(transaction);
+                });
+            }
+        });
+    }
+
+    /**
+     * Merges two lists sorted in the same order, keeping the first {@code limit} rows.
+     */
+    private static List<Transaction> merge(List<Transaction> first, List<Transaction> second,
+                                           Comparator<Transaction> order, int limit) {
+        List<Transaction> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            if (j == second.size() || i < first.size() && order.compare(first.get(i), second.get(j)) <= 0) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
     }
 }
@@ -1,41 +1,162 @@
 package com.walletservice.service.impl;
 
+import com.walletservice.config.ProvisioningProperties;
+import com.walletservice.dto.BulkWalletRequest;
+import com.walletservice.dto.CursorPage;
 import com.walletservice.dto.WalletDto;
+import com.walletservice.exception.InvalidRequestException;
 import com.walletservice.exception.NotFoundException;
 import com.walletservice.model.Wallet;
+import com.walletservice.model.id.Ids;
+import com.walletservice.repository.WalletBulkRepository;
 import com.walletservice.repository.WalletRepository;
+import com.walletservice.repository.WalletSlotRepository;
 import com.walletservice.service.WalletService;
+import com.walletservice.service.accumulator.CreditAccumulator;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.engine.LedgerEngine;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 public class WalletServiceImpl implements WalletService {
 
     private final WalletRepository walletRepository;
+    private final WalletCache walletCache;
+    private final WalletBulkRepository walletBulkRepository;
+    private final ProvisioningProperties provisioningProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletSlotRepository walletSlotRepository;
+    private final CreditAccumulator creditAccumulator;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
 
     @Override
     public WalletDto createWallet() {
         Wallet wallet = Wallet.builder()
                 .balance(0)
                 .build();
-        return mapToDto(walletRepository.save(wallet));
+        WalletDto created = mapToDto(walletRepository.save(wallet));
+        walletCache.putAfterCommit(created.getId(), created.getBalance());
+        return created;
+    }
+
+    /**
+     * Creates wallets in chunks of {@code wallet.provisioning.chunk-size}, each inserted and
+     * committed in its own transaction. Ids are generated here, so no row is read back, and the
+     * ids of a chunk are handed to the consumer only once it is committed. If a chunk fails, the
+     * chunks handed over before it stay created.
+     */
+    @Override
+    public void createWallets(BulkWalletRequest request, Consumer<List<UUID>> consumer) {
+        int remaining = BulkWalletRequest.checkedCount(request);
+        int chunkSize = Math.max(1, provisioningProperties.getChunkSize());
+        while (remaining > 0) {
+            int size = Math.min(chunkSize, remaining);
+            List<UUID> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(Ids.next());
+            }
+            // new wallets are not cached, a bulk load would only push out the hot ones
+            transactionTemplate.executeWithoutResult(
+                    status -> walletBulkRepository.insertWallets(ids, provisioningProperties.isCopy()));
+            consumer.accept(ids);
+            remaining -= size;
+        }
     }
 
     @Override
     public WalletDto findById(UUID id) {
-        return walletRepository.findById(id)
-                .map(this::mapToDto)
+        return walletCache.get(id, walletRepository::findDtoById)
+                .map(this::withCurrentBalance)
                 .orElseThrow(() -> new NotFoundException("Wallet not found with id: " + id));
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public List<WalletDto> findAll() {
-        return walletRepository.findAll()
-                .stream().map(this::mapToDto)
+    public CursorPage<WalletDto> findPage(UUID after, int limit) {
+        int size = CursorPage.pageSize(limit);
+        // projections skip entity hydration; one extra row tells whether another page follows
+        Limit fetch = Limit.of(size + 1);
+        List<WalletDto> wallets = (after == null
+                ? walletRepository.findDtosOrderById(fetch)
+                : walletRepository.findDtosAfterOrderById(after, fetch))
+                .stream().map(this::withCurrentBalance)
                 .toList();
+        return CursorPage.of(wallets, size, wallet -> wallet.getId().toString());
+    }
+
+    /**
+     * Splits the balance of a wallet into {@code slots} slot rows that credits are spread over,
+     * or folds it back into the wallet row with {@code slots = 0}. The slots are drained into the
+     * wallet row first, so the balance is unchanged and debits find it all in one row.
+     */
+    @Transactional
+    @Override
+    public WalletDto updateSlots(UUID id, int slots) {
+        if (slots < 0 || slots > Wallet.MAX_SLOTS) {
+            throw new InvalidRequestException("Slots must be between 0 and " + Wallet.MAX_SLOTS);
+        }
+        // slot rows are locked before the wallet row, in the order debits drain them
+        walletSlotRepository.drainSlots(id);
+        if (walletRepository.updateSlots(id, slots) == 0) {
+            throw new NotFoundException("Wallet not found with id: " + id);
+        }
+        walletSlotRepository.createSlots(id, slots);
+        walletCache.evictAfterCommit(List.of(id));
+        ledgerEngine.ifAvailable(engine -> engine.invalidateAfterCommit(List.of(id)));
+        return walletRepository.findDtoById(id)
+                .map(this::withCurrentBalance)
+                .orElseThrow(() -> new NotFoundException("Wallet not found with id: " + id));
+    }
+
+    /**
+     * Turns credit accumulation of a wallet on or off. Turning it off folds the wallet's
+     * pending credits into its balance row.
+     */
+    @Transactional
+    @Override
+    public WalletDto updateAccumulateCredits(UUID id, boolean accumulateCredits) {
+        if (walletRepository.updateAccumulateCredits(id, accumulateCredits) == 0) {
+            throw new NotFoundException("Wallet not found with id: " + id);
+        }
+        if (accumulateCredits) {
+            creditAccumulator.start();
+        } else {
+            creditAccumulator.fold(id);
+        }
+        walletCache.evictAfterCommit(List.of(id));
+        return walletRepository.findDtoById(id)
+                .map(this::withCurrentBalance)
+                .orElseThrow(() -> new NotFoundException("Wallet not found with id: " + id));
+    }
+
+    /**
+     * Replaces the balance of the wallet row with the one projected from the ledger when the ledger
+     * engine keeps it, or adds the credits accumulated for the wallet and not yet folded into the row.
+     */
+    private WalletDto withCurrentBalance(WalletDto wallet) {
+        LedgerEngine engine = ledgerEngine.getIfAvailable();
+        OptionalLong projected = engine == null ? OptionalLong.empty() : engine.balanceOf(wallet.getId());
+        long balance = projected.isPresent()
+                ? projected.getAsLong()
+                : wallet.getBalance() + creditAccumulator.getPending(wallet.getId());
+        if (balance == wallet.getBalance()) {
+            return wallet;
+        }
+        return WalletDto.builder()
+                .id(wallet.getId())
+                .balance((int) balance)
+                .build();
     }
 
     private WalletDto mapToDto(Wallet wallet) {
@@ -0,0 +1,149 @@
+package com.walletservice.service.journal;
+
+import com.walletservice.model.TransactionType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+import lombok.Getter;
+
+/**
+ * Fixed-size binary record of one credit, debit or transfer in the {@link LedgerJournal}.
+ * <p>
+ * Layout, {@value #SIZE} bytes, big-endian:
+ * <pre>
+ *  0  int   CRC32C of bytes 4 to 95
+ *  4  byte  type: 1 credit, 2 debit, 3 transfer
+ *  8  long  sequence, 1 for the first record of the journal and one more for each next one
+ * 16  long  creation time, epoch milliseconds
+ * 24  int   amount
+ * 32  uuid  transaction id
+ * 48  uuid  wallet id, the sender of a transfer
+ * 64  uuid  receiver wallet id of a transfer, zero otherwise
+ * 80  uuid  digest of the idempotency key, zero without one
+ * </pre>
+ * Idempotency keys are up to 255 characters, so only their name-based UUID digest is kept.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Getter
+public final class JournalRecord {
+
+    public static final int SIZE = 96;
+
+    private static final byte CREDIT_CODE = 1;
+    private static final byte DEBIT_CODE = 2;
+    private static final byte TRANSFER_CODE = 3;
+
+    private final TransactionType type;
+    private final long sequence;
+    private final long createdAt;
+    private final int amount;
+    private final UUID transactionId;
+    private final UUID walletId;
+    private final UUID receiverWalletId;
+    private final UUID keyDigest;
+
+    /**
+     * @param type             {@code CREDIT}, {@code DEBIT} or {@code TRANSFER_OUT} for a transfer
+     * @param sequence         position of the record in the journal
+     * @param createdAt        creation time, epoch milliseconds
+     * @param amount           amount
+     * @param transactionId    id of the transaction, the outgoing leg of a transfer
+     * @param walletId         wallet credited or debited, the sender of a transfer
+     * @param receiverWalletId receiver of a transfer, null otherwise
+     * @param keyDigest        digest of the idempotency key, see {@link #digestOf(String)}
+     */
+    public JournalRecord(TransactionType type, long sequence, long createdAt, int amount, UUID transactionId,
+                         UUID walletId, UUID receiverWalletId, UUID keyDigest) {
+        if (type == TransactionType.TRANSFER_IN) {
+            throw new IllegalArgumentException("Transfers are recorded with their outgoing leg");
+        }
+        this.type = type;
+        this.sequence = sequence;
+        this.createdAt = createdAt;
+        this.amount = amount;
+        this.transactionId = transactionId;
+        this.walletId = walletId;
+        this.receiverWalletId = receiverWalletId;
+        this.keyDigest = keyDigest;
+    }
+
+    /**
+     * @param idempotencyKey key, may be null
+     * @return 128-bit digest of the key, null for a null key
+     */
+    public static UUID digestOf(String idempotencyKey) {
+        return idempotencyKey == null ? null : UUID.nameUUIDFromBytes(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the record and its checksum at an absolute position of the buffer.
+     */
+    void writeTo(ByteBuffer buffer, int offset) {
+        buffer.put(offset + 4, switch (type) {
+            case CREDIT -> CREDIT_CODE;
+            case DEBIT -> DEBIT_CODE;
+            default -> TRANSFER_CODE;
+        });
+        // padding is covered by the checksum too
+        buffer.put(offset + 5, (byte) 0);
+        buffer.putShort(offset + 6, (short) 0);
+        buffer.putLong(offset + 8, sequence);
+        buffer.putLong(offset + 16, createdAt);
+        buffer.putInt(offset + 24, amount);
+        buffer.putInt(offset + 28, 0);
+        putUuid(buffer, offset + 32, transactionId);
+        putUuid(buffer, offset + 48, walletId);
+        putUuid(buffer, offset + 64, receiverWalletId);
+        putUuid(buffer, offset + 80, keyDigest);
+        buffer.putInt(offset, checksum(buffer, offset));
+    }
+
+    /**
+     * Reads the record at an absolute position of the buffer.
+     *
+     * @return the record, or null if its checksum does not match, as for a torn or never written record
+     */
+    static JournalRecord readFrom(ByteBuffer buffer, int offset) {
+        if (buffer.getInt(offset) != checksum(buffer, offset)) {
+            return null;
+        }
+        TransactionType type = switch (buffer.get(offset + 4)) {
+            case CREDIT_CODE -> TransactionType.CREDIT;
+            case DEBIT_CODE -> TransactionType.DEBIT;
+            case TRANSFER_CODE -> TransactionType.TRANSFER_OUT;
+            default -> null;
+        };
+        if (type == null) {
+            return null;
+        }
+        return new JournalRecord(type,
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                buffer.getInt(offset + 24),
+                getUuid(buffer, offset + 32),
+                getUuid(buffer, offset + 48),
+                getUuid(buffer, offset + 64),
+                getUuid(buffer, offset + 80));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + 4, SIZE - 4));
+        return (int) crc.getValue();
+    }
+
+    private static void putUuid(ByteBuffer buffer, int offset, UUID uuid) {
+        buffer.putLong(offset, uuid == null ? 0 : uuid.getMostSignificantBits());
+        buffer.putLong(offset + 8, uuid == null ? 0 : uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer, int offset) {
+        long msb = buffer.getLong(offset);
+        long lsb = buffer.getLong(offset + 8);
+        return msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+    }
+}
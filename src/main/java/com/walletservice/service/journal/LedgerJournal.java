@@ -0,0 +1,206 @@
+package com.walletservice.service.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only write-ahead journal of {@link JournalRecord}s in memory-mapped segment files.
+ * <p>
+ * Segments are files of {@code segmentSize} bytes, named after the sequence of their first record
+ * and mapped whole, so appending a record is a copy into memory. {@link #force()} writes the
+ * records appended since the last call to disk; callers decide how many records to group per
+ * force. A segment is forced whole before the next one is created, so only the last segment can
+ * end in a torn record.
+ * <p>
+ * {@link #open} replays every record in sequence order, checking each checksum and sequence.
+ * In the last segment, the first record that fails the checks ends the journal and everything
+ * after it is zeroed, so records never acknowledged cannot resurface later; in any other
+ * segment it is corruption and opening fails.
+ * <p>
+ * Not thread-safe: one thread appends and forces.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public final class LedgerJournal implements Closeable {
+
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private int forcedPosition;
+    private long nextSequence;
+    private int segments;
+
+    private LedgerJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal in a directory, creating it if needed, after replaying its records.
+     *
+     * @param directory   directory of the segment files
+     * @param segmentSize size of new segment files in bytes, rounded down to a whole number of records
+     * @param replay      called with every record, in sequence order
+     * @return the journal, positioned after its last record
+     * @throws IOException if a segment cannot be read or mapped, or is corrupt
+     */
+    public static LedgerJournal open(Path directory, long segmentSize, Consumer<JournalRecord> replay) throws IOException {
+        if (segmentSize < JournalRecord.SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between " + JournalRecord.SIZE
+                    + " and " + Integer.MAX_VALUE + " bytes: " + segmentSize);
+        }
+        LedgerJournal journal = new LedgerJournal(directory, (int) (segmentSize - segmentSize % JournalRecord.SIZE));
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        if (files.isEmpty()) {
+            journal.nextSequence = 1;
+            journal.createSegment();
+            return journal;
+        }
+
+        journal.nextSequence = baseSequenceOf(files.get(0));
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            if (baseSequenceOf(file) != journal.nextSequence) {
+                throw new IOException("Journal segment " + file + " does not start at record " + journal.nextSequence);
+            }
+            boolean last = i == files.size() - 1;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                int end = mapped.capacity() - mapped.capacity() % JournalRecord.SIZE;
+                int offset = journal.replaySegment(mapped, end, replay);
+                if (!last && offset < end) {
+                    throw new IOException("Journal segment " + file + " is corrupt at offset " + offset);
+                }
+                if (last) {
+                    // a torn tail, and anything written after it, was never acknowledged
+                    if (zeroFrom(mapped, offset)) {
+                        mapped.force();
+                    }
+                    journal.segment = mapped;
+                    journal.position = offset;
+                    journal.forcedPosition = offset;
+                }
+            }
+            journal.segments++;
+        }
+        // the mapping outlives the channel it was created from; reopen one to close later
+        journal.channel = FileChannel.open(files.get(files.size() - 1), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return journal;
+    }
+
+    private int replaySegment(MappedByteBuffer mapped, int end, Consumer<JournalRecord> replay) {
+        int offset = 0;
+        while (offset < end) {
+            JournalRecord record = JournalRecord.readFrom(mapped, offset);
+            if (record == null || record.getSequence() != nextSequence) {
+                break;
+            }
+            replay.accept(record);
+            nextSequence++;
+            offset += JournalRecord.SIZE;
+        }
+        return offset;
+    }
+
+    /**
+     * @return whether any byte from {@code offset} on had to be zeroed
+     */
+    private static boolean zeroFrom(MappedByteBuffer mapped, int offset) {
+        boolean zeroed = false;
+        for (int i = offset; i < mapped.capacity(); i++) {
+            if (mapped.get(i) != 0) {
+                mapped.put(i, (byte) 0);
+                zeroed = true;
+            }
+        }
+        return zeroed;
+    }
+
+    /**
+     * Appends a record, rolling over to a new segment when the current one is full. The record is
+     * in memory only until the next {@link #force()}.
+     *
+     * @param record record with sequence {@link #getNextSequence()}
+     * @throws IOException if a new segment cannot be created
+     */
+    public void append(JournalRecord record) throws IOException {
+        if (record.getSequence() != nextSequence) {
+            throw new IllegalArgumentException("Expected record " + nextSequence + ", got " + record.getSequence());
+        }
+        if (position + JournalRecord.SIZE > segment.capacity()) {
+            force();
+            channel.close();
+            createSegment();
+        }
+        record.writeTo(segment, position);
+        position += JournalRecord.SIZE;
+        nextSequence++;
+    }
+
+    /**
+     * Writes the records appended since the last force to disk.
+     */
+    public void force() {
+        if (position > forcedPosition) {
+            segment.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+        }
+    }
+
+    /**
+     * @return sequence of the next record appended
+     */
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * @return number of segment files
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    private void createSegment() throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", nextSequence, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        position = 0;
+        forcedPosition = 0;
+        segments++;
+    }
+
+    private static long baseSequenceOf(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a journal segment: " + file, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,168 @@
+package com.walletservice.service.lock;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process striped lock manager keyed by wallet id.
+ * <p>
+ * Every wallet id hashes onto one of a fixed number of stripes, so two wallets only
+ * contend when they share a stripe. Multi-wallet acquisitions always lock stripes in
+ * ascending stripe order, which makes concurrent transfers (A to B and B to A) deadlock free.
+ * <p>
+ * When acquired inside a Spring managed transaction the lease is held until the transaction
+ * completes, so the next writer of the wallet always reads the committed balance.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class WalletLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+
+    public WalletLockManager(@Value("${wallet.lock.stripes:1024}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        }
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Lock a single wallet.
+     *
+     * @param walletId the wallet to lock
+     * @return the lease holding the lock
+     */
+    public Lease lock(UUID walletId) {
+        return acquire(new int[]{stripeOf(walletId)});
+    }
+
+    /**
+     * Lock two wallets in a deadlock free order.
+     *
+     * @param first  first wallet, usually the sender
+     * @param second second wallet, usually the receiver
+     * @return the lease holding both locks
+     */
+    public Lease lock(UUID first, UUID second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        if (a == b) {
+            return acquire(new int[]{a});
+        }
+        return acquire(a < b ? new int[]{a, b} : new int[]{b, a});
+    }
+
+    /**
+     * Lock any number of wallets in a deadlock free order.
+     *
+     * @param walletIds the wallets to lock
+     * @return the lease holding every lock
+     */
+    public Lease lock(Collection<UUID> walletIds) {
+        return acquire(walletIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray());
+    }
+
+    int stripeOf(UUID walletId) {
+        int h = walletId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContendedAcquisitions() {
+        return contendedAcquisitions.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    private Lease acquire(int[] orderedStripes) {
+        for (int stripe : orderedStripes) {
+            ReentrantLock lock = stripes[stripe];
+            if (!lock.tryLock()) {
+                long start = System.nanoTime();
+                lock.lock();
+                long waited = System.nanoTime() - start;
+                contendedAcquisitions.increment();
+                totalWaitNanos.add(waited);
+                maxWaitNanos.accumulate(waited);
+            }
+            acquisitions.increment();
+        }
+        Lease lease = new Lease(orderedStripes);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            lease.deferred = true;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lease.release();
+                }
+            });
+        }
+        return lease;
+    }
+
+    /**
+     * Held wallet locks. Closing the lease releases the locks, unless it was acquired
+     * inside a transaction, in which case they are released once the transaction completes.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final int[] heldStripes;
+        private boolean deferred;
+        private boolean released;
+
+        private Lease(int[] heldStripes) {
+            this.heldStripes = heldStripes;
+        }
+
+        @Override
+        public void close() {
+            if (!deferred) {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            for (int i = heldStripes.length - 1; i >= 0; i--) {
+                stripes[heldStripes[i]].unlock();
+            }
+        }
+    }
+}
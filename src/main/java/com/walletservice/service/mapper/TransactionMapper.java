@@ -0,0 +1,154 @@
+package com.walletservice.service.mapper;
+
+import com.walletservice.dto.BatchItemResult;
+import com.walletservice.dto.PayoutRequest;
+import com.walletservice.dto.PayoutResponse;
+import com.walletservice.dto.TransactionDto;
+import com.walletservice.dto.TransactionRequest;
+import com.walletservice.dto.TransactionResponse;
+import com.walletservice.dto.TransferRequest;
+import com.walletservice.dto.TransferResponse;
+import com.walletservice.exception.InvalidRequestException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.ServiceUnavailableException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Maps {@link Transaction} entities to the transaction DTOs.
+ * <p>
+ * Shared by every {@link com.walletservice.service.TransactionService} implementation.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public final class TransactionMapper {
+
+    private TransactionMapper() {
+    }
+
+    public static TransactionDto mapToTransactionDto(Transaction transaction) {
+        return TransactionDto.builder()
+                .id(transaction.getId())
+                .walletId(transaction.getWalletId())
+                .amount(transaction.getAmount())
+                .type(transaction.getType().name())
+                .idempotencyKey(transaction.getIdempotencyKey())
+                .createdAt(transaction.getCreatedAt())
+                .build();
+    }
+
+    public static TransactionResponse mapToTransactionResponse(Transaction transaction, TransactionRequest request) {
+
+        return TransactionResponse.builder()
+                .transactionId(transaction.getId())
+                .walletId(transaction.getWalletId())
+                .amount(transaction.getAmount())
+                .type(request.getType())
+                .idempotencyKey(transaction.getIdempotencyKey())
+                .build();
+    }
+
+    public static TransferResponse mapToTransferResponse(Transaction transaction, TransferRequest request) {
+        return TransferResponse.builder()
+                .transactionId(transaction.getId())
+                .senderWalletId(request.getSenderWalletId())
+                .receiverWalletId(request.getReceiverWalletId())
+                .amount(transaction.getAmount())
+                .idempotencyKey(transaction.getIdempotencyKey())
+                .build();
+    }
+
+    public static PayoutResponse mapToPayoutResponse(Transaction outgoing, PayoutRequest request) {
+        return PayoutResponse.builder()
+                .transactionId(outgoing.getId())
+                .senderWalletId(outgoing.getWalletId())
+                .totalAmount(outgoing.getAmount())
+                .receivers(request.getReceivers().size())
+                .idempotencyKey(outgoing.getIdempotencyKey())
+                .build();
+    }
+
+    /**
+     * Parses the type of a credit or debit request.
+     *
+     * @param type requested type
+     * @return CREDIT or DEBIT
+     * @throws ServiceException for any other type
+     */
+    public static TransactionType mapToTransactionType(String type) {
+        if (TransactionType.DEBIT.name().equals(type)) {
+            return TransactionType.DEBIT;
+        } else if (TransactionType.CREDIT.name().equals(type)) {
+            return TransactionType.CREDIT;
+        }
+        throw new ServiceException("Invalid transaction type: " + type);
+    }
+
+    /**
+     * Checks that a credit, debit, transfer or payout carries an idempotency key.
+     *
+     * @param key idempotency key of the request
+     * @return the key
+     * @throws InvalidRequestException if the key is missing or blank
+     */
+    public static String checkIdempotencyKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new InvalidRequestException("Idempotency key is required");
+        }
+        return key;
+    }
+
+    /**
+     * Checks that a batch item is complete and parses its type.
+     *
+     * @param item credit or debit of a batch
+     * @return CREDIT or DEBIT
+     * @throws InvalidRequestException  if a field is missing or the amount is not positive
+     * @throws ServiceException         for any other type
+     */
+    public static TransactionType mapToBatchItemType(TransactionRequest item) {
+        if (item.getWalletId() == null || item.getIdempotencyKey() == null || item.getIdempotencyKey().isBlank()) {
+            throw new InvalidRequestException("Wallet id and idempotency key are required");
+        }
+        if (item.getAmount() == null || item.getAmount() <= 0) {
+            throw new InvalidRequestException("Amount must be positive: " + item.getAmount());
+        }
+        return mapToTransactionType(item.getType());
+    }
+
+    public static BatchItemResult mapToBatchItemResult(int index, TransactionResponse response) {
+        return BatchItemResult.builder()
+                .index(index)
+                .status(HttpStatus.CREATED.value())
+                .transaction(response)
+                .build();
+    }
+
+    /**
+     * Maps the failure of a batch item to the status {@link com.walletservice.exception.GlobalExceptionHandler}
+     * would answer the same request with on its own.
+     */
+    public static BatchItemResult mapToBatchItemResult(int index, RuntimeException error) {
+        HttpStatus status;
+        if (error instanceof NotFoundException) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (error instanceof ServiceException) {
+            status = HttpStatus.CONFLICT;
+        } else if (error instanceof InvalidRequestException) {
+            status = HttpStatus.BAD_REQUEST;
+        } else if (error instanceof ServiceUnavailableException) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+        } else {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        return BatchItemResult.builder()
+                .index(index)
+                .status(status.value())
+                .error(error.getMessage())
+                .build();
+    }
+}
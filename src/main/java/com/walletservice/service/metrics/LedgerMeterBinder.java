@@ -0,0 +1,245 @@
+package com.walletservice.service.metrics;
+
+import com.walletservice.service.accumulator.CreditAccumulator;
+import com.walletservice.service.admission.AdaptiveConcurrencyLimiter;
+import com.walletservice.service.admission.DatabasePermitDataSource;
+import com.walletservice.service.archive.TransactionArchive;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.engine.EventSourcedLedgerEngine;
+import com.walletservice.service.engine.JournalLedgerEngine;
+import com.walletservice.service.engine.LedgerEngine;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import com.walletservice.service.idempotency.IdempotentResponseCache;
+import com.walletservice.service.impl.LedgerEngineTransactionServiceImpl;
+import com.walletservice.service.lock.WalletLockManager;
+import com.walletservice.service.reconciliation.LedgerReconciler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the statistics the lock manager, caches, idempotency store, credit accumulator and
+ * ledger engine already keep, along with the number of mutations waiting on the engine, the
+ * projections and snapshots of the event-sourced engine, the journal of the journal engine, the progress of
+ * ledger reconciliations, the segments of the transaction archive, the use of the database permits
+ * and the adaptive concurrency limits. The connection pool is published by Spring Boot as
+ * {@code hikaricp.connections.*}.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class LedgerMeterBinder implements MeterBinder {
+
+    private final WalletLockManager walletLockManager;
+    private final IdempotencyStore idempotencyStore;
+    private final IdempotentResponseCache idempotentResponseCache;
+    private final WalletCache walletCache;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+    private final ObjectProvider<EventSourcedLedgerEngine> eventSourcedLedgerEngine;
+    private final ObjectProvider<JournalLedgerEngine> journalLedgerEngine;
+    private final ObjectProvider<LedgerEngineTransactionServiceImpl> ledgerEngineTransactionService;
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiters;
+    private final CreditAccumulator creditAccumulator;
+    private final LedgerReconciler ledgerReconciler;
+    private final TransactionArchive transactionArchive;
+
+    public LedgerMeterBinder(WalletLockManager walletLockManager,
+                             IdempotencyStore idempotencyStore,
+                             IdempotentResponseCache idempotentResponseCache,
+                             WalletCache walletCache,
+                             ObjectProvider<LedgerEngine> ledgerEngine,
+                             ObjectProvider<EventSourcedLedgerEngine> eventSourcedLedgerEngine,
+                             ObjectProvider<JournalLedgerEngine> journalLedgerEngine,
+                             ObjectProvider<LedgerEngineTransactionServiceImpl> ledgerEngineTransactionService,
+                             ObjectProvider<DataSource> dataSource,
+                             ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiters,
+                             CreditAccumulator creditAccumulator,
+                             LedgerReconciler ledgerReconciler,
+                             TransactionArchive transactionArchive) {
+        this.walletLockManager = walletLockManager;
+        this.idempotencyStore = idempotencyStore;
+        this.idempotentResponseCache = idempotentResponseCache;
+        this.walletCache = walletCache;
+        this.ledgerEngine = ledgerEngine;
+        this.eventSourcedLedgerEngine = eventSourcedLedgerEngine;
+        this.journalLedgerEngine = journalLedgerEngine;
+        this.ledgerEngineTransactionService = ledgerEngineTransactionService;
+        this.dataSource = dataSource;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.creditAccumulator = creditAccumulator;
+        this.ledgerReconciler = ledgerReconciler;
+        this.transactionArchive = transactionArchive;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "wallet.lock.acquisitions", "Wallet lock acquisitions",
+                walletLockManager, WalletLockManager::getAcquisitions);
+        counter(registry, "wallet.lock.contended", "Wallet lock acquisitions that had to wait",
+                walletLockManager, WalletLockManager::getContendedAcquisitions);
+        TimeGauge.builder("wallet.lock.wait.total", walletLockManager, TimeUnit.NANOSECONDS,
+                        WalletLockManager::getTotalWaitNanos)
+                .description("Time spent waiting for wallet locks")
+                .register(registry);
+        TimeGauge.builder("wallet.lock.wait.max", walletLockManager, TimeUnit.NANOSECONDS,
+                        WalletLockManager::getMaxWaitNanos)
+                .description("Longest wait for a wallet lock")
+                .register(registry);
+
+        counter(registry, "wallet.idempotency.lookups", "Idempotency key lookups",
+                idempotencyStore, IdempotencyStore::getLookups);
+        counter(registry, "wallet.idempotency.filter.negatives", "Lookups answered by the Bloom filter",
+                idempotencyStore, IdempotencyStore::getFilterNegatives);
+        counter(registry, "wallet.idempotency.filter.false.positives", "Bloom filter hits of unknown keys",
+                idempotencyStore, IdempotencyStore::getFalsePositives);
+        counter(registry, "wallet.idempotency.database.lookups", "Lookups that queried the database",
+                idempotencyStore, IdempotencyStore::getDatabaseLookups);
+        gauge(registry, "wallet.idempotency.filter.false.positive.rate", "Observed Bloom filter false positive rate",
+                idempotencyStore, IdempotencyStore::getObservedFalsePositiveRate);
+
+        counter(registry, "wallet.replay.cache.hits", "Retries answered from the replay cache",
+                idempotentResponseCache, IdempotentResponseCache::getHits);
+        counter(registry, "wallet.replay.cache.misses", "Requests not found in the replay cache",
+                idempotentResponseCache, IdempotentResponseCache::getMisses);
+        counter(registry, "wallet.replay.cache.coalesced", "Retries that waited for the original request",
+                idempotentResponseCache, IdempotentResponseCache::getCoalesced);
+        counter(registry, "wallet.replay.cache.evictions", "Responses evicted from the replay cache",
+                idempotentResponseCache, IdempotentResponseCache::getEvictions);
+        gauge(registry, "wallet.replay.cache.size", "Responses in the replay cache",
+                idempotentResponseCache, IdempotentResponseCache::getSize);
+
+        counter(registry, "wallet.cache.hits", "Wallet reads answered from the cache",
+                walletCache, WalletCache::getHits);
+        counter(registry, "wallet.cache.misses", "Wallet reads that loaded the wallet",
+                walletCache, WalletCache::getMisses);
+        counter(registry, "wallet.cache.evictions", "Wallets evicted to stay within the cache size",
+                walletCache, WalletCache::getEvictions);
+        counter(registry, "wallet.cache.invalidations", "Wallets removed after a committed change",
+                walletCache, WalletCache::getInvalidations);
+        counter(registry, "wallet.cache.updates", "Wallets updated after a committed change",
+                walletCache, WalletCache::getUpdates);
+        counter(registry, "wallet.cache.discarded.loads", "Loads discarded because the wallet changed meanwhile",
+                walletCache, WalletCache::getDiscardedLoads);
+        gauge(registry, "wallet.cache.size", "Wallets in the cache", walletCache, WalletCache::getSize);
+        gauge(registry, "wallet.cache.hit.ratio", "Share of wallet reads answered from the cache",
+                walletCache, WalletCache::getHitRatio);
+
+        counter(registry, "wallet.accumulator.credits", "Credits accumulated instead of updating a balance row",
+                creditAccumulator, CreditAccumulator::getAccumulated);
+        counter(registry, "wallet.accumulator.folded", "Accumulated credits folded into balance rows",
+                creditAccumulator, CreditAccumulator::getFolded);
+        gauge(registry, "wallet.accumulator.pending.amount", "Amount accumulated by this node and not yet folded",
+                creditAccumulator, CreditAccumulator::getPendingAmount);
+
+        counter(registry, "wallet.reconciliation.runs", "Reconciliations started",
+                ledgerReconciler, LedgerReconciler::getRuns);
+        gauge(registry, "wallet.reconciliation.running", "1 while a reconciliation is running",
+                ledgerReconciler, reconciler -> reconciler.isRunning() ? 1 : 0);
+        gauge(registry, "wallet.reconciliation.latest.wallets", "Wallets reconciled by the running or last run",
+                ledgerReconciler, LedgerReconciler::getLatestCheckedWallets);
+        counter(registry, "wallet.reconciliation.wallets", "Wallets compared with their transactions",
+                ledgerReconciler, LedgerReconciler::getCheckedWallets);
+        counter(registry, "wallet.reconciliation.transactions", "Transactions summed by reconciliations",
+                ledgerReconciler, LedgerReconciler::getCheckedTransactions);
+        counter(registry, "wallet.reconciliation.discrepancies", "Wallets found off the sum of their transactions",
+                ledgerReconciler, LedgerReconciler::getDiscrepancies);
+
+        counter(registry, "wallet.archive.runs", "Archival runs started",
+                transactionArchive, TransactionArchive::getRuns);
+        counter(registry, "wallet.archive.archived", "Transactions moved from the table into segment files",
+                transactionArchive, TransactionArchive::getArchivedRows);
+        gauge(registry, "wallet.archive.segments", "Archived segment files",
+                transactionArchive, TransactionArchive::getSegments);
+        gauge(registry, "wallet.archive.rows", "Transactions held in archived segment files",
+                transactionArchive, TransactionArchive::getSegmentRows);
+
+        ledgerEngine.ifAvailable(engine -> gauge(registry, "wallet.engine.pending.commands",
+                "Mutations accepted by the ledger engine but not yet durable", engine, LedgerEngine::getPendingCommands));
+        eventSourcedLedgerEngine.ifAvailable(engine -> bindEventSourcing(registry, engine));
+        journalLedgerEngine.ifAvailable(engine -> bindJournal(registry, engine));
+        ledgerEngineTransactionService.ifAvailable(service -> gauge(registry, "wallet.engine.pending.requests",
+                "Requests waiting on the ledger engine", service, LedgerEngineTransactionServiceImpl::getPendingRequests));
+        dataSource.ifAvailable(source -> bindDatabasePermits(registry, source));
+        concurrencyLimiters.orderedStream().forEach(limiter -> bindConcurrencyLimiter(registry, limiter));
+    }
+
+    private static void bindEventSourcing(MeterRegistry registry, EventSourcedLedgerEngine engine) {
+        gauge(registry, "wallet.engine.projected.wallets", "Wallets with a balance projected from the ledger",
+                engine, EventSourcedLedgerEngine::getProjectedWallets);
+        gauge(registry, "wallet.engine.unsnapshotted.wallets", "Wallets changed since the last balance snapshot",
+                engine, EventSourcedLedgerEngine::getUnsnapshottedWallets);
+        counter(registry, "wallet.engine.snapshots", "Balance snapshots saved",
+                engine, EventSourcedLedgerEngine::getSnapshots);
+        counter(registry, "wallet.engine.snapshotted.wallets", "Wallet balances saved by snapshots",
+                engine, EventSourcedLedgerEngine::getSnapshottedWallets);
+    }
+
+    private static void bindJournal(MeterRegistry registry, JournalLedgerEngine engine) {
+        gauge(registry, "wallet.engine.journal.replayed.records", "Journal records replayed at startup",
+                engine, JournalLedgerEngine::getReplayedRecords);
+        counter(registry, "wallet.engine.journal.appended.records", "Journal records appended",
+                engine, JournalLedgerEngine::getAppendedRecords);
+        counter(registry, "wallet.engine.journal.fsyncs", "Fsyncs of the journal, one per batch",
+                engine, JournalLedgerEngine::getFsyncs);
+        gauge(registry, "wallet.engine.journal.segments", "Journal segment files",
+                engine, JournalLedgerEngine::getSegments);
+        gauge(registry, "wallet.engine.journal.wallets", "Wallets with balance changes in the journal",
+                engine, JournalLedgerEngine::getJournaledWallets);
+    }
+
+    private static void bindConcurrencyLimiter(MeterRegistry registry, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("wallet.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Concurrent requests admitted, adapted to their latency")
+                .tag("limiter", limiter.getName())
+                .register(registry);
+        Gauge.builder("wallet.admission.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Admitted requests not yet completed")
+                .tag("limiter", limiter.getName())
+                .register(registry);
+        FunctionCounter.builder("wallet.admission.shed", limiter, AdaptiveConcurrencyLimiter::getRejections)
+                .description("Requests shed with 429 over the limit")
+                .tag("limiter", limiter.getName())
+                .register(registry);
+    }
+
+    private static void bindDatabasePermits(MeterRegistry registry, DataSource dataSource) {
+        DatabasePermitDataSource permits;
+        try {
+            if (!dataSource.isWrapperFor(DatabasePermitDataSource.class)) {
+                return;
+            }
+            permits = dataSource.unwrap(DatabasePermitDataSource.class);
+        } catch (SQLException e) {
+            return;
+        }
+        gauge(registry, "wallet.admission.database.permits", "Database permits, one per pooled connection",
+                permits, DatabasePermitDataSource::getPermits);
+        gauge(registry, "wallet.admission.database.available", "Database permits not taken",
+                permits, DatabasePermitDataSource::getAvailablePermits);
+        gauge(registry, "wallet.admission.database.waiting", "Threads waiting for a database permit",
+                permits, DatabasePermitDataSource::getWaiting);
+        counter(registry, "wallet.admission.database.rejections", "Requests failed with 503 for want of a permit",
+                permits, DatabasePermitDataSource::getRejections);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String description,
+                                    T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name, source, count).description(description).register(registry);
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, String description,
+                                  T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value).description(description).register(registry);
+    }
+}
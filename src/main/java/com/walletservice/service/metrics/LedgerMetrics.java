@@ -0,0 +1,179 @@
+package com.walletservice.service.metrics;
+
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.exception.InvalidRequestException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.model.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Meters of ledger operations.
+ * <p>
+ * {@code wallet.ledger.operation} times every credit, debit, transfer and payout, tagged with
+ * the operation and its outcome, and publishes a percentile histogram so p99 can be computed
+ * across instances. When the operation runs in a transaction the timer stops once the
+ * transaction completed, so commit time is included and a failed commit counts as an error.
+ * {@code wallet.ledger.amount} is the distribution of applied amounts per operation, and
+ * {@code wallet.db.statements} counts the JDBC statements executed on behalf of each operation.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class LedgerMetrics {
+
+    public static final String CREDIT = "credit";
+    public static final String DEBIT = "debit";
+    public static final String TRANSFER = "transfer";
+    public static final String PAYOUT = "payout";
+    static final String OTHER = "other";
+
+    private static final ThreadLocal<String> CURRENT_OPERATION = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> amounts = new ConcurrentHashMap<>();
+    private final Map<String, Counter> statementCounters = new ConcurrentHashMap<>();
+
+    public LedgerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Runs a ledger operation, timing it by outcome and recording its amount if it succeeds.
+     * Statements executed by this thread meanwhile are counted for the operation.
+     *
+     * @param operation one of {@link #CREDIT}, {@link #DEBIT}, {@link #TRANSFER}, {@link #PAYOUT}
+     * @param action    the operation
+     * @param amountOf  amount moved according to the result of the operation
+     * @return the result of the operation
+     */
+    public <T> T record(String operation, Supplier<T> action, ToLongFunction<T> amountOf) {
+        Timer.Sample sample = Timer.start(registry);
+        String outer = CURRENT_OPERATION.get();
+        CURRENT_OPERATION.set(operation);
+        String outcome = "success";
+        T result = null;
+        try {
+            result = action.get();
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            String observed = outcome;
+            long amount = result == null ? 0 : amountOf.applyAsLong(result);
+            afterCompletion(committed -> {
+                restore(outer);
+                // an operation that returned but whose commit failed did not succeed
+                String completed = committed || !"success".equals(observed) ? observed : "error";
+                sample.stop(timers.computeIfAbsent(operation + ':' + completed, key -> timer(operation, completed)));
+                if ("success".equals(completed) && amount > 0) {
+                    amounts.computeIfAbsent(operation, this::amountSummary).record(amount);
+                }
+            });
+        }
+    }
+
+    /**
+     * @param type transaction type of a credit or debit request, as sent by the client
+     * @return the operation name, {@code invalid} for an unknown type
+     */
+    public static String operationOf(String type) {
+        if (TransactionType.CREDIT.name().equals(type)) {
+            return CREDIT;
+        }
+        return TransactionType.DEBIT.name().equals(type) ? DEBIT : "invalid";
+    }
+
+    /**
+     * Counts one JDBC statement for the operation running on the calling thread.
+     */
+    void countStatement() {
+        String operation = CURRENT_OPERATION.get();
+        statementCounters.computeIfAbsent(operation == null ? OTHER : operation, name -> Counter
+                        .builder("wallet.db.statements")
+                        .description("JDBC statements executed per ledger operation")
+                        .tag("operation", name)
+                        .register(registry))
+                .increment();
+    }
+
+    static String outcomeOf(RuntimeException e) {
+        if (e instanceof InsufficientFundsException) {
+            return "insufficient_funds";
+        }
+        if (e instanceof DuplicateIdempotencyKeyException) {
+            return "duplicate_key";
+        }
+        if (e instanceof NotFoundException) {
+            return "not_found";
+        }
+        if (e instanceof ServiceException || e instanceof InvalidRequestException) {
+            return "rejected";
+        }
+        return "error";
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("wallet.ledger.operation")
+                .description("Ledger operations by outcome, until their transaction completed")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    private DistributionSummary amountSummary(String operation) {
+        return DistributionSummary.builder("wallet.ledger.amount")
+                .description("Amounts moved by successful ledger operations")
+                .baseUnit("minor_units")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1_000_000_000.0)
+                .register(registry);
+    }
+
+    private static void restore(String outer) {
+        if (outer == null) {
+            CURRENT_OPERATION.remove();
+        } else {
+            CURRENT_OPERATION.set(outer);
+        }
+    }
+
+    /**
+     * Runs the callback with whether the surrounding transaction committed, once it completed,
+     * or at once with {@code true} outside a transaction.
+     */
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    callback.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            callback.accept(true);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.walletservice.service.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source counting the statements executed through its connections with
+ * {@link LedgerMetrics#countStatement()}, so they are attributed to the ledger operation
+ * running on the executing thread. A batch counts as one statement, since it is one round trip.
+ * <p>
+ * {@code unwrap} is answered by the underlying connections and pool, so driver specific
+ * features such as PostgreSQL {@code COPY} and the pool metrics keep working.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTIONS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final Supplier<LedgerMetrics> ledgerMetrics;
+    private volatile LedgerMetrics resolved;
+
+    /**
+     * @param target        the data source to count statements of
+     * @param ledgerMetrics resolved when the first statement executes, so the metrics can
+     *                      themselves depend on beans that need the data source
+     */
+    public StatementCountingDataSource(DataSource target, Supplier<LedgerMetrics> ledgerMetrics) {
+        super(target);
+        this.ledgerMetrics = ledgerMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection counting(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (STATEMENT_FACTORIES.contains(method.getName()) && result instanceof Statement statement) {
+                return countingStatement(method.getReturnType(), statement);
+            }
+            return result;
+        });
+    }
+
+    private Object countingStatement(Class<?> type, Statement statement) {
+        Class<?> statementType = type == CallableStatement.class || type == PreparedStatement.class
+                ? type : Statement.class;
+        return proxy(statementType, (proxy, method, args) -> {
+            if (EXECUTIONS.contains(method.getName())) {
+                metrics().countStatement();
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private LedgerMetrics metrics() {
+        LedgerMetrics metrics = resolved;
+        if (metrics == null) {
+            metrics = ledgerMetrics.get();
+            resolved = metrics;
+        }
+        return metrics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.walletservice.service.reconciliation;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.config.ReconciliationProperties;
+import com.walletservice.dto.ReconciliationReport;
+import com.walletservice.dto.WalletDiscrepancy;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.repository.ReconciliationRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Proves that every wallet's balance equals the signed sum of its transactions, CREDIT and
+ * TRANSFER_IN counting as plus, DEBIT and TRANSFER_OUT as minus.
+ * <p>
+ * A run walks the wallet ids in order, cutting them into chunks of
+ * {@code wallet.reconciliation.chunk-size} wallets, and reconciles up to
+ * {@code wallet.reconciliation.parallelism} chunks at once on a fork-join pool. Each chunk is one
+ * streamed statement, so a run holds a bounded number of chunks in flight and a bounded list of
+ * discrepancies, whatever the size of the ledger, and takes no locks live traffic would wait on.
+ * Wallets created after a run started are left to the next one.
+ * <p>
+ * Runs are started on demand or every {@code wallet.reconciliation.interval}, one at a time.
+ * The balance of a wallet includes its slots and pending credits; the event-sourced and journal
+ * engine modes do not maintain the wallet rows, so reconciliation is refused in those modes.
+ *
+ * @author Chibuike Okeke
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class LedgerReconciler {
+
+    private final ReconciliationRepository reconciliationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String mode;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int maxReportedDiscrepancies;
+
+    private final ForkJoinPool pool;
+    private final AtomicReference<Run> running = new AtomicReference<>();
+    private volatile Run latest;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder checkedWallets = new LongAdder();
+    private final LongAdder checkedTransactions = new LongAdder();
+    private final LongAdder discrepancies = new LongAdder();
+    private final Thread scheduler;
+
+    public LedgerReconciler(ReconciliationProperties properties,
+                            LedgerEngineProperties ledgerEngineProperties,
+                            ReconciliationRepository reconciliationRepository,
+                            TransactionTemplate transactionTemplate) {
+        this.reconciliationRepository = reconciliationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.mode = ledgerEngineProperties.getMode();
+        this.parallelism = Math.max(1, properties.getParallelism());
+        this.chunkSize = Math.max(1, properties.getChunkSize());
+        this.maxReportedDiscrepancies = Math.max(0, properties.getMaxReportedDiscrepancies());
+        this.pool = new ForkJoinPool(parallelism);
+
+        Duration interval = properties.getInterval();
+        if (interval.isZero() || !isSupported()) {
+            this.scheduler = null;
+        } else {
+            this.scheduler = new Thread(() -> schedule(interval), "ledger-reconciliation-scheduler");
+            scheduler.setDaemon(true);
+            scheduler.start();
+        }
+    }
+
+    /**
+     * Starts a run in the background.
+     *
+     * @return the report of the run, as it starts
+     * @throws ServiceException if a run is already going on, or wallet rows are not maintained
+     */
+    public ReconciliationReport start() {
+        Run run = claim();
+        Thread thread = new Thread(() -> execute(run), "ledger-reconciliation");
+        thread.setDaemon(true);
+        thread.start();
+        return run.report();
+    }
+
+    /**
+     * Runs a reconciliation in the calling thread.
+     *
+     * @return the report of the finished run
+     * @throws ServiceException if a run is already going on, or wallet rows are not maintained
+     */
+    public ReconciliationReport reconcile() {
+        Run run = claim();
+        execute(run);
+        return run.report();
+    }
+
+    /**
+     * @return the report of the running or last run, empty if none ran since startup
+     */
+    public Optional<ReconciliationReport> getLatest() {
+        Run run = latest;
+        return run == null ? Optional.empty() : Optional.of(run.report());
+    }
+
+    private Run claim() {
+        if (!isSupported()) {
+            throw new ServiceException("Reconciliation is not supported in " + mode + " engine mode!");
+        }
+        Run run = new Run();
+        if (!running.compareAndSet(null, run)) {
+            throw new ServiceException("A reconciliation is already running!");
+        }
+        latest = run;
+        runs.increment();
+        return run;
+    }
+
+    private boolean isSupported() {
+        return !"event-sourced".equals(mode) && !"journal".equals(mode);
+    }
+
+    private void schedule(Duration interval) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(interval.toNanos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                reconcile();
+            } catch (ServiceException e) {
+                log.info("Scheduled reconciliation skipped: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void execute(Run run) {
+        long started = System.nanoTime();
+        // bounds the chunks waiting on the pool, so a run's memory does not grow with the ledger
+        Semaphore inFlight = new Semaphore(2 * parallelism);
+        try {
+            UUID last = transactionTemplate.execute(status -> reconciliationRepository.findLastWalletId().orElse(null));
+            UUID after = null;
+            while (last != null && run.failure.get() == null) {
+                UUID from = after;
+                UUID upTo = transactionTemplate.execute(status ->
+                        reconciliationRepository.findChunkEnd(from, last, chunkSize).orElse(last));
+                inFlight.acquire();
+                pool.execute(() -> {
+                    try {
+                        reconcileChunk(run, from, upTo);
+                    } catch (RuntimeException e) {
+                        run.failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+                if (last.equals(upTo)) {
+                    break;
+                }
+                after = upTo;
+            }
+            inFlight.acquire(2 * parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.failure.compareAndSet(null, e);
+        } catch (RuntimeException e) {
+            run.failure.compareAndSet(null, e);
+        }
+        run.finish();
+        running.set(null);
+
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        Exception failure = run.failure.get();
+        if (failure != null) {
+            log.error("Reconciliation failed after {} wallets and {} transactions",
+                    run.wallets.sum(), run.transactions.sum(), failure);
+        } else if (run.discrepancyCount.sum() > 0) {
+            log.warn("Reconciliation found {} discrepancies in {} wallets and {} transactions in {} ms, first: {}",
+                    run.discrepancyCount.sum(), run.wallets.sum(), run.transactions.sum(), millis, run.found.peek());
+        } else {
+            log.info("Reconciled {} wallets and {} transactions in {} ms ({} transactions/s)",
+                    run.wallets.sum(), run.transactions.sum(), millis, run.transactions.sum() * 1000 / millis);
+        }
+    }
+
+    private void reconcileChunk(Run run, UUID after, UUID upTo) {
+        transactionTemplate.executeWithoutResult(status -> reconciliationRepository.forEachWallet(after, upTo,
+                (walletId, balance, ledgerBalance, transactions) -> {
+                    run.wallets.increment();
+                    run.transactions.add(transactions);
+                    checkedWallets.increment();
+                    checkedTransactions.add(transactions);
+                    if (balance != ledgerBalance) {
+                        discrepancies.increment();
+                        run.discrepancy(new WalletDiscrepancy(walletId, balance, ledgerBalance));
+                    }
+                }));
+        run.chunks.increment();
+    }
+
+    /**
+     * @return runs started since startup
+     */
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    /**
+     * @return whether a run is going on
+     */
+    public boolean isRunning() {
+        return running.get() != null;
+    }
+
+    /**
+     * @return wallets reconciled since startup
+     */
+    public long getCheckedWallets() {
+        return checkedWallets.sum();
+    }
+
+    /**
+     * @return transactions summed since startup
+     */
+    public long getCheckedTransactions() {
+        return checkedTransactions.sum();
+    }
+
+    /**
+     * @return discrepancies found since startup
+     */
+    public long getDiscrepancies() {
+        return discrepancies.sum();
+    }
+
+    /**
+     * @return wallets reconciled by the running or last run
+     */
+    public long getLatestCheckedWallets() {
+        Run run = latest;
+        return run == null ? 0 : run.wallets.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.interrupt();
+            scheduler.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        pool.shutdownNow();
+    }
+
+    /**
+     * Progress and findings of one run, updated by its chunks concurrently.
+     */
+    private final class Run {
+        final Instant startedAt = Instant.now();
+        final LongAdder wallets = new LongAdder();
+        final LongAdder transactions = new LongAdder();
+        final LongAdder chunks = new LongAdder();
+        final LongAdder discrepancyCount = new LongAdder();
+        final Queue<WalletDiscrepancy> found = new ConcurrentLinkedQueue<>();
+        final AtomicInteger reported = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        volatile Instant finishedAt;
+
+        void discrepancy(WalletDiscrepancy discrepancy) {
+            discrepancyCount.increment();
+            if (reported.incrementAndGet() <= maxReportedDiscrepancies) {
+                found.add(discrepancy);
+            }
+        }
+
+        void finish() {
+            finishedAt = Instant.now();
+        }
+
+        ReconciliationReport report() {
+            Exception error = failure.get();
+            String status = finishedAt == null ? "RUNNING" : error == null ? "COMPLETED" : "FAILED";
+            return ReconciliationReport.builder()
+                    .status(status)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .checkedWallets(wallets.sum())
+                    .checkedTransactions(transactions.sum())
+                    .checkedChunks(chunks.sum())
+                    .discrepancyCount(discrepancyCount.sum())
+                    .discrepancies(List.copyOf(found))
+                    .error(error == null ? null : String.valueOf(error.getMessage()))
+                    .build();
+        }
+    }
+}
@@ -1,24 +1,40 @@
 package com.walletservice.controller;
 
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.walletservice.dto.BatchTransactionRequest;
+import com.walletservice.dto.BatchTransactionResponse;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.PayoutItem;
+import com.walletservice.dto.PayoutRequest;
+import com.walletservice.dto.PayoutResponse;
 import com.walletservice.dto.TransactionDto;
 import com.walletservice.dto.TransactionRequest;
 import com.walletservice.dto.TransactionResponse;
 import com.walletservice.dto.TransferRequest;
 import com.walletservice.dto.TransferResponse;
+import com.walletservice.exception.BatchRejectedException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.ServiceUnavailableException;
 import com.walletservice.integration.AbstractionControllerBaseTest;
 import com.walletservice.model.Transaction;
 import com.walletservice.model.TransactionType;
 import com.walletservice.service.TransactionService;
-import java.util.ArrayList;
+import com.walletservice.service.mapper.TransactionMapper;
 import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.CannotCreateTransactionException;
 
 class TransactionControllerTest extends AbstractionControllerBaseTest {
 
@@ -29,12 +45,14 @@ class TransactionControllerTest extends AbstractionControllerBaseTest {
     private final UUID transactionId = UUID.randomUUID();
     private final UUID senderWalletId = UUID.randomUUID();
     private final UUID receiverWalletId = UUID.randomUUID();
-    private final String idempotencyKey = "IDKEY-09876567";
+    // one context serves every test, so each test gets a fresh key instead of a replayed response
+    private String idempotencyKey;
 
     private TransactionResponse.TransactionResponseBuilder walletTransactionBuilder = TransactionResponse.builder();
 
     @BeforeEach
     void setUp() {
+        idempotencyKey = "IDKEY-" + UUID.randomUUID();
         walletTransactionBuilder =  TransactionResponse.builder()
                 .transactionId(transactionId)
                 .walletId(senderWalletId)
@@ -87,6 +105,30 @@ class TransactionControllerTest extends AbstractionControllerBaseTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    @DisplayName("POST - " + BASE_URL + " - Retried Transaction Replays Original Response")
+    void testRetriedTransaction_thenReplayOriginalResponse() throws Exception {
+
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(senderWalletId)
+                .amount(100)
+                .type(TransactionType.CREDIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        // Act
+        when(transactionService.createOrDebit(request))
+                .thenReturn(walletTransactionBuilder.build());
+
+        // Assert
+        performPost(BASE_URL, request)
+                .andExpect(status().isCreated());
+        performPost(BASE_URL, request)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.transactionId").value(transactionId.toString()));
+        verify(transactionService, times(1)).createOrDebit(request);
+    }
+
     @Test
     @DisplayName("POST - " + BASE_URL + "/transfer - Create transfer Transaction")
     void testCreateTransferTransaction_thenReturnSuccess() throws Exception {
@@ -115,6 +157,90 @@ class TransactionControllerTest extends AbstractionControllerBaseTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    @DisplayName("POST - " + BASE_URL + "/payout - Create Payout Transaction")
+    void testCreatePayoutTransaction_thenReturnSuccess() throws Exception {
+
+        PayoutRequest request = PayoutRequest.builder()
+                .senderWalletId(senderWalletId)
+                .receivers(List.of(PayoutItem.builder().receiverWalletId(receiverWalletId).amount(20).build()))
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        PayoutResponse response = PayoutResponse.builder()
+                .transactionId(transactionId)
+                .senderWalletId(senderWalletId)
+                .totalAmount(20)
+                .receivers(1)
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        // Act
+        when(transactionService.payout(request))
+                .thenReturn(response);
+
+        // Assert
+        performPost(BASE_URL + "/payout", request)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.totalAmount").value(20));
+    }
+
+    @Test
+    @DisplayName("POST - " + BASE_URL + "/batch - Report Result Of Every Item")
+    void testCreateBatch_thenReturnResultPerItem() throws Exception {
+
+        // Arrange
+        BatchTransactionRequest request = BatchTransactionRequest.builder()
+                .items(List.of(
+                        TransactionRequest.builder().walletId(senderWalletId).amount(100)
+                                .type(TransactionType.CREDIT.name()).idempotencyKey(idempotencyKey + "-1").build(),
+                        TransactionRequest.builder().walletId(receiverWalletId).amount(100)
+                                .type(TransactionType.DEBIT.name()).idempotencyKey(idempotencyKey + "-2").build()))
+                .build();
+        BatchTransactionResponse response = BatchTransactionResponse.of(List.of(
+                TransactionMapper.mapToBatchItemResult(0, walletTransactionBuilder.build()),
+                TransactionMapper.mapToBatchItemResult(1,
+                        new ServiceException("Transaction failed with insufficient fund!"))));
+
+        // Act
+        when(transactionService.createBatch(request))
+                .thenReturn(response);
+
+        // Assert
+        performPost(BASE_URL + "/batch", request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.items[0].status").value(201))
+                .andExpect(jsonPath("$.items[0].transaction.transactionId").value(transactionId.toString()))
+                .andExpect(jsonPath("$.items[1].status").value(409))
+                .andExpect(jsonPath("$.items[1].error").value("Transaction failed with insufficient fund!"));
+    }
+
+    @Test
+    @DisplayName("POST - " + BASE_URL + "/batch - Rejected All-Or-Nothing Batch Returns Conflict")
+    void testCreateRejectedAllOrNothingBatch_thenReturnConflict() throws Exception {
+
+        // Arrange
+        BatchTransactionRequest request = BatchTransactionRequest.builder()
+                .items(List.of(TransactionRequest.builder().walletId(senderWalletId).amount(100)
+                        .type(TransactionType.DEBIT.name()).idempotencyKey(idempotencyKey).build()))
+                .allOrNothing(true)
+                .build();
+        BatchTransactionResponse response = BatchTransactionResponse.of(List.of(
+                TransactionMapper.mapToBatchItemResult(0,
+                        new NotFoundException("Wallet not found with id: " + senderWalletId))));
+
+        // Act
+        when(transactionService.createBatch(request))
+                .thenThrow(new BatchRejectedException(response, 1));
+
+        // Assert
+        performPost(BASE_URL + "/batch", request)
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].status").value(404));
+    }
+
     @Test
     @DisplayName("GET - " + BASE_URL + " - Get All Transactions")
     void getAllTransactions_thenReturnSuccess() throws Exception {
@@ -128,16 +254,59 @@ class TransactionControllerTest extends AbstractionControllerBaseTest {
                 .idempotencyKey(idempotencyKey)
                 .build();
 
-        List<Transaction> transactions = new ArrayList<>();
-        transactions.add(transaction);
-        List<TransactionDto> dbTransactions = transactionService.findAll();
+        CursorPage<TransactionDto> page = CursorPage.<TransactionDto>builder()
+                .items(List.of(TransactionMapper.mapToTransactionDto(transaction)))
+                .build();
 
         // Act
-        when(transactionService.findAll())
-                .thenReturn(dbTransactions);
+        when(transactionService.findPage(null, 100))
+                .thenReturn(page);
 
         // Assert
         performGet(BASE_URL)
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(transactionId.toString()));
+    }
+
+    @Test
+    @DisplayName("POST - " + BASE_URL + " - Missing Idempotency Key Returns Bad Request")
+    void testCreateTransactionWithoutIdempotencyKey_thenReturnBadRequest() throws Exception {
+
+        // Arrange
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(senderWalletId)
+                .amount(100)
+                .type(TransactionType.CREDIT.name())
+                .build();
+
+        // Assert
+        performPost(BASE_URL, request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Idempotency key is required"));
+        verify(transactionService, times(0)).createOrDebit(request);
+    }
+
+    @Test
+    @DisplayName("POST - " + BASE_URL + " - No Database Permit Returns Service Unavailable")
+    void testCreateTransactionWithoutDatabasePermit_thenReturnServiceUnavailable() throws Exception {
+
+        // Arrange
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(senderWalletId)
+                .amount(100)
+                .type(TransactionType.CREDIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        // Act
+        when(transactionService.createOrDebit(request))
+                .thenThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                        new ServiceUnavailableException("Database is busy, please retry!")));
+
+        // Assert
+        performPost(BASE_URL, request)
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.message").value("Database is busy, please retry!"));
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,18 @@ package com.walletservice.controller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.walletservice.dto.BulkWalletRequest;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.TransactionDto;
 import com.walletservice.dto.WalletDto;
+import com.walletservice.exception.InvalidCursorException;
 import com.walletservice.integration.AbstractionControllerBaseTest;
+import com.walletservice.service.TransactionService;
 import com.walletservice.service.WalletService;
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,6 +28,9 @@ class WalletControllerTest extends AbstractionControllerBaseTest {
     @MockitoBean
     private WalletService walletService;
 
+    @MockitoBean
+    private TransactionService transactionService;
+
 
     private final UUID walletId = UUID.randomUUID();
     private WalletDto walletDto;
@@ -48,6 +57,19 @@ class WalletControllerTest extends AbstractionControllerBaseTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    @DisplayName("POST" + BASE_URL + "/bulk - Reject Count Out Of Range")
+    void testCreateTooManyWallets_thenReturnBadRequest() throws Exception {
+
+        BulkWalletRequest request = BulkWalletRequest.builder()
+                .count(BulkWalletRequest.MAX_COUNT + 1)
+                .build();
+
+        // Assert
+        performPost(BASE_URL + "/bulk", request)
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("GET" + BASE_URL + " - Get Wallet")
     void testGetWallet_thenReturnSuccess() throws Exception {
@@ -66,15 +88,69 @@ class WalletControllerTest extends AbstractionControllerBaseTest {
     void testGetWallets_thenReturnSuccess() throws Exception {
 
         // Arrange
-        List<WalletDto> createdWallets = new ArrayList<>();
-        createdWallets.add(walletDto);
+        CursorPage<WalletDto> page = CursorPage.<WalletDto>builder()
+                .items(List.of(walletDto))
+                .build();
 
         // Act
-        when(walletService.findAll())
-                .thenReturn(createdWallets);
+        when(walletService.findPage(null, 100))
+                .thenReturn(page);
 
         // Assert
         performGet(BASE_URL)
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(walletId.toString()));
+    }
+
+    @Test
+    @DisplayName("GET" + BASE_URL + "/{id}/transactions - Get Wallet Transactions")
+    void testGetWalletTransactions_thenReturnSuccess() throws Exception {
+
+        // Arrange
+        TransactionDto transaction = TransactionDto.builder()
+                .id(UUID.randomUUID())
+                .walletId(walletId)
+                .amount(50)
+                .type("CREDIT")
+                .createdAt(Instant.now())
+                .build();
+        CursorPage<TransactionDto> page = CursorPage.<TransactionDto>builder()
+                .items(List.of(transaction))
+                .build();
+
+        // Act
+        when(transactionService.findByWallet(walletId, null, 100))
+                .thenReturn(page);
+
+        // Assert
+        performGet(BASE_URL + "/" + walletId + "/transactions")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].walletId").value(walletId.toString()));
+    }
+
+    @Test
+    @DisplayName("GET" + BASE_URL + "/{id}/transactions - Malformed Cursor")
+    void testGetWalletTransactions_whenCursorMalformed_thenReturnBadRequest() throws Exception {
+
+        // Act
+        when(transactionService.findByWallet(walletId, "bad", 100))
+                .thenThrow(new InvalidCursorException("Invalid cursor: bad"));
+
+        // Assert
+        performGet(BASE_URL + "/" + walletId + "/transactions?cursor=bad")
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET" + BASE_URL + "/{id}/transactions - Internal Argument Error Is Not A Bad Request")
+    void testGetWalletTransactions_whenInternalArgumentError_thenReturnServerError() throws Exception {
+
+        // Act
+        when(transactionService.findByWallet(walletId, null, 100))
+                .thenThrow(new IllegalArgumentException("Segment size must be positive"));
+
+        // Assert
+        performGet(BASE_URL + "/" + walletId + "/transactions")
+                .andExpect(status().isInternalServerError());
     }
 }
@@ -0,0 +1,25 @@
+package com.walletservice.model.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IdsTest {
+
+    @Test
+    @DisplayName("Ids are ordered by their unsigned bytes, like the database orders them")
+    void testOrder_thenUnsignedBytes() {
+        UUID low = UUID.fromString("7fffffff-ffff-4fff-bfff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-4000-8000-000000000000");
+        UUID highLow = UUID.fromString("80000000-0000-4000-0000-000000000001");
+
+        assertTrue(high.compareTo(low) < 0);
+        assertTrue(Ids.ORDER.compare(low, high) < 0);
+        assertTrue(Ids.ORDER.compare(highLow, high) < 0);
+        assertTrue(highLow.compareTo(high) > 0);
+        assertEquals(0, Ids.ORDER.compare(high, UUID.fromString(high.toString())));
+    }
+}
@@ -0,0 +1,71 @@
+package com.walletservice.model.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UuidV7GeneratorTest {
+
+    private final UuidV7Generator generator = new UuidV7Generator();
+
+    @Test
+    @DisplayName("Ids carry version 7, the RFC variant and the current time")
+    void testNextId_thenVersion7WithTimestamp() {
+        long before = System.currentTimeMillis();
+
+        UUID id = generator.nextId();
+
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertTrue(millis >= before && millis <= System.currentTimeMillis());
+    }
+
+    @Test
+    @DisplayName("Ids of one thread are strictly increasing")
+    void testNextIds_thenStrictlyIncreasing() {
+        UUID previous = generator.nextId();
+        for (int i = 0; i < 200_000; i++) {
+            UUID next = generator.nextId();
+            assertTrue(previous.compareTo(next) < 0, previous + " !< " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("Ids of concurrent threads are unique")
+    void testConcurrentThreads_thenUniqueIds() throws Exception {
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        Callable<Void> task = () -> {
+            for (int i = 0; i < 50_000; i++) {
+                ids.add(generator.nextId());
+            }
+            return null;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(400_000, ids.size());
+    }
+}
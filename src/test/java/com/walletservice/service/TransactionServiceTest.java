@@ -2,35 +2,72 @@ package com.walletservice.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.dto.BatchTransactionRequest;
+import com.walletservice.dto.BatchTransactionResponse;
+import com.walletservice.dto.CursorPage;
+import com.walletservice.dto.PayoutItem;
+import com.walletservice.dto.PayoutRequest;
+import com.walletservice.dto.PayoutResponse;
 import com.walletservice.dto.TransactionDto;
 import com.walletservice.dto.TransactionRequest;
 import com.walletservice.dto.TransactionResponse;
 import com.walletservice.dto.TransferRequest;
 import com.walletservice.dto.TransferResponse;
+import com.walletservice.exception.BatchRejectedException;
+import com.walletservice.exception.InvalidCursorException;
+import com.walletservice.exception.InvalidRequestException;
 import com.walletservice.exception.NotFoundException;
 import com.walletservice.exception.ServiceException;
 import com.walletservice.model.Transaction;
 import com.walletservice.model.TransactionType;
 import com.walletservice.model.Wallet;
+import com.walletservice.repository.LedgerBatchRepository;
 import com.walletservice.repository.TransactionRepository;
 import com.walletservice.repository.WalletRepository;
+import com.walletservice.repository.WalletSlotRepository;
+import com.walletservice.service.accumulator.CreditAccumulator;
+import com.walletservice.service.archive.TransactionArchive;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.idempotency.IdempotencyStore;
 import com.walletservice.service.impl.TransactionServiceImpl;
+import com.walletservice.service.lock.WalletLockManager;
+import com.walletservice.service.metrics.LedgerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 @ExtendWith(MockitoExtension.class)
 class TransactionServiceTest {
@@ -41,12 +78,43 @@ class TransactionServiceTest {
     @Mock
     private WalletRepository walletRepository;
 
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private LedgerBatchRepository ledgerBatchRepository;
+
+    @Mock
+    private WalletSlotRepository walletSlotRepository;
+
+    @Mock
+    private CreditAccumulator creditAccumulator;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Spy
+    private WalletLockManager walletLockManager = new WalletLockManager(16);
+
+    @Spy
+    private WalletCache walletCache = new WalletCache(16);
+
+    @Spy
+    private LedgerEngineProperties ledgerEngineProperties = new LedgerEngineProperties();
+
+    @Spy
+    private LedgerMetrics ledgerMetrics = new LedgerMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
     private UUID transactionID = UUID.randomUUID();
-    private UUID senderWalletId = UUID.randomUUID();
-    private UUID receiverWalletId = UUID.randomUUID();
+    // sender sorts first, so its leg of a transfer is applied first
+    private UUID senderWalletId = new UUID(1, 1);
+    private UUID receiverWalletId = new UUID(2, 2);
 
     private Transaction.TransactionBuilder transactionBuilder = Transaction.builder();
     private Wallet senderWallet;
@@ -59,6 +127,14 @@ class TransactionServiceTest {
         senderWallet = new Wallet(senderWalletId, 50);
         receiverWallet = new Wallet(receiverWalletId, 70);
 
+        // reads against the archive run as if no segment was registered meanwhile
+        lenient().when(transactionArchive.read(any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionArchive).readLocked(any());
+
         transactionBuilder
                 .id(transactionID)
                 .walletId(senderWalletId)
@@ -66,6 +142,24 @@ class TransactionServiceTest {
                 .idempotencyKey(idempotencyKey);
     }
 
+    @Test
+    @DisplayName("Credit Without Idempotency Key Throws Exception")
+    void testCreditWallet_whenKeyMissing_thenThrowException() {
+
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(senderWalletId)
+                .amount(50)
+                .type(TransactionType.CREDIT.name())
+                .build();
+
+        InvalidRequestException thrown = assertThrows(InvalidRequestException.class,
+                () -> transactionService.createOrDebit(request));
+
+        // Assert
+        assertEquals("Idempotency key is required", thrown.getMessage());
+        verify(idempotencyStore, never()).exists(any());
+    }
+
     @Test
     @DisplayName("Test Credit Wallet transaction")
     void testCreditWallet_thenReturnSuccess() {
@@ -86,9 +180,9 @@ class TransactionServiceTest {
                 .build();
 
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
-        when(walletRepository.findById(senderWalletId)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.creditBalance(senderWalletId, 50)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class)))
                 .thenReturn(transaction);
 
@@ -119,9 +213,9 @@ class TransactionServiceTest {
                 .build();
 
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
-        when(walletRepository.findById(senderWalletId)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.debitBalance(senderWalletId, 50)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class)))
                 .thenReturn(transaction);
 
@@ -144,9 +238,10 @@ class TransactionServiceTest {
                 .build();
 
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
-        when(walletRepository.findById(senderWalletId)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.debitBalance(senderWalletId, 70)).thenReturn(0);
+        when(walletRepository.existsById(senderWalletId)).thenReturn(true);
 
         ServiceException thrown = assertThrows(
                 ServiceException.class,
@@ -168,12 +263,9 @@ class TransactionServiceTest {
                 .idempotencyKey(idempotencyKey)
                 .build();
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
 
-        when(walletRepository.findById(senderWalletId))
-                .thenReturn(Optional.of(senderWallet));
-
         ServiceException thrown = assertThrows(
                 ServiceException.class,
                 () -> transactionService.createOrDebit(request)
@@ -195,7 +287,7 @@ class TransactionServiceTest {
                 .build();
 
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.TRUE);
 
         ServiceException thrown = assertThrows(
@@ -237,11 +329,11 @@ class TransactionServiceTest {
 
         // Act
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
 
-        when(walletRepository.findById(any(UUID.class)))
-                .thenReturn(Optional.of(senderWallet), Optional.of(receiverWallet));
+        when(walletRepository.debitBalance(senderWalletId, 50)).thenReturn(1);
+        when(walletRepository.creditBalance(receiverWalletId, 50)).thenReturn(1);
 
         when(transactionRepository.save(any(Transaction.class)))
                 .thenReturn(transactionFrom, transactionTo);
@@ -251,6 +343,7 @@ class TransactionServiceTest {
         // Assert
         assertNotNull(response);
         assertEquals(response.getTransactionId(), transactionFrom.getId());
+        verify(walletCache).evictAfterCommit(List.of(senderWalletId, receiverWalletId));
     }
 
     @Test
@@ -267,10 +360,11 @@ class TransactionServiceTest {
 
         // Act
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
 
-        when(walletRepository.findById(senderWalletId)).thenReturn(Optional.empty());
+        when(walletRepository.debitBalance(senderWalletId, 50)).thenReturn(0);
+        when(walletRepository.existsById(senderWalletId)).thenReturn(false);
 
         NotFoundException thrown = assertThrows(
                 NotFoundException.class,
@@ -295,11 +389,11 @@ class TransactionServiceTest {
 
         // Act
 
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
 
-        when(walletRepository.findById(senderWalletId))
-                .thenReturn(Optional.of(senderWallet), Optional.empty());
+        when(walletRepository.debitBalance(senderWalletId, 50)).thenReturn(1);
+        when(walletRepository.creditBalance(receiverWalletId, 50)).thenReturn(0);
 
         NotFoundException thrown = assertThrows(
                 NotFoundException.class,
@@ -323,7 +417,7 @@ class TransactionServiceTest {
                 .build();
 
         // Act
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.TRUE);
 
         ServiceException thrown = assertThrows(
@@ -348,11 +442,11 @@ class TransactionServiceTest {
                 .build();
 
         // Act
-        when(transactionRepository.existsByIdempotencyKey(any(String.class)))
+        when(idempotencyStore.exists(any(String.class)))
                 .thenReturn(Boolean.FALSE);
 
-        when(walletRepository.findById(any(UUID.class)))
-                .thenReturn(Optional.of(senderWallet), Optional.of(receiverWallet));
+        when(walletRepository.debitBalance(senderWalletId, 70)).thenReturn(0);
+        when(walletRepository.existsById(senderWalletId)).thenReturn(true);
 
         ServiceException thrown = assertThrows(
                 ServiceException.class,
@@ -364,26 +458,566 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("Get All Transactions")
-    void testGetAllTransactions() {
+    @DisplayName("Transfer to a lower wallet id credits the receiver first")
+    void testTransferToLowerWalletId_thenCreditReceiverFirst() {
 
-        Transaction transaction = Transaction.builder()
-                .id(transactionID)
+        // Arrange
+        TransferRequest request = TransferRequest.builder()
+                .senderWalletId(receiverWalletId)
+                .receiverWalletId(senderWalletId)
+                .amount(50)
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.creditBalance(senderWalletId, 50)).thenReturn(1);
+        when(walletRepository.debitBalance(receiverWalletId, 50)).thenReturn(1);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(transactionBuilder.type(TransactionType.TRANSFER_OUT).build());
+
+        // Act
+        transactionService.transfer(request);
+
+        // Assert
+        InOrder statements = inOrder(walletRepository);
+        statements.verify(walletRepository).creditBalance(senderWalletId, 50);
+        statements.verify(walletRepository).debitBalance(receiverWalletId, 50);
+    }
+
+    @Test
+    @DisplayName("Credit to a wallet split into slots lands on a slot")
+    void testCreditSlottedWallet_thenCreditSlot() {
+
+        // Arrange
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(receiverWalletId)
+                .amount(50)
+                .type(TransactionType.CREDIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.creditBalance(receiverWalletId, 50)).thenReturn(0);
+        when(walletSlotRepository.creditSlot(receiverWalletId, 50)).thenReturn(1);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(transactionBuilder.walletId(receiverWalletId).type(TransactionType.CREDIT).build());
+
+        // Act
+        TransactionResponse response = transactionService.createOrDebit(request);
+
+        // Assert
+        assertNotNull(response);
+        verify(walletRepository, never()).existsById(receiverWalletId);
+    }
+
+    @Test
+    @DisplayName("Debit falling short of the wallet row drains its slots and retries")
+    void testDebitShortOfWalletRow_thenDrainSlotsAndRetry() {
+
+        // Arrange
+        TransactionRequest request = TransactionRequest.builder()
                 .walletId(senderWalletId)
+                .amount(70)
+                .type(TransactionType.DEBIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.debitBalance(senderWalletId, 70)).thenReturn(0, 1);
+        when(walletSlotRepository.drainSlots(senderWalletId)).thenReturn(40L);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(transactionBuilder.amount(70).type(TransactionType.DEBIT).build());
+
+        // Act
+        transactionService.createOrDebit(request);
+
+        // Assert
+        InOrder statements = inOrder(walletRepository, walletSlotRepository);
+        statements.verify(walletRepository).debitBalance(senderWalletId, 70);
+        statements.verify(walletSlotRepository).drainSlots(senderWalletId);
+        statements.verify(walletRepository).debitBalance(senderWalletId, 70);
+        verify(walletRepository, never()).existsById(senderWalletId);
+    }
+
+    @Test
+    @DisplayName("Credit to a wallet accumulating credits is recorded as pending")
+    void testCreditAccumulatingWallet_thenAccumulate() {
+
+        // Arrange
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(receiverWalletId)
                 .amount(50)
-                .type(TransactionType.CREDIT)
+                .type(TransactionType.CREDIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.creditBalance(receiverWalletId, 50)).thenReturn(0);
+        when(creditAccumulator.accumulate(receiverWalletId, 50)).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(transactionBuilder.walletId(receiverWalletId).type(TransactionType.CREDIT).build());
+
+        // Act
+        transactionService.createOrDebit(request);
+
+        // Assert
+        verify(walletSlotRepository, never()).creditSlot(receiverWalletId, 50);
+        verify(walletRepository, never()).existsById(receiverWalletId);
+    }
+
+    @Test
+    @DisplayName("Debit falling short of the wallet row folds its pending credits and retries")
+    void testDebitShortOfWalletRow_thenFoldPendingCreditsAndRetry() {
+
+        // Arrange
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(senderWalletId)
+                .amount(70)
+                .type(TransactionType.DEBIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.debitBalance(senderWalletId, 70)).thenReturn(0, 1);
+        when(creditAccumulator.fold(senderWalletId)).thenReturn(40L);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(transactionBuilder.amount(70).type(TransactionType.DEBIT).build());
+
+        // Act
+        transactionService.createOrDebit(request);
+
+        // Assert
+        InOrder statements = inOrder(walletRepository, creditAccumulator);
+        statements.verify(walletRepository).debitBalance(senderWalletId, 70);
+        statements.verify(creditAccumulator).fold(senderWalletId);
+        statements.verify(walletRepository).debitBalance(senderWalletId, 70);
+    }
+
+    @Test
+    @DisplayName("Entity path debits the loaded wallet and caches its balance")
+    void testDebitWithEntityPath_thenCacheBalance() {
+
+        // Arrange
+        ledgerEngineProperties.setGuardedUpdates(false);
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(senderWalletId)
+                .amount(20)
+                .type(TransactionType.DEBIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.findById(senderWalletId)).thenReturn(Optional.of(senderWallet));
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(transactionBuilder.type(TransactionType.DEBIT).amount(20).build());
+
+        // Act
+        transactionService.createOrDebit(request);
+
+        // Assert
+        assertEquals(30, senderWallet.getBalance());
+        verify(walletCache).putAfterCommit(senderWalletId, 30);
+        verify(walletRepository, never()).debitBalance(any(UUID.class), anyInt());
+    }
+
+    @Test
+    @DisplayName("Entity path rejects a missing wallet as not found")
+    void testDebitWithEntityPath_whenWalletMissing_thenThrowException() {
+
+        // Arrange
+        ledgerEngineProperties.setGuardedUpdates(false);
+        TransactionRequest request = TransactionRequest.builder()
+                .walletId(senderWalletId)
+                .amount(20)
+                .type(TransactionType.DEBIT.name())
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.findById(senderWalletId)).thenReturn(Optional.empty());
+
+        // Act
+        NotFoundException thrown = assertThrows(
+                NotFoundException.class,
+                () -> transactionService.createOrDebit(request)
+        );
+
+        // Assert
+        assertEquals("Wallet not found with id: " + senderWalletId, thrown.getMessage());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    @DisplayName("Entity path rejects a transfer above the sender balance")
+    void testTransferWithEntityPathAboveBalance_thenThrowException() {
+
+        // Arrange
+        ledgerEngineProperties.setGuardedUpdates(false);
+        TransferRequest request = TransferRequest.builder()
+                .senderWalletId(senderWalletId)
+                .receiverWalletId(receiverWalletId)
+                .amount(70)
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(any(String.class)))
+                .thenReturn(Boolean.FALSE);
+        when(walletRepository.findById(any(UUID.class)))
+                .thenReturn(Optional.of(senderWallet), Optional.of(receiverWallet));
+
+        // Act
+        ServiceException thrown = assertThrows(
+                ServiceException.class,
+                () -> transactionService.transfer(request)
+        );
+
+        // Assert
+        assertEquals("Transaction failed with insufficient fund from sender!", thrown.getMessage());
+        assertEquals(50, senderWallet.getBalance());
+    }
+
+    @Test
+    @DisplayName("Payout debits the sender once and applies every leg in wallet id order")
+    void testPayout_thenDebitSenderOnceInWalletIdOrder() {
+
+        // Arrange
+        UUID lowestWalletId = new UUID(0, 5);
+        PayoutRequest request = PayoutRequest.builder()
+                .senderWalletId(senderWalletId)
+                .receivers(List.of(
+                        PayoutItem.builder().receiverWalletId(receiverWalletId).amount(30).build(),
+                        PayoutItem.builder().receiverWalletId(lowestWalletId).amount(20).build()))
                 .idempotencyKey(idempotencyKey)
                 .build();
+        List<Transaction> applied = new ArrayList<>();
+
+        when(idempotencyStore.exists(idempotencyKey)).thenReturn(Boolean.FALSE);
+        when(ledgerBatchRepository.applyGuardedDeltas(anyList())).thenAnswer(invocation -> {
+            applied.addAll(invocation.getArgument(0));
+            return new int[]{1, 1, 1};
+        });
 
-        List<Transaction> transactions = new ArrayList<>();
-        transactions.add(transaction);
+        // Act
+        PayoutResponse response = transactionService.payout(request);
+
+        // Assert
+        assertEquals(50, response.getTotalAmount());
+        assertEquals(2, response.getReceivers());
+        assertEquals(List.of(lowestWalletId, senderWalletId, receiverWalletId),
+                applied.stream().map(Transaction::getWalletId).toList());
+        assertEquals(TransactionType.TRANSFER_OUT, applied.get(1).getType());
+        assertEquals(response.getTransactionId(), applied.get(1).getId());
+        verify(idempotencyStore).claim(idempotencyKey);
+        verify(ledgerBatchRepository).insertTransactions(argThat(rows -> rows.size() == 3));
+    }
+
+    @Test
+    @DisplayName("Payout above the sender balance throws exception")
+    void testPayoutAboveSenderBalance_thenThrowException() {
 
-        when(transactionRepository.findAll())
+        // Arrange
+        PayoutRequest request = PayoutRequest.builder()
+                .senderWalletId(senderWalletId)
+                .receivers(List.of(PayoutItem.builder().receiverWalletId(receiverWalletId).amount(80).build()))
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(idempotencyKey)).thenReturn(Boolean.FALSE);
+        when(ledgerBatchRepository.applyGuardedDeltas(anyList())).thenReturn(new int[]{0, 1});
+        when(walletRepository.existsById(senderWalletId)).thenReturn(true);
+
+        // Act
+        ServiceException thrown = assertThrows(
+                ServiceException.class,
+                () -> transactionService.payout(request)
+        );
+
+        // Assert
+        assertEquals("Transaction failed with insufficient fund from sender!", thrown.getMessage());
+        verify(ledgerBatchRepository, never()).insertTransactions(anyList());
+    }
+
+    @Test
+    @DisplayName("Payout to a missing receiver throws exception")
+    void testPayoutToMissingReceiver_thenThrowException() {
+
+        // Arrange
+        PayoutRequest request = PayoutRequest.builder()
+                .senderWalletId(senderWalletId)
+                .receivers(List.of(PayoutItem.builder().receiverWalletId(receiverWalletId).amount(10).build()))
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        when(idempotencyStore.exists(idempotencyKey)).thenReturn(Boolean.FALSE);
+        when(ledgerBatchRepository.applyGuardedDeltas(anyList())).thenReturn(new int[]{1, 0});
+
+        // Act
+        NotFoundException thrown = assertThrows(
+                NotFoundException.class,
+                () -> transactionService.payout(request)
+        );
+
+        // Assert
+        assertEquals("Receiver wallet not found with id: " + receiverWalletId, thrown.getMessage());
+    }
+
+    @Test
+    @DisplayName("Payout to the sender itself is rejected")
+    void testPayoutToSender_thenThrowException() {
+
+        PayoutRequest request = PayoutRequest.builder()
+                .senderWalletId(senderWalletId)
+                .receivers(List.of(PayoutItem.builder().receiverWalletId(senderWalletId).amount(10).build()))
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+        assertThrows(InvalidRequestException.class, () -> transactionService.payout(request));
+        verify(idempotencyStore, never()).claim(any(String.class));
+    }
+
+    @Test
+    @DisplayName("Batch reports the outcome of every item and applies the valid ones")
+    void testBatch_thenApplyValidItemsAndReportFailures() {
+
+        // Arrange
+        UUID missingWalletId = UUID.randomUUID();
+        BatchTransactionRequest request = BatchTransactionRequest.builder()
+                .items(List.of(
+                        batchItem(senderWalletId, 500, TransactionType.DEBIT.name(), "key-1"),
+                        batchItem(senderWalletId, 20, TransactionType.CREDIT.name(), "key-2"),
+                        batchItem(missingWalletId, 20, TransactionType.CREDIT.name(), "key-3"),
+                        batchItem(senderWalletId, 20, "REFUND", "key-4"),
+                        batchItem(senderWalletId, 20, TransactionType.CREDIT.name(), "key-2")))
+                .build();
+
+        when(walletRepository.findExistingIds(anyCollection())).thenReturn(Set.of(senderWalletId));
+        when(idempotencyStore.claimAll(anyList())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(0);
+            Set<String> claimed = new HashSet<>();
+            return keys.stream().mapToInt(key -> claimed.add(key) ? 1 : 0).toArray();
+        });
+        when(ledgerBatchRepository.applyGuardedDeltas(anyList())).thenAnswer(invocation -> {
+            List<Transaction> legs = invocation.getArgument(0);
+            // the credit is ordered before the debit of the same wallet
+            assertEquals(TransactionType.CREDIT, legs.get(0).getType());
+            return legs.stream().mapToInt(leg -> leg.getType() == TransactionType.CREDIT ? 1 : 0).toArray();
+        });
+
+        // Act
+        BatchTransactionResponse response = transactionService.createBatch(request);
+
+        // Assert
+        assertEquals(1, response.getApplied());
+        assertEquals(4, response.getFailed());
+        assertEquals("Transaction failed with insufficient fund!", response.getItems().get(0).getError());
+        assertEquals(201, response.getItems().get(1).getStatus());
+        assertEquals(20, response.getItems().get(1).getTransaction().getAmount());
+        assertEquals(404, response.getItems().get(2).getStatus());
+        assertEquals("Invalid transaction type: REFUND", response.getItems().get(3).getError());
+        assertEquals("A transaction with the idempotency key already exists!", response.getItems().get(4).getError());
+        verify(idempotencyStore).releaseAll(List.of("key-1"));
+        verify(ledgerBatchRepository).insertTransactions(argThat(rows -> rows.size() == 1));
+        verify(walletCache).evictAfterCommit(Set.of(senderWalletId, missingWalletId));
+    }
+
+    @Test
+    @DisplayName("All-or-nothing batch is rejected when one item fails")
+    void testAllOrNothingBatchWithMissingWallet_thenThrowException() {
+
+        // Arrange
+        BatchTransactionRequest request = BatchTransactionRequest.builder()
+                .items(List.of(
+                        batchItem(senderWalletId, 20, TransactionType.CREDIT.name(), "key-1"),
+                        batchItem(receiverWalletId, 20, TransactionType.CREDIT.name(), "key-2")))
+                .allOrNothing(true)
+                .build();
+
+        when(walletRepository.findExistingIds(anyCollection())).thenReturn(Set.of(senderWalletId));
+
+        // Act
+        BatchRejectedException thrown = assertThrows(
+                BatchRejectedException.class,
+                () -> transactionService.createBatch(request)
+        );
+
+        // Assert
+        assertEquals("Batch rolled back, 1 of 2 items failed!", thrown.getMessage());
+        assertEquals("Rolled back, another item of the batch failed!",
+                thrown.getResponse().getItems().get(0).getError());
+        assertEquals(404, thrown.getResponse().getItems().get(1).getStatus());
+        verify(idempotencyStore, never()).claimAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Empty batch is rejected")
+    void testEmptyBatch_thenThrowException() {
+
+        BatchTransactionRequest request = BatchTransactionRequest.builder().items(List.of()).build();
+
+        assertThrows(InvalidRequestException.class, () -> transactionService.createBatch(request));
+    }
+
+    @Test
+    @DisplayName("Get Transactions Page - More Rows Return Next Cursor")
+    void testFindPage_whenMoreRows_thenReturnNextCursor() {
+
+        List<Transaction> transactions = List.of(transaction(UUID.randomUUID()), transaction(UUID.randomUUID()),
+                transaction(UUID.randomUUID()));
+
+        when(transactionRepository.findAllByOrderByIdAsc(Limit.of(3)))
                 .thenReturn(transactions);
 
-        List<TransactionDto> dbTransactions = transactionService.findAll();
+        CursorPage<TransactionDto> page = transactionService.findPage(null, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        assertEquals(transactions.get(1).getId().toString(), page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Get Transactions Page - Last Page Has No Cursor")
+    void testFindPage_whenLastPage_thenReturnNoCursor() {
+
+        UUID after = UUID.randomUUID();
+        when(transactionRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(3)))
+                .thenReturn(List.of(transaction(UUID.randomUUID())));
+
+        CursorPage<TransactionDto> page = transactionService.findPage(after, 2);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Stream Transactions - Each Row Is Detached After Mapping")
+    void testStreamAll_thenDetachEachTransaction() {
+
+        List<Transaction> transactions = List.of(transaction(UUID.randomUUID()), transaction(UUID.randomUUID()));
+        when(transactionRepository.streamAllOrderById())
+                .thenReturn(transactions.stream());
+
+        List<TransactionDto> streamed = new ArrayList<>();
+        transactionService.streamAll(streamed::add);
+
+        // Assert
+        assertEquals(2, streamed.size());
+        transactions.forEach(transaction -> verify(entityManager).detach(transaction));
+    }
+
+    @Test
+    @DisplayName("Get Wallet Transactions - Cursor Continues After Last Row")
+    void testFindByWallet_thenContinueFromCursor() {
+
+        Instant now = Instant.now();
+        List<Transaction> firstRows = List.of(transaction(UUID.randomUUID(), now),
+                transaction(UUID.randomUUID(), now.minusSeconds(1)));
+        when(transactionRepository.findHistory(senderWalletId, Limit.of(2)))
+                .thenReturn(firstRows);
+
+        CursorPage<TransactionDto> first = transactionService.findByWallet(senderWalletId, null, 1);
+
+        Transaction last = firstRows.get(0);
+        when(transactionRepository.findHistoryBefore(senderWalletId, last.getCreatedAt(), last.getId(), Limit.of(2)))
+                .thenReturn(List.of(firstRows.get(1)));
 
-        assertTrue(!dbTransactions.isEmpty());
-        assertTrue(transactions.contains(transaction));
+        CursorPage<TransactionDto> second = transactionService.findByWallet(senderWalletId, first.getNextCursor(), 1);
+
+        // Assert
+        assertEquals(last.getId(), first.getItems().get(0).getId());
+        assertEquals(firstRows.get(1).getId(), second.getItems().get(0).getId());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Get Wallet Transactions - Archived Rows Are Merged Newest First")
+    void testFindByWallet_whenArchived_thenMergeWithTable() {
+
+        Instant now = Instant.now();
+        Transaction recent = transaction(UUID.randomUUID(), now);
+        Transaction archived = transaction(UUID.randomUUID(), now.minusSeconds(60));
+        Transaction older = transaction(UUID.randomUUID(), now.minusSeconds(120));
+        when(transactionRepository.findHistory(senderWalletId, Limit.of(3)))
+                .thenReturn(List.of(recent));
+        when(transactionArchive.hasSegments())
+                .thenReturn(true);
+        when(transactionArchive.findHistory(senderWalletId, null, null, 3))
+                .thenReturn(List.of(archived, older));
+
+        CursorPage<TransactionDto> page = transactionService.findByWallet(senderWalletId, null, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        assertEquals(recent.getId(), page.getItems().get(0).getId());
+        assertEquals(archived.getId(), page.getItems().get(1).getId());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Get Wallet Transactions - Missing Wallet Throws Exception")
+    void testFindByWallet_whenWalletMissing_thenThrowException() {
+
+        when(transactionRepository.findHistory(senderWalletId, Limit.of(101)))
+                .thenReturn(List.of());
+        when(walletRepository.existsById(senderWalletId))
+                .thenReturn(false);
+
+        NotFoundException thrown = assertThrows(
+                NotFoundException.class,
+                () -> transactionService.findByWallet(senderWalletId, null, 100)
+        );
+
+        // Assert
+        assertEquals("Wallet not found with id: " + senderWalletId, thrown.getMessage());
+    }
+
+    @Test
+    @DisplayName("Get Wallet Transactions - Malformed Cursor Throws Exception")
+    void testFindByWallet_whenCursorMalformed_thenThrowException() {
+
+        InvalidCursorException thrown = assertThrows(
+                InvalidCursorException.class,
+                () -> transactionService.findByWallet(senderWalletId, "not-a-cursor", 100)
+        );
+
+        // Assert
+        assertEquals("Invalid cursor: not-a-cursor", thrown.getMessage());
+    }
+
+    private Transaction transaction(UUID id, Instant createdAt) {
+        return Transaction.builder()
+                .id(id)
+                .walletId(senderWalletId)
+                .amount(50)
+                .type(TransactionType.CREDIT)
+                .idempotencyKey(idempotencyKey)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private Transaction transaction(UUID id) {
+        return Transaction.builder()
+                .id(id)
+                .walletId(senderWalletId)
+                .amount(50)
+                .type(TransactionType.CREDIT)
+                .idempotencyKey(idempotencyKey)
+                .build();
+    }
+
+    private static TransactionRequest batchItem(UUID walletId, int amount, String type, String key) {
+        return TransactionRequest.builder()
+                .walletId(walletId)
+                .amount(amount)
+                .type(type)
+                .idempotencyKey(key)
+                .build();
     }
 }
@@ -2,27 +2,51 @@ package com.walletservice.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.walletservice.config.ProvisioningProperties;
+import com.walletservice.dto.BulkWalletRequest;
+import com.walletservice.dto.CursorPage;
 import com.walletservice.dto.WalletDto;
+import com.walletservice.exception.InvalidRequestException;
 import com.walletservice.exception.NotFoundException;
 import com.walletservice.model.Wallet;
+import com.walletservice.repository.WalletBulkRepository;
 import com.walletservice.repository.WalletRepository;
+import com.walletservice.repository.WalletSlotRepository;
+import com.walletservice.service.accumulator.CreditAccumulator;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.engine.LedgerEngine;
 import com.walletservice.service.impl.WalletServiceImpl;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class WalletServiceTest {
@@ -30,6 +54,27 @@ class WalletServiceTest {
     @Mock
     private WalletRepository walletRepository;
 
+    @Mock
+    private WalletBulkRepository walletBulkRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private WalletSlotRepository walletSlotRepository;
+
+    @Mock
+    private CreditAccumulator creditAccumulator;
+
+    @Mock
+    private ObjectProvider<LedgerEngine> ledgerEngine;
+
+    @Spy
+    private WalletCache walletCache = new WalletCache(16);
+
+    @Spy
+    private ProvisioningProperties provisioningProperties = new ProvisioningProperties();
+
     @InjectMocks
     private WalletServiceImpl walletService;
 
@@ -61,15 +106,47 @@ class WalletServiceTest {
         assertEquals(createdWallet.getBalance(), wallet.getBalance());
     }
 
+    @Test
+    @DisplayName("Bulk creation commits and hands over the wallets a chunk at a time")
+    void testCreateWallets_thenStreamIdsPerChunk() {
+
+        // Arrange
+        provisioningProperties.setChunkSize(2);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        List<List<UUID>> chunks = new ArrayList<>();
+
+        // Act
+        walletService.createWallets(BulkWalletRequest.builder().count(5).build(), chunks::add);
+
+        // Assert
+        assertEquals(List.of(2, 2, 1), chunks.stream().map(List::size).toList());
+        assertEquals(5, new HashSet<>(chunks.stream().flatMap(List::stream).toList()).size());
+        verify(walletBulkRepository, times(3)).insertWallets(anyList(), eq(true));
+        verify(transactionTemplate, times(3)).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Bulk creation rejects an empty request")
+    void testCreateNoWallets_thenThrowException() {
+
+        BulkWalletRequest request = BulkWalletRequest.builder().count(0).build();
+
+        assertThrows(InvalidRequestException.class, () -> walletService.createWallets(request, ids -> { }));
+        verify(walletBulkRepository, never()).insertWallets(anyList(), eq(true));
+    }
+
     @Test
     @DisplayName("Test Get Existing Wallet")
     void testGetExistingWallet_thenReturnWallet() {
 
         // Arrange
-        Wallet wallet = walletBuilder.build();
+        WalletDto wallet = walletDtoBuilder.build();
 
         // act
-        when(walletRepository.findById(any(UUID.class)))
+        when(walletRepository.findDtoById(any(UUID.class)))
                 .thenReturn(Optional.of(wallet));
 
         WalletDto dbWallet = walletService.findById(WALLET_ID);
@@ -79,6 +156,24 @@ class WalletServiceTest {
         assertEquals(dbWallet.getId(), wallet.getId());
     }
 
+    @Test
+    @DisplayName("Repeated wallet reads are served from the cache")
+    void testGetWalletTwice_thenLoadOnce() {
+
+        // Arrange
+        WalletDto wallet = walletDtoBuilder.build();
+        when(walletRepository.findDtoById(WALLET_ID)).thenReturn(Optional.of(wallet));
+
+        // Act
+        walletService.findById(WALLET_ID);
+        WalletDto cached = walletService.findById(WALLET_ID);
+
+        // Assert
+        assertEquals(WALLET_ID, cached.getId());
+        verify(walletRepository, times(1)).findDtoById(WALLET_ID);
+        assertEquals(1, walletCache.getHits());
+    }
+
     @Test
     @DisplayName("Test Get Non Existing Wallet")
     void testGetNonExistingWallet_thenReturnWallet() {
@@ -86,7 +181,7 @@ class WalletServiceTest {
         // Arrange
 
         // act
-        when(walletRepository.findById(any(UUID.class)))
+        when(walletRepository.findDtoById(any(UUID.class)))
                 .thenReturn(Optional.empty());
 
         NotFoundException thrown = assertThrows(
@@ -96,26 +191,126 @@ class WalletServiceTest {
 
         // Assert
         assertEquals("Wallet not found with id: "+WALLET_ID, thrown.getMessage());
-        verify(walletRepository).findById(WALLET_ID);
+        verify(walletRepository).findDtoById(WALLET_ID);
     }
 
     @Test
-    @DisplayName("Get Wallets")
-    void testGetWallets_thenReturnAllWallets() {
+    @DisplayName("Get Wallets Page - More Rows Return Next Cursor")
+    void testFindPage_whenMoreRows_thenReturnNextCursor() {
 
         // Arrange
-        Wallet wallet = walletBuilder.build();
-
-        List<Wallet> wallets = new ArrayList<>();
-        wallets.add(wallet);
+        List<WalletDto> wallets = List.of(
+                WalletDto.builder().id(UUID.randomUUID()).balance(10).build(),
+                WalletDto.builder().id(UUID.randomUUID()).balance(20).build(),
+                WalletDto.builder().id(UUID.randomUUID()).balance(30).build());
 
         // act
-        when(walletRepository.findAll())
+        when(walletRepository.findDtosOrderById(Limit.of(3)))
                 .thenReturn(wallets);
 
-        List<WalletDto> createdWallets = walletService.findAll();
+        CursorPage<WalletDto> page = walletService.findPage(null, 2);
+
+        // Assert
+        assertEquals(wallets.subList(0, 2), page.getItems());
+        assertEquals(wallets.get(1).getId().toString(), page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Get Wallets Page - Last Page Has No Cursor")
+    void testFindPage_whenLastPage_thenReturnNoCursor() {
+
+        // Arrange
+        WalletDto wallet = walletDtoBuilder.build();
+
+        // act
+        when(walletRepository.findDtosAfterOrderById(WALLET_ID, Limit.of(CursorPage.MAX_LIMIT + 1)))
+                .thenReturn(List.of(wallet));
+
+        CursorPage<WalletDto> page = walletService.findPage(WALLET_ID, 5_000);
+
+        // Assert
+        assertEquals(List.of(wallet), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Splitting a wallet into slots drains its old slots first")
+    void testUpdateSlots_thenDrainAndCreateSlots() {
+
+        // Arrange
+        WalletDto wallet = walletDtoBuilder.balance(500).build();
+        when(walletRepository.updateSlots(WALLET_ID, 8)).thenReturn(1);
+        when(walletRepository.findDtoById(WALLET_ID)).thenReturn(Optional.of(wallet));
+
+        // Act
+        WalletDto updated = walletService.updateSlots(WALLET_ID, 8);
+
+        // Assert
+        assertEquals(500, updated.getBalance());
+        InOrder statements = inOrder(walletSlotRepository, walletRepository);
+        statements.verify(walletSlotRepository).drainSlots(WALLET_ID);
+        statements.verify(walletRepository).updateSlots(WALLET_ID, 8);
+        statements.verify(walletSlotRepository).createSlots(WALLET_ID, 8);
+    }
+
+    @Test
+    @DisplayName("Slots of a missing wallet are not created")
+    void testUpdateSlots_whenWalletMissing_thenThrowNotFound() {
+
+        // Arrange
+        when(walletRepository.updateSlots(WALLET_ID, 4)).thenReturn(0);
+
+        // Act
+        NotFoundException thrown = assertThrows(NotFoundException.class,
+                () -> walletService.updateSlots(WALLET_ID, 4));
+
+        // Assert
+        assertEquals("Wallet not found with id: " + WALLET_ID, thrown.getMessage());
+        verify(walletSlotRepository, never()).createSlots(any(UUID.class), eq(4));
+    }
+
+    @Test
+    @DisplayName("Slot counts out of range are rejected")
+    void testUpdateSlots_whenCountOutOfRange_thenThrow() {
+
+        // Act
+        assertThrows(InvalidRequestException.class,
+                () -> walletService.updateSlots(WALLET_ID, Wallet.MAX_SLOTS + 1));
+
+        // Assert
+        verify(walletRepository, never()).updateSlots(any(UUID.class), eq(Wallet.MAX_SLOTS + 1));
+    }
+
+    @Test
+    @DisplayName("Reads add the credits accumulated and not yet folded")
+    void testFindById_whenCreditsPending_thenAddThem() {
+
+        // Arrange
+        when(walletRepository.findDtoById(WALLET_ID)).thenReturn(Optional.of(walletDtoBuilder.balance(500).build()));
+        when(creditAccumulator.getPending(WALLET_ID)).thenReturn(30L);
+
+        // Act
+        WalletDto wallet = walletService.findById(WALLET_ID);
+
+        // Assert
+        assertEquals(530, wallet.getBalance());
+    }
+
+    @Test
+    @DisplayName("Turning credit accumulation off folds the pending credits")
+    void testUpdateAccumulateCredits_whenDisabled_thenFold() {
+
+        // Arrange
+        when(walletRepository.updateAccumulateCredits(WALLET_ID, false)).thenReturn(1);
+        when(walletRepository.findDtoById(WALLET_ID)).thenReturn(Optional.of(walletDtoBuilder.balance(530).build()));
+
+        // Act
+        WalletDto updated = walletService.updateAccumulateCredits(WALLET_ID, false);
 
         // Assert
-        assertEquals(createdWallets.size(), wallets.size());
+        assertEquals(530, updated.getBalance());
+        InOrder statements = inOrder(walletRepository, creditAccumulator);
+        statements.verify(walletRepository).updateAccumulateCredits(WALLET_ID, false);
+        statements.verify(creditAccumulator).fold(WALLET_ID);
     }
 }
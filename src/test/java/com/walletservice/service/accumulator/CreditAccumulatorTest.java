@@ -0,0 +1,187 @@
+package com.walletservice.service.accumulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.config.AccumulatorProperties;
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.model.PendingCredit;
+import com.walletservice.repository.PendingCreditRepository;
+import com.walletservice.service.cache.WalletCache;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class CreditAccumulatorTest {
+
+    private static final UUID WALLET_ID = UUID.randomUUID();
+
+    private final PendingCreditRepository pendingCreditRepository = mock(PendingCreditRepository.class);
+    private final List<PendingCredit> inserted = new ArrayList<>();
+    private CreditAccumulator accumulator;
+
+    @BeforeEach
+    void setUp() {
+        AccumulatorProperties properties = new AccumulatorProperties();
+        // the flusher stays asleep, the tests fold by hand
+        properties.setFlushInterval(Duration.ofHours(1));
+        when(pendingCreditRepository.insert(any(PendingCredit.class))).thenAnswer(invocation -> {
+            inserted.add(invocation.getArgument(0));
+            return 1;
+        });
+        accumulator = newAccumulator(properties, new LedgerEngineProperties());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        accumulator.shutdown();
+    }
+
+    @Test
+    @DisplayName("Committed credits show as pending until folded")
+    void testAccumulate_thenPendingUntilFolded() {
+        // Arrange
+        accumulator.accumulate(WALLET_ID, 30);
+        accumulator.accumulate(WALLET_ID, 20);
+        when(pendingCreditRepository.foldWallet(WALLET_ID)).thenReturn(List.copyOf(inserted));
+
+        // Act
+        long pendingBefore = accumulator.getPending(WALLET_ID);
+        long folded = accumulator.fold(WALLET_ID);
+
+        // Assert
+        assertEquals(50, pendingBefore);
+        assertEquals(50, folded);
+        assertEquals(0, accumulator.getPending(WALLET_ID));
+        assertEquals(2, accumulator.getAccumulated());
+        assertEquals(2, accumulator.getFolded());
+    }
+
+    @Test
+    @DisplayName("The flusher starts with the first accumulated credit")
+    void testAccumulate_thenStartFlusher() {
+        assertFalse(accumulator.isStarted());
+
+        accumulator.accumulate(WALLET_ID, 30);
+
+        assertTrue(accumulator.isStarted());
+    }
+
+    @Test
+    @DisplayName("The flusher never starts in the journal mode")
+    void testJournalMode_thenFlusherNeverStarts() throws InterruptedException {
+        LedgerEngineProperties ledgerEngineProperties = new LedgerEngineProperties();
+        ledgerEngineProperties.setMode("journal");
+        CreditAccumulator journal = newAccumulator(new AccumulatorProperties(), ledgerEngineProperties);
+
+        journal.start();
+
+        assertFalse(journal.isStarted());
+        journal.shutdown();
+    }
+
+    @Test
+    @DisplayName("Credits of a wallet not accumulating are left to the caller")
+    void testAccumulate_whenWalletNotAccumulating_thenFalse() {
+        // Arrange
+        when(pendingCreditRepository.insert(any(PendingCredit.class))).thenReturn(0);
+
+        // Act
+        boolean recorded = accumulator.accumulate(WALLET_ID, 30);
+
+        // Assert
+        assertFalse(recorded);
+        assertEquals(0, accumulator.getPending(WALLET_ID));
+    }
+
+    @Test
+    @DisplayName("Credits only count as pending once their transaction commits")
+    void testAccumulate_whenRolledBack_thenNotPending() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        boolean recorded = accumulator.accumulate(WALLET_ID, 30);
+        long pendingBeforeCompletion = accumulator.getPending(WALLET_ID);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert
+        assertTrue(recorded);
+        assertEquals(0, pendingBeforeCompletion);
+        assertEquals(0, accumulator.getPending(WALLET_ID));
+    }
+
+    @Test
+    @DisplayName("A fold rolled back gives the credits back to the adders")
+    void testFold_whenRolledBack_thenPendingAgain() {
+        // Arrange
+        accumulator.accumulate(WALLET_ID, 30);
+        when(pendingCreditRepository.foldWallet(WALLET_ID)).thenReturn(List.copyOf(inserted));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        accumulator.fold(WALLET_ID);
+        long pendingDuringFold = accumulator.getPending(WALLET_ID);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert
+        assertEquals(0, pendingDuringFold);
+        assertEquals(30, accumulator.getPending(WALLET_ID));
+        assertEquals(0, accumulator.getFolded());
+    }
+
+    @Test
+    @DisplayName("Folding credits of other nodes leaves this node's adders alone")
+    void testFold_whenCreditsOfOtherNode_thenKeepLocalPending() {
+        // Arrange
+        accumulator.accumulate(WALLET_ID, 30);
+        PendingCredit remote = PendingCredit.builder()
+                .id(UUID.randomUUID())
+                .walletId(WALLET_ID)
+                .amount(70)
+                .nodeId(UUID.randomUUID())
+                .createdAt(Instant.now())
+                .build();
+        when(pendingCreditRepository.foldOldest(anyInt())).thenReturn(List.of(remote));
+
+        // Act
+        accumulator.flush();
+
+        // Assert
+        assertEquals(30, accumulator.getPending(WALLET_ID));
+        assertEquals(1, accumulator.getFolded());
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CreditAccumulator newAccumulator(AccumulatorProperties properties,
+                                             LedgerEngineProperties ledgerEngineProperties) {
+        return new CreditAccumulator(properties, ledgerEngineProperties, pendingCreditRepository,
+                new WalletCache(16), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(ObjectProvider.class));
+    }
+}
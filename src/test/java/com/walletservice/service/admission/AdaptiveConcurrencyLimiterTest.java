@@ -0,0 +1,117 @@
+package com.walletservice.service.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AdaptiveConcurrencyLimiter("mutations", 10, 2, 100, clock::get);
+    }
+
+    @Test
+    @DisplayName("Requests over the limit are shed and counted")
+    void testOverLimit_thenShed() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire().orElseThrow();
+        }
+
+        // Act
+        Optional<AdaptiveConcurrencyLimiter.Permit> permit = limiter.tryAcquire();
+
+        // Assert
+        assertTrue(permit.isEmpty());
+        assertEquals(10, limiter.getInFlight());
+        assertEquals(1, limiter.getRejections());
+    }
+
+    @Test
+    @DisplayName("Limit grows while a busy service keeps its latency flat")
+    void testFlatLatency_thenRaiseLimit() {
+        // Act
+        serveRound(10, 5);
+        serveRound(10, 5);
+
+        // Assert
+        assertTrue(limiter.getLimit() > 10);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Limit shrinks below where it started as latency climbs")
+    void testRisingLatency_thenLowerLimit() {
+        // Arrange
+        serveRound(10, 5);
+        int raised = limiter.getLimit();
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            serveRound(1, 100);
+        }
+
+        // Assert
+        assertTrue(raised > 10);
+        assertTrue(limiter.getLimit() < 10);
+    }
+
+    @Test
+    @DisplayName("A request dropped for overload cuts the limit")
+    void testDropped_thenBackOff() {
+        // Arrange
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+
+        // Act
+        permit.dropped();
+        permit.success();
+
+        // Assert
+        assertEquals(9, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Ignored requests free their slot without moving the limit")
+    void testIgnored_thenKeepLimit() {
+        // Arrange
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        // Act
+        permit.ignore();
+
+        // Assert
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Limits out of order are refused")
+    void testInvalidLimits_thenThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter("reads", 1, 2, 100));
+    }
+
+    private void serveRound(int requests, long latencyMillis) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            limiter.tryAcquire().ifPresent(permits::add);
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+    }
+}
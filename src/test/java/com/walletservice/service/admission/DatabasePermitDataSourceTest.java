@@ -0,0 +1,98 @@
+package com.walletservice.service.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.exception.ServiceUnavailableException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DatabasePermitDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    private DatabasePermitDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DatabasePermitDataSource(target, 2, Duration.ofMillis(20));
+    }
+
+    @Test
+    @DisplayName("Closing a connection returns its permit once")
+    void testCloseTwice_thenReturnPermitOnce() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenReturn(connection);
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        // Act
+        first.close();
+        first.close();
+
+        // Assert
+        assertEquals(1, dataSource.getAvailablePermits());
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    @DisplayName("Database work without a free permit fails after the maximum wait")
+    void testNoPermit_thenRejectAfterMaxWait() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenReturn(connection);
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        // Act
+        ServiceUnavailableException exception =
+                assertThrows(ServiceUnavailableException.class, () -> dataSource.getConnection());
+
+        // Assert
+        assertEquals("Database is busy, please retry!", exception.getMessage());
+        assertEquals(1, dataSource.getRejections());
+    }
+
+    @Test
+    @DisplayName("Permit is returned when the pool fails to hand out a connection")
+    void testPoolFailure_thenReturnPermit() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenThrow(new SQLException("Connection is not available"));
+
+        // Act
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+
+        // Assert
+        assertEquals(2, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    @DisplayName("Connections unwrap to the driver connection")
+    void testUnwrap_thenDelegateToConnection() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.unwrap(Connection.class)).thenReturn(connection);
+
+        // Act
+        Connection unwrapped = dataSource.getConnection().unwrap(Connection.class);
+
+        // Assert
+        assertSame(connection, unwrapped);
+    }
+}
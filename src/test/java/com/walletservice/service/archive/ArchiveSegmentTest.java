@@ -0,0 +1,130 @@
+package com.walletservice.service.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.UuidV7Generator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArchiveSegmentTest {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final UuidV7Generator ids = new UuidV7Generator();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Every column survives a write and reopen, rows come back in id order")
+    void testWrite_thenReadAllInIdOrder() throws IOException {
+        List<UUID> wallets = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        List<Transaction> rows = rows(wallets, 1000);
+
+        ArchiveSegment.write(directory, "first.segment", rows, 64);
+        ArchiveSegment segment = ArchiveSegment.open(directory.resolve("first.segment"));
+
+        assertEquals(1000, segment.getRowCount());
+        assertEquals(3, segment.getWallets());
+        assertEquals(rows.get(0).getId(), segment.getFirstId());
+        assertEquals(rows.get(999).getId(), segment.getLastId());
+        List<Transaction> read = segment.readAll();
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertSameRow(rows.get(i), read.get(i));
+        }
+        assertFalse(Files.exists(directory.resolve("first.segment.tmp")));
+    }
+
+    @Test
+    @DisplayName("A wallet's history is read newest first and continues after a cursor")
+    void testFindHistory_thenContinueFromCursor() throws IOException {
+        UUID wallet = UUID.randomUUID();
+        List<Transaction> rows = rows(List.of(UUID.randomUUID(), wallet, UUID.randomUUID()), 900);
+        ArchiveSegment segment = ArchiveSegment.write(directory, "history.segment", rows, 32);
+
+        List<Transaction> expected = new ArrayList<>(rows.stream().filter(row -> row.getWalletId().equals(wallet)).toList());
+        expected.sort(ArchiveSegment.HISTORY_ORDER);
+
+        List<Transaction> first = segment.findHistory(wallet, null, null, 50);
+        Transaction last = first.get(first.size() - 1);
+        List<Transaction> rest = segment.findHistory(wallet, last.getCreatedAt(), last.getId(), 1000);
+
+        assertEquals(50, first.size());
+        assertEquals(expected.size() - 50, rest.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameRow(expected.get(i), i < 50 ? first.get(i) : rest.get(i - 50));
+        }
+    }
+
+    @Test
+    @DisplayName("A wallet missing from the dictionary has no history")
+    void testFindHistory_whenWalletNotArchived_thenEmpty() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.write(directory, "other.segment",
+                rows(List.of(UUID.randomUUID()), 10), 4);
+        UUID missing = UUID.randomUUID();
+
+        assertFalse(segment.containsWallet(missing));
+        assertTrue(segment.findHistory(missing, null, null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A corrupt footer fails to open")
+    void testCorruptFooter_thenFailToOpen() throws IOException {
+        ArchiveSegment.write(directory, "corrupt.segment", rows(List.of(UUID.randomUUID()), 100), 16);
+        Path file = directory.resolve("corrupt.segment");
+
+        // the byte before the 20-byte trailer belongs to the checksummed footer
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() - 21;
+            ByteBuffer current = ByteBuffer.allocate(1);
+            channel.read(current, position);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~current.get(0)}), position);
+        }
+
+        assertThrows(IOException.class, () -> ArchiveSegment.open(file));
+    }
+
+    private List<Transaction> rows(List<UUID> wallets, int count) {
+        Instant start = Instant.now().truncatedTo(ChronoUnit.MICROS).minus(30, ChronoUnit.DAYS);
+        List<Transaction> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(Transaction.builder()
+                    .id(ids.nextId())
+                    .walletId(wallets.get(i % wallets.size()))
+                    .amount(1 + (i * 7919) % 100_000)
+                    .type(TYPES[i % TYPES.length])
+                    .idempotencyKey(i % 5 == 0 ? null : "key-" + i)
+                    // payouts share a creation time, so some rows tie on it
+                    .createdAt(start.plusMillis(i / 3))
+                    .build());
+        }
+        return rows;
+    }
+
+    private static void assertSameRow(Transaction expected, Transaction actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getWalletId(), actual.getWalletId());
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getIdempotencyKey(), actual.getIdempotencyKey());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+    }
+}
@@ -0,0 +1,129 @@
+package com.walletservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.walletservice.dto.WalletDto;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class WalletCacheTest {
+
+    private final WalletCache cache = new WalletCache(2);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("Second read is served from the cache")
+    void testReadTwice_thenLoadOnce() {
+        UUID walletId = UUID.randomUUID();
+
+        get(walletId, 10);
+        WalletDto cached = get(walletId, 99);
+
+        assertEquals(10, cached.getBalance());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    @DisplayName("Missing wallets are not cached")
+    void testMissingWallet_thenLoadAgain() {
+        UUID walletId = UUID.randomUUID();
+
+        cache.get(walletId, id -> Optional.empty());
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    @DisplayName("Committed balance replaces the cached one")
+    void testPutOutsideTransaction_thenServeNewBalance() {
+        UUID walletId = UUID.randomUUID();
+        get(walletId, 10);
+
+        cache.putAfterCommit(walletId, 60);
+
+        assertEquals(60, get(walletId, 99).getBalance());
+        assertEquals(1, cache.getUpdates());
+    }
+
+    @Test
+    @DisplayName("Balance is published only after the transaction commits")
+    void testPutInTransaction_thenApplyAfterCommit() {
+        UUID walletId = UUID.randomUUID();
+        get(walletId, 10);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.putAfterCommit(walletId, 60);
+            assertEquals(10, get(walletId, 99).getBalance());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(60, get(walletId, 99).getBalance());
+    }
+
+    @Test
+    @DisplayName("Load racing a committed write is not cached")
+    void testWriteWhileLoading_thenDiscardLoad() {
+        UUID walletId = UUID.randomUUID();
+
+        WalletDto loaded = cache.get(walletId, id -> {
+            // a writer commits after the loader read the old balance
+            cache.evict(List.of(walletId));
+            return Optional.of(WalletDto.builder().id(id).balance(10).build());
+        }).orElseThrow();
+
+        assertEquals(10, loaded.getBalance());
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getDiscardedLoads());
+        assertEquals(42, get(walletId, 42).getBalance());
+    }
+
+    @Test
+    @DisplayName("Least recently used wallet is evicted when full")
+    void testFull_thenEvictLeastRecentlyUsed() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        get(first, 1);
+        get(second, 2);
+        get(first, 1);
+
+        get(UUID.randomUUID(), 3);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+        assertEquals(1, get(first, 99).getBalance());
+        assertEquals(99, get(second, 99).getBalance());
+        assertTrue(cache.getMaxHitAgeNanos() >= 0);
+    }
+
+    @Test
+    @DisplayName("Segments of a large cache together hold at most its size")
+    void testLargeCacheFull_thenBoundedBySize() {
+        WalletCache large = new WalletCache(4096);
+        for (int i = 0; i < 10_000; i++) {
+            large.get(UUID.randomUUID(), id -> Optional.of(WalletDto.builder().id(id).balance(1).build()));
+        }
+
+        assertEquals(4096, large.getSize());
+        assertEquals(10_000 - 4096, large.getEvictions());
+    }
+
+    private WalletDto get(UUID walletId, int balance) {
+        return cache.get(walletId, id -> {
+            loads.incrementAndGet();
+            return Optional.of(WalletDto.builder().id(id).balance(balance).build());
+        }).orElseThrow();
+    }
+}
@@ -0,0 +1,295 @@
+package com.walletservice.service.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.UuidV7Generator;
+import com.walletservice.repository.BalanceSnapshotRepository;
+import com.walletservice.repository.LedgerBatchRepository;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class EventSourcedLedgerEngineTest {
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final LedgerBatchRepository ledgerBatchRepository = mock(LedgerBatchRepository.class);
+    private final BalanceSnapshotRepository balanceSnapshotRepository = mock(BalanceSnapshotRepository.class);
+    private final IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+
+    private final Set<UUID> wallets = ConcurrentHashMap.newKeySet();
+    private final List<Transaction> inserted = new CopyOnWriteArrayList<>();
+    private final Set<String> claimedKeys = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Long> snapshots = new ConcurrentHashMap<>();
+    private final List<Transaction> ledger = new ArrayList<>();
+    private final UuidV7Generator ids = new UuidV7Generator();
+    private UUID checkpoint;
+    private EventSourcedLedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(walletRepository.existsById(any(UUID.class)))
+                .thenAnswer(invocation -> wallets.contains(invocation.<UUID>getArgument(0)));
+        when(idempotencyStore.claimAll(anyList())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(0);
+            return keys.stream().mapToInt(key -> claimedKeys.add(key) ? 1 : 0).toArray();
+        });
+        doAnswer(invocation -> {
+            claimedKeys.removeAll(invocation.<List<String>>getArgument(0));
+            return null;
+        }).when(idempotencyStore).releaseAll(anyList());
+        doAnswer(invocation -> {
+            inserted.addAll(invocation.getArgument(0));
+            return null;
+        }).when(ledgerBatchRepository).insertTransactions(anyList());
+
+        when(balanceSnapshotRepository.findCheckpoint()).thenAnswer(invocation -> Optional.ofNullable(checkpoint));
+        doAnswer(invocation -> {
+            snapshots.forEach(invocation.<BiConsumer<UUID, Long>>getArgument(0));
+            return null;
+        }).when(balanceSnapshotRepository).forEachSnapshot(any());
+        when(balanceSnapshotRepository.replayAfter(any(), any())).thenAnswer(invocation -> {
+            BiConsumer<UUID, Long> consumer = invocation.getArgument(1);
+            UUID last = invocation.getArgument(0);
+            for (Transaction transaction : ledger) {
+                if (last == null || transaction.getId().compareTo(last) > 0) {
+                    boolean incoming = transaction.getType() == TransactionType.CREDIT
+                            || transaction.getType() == TransactionType.TRANSFER_IN;
+                    consumer.accept(transaction.getWalletId(),
+                            (long) (incoming ? transaction.getAmount() : -transaction.getAmount()));
+                    last = transaction.getId();
+                }
+            }
+            return last;
+        });
+        doAnswer(invocation -> {
+            snapshots.putAll(invocation.getArgument(0));
+            checkpoint = invocation.getArgument(1);
+            return null;
+        }).when(balanceSnapshotRepository).save(anyMap(), any());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Mutations append rows and move the projections, not the wallet rows")
+    void testMutations_thenProjectBalances() throws Exception {
+        start();
+        UUID walletId = newWallet();
+
+        engine.post(walletId, 100, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+        engine.post(walletId, 30, TransactionType.DEBIT, "key-2").get(5, TimeUnit.SECONDS);
+
+        assertEquals(70, engine.balanceOf(walletId).getAsLong());
+        assertEquals(2, inserted.size());
+        verify(ledgerBatchRepository, never()).applyBalanceDeltas(anyMap());
+        verify(ledgerBatchRepository, never()).creditWallets(anyList());
+    }
+
+    @Test
+    @DisplayName("Debit above the projected balance is rejected and releases its key")
+    void testDebitAboveBalance_thenReject() throws Exception {
+        start();
+        UUID walletId = newWallet();
+        engine.post(walletId, 10, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> engine.post(walletId, 20, TransactionType.DEBIT, "key-2").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(ServiceException.class, thrown.getCause());
+        assertEquals("Transaction failed with insufficient fund!", thrown.getCause().getMessage());
+        assertEquals(10, engine.balanceOf(walletId).getAsLong());
+        assertEquals(Set.of("key-1"), claimedKeys);
+    }
+
+    @Test
+    @DisplayName("Transfer moves the amount between projections")
+    void testTransfer_thenMoveBetweenProjections() throws Exception {
+        start();
+        UUID senderId = newWallet();
+        UUID receiverId = newWallet();
+        engine.post(senderId, 100, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+
+        Transaction outgoing = engine.transfer(senderId, receiverId, 60, "key-2").get(5, TimeUnit.SECONDS);
+
+        assertEquals(TransactionType.TRANSFER_OUT, outgoing.getType());
+        assertEquals(40, engine.balanceOf(senderId).getAsLong());
+        assertEquals(60, engine.balanceOf(receiverId).getAsLong());
+        assertEquals(3, inserted.size());
+    }
+
+    @Test
+    @DisplayName("Transfer to a missing receiver is rejected without rows")
+    void testTransferToMissingReceiver_thenReject() throws Exception {
+        start();
+        UUID senderId = newWallet();
+        engine.post(senderId, 100, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> engine.transfer(senderId, UUID.randomUUID(), 60, "key-2").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(NotFoundException.class, thrown.getCause());
+        assertEquals("Receiver wallet not found!", thrown.getCause().getMessage());
+        assertEquals(100, engine.balanceOf(senderId).getAsLong());
+        assertEquals(1, inserted.size());
+    }
+
+    @Test
+    @DisplayName("A failed batch publishes nothing")
+    void testFailedBatch_thenKeepCommittedBalances() throws Exception {
+        start();
+        UUID walletId = newWallet();
+        engine.post(walletId, 100, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(ledgerBatchRepository).insertTransactions(anyList());
+
+        assertThrows(ExecutionException.class,
+                () -> engine.post(walletId, 50, TransactionType.CREDIT, "key-2").get(5, TimeUnit.SECONDS));
+
+        assertEquals(100, engine.balanceOf(walletId).getAsLong());
+    }
+
+    @Test
+    @DisplayName("Snapshots save the changed balances with the last transaction as checkpoint")
+    void testSnapshot_thenSaveChangedBalancesAndCheckpoint() throws Exception {
+        start();
+        UUID walletId = newWallet();
+        UUID untouchedId = newWallet();
+        engine.post(walletId, 100, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+
+        int saved = engine.snapshot();
+
+        assertEquals(1, saved);
+        assertEquals(Map.of(walletId, 100L), snapshots);
+        assertEquals(inserted.get(0).getId(), checkpoint);
+        assertEquals(0, engine.snapshot());
+        assertEquals(0, engine.balanceOf(untouchedId).getAsLong());
+    }
+
+    @Test
+    @DisplayName("Wallets of a failed snapshot are saved by the next one")
+    void testFailedSnapshot_thenSaveWithNext() throws Exception {
+        start();
+        UUID walletId = newWallet();
+        engine.post(walletId, 100, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(balanceSnapshotRepository).save(anyMap(), any());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> engine.snapshot());
+
+        assertEquals(1, engine.getUnsnapshottedWallets());
+        doAnswer(invocation -> {
+            snapshots.putAll(invocation.getArgument(0));
+            checkpoint = invocation.getArgument(1);
+            return null;
+        }).when(balanceSnapshotRepository).save(anyMap(), any());
+        assertEquals(1, engine.snapshot());
+        assertEquals(100L, snapshots.get(walletId));
+    }
+
+    @Test
+    @DisplayName("Restart rebuilds balances from the snapshots and the ledger after the checkpoint")
+    void testRestart_thenReplayOnlyTheTail() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        Transaction snapshotted = ledgerRow(walletId, 500, TransactionType.CREDIT);
+        Transaction tail = ledgerRow(walletId, 200, TransactionType.DEBIT);
+        ledger.add(snapshotted);
+        ledger.add(tail);
+        snapshots.put(walletId, 500L);
+        checkpoint = snapshotted.getId();
+
+        start();
+
+        assertEquals(300, engine.balanceOf(walletId).getAsLong());
+        verify(balanceSnapshotRepository).replayAfter(eq(snapshotted.getId()), any());
+        assertEquals(1, engine.snapshot());
+        assertEquals(tail.getId(), checkpoint);
+    }
+
+    @Test
+    @DisplayName("Without a checkpoint the whole ledger is replayed")
+    void testFirstStart_thenReplayWholeLedger() {
+        UUID walletId = UUID.randomUUID();
+        ledger.add(ledgerRow(walletId, 500, TransactionType.CREDIT));
+        ledger.add(ledgerRow(walletId, 200, TransactionType.TRANSFER_OUT));
+
+        start();
+
+        assertEquals(300, engine.balanceOf(walletId).getAsLong());
+        verify(balanceSnapshotRepository).replayAfter(isNull(), any());
+    }
+
+    @Test
+    @DisplayName("Random ids are refused, the ledger tail could not be found by id")
+    void testRandomIds_thenRefuse() {
+        LedgerEngineProperties properties = new LedgerEngineProperties();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+        assertThrows(IllegalStateException.class, () -> new EventSourcedLedgerEngine(properties, walletRepository,
+                ledgerBatchRepository, balanceSnapshotRepository, idempotencyStore, UUID::randomUUID, transactionTemplate));
+    }
+
+    private void start() {
+        LedgerEngineProperties properties = new LedgerEngineProperties();
+        // the snapshotter stays asleep, the tests take snapshots by hand
+        properties.getEventSourced().setSnapshotInterval(Duration.ofHours(1));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        engine = new EventSourcedLedgerEngine(properties, walletRepository, ledgerBatchRepository,
+                balanceSnapshotRepository, idempotencyStore, new UuidV7Generator(), transactionTemplate);
+    }
+
+    private UUID newWallet() {
+        UUID walletId = UUID.randomUUID();
+        wallets.add(walletId);
+        return walletId;
+    }
+
+    private Transaction ledgerRow(UUID walletId, int amount, TransactionType type) {
+        return Transaction.builder()
+                .id(ids.nextId())
+                .walletId(walletId)
+                .amount(amount)
+                .type(type)
+                .build();
+    }
+}
@@ -0,0 +1,241 @@
+package com.walletservice.service.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.repository.LedgerBatchRepository;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.repository.WalletSlotRepository;
+import com.walletservice.service.accumulator.CreditAccumulator;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class GroupCommitPipelineTest {
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final LedgerBatchRepository ledgerBatchRepository = mock(LedgerBatchRepository.class);
+    private final WalletSlotRepository walletSlotRepository = mock(WalletSlotRepository.class);
+    private final IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+
+    private final Map<UUID, Integer> balances = new ConcurrentHashMap<>();
+    private final List<Transaction> inserted = new ArrayList<>();
+    private final Set<String> claimedKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger flushes = new AtomicInteger();
+    private GroupCommitPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        LedgerEngineProperties properties = new LedgerEngineProperties();
+        properties.getGroupCommit().setMaxBatchSize(100);
+        properties.getGroupCommit().setLinger(Duration.ofMillis(200));
+
+        when(walletRepository.existsById(any(UUID.class)))
+                .thenAnswer(invocation -> balances.containsKey(invocation.<UUID>getArgument(0)));
+        when(ledgerBatchRepository.creditWallets(anyList())).thenAnswer(invocation -> {
+            List<Transaction> credits = invocation.getArgument(0);
+            int[] counts = new int[credits.size()];
+            for (int i = 0; i < counts.length; i++) {
+                Transaction credit = credits.get(i);
+                counts[i] = balances.computeIfPresent(credit.getWalletId(), (id, b) -> b + credit.getAmount()) == null ? 0 : 1;
+            }
+            return counts;
+        });
+        when(ledgerBatchRepository.debitWallets(anyList())).thenAnswer(invocation -> {
+            List<Transaction> debits = invocation.getArgument(0);
+            int[] counts = new int[debits.size()];
+            for (int i = 0; i < counts.length; i++) {
+                Transaction debit = debits.get(i);
+                Integer balance = balances.get(debit.getWalletId());
+                if (balance != null && balance >= debit.getAmount()) {
+                    balances.put(debit.getWalletId(), balance - debit.getAmount());
+                    counts[i] = 1;
+                }
+            }
+            return counts;
+        });
+        when(idempotencyStore.claimAll(anyList())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(0);
+            return keys.stream().mapToInt(key -> claimedKeys.add(key) ? 1 : 0).toArray();
+        });
+        doAnswer(invocation -> {
+            claimedKeys.removeAll(invocation.<List<String>>getArgument(0));
+            return null;
+        }).when(idempotencyStore).releaseAll(anyList());
+        doAnswer(invocation -> {
+            flushes.incrementAndGet();
+            inserted.addAll(invocation.getArgument(0));
+            return null;
+        }).when(ledgerBatchRepository).insertTransactions(anyList());
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        pipeline = new GroupCommitPipeline(properties, walletRepository, ledgerBatchRepository,
+                walletSlotRepository, mock(CreditAccumulator.class), idempotencyStore, new WalletCache(1000), transactionTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.shutdown();
+    }
+
+    @Test
+    @DisplayName("Concurrent mutations are flushed in one batch")
+    void testConcurrentMutations_thenFlushTogether() throws Exception {
+        UUID walletId = newWallet(0);
+
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(pipeline.post(walletId, 5, TransactionType.CREDIT, "key-" + i));
+        }
+        for (CompletableFuture<Transaction> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(100, balances.get(walletId));
+        assertEquals(20, inserted.size());
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    @DisplayName("Debit above balance is rejected without its row")
+    void testDebitAboveBalance_thenRejectOnlyThatMutation() throws Exception {
+        UUID walletId = newWallet(10);
+
+        CompletableFuture<Transaction> rejected = pipeline.post(walletId, 20, TransactionType.DEBIT, "key-1");
+        CompletableFuture<Transaction> accepted = pipeline.post(walletId, 10, TransactionType.DEBIT, "key-2");
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceException.class, thrown.getCause());
+        assertEquals("Transaction failed with insufficient fund!", thrown.getCause().getMessage());
+        assertEquals("key-2", accepted.get(5, TimeUnit.SECONDS).getIdempotencyKey());
+        assertEquals(0, balances.get(walletId));
+        assertEquals(1, inserted.size());
+    }
+
+    @Test
+    @DisplayName("Reused idempotency key in a batch is rejected")
+    void testDuplicateKeyInBatch_thenRejectSecondMutation() throws Exception {
+        UUID walletId = newWallet(0);
+
+        CompletableFuture<Transaction> first = pipeline.post(walletId, 5, TransactionType.CREDIT, "key-1");
+        CompletableFuture<Transaction> second = pipeline.post(walletId, 5, TransactionType.CREDIT, "key-1");
+
+        assertEquals("key-1", first.get(5, TimeUnit.SECONDS).getIdempotencyKey());
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceException.class, thrown.getCause());
+        assertEquals("A transaction with the idempotency key already exists!", thrown.getCause().getMessage());
+        assertEquals(5, balances.get(walletId));
+        assertEquals(1, inserted.size());
+    }
+
+    @Test
+    @DisplayName("Rejected mutation releases its idempotency key")
+    void testRejectedMutation_thenReleaseKey() throws Exception {
+        UUID walletId = newWallet(10);
+
+        CompletableFuture<Transaction> rejected = pipeline.post(walletId, 20, TransactionType.DEBIT, "key-1");
+        assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+
+        assertFalse(claimedKeys.contains("key-1"));
+        pipeline.post(walletId, 10, TransactionType.DEBIT, "key-1").get(5, TimeUnit.SECONDS);
+        assertEquals(0, balances.get(walletId));
+    }
+
+    @Test
+    @DisplayName("Transfer to a missing receiver refunds the sender")
+    void testTransferToMissingReceiver_thenRefundSender() {
+        UUID senderId = newWallet(100);
+
+        CompletableFuture<Transaction> transfer = pipeline.transfer(senderId, UUID.randomUUID(), 60, "key-1");
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> transfer.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NotFoundException.class, thrown.getCause());
+        assertEquals("Receiver wallet not found!", thrown.getCause().getMessage());
+        assertEquals(100, balances.get(senderId));
+        assertTrue(inserted.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Transfer inserts both legs")
+    void testTransfer_thenInsertBothLegs() throws Exception {
+        UUID senderId = newWallet(100);
+        UUID receiverId = newWallet(0);
+
+        Transaction outgoing = pipeline.transfer(senderId, receiverId, 60, "key-1").get(5, TimeUnit.SECONDS);
+
+        assertEquals(TransactionType.TRANSFER_OUT, outgoing.getType());
+        assertEquals(40, balances.get(senderId));
+        assertEquals(60, balances.get(receiverId));
+        assertEquals(2, inserted.size());
+    }
+
+    @Test
+    @DisplayName("Every wallet of the batch is locked before its balance is updated")
+    void testTransfer_thenLockWalletsBeforeUpdates() throws Exception {
+        UUID senderId = newWallet(100);
+        UUID receiverId = newWallet(0);
+
+        pipeline.transfer(senderId, receiverId, 60, "key-1").get(5, TimeUnit.SECONDS);
+
+        InOrder order = inOrder(ledgerBatchRepository);
+        order.verify(ledgerBatchRepository).lockWallets(Set.of(senderId, receiverId));
+        order.verify(ledgerBatchRepository).debitWallets(anyList());
+        order.verify(ledgerBatchRepository, atLeastOnce()).creditWallets(anyList());
+    }
+
+    @Test
+    @DisplayName("A failed commit fails every mutation of the batch")
+    void testFailedCommit_thenFailBatch() {
+        UUID walletId = newWallet(0);
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(ledgerBatchRepository).insertTransactions(anyList());
+
+        CompletableFuture<Transaction> first = pipeline.post(walletId, 5, TransactionType.CREDIT, "key-1");
+        CompletableFuture<Transaction> second = pipeline.post(walletId, 5, TransactionType.CREDIT, "key-2");
+
+        for (CompletableFuture<Transaction> future : List.of(first, second)) {
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(DataAccessResourceFailureException.class, thrown.getCause());
+        }
+    }
+
+    private UUID newWallet(int balance) {
+        UUID id = UUID.randomUUID();
+        balances.put(id, balance);
+        return id;
+    }
+}
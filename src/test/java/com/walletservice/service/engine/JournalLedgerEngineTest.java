@@ -0,0 +1,141 @@
+package com.walletservice.service.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.repository.WalletRepository;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalLedgerEngineTest {
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    // balance of each wallet row, which the engine never writes
+    private final Map<UUID, Long> rows = new ConcurrentHashMap<>();
+    private JournalLedgerEngine engine;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        when(walletRepository.findTotalBalanceById(any(UUID.class)))
+                .thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<UUID>getArgument(0))));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Mutations are journaled and move the balances on top of the wallet rows")
+    void testMutations_thenJournalAndApply() throws Exception {
+        start();
+        UUID walletId = newWallet(50);
+
+        engine.post(walletId, 100, TransactionType.CREDIT, "key-1").get(5, TimeUnit.SECONDS);
+        Transaction debit = engine.post(walletId, 30, TransactionType.DEBIT, "key-2").get(5, TimeUnit.SECONDS);
+
+        assertEquals(TransactionType.DEBIT, debit.getType());
+        assertEquals(120, engine.balanceOf(walletId).getAsLong());
+        assertEquals(2, engine.getAppendedRecords());
+        assertTrue(engine.getFsyncs() >= 1);
+        assertTrue(engine.balanceOf(newWallet(10)).isEmpty());
+        verify(walletRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debit above the balance is rejected without a record")
+    void testDebitAboveBalance_thenReject() throws Exception {
+        start();
+        UUID walletId = newWallet(10);
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> engine.post(walletId, 20, TransactionType.DEBIT, "key-1").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(ServiceException.class, thrown.getCause());
+        assertEquals("Transaction failed with insufficient fund!", thrown.getCause().getMessage());
+        assertEquals(0, engine.getAppendedRecords());
+        assertTrue(engine.balanceOf(walletId).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Transfer moves the amount, and is rejected for a missing receiver")
+    void testTransfer_thenMoveAmount() throws Exception {
+        start();
+        UUID senderId = newWallet(100);
+        UUID receiverId = newWallet(0);
+
+        Transaction outgoing = engine.transfer(senderId, receiverId, 60, "key-1").get(5, TimeUnit.SECONDS);
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> engine.transfer(senderId, UUID.randomUUID(), 10, "key-2").get(5, TimeUnit.SECONDS));
+
+        assertEquals(TransactionType.TRANSFER_OUT, outgoing.getType());
+        assertEquals(40, engine.balanceOf(senderId).getAsLong());
+        assertEquals(60, engine.balanceOf(receiverId).getAsLong());
+        assertInstanceOf(NotFoundException.class, thrown.getCause());
+        assertEquals("Receiver wallet not found!", thrown.getCause().getMessage());
+    }
+
+    @Test
+    @DisplayName("Restart replays the journal onto the wallet rows and its idempotency keys")
+    void testRestart_thenReplayJournal() throws Exception {
+        start();
+        UUID senderId = newWallet(500);
+        UUID receiverId = newWallet(0);
+        engine.post(senderId, 100, TransactionType.DEBIT, "key-1").get(5, TimeUnit.SECONDS);
+        engine.transfer(senderId, receiverId, 150, "key-2").get(5, TimeUnit.SECONDS);
+        engine.shutdown();
+
+        start();
+
+        assertEquals(2, engine.getReplayedRecords());
+        assertEquals(250, engine.balanceOf(senderId).getAsLong());
+        assertEquals(150, engine.balanceOf(receiverId).getAsLong());
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> engine.post(receiverId, 10, TransactionType.CREDIT, "key-2").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DuplicateIdempotencyKeyException.class, thrown.getCause());
+        engine.post(senderId, 250, TransactionType.DEBIT, "key-3").get(5, TimeUnit.SECONDS);
+        assertEquals(0, engine.balanceOf(senderId).getAsLong());
+    }
+
+    private void start() {
+        LedgerEngineProperties properties = new LedgerEngineProperties();
+        properties.getJournal().setDirectory(directory.toString());
+        properties.getJournal().setLinger(Duration.ZERO);
+        engine = new JournalLedgerEngine(properties, walletRepository);
+    }
+
+    private UUID newWallet(long balance) {
+        UUID walletId = UUID.randomUUID();
+        rows.put(walletId, balance);
+        return walletId;
+    }
+}
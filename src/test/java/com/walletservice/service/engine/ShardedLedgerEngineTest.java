@@ -0,0 +1,317 @@
+package com.walletservice.service.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.model.Transaction;
+import com.walletservice.model.TransactionType;
+import com.walletservice.repository.LedgerBatchRepository;
+import com.walletservice.repository.WalletRepository;
+import com.walletservice.service.cache.WalletCache;
+import com.walletservice.service.idempotency.IdempotencyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ShardedLedgerEngineTest {
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final LedgerBatchRepository ledgerBatchRepository = mock(LedgerBatchRepository.class);
+    private final IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+
+    // balances as persisted by the batches
+    private final Map<UUID, Long> database = new ConcurrentHashMap<>();
+    private final Set<String> claimedKeys = ConcurrentHashMap.newKeySet();
+    private ShardedLedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        LedgerEngineProperties properties = new LedgerEngineProperties();
+        properties.setShards(4);
+        properties.setMaxBatchSize(32);
+
+        when(walletRepository.findTotalBalanceById(any(UUID.class)))
+                .thenAnswer(invocation -> Optional.ofNullable(database.get(invocation.<UUID>getArgument(0))));
+        doAnswer(invocation -> {
+            Map<UUID, Long> deltas = invocation.getArgument(0);
+            deltas.forEach((id, delta) -> database.merge(id, delta, Long::sum));
+            return null;
+        }).when(ledgerBatchRepository).applyBalanceDeltas(anyMap());
+        when(idempotencyStore.claimAll(anyList())).thenAnswer(this::claim);
+        doAnswer(invocation -> {
+            claimedKeys.removeAll(invocation.<List<String>>getArgument(0));
+            return null;
+        }).when(idempotencyStore).releaseAll(anyList());
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        engine = new ShardedLedgerEngine(properties, walletRepository, ledgerBatchRepository,
+                idempotencyStore, new WalletCache(1000), transactionTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("Credit and debit are applied and persisted")
+    void testCreditAndDebit_thenPersistBalance() throws Exception {
+        UUID walletId = newWallet(0);
+
+        Transaction credit = await(engine.post(walletId, 100, TransactionType.CREDIT, "key-1"));
+        Transaction debit = await(engine.post(walletId, 40, TransactionType.DEBIT, "key-2"));
+
+        assertNotNull(credit.getId());
+        assertEquals(TransactionType.DEBIT, debit.getType());
+        assertEquals(60L, database.get(walletId));
+    }
+
+    @Test
+    @DisplayName("Debit above balance fails with insufficient fund")
+    void testDebitAboveBalance_thenThrowException() {
+        UUID walletId = newWallet(10);
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> await(engine.post(walletId, 20, TransactionType.DEBIT, "key-1")));
+
+        assertInstanceOf(ServiceException.class, thrown.getCause());
+        assertEquals("Transaction failed with insufficient fund!", thrown.getCause().getMessage());
+        assertEquals(10L, database.get(walletId));
+    }
+
+    @Test
+    @DisplayName("Cross-shard transfer to a missing receiver releases the reservation")
+    void testTransferToMissingReceiver_thenReleaseReservation() throws Exception {
+        UUID senderId = newWallet(100);
+        UUID receiverId = UUID.randomUUID();
+        while (engine.shardOf(receiverId) == engine.shardOf(senderId)) {
+            receiverId = UUID.randomUUID();
+        }
+        UUID missingReceiverId = receiverId;
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> await(engine.transfer(senderId, missingReceiverId, 100, "key-1")));
+        assertInstanceOf(NotFoundException.class, thrown.getCause());
+        assertEquals("Receiver wallet not found!", thrown.getCause().getMessage());
+
+        // the reserved amount is spendable again
+        await(engine.post(senderId, 100, TransactionType.DEBIT, "key-2"));
+        assertEquals(0L, database.get(senderId));
+    }
+
+    @Test
+    @DisplayName("Cross-shard transfer with a used idempotency key releases the reservation")
+    void testTransferWithUsedKey_thenReleaseReservation() throws Exception {
+        UUID senderId = newWallet(100);
+        UUID receiverId = newWallet(0);
+        while (engine.shardOf(receiverId) == engine.shardOf(senderId)) {
+            database.remove(receiverId);
+            receiverId = newWallet(0);
+        }
+        UUID otherShardReceiverId = receiverId;
+        await(engine.post(senderId, 1, TransactionType.CREDIT, "key-1"));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> await(engine.transfer(senderId, otherShardReceiverId, 100, "key-1")));
+        assertInstanceOf(ServiceException.class, thrown.getCause());
+        assertEquals("A transaction with the idempotency key already exists!", thrown.getCause().getMessage());
+
+        await(engine.post(senderId, 101, TransactionType.DEBIT, "key-2"));
+        assertEquals(0L, database.get(senderId));
+        assertEquals(0L, database.get(otherShardReceiverId));
+    }
+
+    @Test
+    @DisplayName("Failed persistence reverts the in-memory balance")
+    void testFailedPersistence_thenRevertBalance() throws Exception {
+        UUID walletId = newWallet(50);
+        doAnswer(invocation -> {
+            // the rollback takes the key claim with it
+            claimedKeys.clear();
+            throw new DataAccessResourceFailureException("connection lost");
+        }).doNothing().when(ledgerBatchRepository).insertTransactions(any());
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> await(engine.post(walletId, 50, TransactionType.DEBIT, "key-1")));
+        assertInstanceOf(DataAccessResourceFailureException.class, thrown.getCause());
+
+        Transaction retried = await(engine.post(walletId, 50, TransactionType.DEBIT, "key-1"));
+        assertNotNull(retried);
+    }
+
+    @Test
+    @DisplayName("A failed key claim fails the cross-shard transfer and releases its reservation")
+    void testFailedKeyClaim_thenFailTransferAndReleaseReservation() throws Exception {
+        UUID senderId = newWallet(100);
+        UUID receiverId = newWallet(0);
+        while (engine.shardOf(receiverId) == engine.shardOf(senderId)) {
+            database.remove(receiverId);
+            receiverId = newWallet(0);
+        }
+        UUID otherShardReceiverId = receiverId;
+        doThrow(new DataAccessResourceFailureException("no database permit"))
+                .doAnswer(this::claim)
+                .when(idempotencyStore).claimAll(anyList());
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> await(engine.transfer(senderId, otherShardReceiverId, 100, "key-1")));
+        assertInstanceOf(DataAccessResourceFailureException.class, thrown.getCause());
+
+        // the reservation was released, so the whole balance can be debited again
+        await(engine.post(senderId, 100, TransactionType.DEBIT, "key-2"));
+        assertEquals(0L, database.get(senderId));
+    }
+
+    @Test
+    @DisplayName("A failed wallet read in a reservation fails that command and keeps the shard running")
+    void testFailedReadInReservation_thenShardKeepsRunning() throws Exception {
+        UUID brokenId = UUID.randomUUID();
+        UUID receiverId = newWallet(0);
+        while (engine.shardOf(receiverId) == engine.shardOf(brokenId)) {
+            database.remove(receiverId);
+            receiverId = newWallet(0);
+        }
+        UUID sameShardId = newWallet(0);
+        while (engine.shardOf(sameShardId) != engine.shardOf(brokenId)) {
+            database.remove(sameShardId);
+            sameShardId = newWallet(0);
+        }
+        when(walletRepository.findTotalBalanceById(brokenId))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+        UUID otherShardReceiverId = receiverId;
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> await(engine.transfer(brokenId, otherShardReceiverId, 10, "key-1")));
+        assertInstanceOf(DataAccessResourceFailureException.class, thrown.getCause());
+
+        assertNotNull(await(engine.post(sameShardId, 10, TransactionType.CREDIT, "key-2")));
+        assertEquals(10L, database.get(sameShardId));
+    }
+
+    @Test
+    @DisplayName("A balance invalidated after an outside change is read again")
+    void testInvalidatedBalance_thenReadAgain() throws Exception {
+        UUID walletId = newWallet(100);
+        await(engine.post(walletId, 10, TransactionType.DEBIT, "key-1"));
+        // e.g. pending credits folded into the wallet row
+        database.merge(walletId, 100L, Long::sum);
+
+        engine.invalidateAfterCommit(List.of(walletId));
+
+        await(engine.post(walletId, 150, TransactionType.DEBIT, "key-2"));
+        assertEquals(40L, database.get(walletId));
+    }
+
+    @Test
+    @DisplayName("An invalidated sender balance is kept while its cross-shard transfer is reserved")
+    void testInvalidatedSenderWithReservation_thenKeepReservation() throws Exception {
+        UUID senderId = newWallet(100);
+        UUID receiverId = newWallet(0);
+        while (engine.shardOf(receiverId) == engine.shardOf(senderId)) {
+            database.remove(receiverId);
+            receiverId = newWallet(0);
+        }
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            // the receiver shard holds the transfer before persisting it
+            if (invocation.<List<String>>getArgument(0).contains("key-1")) {
+                committing.countDown();
+                commit.await(10, TimeUnit.SECONDS);
+            }
+            return claim(invocation);
+        }).when(idempotencyStore).claimAll(anyList());
+
+        CompletableFuture<Transaction> transfer = engine.transfer(senderId, receiverId, 100, "key-1");
+        assertTrue(committing.await(10, TimeUnit.SECONDS));
+        engine.invalidateAfterCommit(List.of(senderId));
+
+        // the persisted balance still holds the reserved amount, the one kept in memory does not
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> await(engine.post(senderId, 1, TransactionType.DEBIT, "key-2")));
+        assertEquals("Transaction failed with insufficient fund!", thrown.getCause().getMessage());
+
+        commit.countDown();
+        await(transfer);
+        assertEquals(0L, database.get(senderId));
+        assertEquals(100L, database.get(receiverId));
+    }
+
+    @Test
+    @DisplayName("Concurrent transfers across shards conserve the total balance")
+    void testConcurrentTransfers_thenConserveTotal() throws Exception {
+        int wallets = 16;
+        List<UUID> walletIds = new ArrayList<>();
+        for (int i = 0; i < wallets; i++) {
+            walletIds.add(newWallet(1_000));
+        }
+
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 5_000; i++) {
+            UUID sender = walletIds.get(random.nextInt(wallets));
+            UUID receiver = walletIds.get(random.nextInt(wallets));
+            futures.add(engine.transfer(sender, receiver, random.nextInt(1, 200), "key-" + i));
+        }
+
+        int succeeded = 0;
+        for (CompletableFuture<Transaction> future : futures) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(ServiceException.class, e.getCause());
+            }
+        }
+
+        assertNotEquals(0, succeeded);
+        assertEquals(wallets * 1_000L, database.values().stream().mapToLong(Long::longValue).sum());
+        database.values().forEach(balance -> assertTrue(balance >= 0));
+    }
+
+    private UUID newWallet(int balance) {
+        UUID id = UUID.randomUUID();
+        database.put(id, (long) balance);
+        return id;
+    }
+
+    private int[] claim(InvocationOnMock invocation) {
+        List<String> keys = invocation.getArgument(0);
+        return keys.stream().mapToInt(key -> claimedKeys.add(key) ? 1 : 0).toArray();
+    }
+
+    private static Transaction await(CompletableFuture<Transaction> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
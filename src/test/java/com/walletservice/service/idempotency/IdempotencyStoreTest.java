@@ -0,0 +1,116 @@
+package com.walletservice.service.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.config.IdempotencyProperties;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.repository.IdempotencyKeyRepository;
+import com.walletservice.repository.LedgerBatchRepository;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository = mock(IdempotencyKeyRepository.class);
+    private final LedgerBatchRepository ledgerBatchRepository = mock(LedgerBatchRepository.class);
+
+    private IdempotencyStore idempotencyStore;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setExpectedKeys(1_000);
+        properties.setFalsePositiveRate(0.01);
+
+        when(idempotencyKeyRepository.streamAllKeys()).thenReturn(Stream.of("key-1", "key-2"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        idempotencyStore = new IdempotencyStore(idempotencyKeyRepository, ledgerBatchRepository,
+                transactionTemplate, properties);
+        idempotencyStore.rebuild();
+    }
+
+    @Test
+    @DisplayName("Key loaded at startup is confirmed by the database")
+    void testLoadedKey_thenExists() {
+        when(idempotencyKeyRepository.existsById("key-1")).thenReturn(true);
+
+        assertTrue(idempotencyStore.exists("key-1"));
+        assertEquals(1, idempotencyStore.getDatabaseLookups());
+        assertEquals(0, idempotencyStore.getFalsePositives());
+    }
+
+    @Test
+    @DisplayName("New key is answered by the filter without a database lookup")
+    void testNewKey_thenSkipDatabase() {
+        assertFalse(idempotencyStore.exists("IDK-KEY-0023"));
+
+        verify(idempotencyKeyRepository, never()).existsById(any());
+        assertEquals(1, idempotencyStore.getFilterNegatives());
+    }
+
+    @Test
+    @DisplayName("Claimed key is added to the filter")
+    void testClaimedKey_thenFilterContainsIt() {
+        when(ledgerBatchRepository.claimIdempotencyKeys(anyList())).thenReturn(new int[]{1});
+        when(idempotencyKeyRepository.existsById("key-3")).thenReturn(true);
+
+        idempotencyStore.claim("key-3");
+
+        assertTrue(idempotencyStore.exists("key-3"));
+    }
+
+    @Test
+    @DisplayName("Key claimed in a transaction that does not commit stays out of the filter")
+    void testClaimNotCommitted_thenFilterSkipsIt() {
+        when(ledgerBatchRepository.claimIdempotencyKeys(anyList())).thenReturn(new int[]{1});
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            idempotencyStore.claim("key-3");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(idempotencyStore.exists("key-3"));
+        verify(idempotencyKeyRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Keys of existing transactions are only backfilled when enabled")
+    void testRebuild_thenBackfillOnlyWhenEnabled() {
+        verify(ledgerBatchRepository, never()).backfillIdempotencyKeys();
+
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setBackfillKeys(true);
+        when(idempotencyKeyRepository.streamAllKeys()).thenReturn(Stream.empty());
+        new IdempotencyStore(idempotencyKeyRepository, ledgerBatchRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), properties).rebuild();
+
+        verify(ledgerBatchRepository).backfillIdempotencyKeys();
+    }
+
+    @Test
+    @DisplayName("Claim of a used key throws exception")
+    void testClaimUsedKey_thenThrowException() {
+        when(ledgerBatchRepository.claimIdempotencyKeys(List.of("key-1"))).thenReturn(new int[]{0});
+
+        ServiceException thrown = assertThrows(ServiceException.class, () -> idempotencyStore.claim("key-1"));
+
+        assertEquals("A transaction with the idempotency key already exists!", thrown.getMessage());
+    }
+}
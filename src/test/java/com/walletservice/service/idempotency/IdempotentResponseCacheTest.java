@@ -0,0 +1,202 @@
+package com.walletservice.service.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.walletservice.config.IdempotencyProperties;
+import com.walletservice.dto.TransactionRequest;
+import com.walletservice.dto.TransactionResponse;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.exception.ServiceUnavailableException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IdempotentResponseCacheTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger executions = new AtomicInteger();
+    private final UUID walletId = UUID.randomUUID();
+
+    private IdempotentResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setReplayCacheSize(2);
+        properties.setReplayTtl(Duration.ofMinutes(10));
+        properties.setCoalescedWaitTimeout(Duration.ofMillis(200));
+        cache = new IdempotentResponseCache(objectMapper, properties, now::get);
+    }
+
+    @Test
+    @DisplayName("Retry with the same key replays the original response")
+    void testRetry_thenReplayOriginalResponse() {
+        TransactionRequest request = request("key-1", 100);
+
+        TransactionResponse original = execute(request);
+        TransactionResponse replayed = execute(request);
+
+        assertEquals(original, replayed);
+        assertNotSame(original, replayed);
+        assertEquals(1, executions.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Key reused by a different request throws exception")
+    void testKeyReusedByDifferentRequest_thenThrowException() {
+        execute(request("key-1", 100));
+
+        ServiceException thrown = assertThrows(ServiceException.class, () -> execute(request("key-1", 200)));
+
+        assertEquals("The idempotency key was already used for a different request!", thrown.getMessage());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("Failed request is not replayed")
+    void testFailedRequest_thenExecuteAgain() {
+        TransactionRequest request = request("key-1", 100);
+
+        assertThrows(ServiceException.class, () -> cache.execute("key-1", request, TransactionResponse.class, () -> {
+            executions.incrementAndGet();
+            throw new ServiceException("Transaction failed with insufficient fund!");
+        }));
+        execute(request);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    @DisplayName("Expired and evicted responses are executed again")
+    void testExpiredAndEvicted_thenExecuteAgain() {
+        execute(request("key-1", 100));
+        now.addAndGet(Duration.ofMinutes(11).toNanos());
+        execute(request("key-1", 100));
+
+        execute(request("key-2", 100));
+        execute(request("key-3", 100));
+        execute(request("key-1", 100));
+
+        assertEquals(5, executions.get());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    @DisplayName("Concurrent requests with the same key execute once")
+    void testConcurrentDuplicates_thenExecuteOnce() throws Exception {
+        TransactionRequest request = request("key-1", 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<TransactionResponse> leader = executor.submit(() -> cache.execute("key-1", request,
+                    TransactionResponse.class, () -> {
+                        started.countDown();
+                        await(release);
+                        return response(request);
+                    }));
+            started.await(5, TimeUnit.SECONDS);
+
+            List<Future<TransactionResponse>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> execute(request)));
+            }
+            while (cache.getCoalesced() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            TransactionResponse original = leader.get(5, TimeUnit.SECONDS);
+            for (Future<TransactionResponse> follower : followers) {
+                assertEquals(original, follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(0, executions.get());
+            assertEquals(1, cache.getMisses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent request gives up waiting for a stuck request with the same key")
+    void testStuckDuplicate_thenStopWaiting() throws Exception {
+        TransactionRequest request = request("key-1", 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<TransactionResponse> leader = executor.submit(() -> cache.execute("key-1", request,
+                    TransactionResponse.class, () -> {
+                        started.countDown();
+                        await(release);
+                        return response(request);
+                    }));
+            started.await(5, TimeUnit.SECONDS);
+
+            ServiceUnavailableException thrown = assertThrows(ServiceUnavailableException.class,
+                    () -> execute(request));
+            assertEquals("A request with the same idempotency key is still running, please retry!",
+                    thrown.getMessage());
+
+            release.countDown();
+            assertEquals(leader.get(5, TimeUnit.SECONDS), execute(request));
+            assertEquals(0, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TransactionResponse execute(TransactionRequest request) {
+        return cache.execute(request.getIdempotencyKey(), request, TransactionResponse.class, () -> {
+            executions.incrementAndGet();
+            return response(request);
+        });
+    }
+
+    private TransactionRequest request(String key, int amount) {
+        return TransactionRequest.builder()
+                .walletId(walletId)
+                .amount(amount)
+                .type("CREDIT")
+                .idempotencyKey(key)
+                .build();
+    }
+
+    private static TransactionResponse response(TransactionRequest request) {
+        return TransactionResponse.builder()
+                .transactionId(UUID.randomUUID())
+                .walletId(request.getWalletId())
+                .amount(request.getAmount())
+                .type(request.getType())
+                .idempotencyKey(request.getIdempotencyKey())
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.walletservice.service.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.walletservice.model.TransactionType;
+import com.walletservice.model.id.UuidV7Generator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LedgerJournalTest {
+
+    private static final long SEGMENT_SIZE = 1024 * JournalRecord.SIZE;
+
+    private final UuidV7Generator ids = new UuidV7Generator();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Appended records are replayed in order with every field")
+    void testAppend_thenReplayOnOpen() throws IOException {
+        UUID sender = UUID.randomUUID();
+        UUID receiver = UUID.randomUUID();
+        JournalRecord credit = record(1, TransactionType.CREDIT, sender, null, "key-1");
+        JournalRecord transfer = record(2, TransactionType.TRANSFER_OUT, sender, receiver, null);
+        try (LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, record -> { })) {
+            journal.append(credit);
+            journal.append(transfer);
+        }
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, replayed::add)) {
+            assertEquals(3, journal.getNextSequence());
+        }
+
+        assertEquals(2, replayed.size());
+        assertSame(credit, replayed.get(0));
+        assertSame(transfer, replayed.get(1));
+        assertEquals(JournalRecord.digestOf("key-1"), replayed.get(0).getKeyDigest());
+        assertNull(replayed.get(0).getReceiverWalletId());
+        assertEquals(receiver, replayed.get(1).getReceiverWalletId());
+    }
+
+    @Test
+    @DisplayName("A full segment rolls over to a new file named after its first record")
+    void testFullSegment_thenRollOver() throws IOException {
+        try (LedgerJournal journal = LedgerJournal.open(directory, 2 * JournalRecord.SIZE, record -> { })) {
+            for (int i = 1; i <= 5; i++) {
+                journal.append(record(i, TransactionType.CREDIT, UUID.randomUUID(), null, "key-" + i));
+            }
+            assertEquals(3, journal.getSegments());
+        }
+
+        assertEquals(List.of("00000000000000000001.journal", "00000000000000000003.journal",
+                "00000000000000000005.journal"), segmentNames());
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (LedgerJournal journal = LedgerJournal.open(directory, 2 * JournalRecord.SIZE, replayed::add)) {
+            assertEquals(6, journal.getNextSequence());
+        }
+        assertEquals(5, replayed.size());
+    }
+
+    @Test
+    @DisplayName("A torn last record is discarded and appends resume in its place")
+    void testTornTail_thenTruncate() throws IOException {
+        try (LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, record -> { })) {
+            for (int i = 1; i <= 3; i++) {
+                journal.append(record(i, TransactionType.CREDIT, UUID.randomUUID(), null, "key-" + i));
+            }
+        }
+        corrupt(segment(0), 2L * JournalRecord.SIZE + 40);
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, replayed::add)) {
+            assertEquals(3, journal.getNextSequence());
+            journal.append(record(3, TransactionType.DEBIT, UUID.randomUUID(), null, "key-4"));
+        }
+        assertEquals(2, replayed.size());
+
+        replayed.clear();
+        try (LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, replayed::add)) {
+            assertEquals(4, journal.getNextSequence());
+        }
+        assertEquals(TransactionType.DEBIT, replayed.get(2).getType());
+    }
+
+    @Test
+    @DisplayName("A bad record before the last segment is corruption")
+    void testCorruptEarlierSegment_thenFailToOpen() throws IOException {
+        try (LedgerJournal journal = LedgerJournal.open(directory, 2 * JournalRecord.SIZE, record -> { })) {
+            for (int i = 1; i <= 3; i++) {
+                journal.append(record(i, TransactionType.CREDIT, UUID.randomUUID(), null, "key-" + i));
+            }
+        }
+        corrupt(segment(0), JournalRecord.SIZE + 24);
+
+        assertThrows(IOException.class, () -> LedgerJournal.open(directory, 2 * JournalRecord.SIZE, record -> { }));
+    }
+
+    private JournalRecord record(long sequence, TransactionType type, UUID walletId, UUID receiverWalletId, String key) {
+        return new JournalRecord(type, sequence, System.currentTimeMillis(), 10, ids.nextId(),
+                walletId, receiverWalletId, JournalRecord.digestOf(key));
+    }
+
+    private static void assertSame(JournalRecord expected, JournalRecord actual) {
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getTransactionId(), actual.getTransactionId());
+        assertEquals(expected.getWalletId(), actual.getWalletId());
+        assertEquals(expected.getReceiverWalletId(), actual.getReceiverWalletId());
+        assertEquals(expected.getKeyDigest(), actual.getKeyDigest());
+    }
+
+    private List<String> segmentNames() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private Path segment(int index) throws IOException {
+        return directory.resolve(segmentNames().get(index));
+    }
+
+    private static void corrupt(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(1);
+            channel.read(bytes, position);
+            bytes.put(0, (byte) ~bytes.get(0));
+            channel.write(bytes.rewind(), position);
+        }
+    }
+}
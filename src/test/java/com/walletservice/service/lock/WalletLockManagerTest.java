@@ -0,0 +1,163 @@
+package com.walletservice.service.lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class WalletLockManagerTest {
+
+    private final WalletLockManager lockManager = new WalletLockManager(64);
+
+    @Test
+    @DisplayName("Stripe count is rounded up to a power of two")
+    void testStripeCountRoundedUp() {
+        assertEquals(1, new WalletLockManager(1).getStripeCount());
+        assertEquals(64, new WalletLockManager(33).getStripeCount());
+        assertEquals(1024, new WalletLockManager(1024).getStripeCount());
+        assertThrows(IllegalArgumentException.class, () -> new WalletLockManager(0));
+    }
+
+    @Test
+    @DisplayName("Concurrent updates on one wallet are not lost")
+    void testConcurrentUpdatesOnSameWallet() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        int[] balance = {0};
+        int threads = 8;
+        int iterations = 5_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        try (WalletLockManager.Lease ignored = lockManager.lock(walletId)) {
+                            balance[0]++;
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * iterations, balance[0]);
+        assertEquals((long) threads * iterations, lockManager.getAcquisitions());
+    }
+
+    @Test
+    @DisplayName("Opposite transfers between two wallets do not deadlock")
+    void testOppositeTransfersDoNotDeadlock() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> forward = executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    try (WalletLockManager.Lease ignored = lockManager.lock(first, second)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            Future<?> backward = executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    try (WalletLockManager.Lease ignored = lockManager.lock(second, first)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            forward.get(30, TimeUnit.SECONDS);
+            backward.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Lease acquired in a transaction is held until completion")
+    void testLeaseHeldUntilTransactionCompletion() throws Exception {
+        UUID walletId = UUID.randomUUID();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            try (WalletLockManager.Lease ignored = lockManager.lock(walletId)) {
+                assertTrue(isLockedElsewhere(walletId));
+            }
+            // closed, but the transaction is still running
+            assertTrue(isLockedElsewhere(walletId));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            assertFalse(isLockedElsewhere(walletId));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Contended acquisitions record wait time")
+    void testContendedAcquisitionRecordsWaitTime() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> {
+            try (WalletLockManager.Lease ignored = lockManager.lock(walletId)) {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        holder.start();
+        locked.await();
+
+        Thread waiter = new Thread(() -> {
+            try (WalletLockManager.Lease ignored = lockManager.lock(walletId)) {
+                Thread.onSpinWait();
+            }
+        });
+        waiter.start();
+        Thread.sleep(50);
+        release.countDown();
+        waiter.join(5_000);
+        holder.join(5_000);
+
+        assertEquals(1, lockManager.getContendedAcquisitions());
+        assertTrue(lockManager.getTotalWaitNanos() > 0);
+        assertTrue(lockManager.getMaxWaitNanos() > 0);
+    }
+
+    private boolean isLockedElsewhere(UUID walletId) throws InterruptedException {
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread attempt = new Thread(() -> {
+            try (WalletLockManager.Lease ignored = lockManager.lock(walletId)) {
+                acquired.countDown();
+            }
+        });
+        attempt.setDaemon(true);
+        attempt.start();
+        return !acquired.await(200, TimeUnit.MILLISECONDS);
+    }
+}
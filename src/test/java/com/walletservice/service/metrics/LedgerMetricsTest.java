@@ -0,0 +1,103 @@
+package com.walletservice.service.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.walletservice.exception.DuplicateIdempotencyKeyException;
+import com.walletservice.exception.InsufficientFundsException;
+import com.walletservice.exception.NotFoundException;
+import com.walletservice.exception.ServiceException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class LedgerMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LedgerMetrics metrics = new LedgerMetrics(registry);
+
+    @Test
+    @DisplayName("Successful operation is timed and its amount recorded")
+    void testSuccess_thenTimeAndRecordAmount() {
+        String result = metrics.record(LedgerMetrics.CREDIT, () -> "done", done -> 250);
+
+        assertEquals("done", result);
+        assertEquals(1, timer(LedgerMetrics.CREDIT, "success").count());
+        assertEquals(250, registry.get("wallet.ledger.amount").tag("operation", LedgerMetrics.CREDIT)
+                .summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Failed operations are tagged with their outcome")
+    void testFailure_thenTagOutcome() {
+        fail(new InsufficientFundsException("Transaction failed with insufficient fund!"));
+        fail(new DuplicateIdempotencyKeyException("A transaction with the idempotency key already exists!"));
+        fail(new NotFoundException("Wallet not found"));
+        fail(new ServiceException("Invalid transaction type: REFUND"));
+        fail(new IllegalStateException("connection reset"));
+
+        assertEquals(1, timer(LedgerMetrics.DEBIT, "insufficient_funds").count());
+        assertEquals(1, timer(LedgerMetrics.DEBIT, "duplicate_key").count());
+        assertEquals(1, timer(LedgerMetrics.DEBIT, "not_found").count());
+        assertEquals(1, timer(LedgerMetrics.DEBIT, "rejected").count());
+        assertEquals(1, timer(LedgerMetrics.DEBIT, "error").count());
+        assertNull(registry.find("wallet.ledger.amount").summary());
+    }
+
+    @Test
+    @DisplayName("Operation in a transaction is timed once the transaction completed")
+    void testInTransaction_thenStopAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            metrics.record(LedgerMetrics.TRANSFER, () -> "done", done -> 100);
+            assertNull(registry.find("wallet.ledger.operation").timer());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // the commit failed, so the operation did not succeed
+        assertEquals(1, timer(LedgerMetrics.TRANSFER, "error").count());
+        assertNull(registry.find("wallet.ledger.amount").summary());
+    }
+
+    @Test
+    @DisplayName("Statements are counted for the operation running on the thread")
+    void testCountStatement_thenAttributeToOperation() {
+        metrics.record(LedgerMetrics.PAYOUT, () -> {
+            metrics.countStatement();
+            metrics.countStatement();
+            return "done";
+        }, done -> 10);
+        metrics.countStatement();
+
+        assertEquals(2, registry.get("wallet.db.statements").tag("operation", LedgerMetrics.PAYOUT)
+                .counter().count());
+        assertEquals(1, registry.get("wallet.db.statements").tag("operation", LedgerMetrics.OTHER)
+                .counter().count());
+    }
+
+    @Test
+    @DisplayName("Unknown transaction types are timed as invalid")
+    void testOperationOf_thenMapType() {
+        assertEquals(LedgerMetrics.CREDIT, LedgerMetrics.operationOf("CREDIT"));
+        assertEquals(LedgerMetrics.DEBIT, LedgerMetrics.operationOf("DEBIT"));
+        assertEquals("invalid", LedgerMetrics.operationOf("REFUND"));
+    }
+
+    private void fail(RuntimeException exception) {
+        assertThrows(exception.getClass(), () -> metrics.record(LedgerMetrics.DEBIT, () -> {
+            throw exception;
+        }, done -> 0));
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return registry.get("wallet.ledger.operation").tag("operation", operation).tag("outcome", outcome).timer();
+    }
+}
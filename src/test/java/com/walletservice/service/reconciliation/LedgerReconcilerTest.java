@@ -0,0 +1,145 @@
+package com.walletservice.service.reconciliation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.walletservice.config.LedgerEngineProperties;
+import com.walletservice.config.ReconciliationProperties;
+import com.walletservice.dto.ReconciliationReport;
+import com.walletservice.dto.WalletDiscrepancy;
+import com.walletservice.exception.ServiceException;
+import com.walletservice.repository.ReconciliationRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class LedgerReconcilerTest {
+
+    private final ReconciliationRepository reconciliationRepository = mock(ReconciliationRepository.class);
+    private final ReconciliationProperties properties = new ReconciliationProperties();
+    private final LedgerEngineProperties ledgerEngineProperties = new LedgerEngineProperties();
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+    private LedgerReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        properties.setInterval(Duration.ZERO);
+        properties.setChunkSize(2);
+        when(reconciliationRepository.findLastWalletId()).thenReturn(Optional.of(third));
+        when(reconciliationRepository.findChunkEnd(isNull(), eq(third), anyInt())).thenReturn(Optional.of(second));
+        when(reconciliationRepository.findChunkEnd(eq(second), eq(third), anyInt())).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (reconciler != null) {
+            reconciler.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Every chunk is reconciled and wallets off their ledger are reported")
+    void testReconcile_thenReportDiscrepancies() {
+        doAnswer(invocation -> {
+            ReconciliationRepository.WalletBalanceConsumer consumer = invocation.getArgument(2);
+            if (invocation.getArgument(0) == null) {
+                consumer.accept(first, 100, 100, 3);
+                consumer.accept(second, 50, 40, 2);
+            } else {
+                consumer.accept(third, 0, 0, 0);
+            }
+            return null;
+        }).when(reconciliationRepository).forEachWallet(any(), any(), any());
+        start();
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        assertEquals("COMPLETED", report.getStatus());
+        assertEquals(3, report.getCheckedWallets());
+        assertEquals(5, report.getCheckedTransactions());
+        assertEquals(2, report.getCheckedChunks());
+        assertEquals(1, report.getDiscrepancyCount());
+        assertEquals(List.of(new WalletDiscrepancy(second, 50, 40)), report.getDiscrepancies());
+        assertEquals(report, reconciler.getLatest().orElseThrow());
+        assertEquals(1, reconciler.getDiscrepancies());
+    }
+
+    @Test
+    @DisplayName("Discrepancies past the reported maximum are only counted")
+    void testManyDiscrepancies_thenReportTheFirst() {
+        properties.setMaxReportedDiscrepancies(1);
+        doAnswer(invocation -> {
+            ReconciliationRepository.WalletBalanceConsumer consumer = invocation.getArgument(2);
+            consumer.accept(UUID.randomUUID(), 10, 0, 1);
+            consumer.accept(UUID.randomUUID(), 20, 0, 1);
+            return null;
+        }).when(reconciliationRepository).forEachWallet(any(), any(), any());
+        start();
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        assertEquals(4, report.getDiscrepancyCount());
+        assertEquals(1, report.getDiscrepancies().size());
+    }
+
+    @Test
+    @DisplayName("Without wallets the run completes with nothing checked")
+    void testNoWallets_thenCompleteEmpty() {
+        when(reconciliationRepository.findLastWalletId()).thenReturn(Optional.empty());
+        start();
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        assertEquals("COMPLETED", report.getStatus());
+        assertEquals(0, report.getCheckedChunks());
+    }
+
+    @Test
+    @DisplayName("A failed chunk fails the run, and the next run can start")
+    void testFailedChunk_thenFailRun() {
+        doAnswer(invocation -> {
+            throw new DataAccessResourceFailureException("connection lost");
+        }).when(reconciliationRepository).forEachWallet(any(), any(), any());
+        start();
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        assertEquals("FAILED", report.getStatus());
+        assertEquals("connection lost", report.getError());
+        assertFalse(reconciler.isRunning());
+        assertEquals("FAILED", reconciler.reconcile().getStatus());
+    }
+
+    @Test
+    @DisplayName("Engine modes that do not maintain the wallet rows refuse to reconcile")
+    void testJournalMode_thenRefuse() {
+        ledgerEngineProperties.setMode("journal");
+        start();
+
+        assertThrows(ServiceException.class, () -> reconciler.reconcile());
+    }
+
+    private void start() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        reconciler = new LedgerReconciler(properties, ledgerEngineProperties, reconciliationRepository, transactionTemplate);
+    }
+}